@@ -31,10 +31,8 @@ import static com.microsoft.azuretools.telemetry.TelemetryConstants.STORAGE;
 
 import com.microsoft.tooling.msservices.serviceexplorer.WrappedTelemetryNodeActionListener;
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.SocketTimeoutException;
@@ -87,7 +85,6 @@ import org.eclipse.ui.part.EditorPart;
 
 import com.microsoft.tooling.msservices.components.DefaultLoader;
 import com.microsoft.tooling.msservices.helpers.CallableSingleArg;
-import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azureexplorer.Activator;
 import com.microsoft.azuretools.azureexplorer.forms.UploadBlobFileForm;
 import com.microsoft.azuretools.azureexplorer.helpers.UIHelperImpl;
@@ -99,6 +96,7 @@ import com.microsoft.tooling.msservices.model.storage.BlobContainer;
 import com.microsoft.tooling.msservices.model.storage.BlobDirectory;
 import com.microsoft.tooling.msservices.model.storage.BlobFile;
 import com.microsoft.tooling.msservices.model.storage.BlobItem;
+import com.microsoft.tooling.msservices.model.storage.BlobItemPage;
 import com.microsoft.tooling.msservices.serviceexplorer.NodeActionEvent;
 import com.microsoft.tooling.msservices.serviceexplorer.NodeActionListener;
 
@@ -112,6 +110,7 @@ public class BlobExplorerFileEditor extends EditorPart implements TelemetryPrope
     private static final String REFRESH = "Refresh";
     private static final String UPLOAD_BLOB = "Upload Blob";
     private static final String DELETE_SELECTED_BLOB = "Delete Selected Blob";
+    private static final int NEXT_PAGE_THRESHOLD_ROWS = 50;
 
     private Text queryTextField;
     private Button queryButton;
@@ -131,6 +130,9 @@ public class BlobExplorerFileEditor extends EditorPart implements TelemetryPrope
 
     private LinkedList<BlobDirectory> directoryQueue = new LinkedList<BlobDirectory>();
     private java.util.List<BlobItem> blobItems = new ArrayList<BlobItem>();
+    private BlobItemPage lastPage;
+    private boolean loadingPage;
+    private int pageGeneration;
     private FileEditorVirtualNode<EditorPart> fileEditorVirtualNode;
 
     @Override
@@ -386,6 +388,15 @@ public class BlobExplorerFileEditor extends EditorPart implements TelemetryPrope
         blobListTable.getColumn(4).setWidth(140);
         blobListTable.getColumn(5).setWidth(250);
 
+        if (blobListTable.getVerticalBar() != null) {
+            blobListTable.getVerticalBar().addSelectionListener(new SelectionAdapter() {
+                @Override
+                public void widgetSelected(SelectionEvent e) {
+                    loadNextPageIfNeeded();
+                }
+            });
+        }
+
         tableViewer = new TableViewer(blobListTable);
         tableViewer.setUseHashlookup(true);
         tableViewer.setContentProvider(new BlobListContentProvider());
@@ -413,6 +424,9 @@ public class BlobExplorerFileEditor extends EditorPart implements TelemetryPrope
     public void fillGrid() {
         setUIState(true);
 
+        final int generation = ++pageGeneration;
+        loadingPage = true;
+
         DefaultLoader.getIdeHelper().runInBackground(null, "Loading blobs...", false, true, "Loading blobs...", new Runnable() {
             @Override
             public void run() {
@@ -421,36 +435,118 @@ public class BlobExplorerFileEditor extends EditorPart implements TelemetryPrope
                         directoryQueue.addLast(StorageClientSDKManager.getManager().getRootDirectory(connectionString, blobContainer));
                     }
 
-                    blobItems = StorageClientSDKManager.getManager().getBlobItems(connectionString, directoryQueue.peekLast());
+                    // Only the first page is listed here, the following pages are loaded while scrolling down
+                    final BlobItemPage page = StorageClientSDKManager.getManager().getBlobItemPage(connectionString,
+                            directoryQueue.peekLast(), null, StorageClientSDKManager.DEFAULT_BLOB_PAGE_SIZE);
 
                     DefaultLoader.getIdeHelper().invokeLater(new Runnable() {
                         @Override
                         public void run() {
-                            if (!queryTextField.getText().isEmpty()) {
-                                for (int i = blobItems.size() - 1; i >= 0; i--) {
-                                    BlobItem blobItem = blobItems.get(i);
-
-                                    if (blobItem instanceof BlobFile && !blobItem.getName().startsWith(queryTextField.getText())) {
-                                        blobItems.remove(i);
-                                    }
-                                }
+                            if (generation != pageGeneration || blobListTable.isDisposed()) {
+                                return;
                             }
 
+                            blobItems = filterBlobItems(page.getItems());
+                            lastPage = page;
+                            loadingPage = false;
+
                             pathLabel.setText(directoryQueue.peekLast().getPath());
                             tableViewer.setInput(blobItems);
                             tableViewer.refresh();
                             setUIState(false);
-//
-//                            blobListTable.clearSelection();
+
+                            loadNextPageIfNeeded();
+                        }
+                    });
+                } catch (AzureCmdException ex) {
+                    DefaultLoader.getIdeHelper().invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            // A newer load has taken over the flag
+                            if (generation == pageGeneration) {
+                                loadingPage = false;
+                            }
+                        }
+                    });
+
+                    DefaultLoader.getUIHelper().showException("Error querying blob list.", ex, "Error querying blobs", false, true);
+                }
+            }
+        });
+    }
+
+    private void loadNextPageIfNeeded() {
+        if (loadingPage || lastPage == null || !lastPage.hasMore() || !isScrolledNearBottom()) {
+            return;
+        }
+
+        final int generation = pageGeneration;
+        final BlobItemPage page = lastPage;
+        loadingPage = true;
+
+        DefaultLoader.getIdeHelper().runInBackground(null, "Loading more blobs...", false, true, "Loading more blobs...", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final BlobItemPage nextPage = StorageClientSDKManager.getManager().getNextBlobItemPage(
+                            connectionString, page, StorageClientSDKManager.DEFAULT_BLOB_PAGE_SIZE);
+
+                    DefaultLoader.getIdeHelper().invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (generation != pageGeneration || blobListTable.isDisposed()) {
+                                return;
+                            }
+
+                            java.util.List<BlobItem> pageItems = filterBlobItems(nextPage.getItems());
+
+                            blobItems.addAll(pageItems);
+                            lastPage = nextPage;
+                            loadingPage = false;
+
+                            tableViewer.add(pageItems.toArray());
+
+                            loadNextPageIfNeeded();
                         }
                     });
                 } catch (AzureCmdException ex) {
+                    DefaultLoader.getIdeHelper().invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            // A newer load has taken over the flag
+                            if (generation == pageGeneration) {
+                                loadingPage = false;
+                            }
+                        }
+                    });
+
                     DefaultLoader.getUIHelper().showException("Error querying blob list.", ex, "Error querying blobs", false, true);
                 }
             }
         });
     }
 
+    private boolean isScrolledNearBottom() {
+        // Also true when the rows loaded can't fill the view, so that it's never stuck without a scroll bar
+        int itemHeight = Math.max(1, blobListTable.getItemHeight());
+        int visibleCount = blobListTable.getClientArea().height / itemHeight;
+
+        return blobListTable.getTopIndex() + visibleCount >= blobListTable.getItemCount() - NEXT_PAGE_THRESHOLD_ROWS;
+    }
+
+    private java.util.List<BlobItem> filterBlobItems(java.util.List<BlobItem> items) {
+        java.util.List<BlobItem> filtered = new ArrayList<BlobItem>(items.size());
+
+        for (BlobItem blobItem : items) {
+            if (queryTextField.getText().isEmpty() || !(blobItem instanceof BlobFile)
+                    || blobItem.getName().startsWith(queryTextField.getText())) {
+                filtered.add(blobItem);
+            }
+        }
+
+        return filtered;
+    }
+
     private void setUIState(boolean loading) {
         if (loading) {
             blobListTable.setEnabled(false);
@@ -570,69 +666,51 @@ public class BlobExplorerFileEditor extends EditorPart implements TelemetryPrope
             Job job = new Job("Downloading blob...") {
                 @Override
                 protected IStatus run(final IProgressMonitor monitor) {
-                    monitor.beginTask("Downloading blob...", IProgressMonitor.UNKNOWN);
+                    monitor.beginTask("Downloading blob...", 100);
                     try {
-                        if (!targetFile.exists()) {
-                            if (!targetFile.createNewFile()) {
-                                throw new IOException("File not created");
-                            }
-                        }
-
-                        final BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(new FileOutputStream(targetFile), 65536) {
-                            private long runningCount = 0;
+                        StorageClientSDKManager.getManager().downloadBlobFile(connectionString, fileSelection, targetFile,
+                                new CallableSingleArg<Void, Long>() {
+                                    private int reportedPercent = 0;
 
-                            @Override
-                            public synchronized void write(@NotNull byte[] bytes, int i, int i1) throws IOException {
-                                super.write(bytes, i, i1);
+                                    @Override
+                                    public Void call(Long downloadedBytes) throws Exception {
+                                        int percent = fileSelection.getSize() > 0
+                                                ? (int) (100 * downloadedBytes / fileSelection.getSize())
+                                                : 100;
 
-                                runningCount += i1;
+                                        monitor.worked(percent - reportedPercent);
+                                        monitor.subTask(String.format("%s%% downloaded", percent));
+                                        reportedPercent = percent;
 
-                                double progress = (double) runningCount / fileSelection.getSize();
-                                monitor.worked((int) (100 * progress));
-                                monitor.subTask(String.format("%s%% downloaded", (int) (progress * 100)));
-                            }
-                        };
+                                        return null;
+                                    }
+                                });
 
-                        try {
-//                            Future<?> future = DefaultLoader.getIdeHelper().executeOnPooledThread(new Runnable() {
-//                                @Override
-//                                public void run() {
+                        if (open && targetFile.exists()) {
                             try {
-                                StorageClientSDKManager.getManager().downloadBlobFileContent(connectionString, fileSelection, bufferedOutputStream);
-
-                                if (open && targetFile.exists()) {
-                                    try {
-                                        final Process p;
-                                        Runtime runtime = Runtime.getRuntime();
-                                        p = runtime.exec(
-                                                new String[]{"open", "-R", targetFile.getName()},
-                                                null,
-                                                targetFile.getParentFile());
-
-                                        InputStream errorStream = p.getErrorStream();
-                                        String errResponse = new String(IOUtils.readFully(errorStream, -1));
-
-                                        if (p.waitFor() != 0) {
-                                            throw new Exception(errResponse);
-                                        }
-                                    } catch (Exception e) {
-                                        monitor.setTaskName("Error opening file");
-                                        monitor.subTask(e.getMessage());
-                                    }
-//                                            Desktop.getDesktop().open(targetFile);
+                                final Process p;
+                                Runtime runtime = Runtime.getRuntime();
+                                p = runtime.exec(
+                                        new String[]{"open", "-R", targetFile.getName()},
+                                        null,
+                                        targetFile.getParentFile());
+
+                                InputStream errorStream = p.getErrorStream();
+                                String errResponse = new String(IOUtils.readFully(errorStream, -1));
+
+                                if (p.waitFor() != 0) {
+                                    throw new Exception(errResponse);
                                 }
-                            } catch (AzureCmdException e) {
-                                Throwable connectionFault = e.getCause().getCause();
-
-                                monitor.setTaskName("Error downloading Blob");
-                                monitor.subTask((connectionFault instanceof SocketTimeoutException) ? "Connection timed out" : connectionFault.getMessage());
-                                return Status.CANCEL_STATUS;
+                            } catch (Exception e) {
+                                monitor.setTaskName("Error opening file");
+                                monitor.subTask(e.getMessage());
                             }
-                        } finally {
-                            bufferedOutputStream.close();
                         }
-                    } catch (IOException e) {
-                        DefaultLoader.getUIHelper().showException("Error downloading Blob", e, "Error downloading Blob", false, true);
+                    } catch (AzureCmdException e) {
+                        Throwable connectionFault = e.getCause().getCause();
+
+                        monitor.setTaskName("Error downloading Blob");
+                        monitor.subTask((connectionFault instanceof SocketTimeoutException) ? "Connection timed out" : connectionFault.getMessage());
                         return Status.CANCEL_STATUS;
                     } finally {
                         monitor.done();
@@ -132,7 +132,7 @@ public class SparkBatchJobDeployFactory implements ILogger {
                             }
                         }
 
-                        jobDeploy = new ADLSGen2Deploy(httpObservable, destinationRootPath);
+                        jobDeploy = new CachedDeploy(new ADLSGen2Deploy(httpObservable, destinationRootPath));
                     } else if (storageAccount.getAccountType() == StorageAccountType.BLOB ||
                             storageAccount.getAccountType() == StorageAccountType.ADLS) {
                         if (clusterDetail instanceof SynapseCosmosSparkPool || clusterDetail instanceof AzureSparkCosmosCluster) {
@@ -220,7 +220,7 @@ public class SparkBatchJobDeployFactory implements ILogger {
                     httpObservable = new SharedKeyHttpObservable(accountName, accessKey);
                 }
 
-                jobDeploy = new ADLSGen2Deploy(httpObservable, destinationUri.getUrl().toString());
+                jobDeploy = new CachedDeploy(new ADLSGen2Deploy(httpObservable, destinationUri.getUrl().toString()));
                 break;
             case WEBHDFS:
                 destinationRootPath = submitModel.getJobUploadStorageModel().getUploadPath();
@@ -233,11 +233,11 @@ public class SparkBatchJobDeployFactory implements ILogger {
                     if (clusterDetail instanceof ClusterDetail) {
                         httpObservable = new AzureHttpObservable(clusterDetail.getSubscription().getTenantId(), ApiVersion.VERSION);
                         jobDeploy = clusterDetail.getStorageAccount().getAccountType() == StorageAccountType.ADLS
-                                ? new ADLSGen1HDFSDeploy(clusterDetail, httpObservable, destinationRootPath)
+                                ? new CachedDeploy(new ADLSGen1HDFSDeploy(clusterDetail, httpObservable, destinationRootPath))
                                 : null;
                     } else if (clusterDetail instanceof SqlBigDataLivyLinkClusterDetail) {
                         httpObservable = new HttpObservable(clusterDetail.getHttpUserName(), clusterDetail.getHttpPassword());
-                        jobDeploy = new WebHDFSDeploy(clusterDetail, httpObservable, destinationRootPath);
+                        jobDeploy = new CachedDeploy(new WebHDFSDeploy(clusterDetail, httpObservable, destinationRootPath));
                     }
                 } catch (HDIException ignore) {
                 }
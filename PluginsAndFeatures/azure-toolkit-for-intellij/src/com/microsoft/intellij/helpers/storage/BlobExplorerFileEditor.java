@@ -52,6 +52,7 @@ import com.microsoft.tooling.msservices.model.storage.BlobContainer;
 import com.microsoft.tooling.msservices.model.storage.BlobDirectory;
 import com.microsoft.tooling.msservices.model.storage.BlobFile;
 import com.microsoft.tooling.msservices.model.storage.BlobItem;
+import com.microsoft.tooling.msservices.model.storage.BlobItemPage;
 import com.microsoft.tooling.msservices.serviceexplorer.NodeActionEvent;
 import com.microsoft.tooling.msservices.serviceexplorer.NodeActionListener;
 import org.jetbrains.annotations.NotNull;
@@ -88,6 +89,8 @@ public class BlobExplorerFileEditor implements FileEditor, TelemetryProperties {
     static final String UPLOAD = "Upload";
     static final String QUERY = "Query";
 
+    private static final int NEXT_PAGE_THRESHOLD_ROWS = 50;
+
     private JPanel mainPanel;
     private JTextField queryTextField;
     private JTable blobListTable;
@@ -106,7 +109,10 @@ public class BlobExplorerFileEditor implements FileEditor, TelemetryProperties {
     private Project project;
 
     private LinkedList<BlobDirectory> directoryQueue = new LinkedList<BlobDirectory>();
-    private List<BlobItem> blobItems;
+    private List<BlobItem> blobItems = new ArrayList<BlobItem>();
+    private BlobItemPage lastPage;
+    private boolean loadingPage;
+    private int pageGeneration;
 
     private ISubscriptionSelectionListener subscriptionListener;
     private FileEditorVirtualNode fileEditorVirtualNode;
@@ -308,12 +314,25 @@ public class BlobExplorerFileEditor implements FileEditor, TelemetryProperties {
             }
         });
 
+        JScrollPane scrollPane = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, blobListTable);
+        if (scrollPane != null) {
+            scrollPane.getVerticalScrollBar().addAdjustmentListener(new AdjustmentListener() {
+                @Override
+                public void adjustmentValueChanged(AdjustmentEvent adjustmentEvent) {
+                    loadNextPageIfNeeded();
+                }
+            });
+        }
+
         addSubscriptionSelectionListener();
     }
 
     public void fillGrid() {
         setUIState(true);
 
+        final int generation = ++pageGeneration;
+        loadingPage = true;
+
         ProgressManager.getInstance().run(new Task.Backgroundable(project, "Loading blobs...", false) {
             @Override
             public void run(@NotNull ProgressIndicator progressIndicator) {
@@ -324,59 +343,96 @@ public class BlobExplorerFileEditor implements FileEditor, TelemetryProperties {
                         directoryQueue.addLast(StorageClientSDKManager.getManager().getRootDirectory(connectionString, blobContainer));
                     }
 
-                    blobItems = StorageClientSDKManager.getManager().getBlobItems(connectionString, directoryQueue.peekLast());
-
-                    if (!queryTextField.getText().isEmpty()) {
-                        for (int i = blobItems.size() - 1; i >= 0; i--) {
-                            BlobItem blobItem = blobItems.get(i);
-
-                            if (blobItem instanceof BlobFile && !blobItem.getName().startsWith(queryTextField.getText())) {
-                                blobItems.remove(i);
-                            }
-                        }
-                    }
+                    // Only the first page is listed here, the following pages are loaded while scrolling down
+                    final BlobItemPage page = StorageClientSDKManager.getManager().getBlobItemPage(connectionString,
+                            directoryQueue.peekLast(), null, StorageClientSDKManager.DEFAULT_BLOB_PAGE_SIZE);
+                    final List<BlobItem> pageItems = filterBlobItems(page.getItems());
 
                     ApplicationManager.getApplication().invokeLater(new Runnable() {
                         @Override
                         public void run() {
+                            if (generation != pageGeneration) {
+                                return;
+                            }
 
                             pathLabel.setText(directoryQueue.peekLast().getPath());
                             DefaultTableModel model = (DefaultTableModel) blobListTable.getModel();
 
-                            while (model.getRowCount() > 0) {
-                                model.removeRow(0);
-                            }
+                            model.setRowCount(0);
 
-                            for (BlobItem blobItem : blobItems) {
-                                if (blobItem instanceof BlobDirectory) {
-                                    model.addRow(new Object[]{
-                                            UIHelperImpl.loadIcon("storagefolder.png"),
-                                            blobItem.getName(),
-                                            "",
-                                            "",
-                                            "",
-                                            blobItem.getUri()
-                                    });
-                                } else {
-                                    BlobFile blobFile = (BlobFile) blobItem;
-
-                                    model.addRow(new String[]{
-                                            "",
-                                            blobFile.getName(),
-                                            UIHelperImpl.readableFileSize(blobFile.getSize()),
-                                            new SimpleDateFormat().format(blobFile.getLastModified().getTime()),
-                                            blobFile.getContentType(),
-                                            blobFile.getUri()
-                                    });
-                                }
-                            }
+                            blobItems = new ArrayList<BlobItem>();
+                            lastPage = page;
+                            loadingPage = false;
+                            addBlobItemRows(pageItems);
 
                             setUIState(false);
 
                             blobListTable.clearSelection();
+                            loadNextPageIfNeeded();
+                        }
+                    });
+                } catch (AzureCmdException ex) {
+                    ApplicationManager.getApplication().invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            // A newer load has taken over the flag
+                            if (generation == pageGeneration) {
+                                loadingPage = false;
+                            }
+                        }
+                    });
+
+                    String msg = "An error occurred while attempting to query blob list." + "\n" + String.format(message("webappExpMsg"), ex.getMessage());
+                    PluginUtil.displayErrorDialogAndLog(message("errTtl"), msg, ex);
+                }
+            }
+        });
+    }
+
+    private void loadNextPageIfNeeded() {
+        if (loadingPage || lastPage == null || !lastPage.hasMore() || !isScrolledNearBottom()) {
+            return;
+        }
+
+        final int generation = pageGeneration;
+        final BlobItemPage page = lastPage;
+        loadingPage = true;
+
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Loading more blobs...", false) {
+            @Override
+            public void run(@NotNull ProgressIndicator progressIndicator) {
+                try {
+                    progressIndicator.setIndeterminate(true);
+
+                    final BlobItemPage nextPage = StorageClientSDKManager.getManager().getNextBlobItemPage(
+                            connectionString, page, StorageClientSDKManager.DEFAULT_BLOB_PAGE_SIZE);
+                    final List<BlobItem> pageItems = filterBlobItems(nextPage.getItems());
+
+                    ApplicationManager.getApplication().invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (generation != pageGeneration) {
+                                return;
+                            }
+
+                            lastPage = nextPage;
+                            loadingPage = false;
+                            addBlobItemRows(pageItems);
+
+                            loadNextPageIfNeeded();
                         }
                     });
                 } catch (AzureCmdException ex) {
+                    ApplicationManager.getApplication().invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            // A newer load has taken over the flag
+                            if (generation == pageGeneration) {
+                                loadingPage = false;
+                            }
+                        }
+                    });
+
                     String msg = "An error occurred while attempting to query blob list." + "\n" + String.format(message("webappExpMsg"), ex.getMessage());
                     PluginUtil.displayErrorDialogAndLog(message("errTtl"), msg, ex);
                 }
@@ -384,6 +440,68 @@ public class BlobExplorerFileEditor implements FileEditor, TelemetryProperties {
         });
     }
 
+    private boolean isScrolledNearBottom() {
+        JScrollPane scrollPane = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, blobListTable);
+
+        if (scrollPane == null) {
+            return false;
+        }
+
+        // Also true when the rows loaded can't fill the view, so that it's never stuck without a scroll bar
+        BoundedRangeModel scrollModel = scrollPane.getVerticalScrollBar().getModel();
+        int threshold = blobListTable.getRowHeight() * NEXT_PAGE_THRESHOLD_ROWS;
+
+        return scrollModel.getValue() + scrollModel.getExtent() >= scrollModel.getMaximum() - threshold;
+    }
+
+    @NotNull
+    private List<BlobItem> filterBlobItems(@NotNull List<BlobItem> items) {
+        if (queryTextField.getText().isEmpty()) {
+            return items;
+        }
+
+        List<BlobItem> filtered = new ArrayList<BlobItem>(items.size());
+
+        for (BlobItem blobItem : items) {
+            if (!(blobItem instanceof BlobFile) || blobItem.getName().startsWith(queryTextField.getText())) {
+                filtered.add(blobItem);
+            }
+        }
+
+        return filtered;
+    }
+
+    private void addBlobItemRows(@NotNull List<BlobItem> items) {
+        DefaultTableModel model = (DefaultTableModel) blobListTable.getModel();
+        SimpleDateFormat dateFormat = new SimpleDateFormat();
+
+        blobItems.addAll(items);
+
+        for (BlobItem blobItem : items) {
+            if (blobItem instanceof BlobDirectory) {
+                model.addRow(new Object[]{
+                        UIHelperImpl.loadIcon("storagefolder.png"),
+                        blobItem.getName(),
+                        "",
+                        "",
+                        "",
+                        blobItem.getUri()
+                });
+            } else {
+                BlobFile blobFile = (BlobFile) blobItem;
+
+                model.addRow(new String[]{
+                        "",
+                        blobFile.getName(),
+                        UIHelperImpl.readableFileSize(blobFile.getSize()),
+                        dateFormat.format(blobFile.getLastModified().getTime()),
+                        blobFile.getContentType(),
+                        blobFile.getUri()
+                });
+            }
+        }
+    }
+
     private void setUIState(boolean loading) {
         if (loading) {
             blobListTable.setEnabled(false);
@@ -591,80 +709,63 @@ public class BlobExplorerFileEditor implements FileEditor, TelemetryProperties {
             ProgressManager.getInstance().run(new Task.Backgroundable(project, "Downloading blob...", true) {
                 @Override
                 public void run(@NotNull final ProgressIndicator progressIndicator) {
-                    try {
-                        progressIndicator.setIndeterminate(false);
-
-                        if (!targetFile.exists()) {
-                            if (!targetFile.createNewFile()) {
-                                throw new IOException("File not created");
-                            }
-                        }
-
-                        final BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(new FileOutputStream(targetFile), 65536) {
-                            private long runningCount = 0;
-
-                            @Override
-                            public synchronized void write(@NotNull byte[] bytes, int i, int i1) throws IOException {
-                                super.write(bytes, i, i1);
+                    progressIndicator.setIndeterminate(false);
 
-                                runningCount += i1;
+                    Future<?> future = ApplicationManager.getApplication().executeOnPooledThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                StorageClientSDKManager.getManager().downloadBlobFile(connectionString, fileSelection, targetFile,
+                                        new CallableSingleArg<Void, Long>() {
+                                            @Override
+                                            public Void call(Long downloadedBytes) throws Exception {
+                                                double progress = fileSelection.getSize() > 0
+                                                        ? (double) downloadedBytes / fileSelection.getSize()
+                                                        : 1;
+                                                progressIndicator.setFraction(progress);
+                                                progressIndicator.setText2(String.format("%s%% downloaded", (int) (progress * 100)));
+
+                                                return null;
+                                            }
+                                        });
 
-                                double progress = (double) runningCount / fileSelection.getSize();
-                                progressIndicator.setFraction(progress);
-                                progressIndicator.setText2(String.format("%s%% downloaded", (int) (progress * 100)));
-                            }
-                        };
+                                if (open && targetFile.exists()) {
+                                    Desktop.getDesktop().open(targetFile);
+                                }
+                            } catch (AzureCmdException e) {
+                                Throwable connectionFault = e.getCause().getCause();
 
-                        try {
-                            Future<?> future = ApplicationManager.getApplication().executeOnPooledThread(new Runnable() {
-                                @Override
-                                public void run() {
-                                    try {
-                                        StorageClientSDKManager.getManager().downloadBlobFileContent(connectionString, fileSelection, bufferedOutputStream);
-
-                                        if (open && targetFile.exists()) {
-                                            Desktop.getDesktop().open(targetFile);
-                                        }
-                                    } catch (AzureCmdException e) {
-                                        Throwable connectionFault = e.getCause().getCause();
-
-                                        progressIndicator.setText("Error downloading Blob");
-                                        progressIndicator.setText2((connectionFault instanceof SocketTimeoutException) ? "Connection timed out" : connectionFault.getMessage());
-                                    } catch (IOException ex) {
-                                        try {
-                                            final Process p;
-                                            Runtime runtime = Runtime.getRuntime();
-                                            p = runtime.exec(
-                                                    new String[]{"open", "-R", targetFile.getName()},
-                                                    null,
-                                                    targetFile.getParentFile());
-
-                                            InputStream errorStream = p.getErrorStream();
-                                            String errResponse = new String(IOUtils.readFully(errorStream, -1));
-
-                                            if (p.waitFor() != 0) {
-                                                throw new Exception(errResponse);
-                                            }
-                                        } catch (Exception e) {
-                                            progressIndicator.setText("Error openning file");
-                                            progressIndicator.setText2(ex.getMessage());
-                                        }
+                                progressIndicator.setText("Error downloading Blob");
+                                progressIndicator.setText2((connectionFault instanceof SocketTimeoutException) ? "Connection timed out" : connectionFault.getMessage());
+                            } catch (IOException ex) {
+                                try {
+                                    final Process p;
+                                    Runtime runtime = Runtime.getRuntime();
+                                    p = runtime.exec(
+                                            new String[]{"open", "-R", targetFile.getName()},
+                                            null,
+                                            targetFile.getParentFile());
+
+                                    InputStream errorStream = p.getErrorStream();
+                                    String errResponse = new String(IOUtils.readFully(errorStream, -1));
+
+                                    if (p.waitFor() != 0) {
+                                        throw new Exception(errResponse);
                                     }
+                                } catch (Exception e) {
+                                    progressIndicator.setText("Error openning file");
+                                    progressIndicator.setText2(ex.getMessage());
                                 }
-                            });
+                            }
+                        }
+                    });
 
-                            while (!future.isDone()) {
-                                progressIndicator.checkCanceled();
+                    while (!future.isDone()) {
+                        progressIndicator.checkCanceled();
 
-                                if (progressIndicator.isCanceled()) {
-                                    future.cancel(true);
-                                }
-                            }
-                        } finally {
-                            bufferedOutputStream.close();
+                        if (progressIndicator.isCanceled()) {
+                            future.cancel(true);
                         }
-                    } catch (IOException e) {
-                        PluginUtil.displayErrorDialogAndLog(message("errTtl"), "An error occurred while attempting to download Blob.", e);
                     }
                 }
             });
@@ -30,4 +30,12 @@ public interface ConcurrentCache<K, V> {
 
     void shutdownNow();
 
+    long getHitCount();
+
+    long getMissCount();
+
+    long getEvictionCount();
+
+    long getExpirationCount();
+
 }
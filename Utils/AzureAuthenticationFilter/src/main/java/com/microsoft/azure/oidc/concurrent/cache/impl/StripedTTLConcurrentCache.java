@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.concurrent.cache.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCache;
+
+/**
+ * The TTL and LRU bounded cache, which is split into lock striped segments by the key hash. Each segment links its
+ * entries in both the access order, for the LRU eviction, and the insertion order, for the expiry, so that the
+ * eviction and expiry are O(1). The entries expire at the TTL after they are put, as {@link TTLConcurrentCache}.
+ *
+ * The max size is bounded over all the segments by a shared counter. A put over the max size evicts the least
+ * recently used entry of its own segment, or of another segment if its own is empty. Each segment is capped at twice
+ * its even share rather than the share itself, so that the uneven key hashes don't evict entries while the cache is
+ * far from full.
+ */
+public final class StripedTTLConcurrentCache<K, V> implements ConcurrentCache<K, V> {
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+    private final ScheduledExecutorService scheduledExecutorService = Executors
+            .newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "ttl-cache-janitor");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    private final long ttl;
+    private final long maxSize;
+    private final AtomicLong size = new AtomicLong();
+
+    public StripedTTLConcurrentCache(final Long ttl, final Long maxSize) {
+        this(ttl, TimeUnit.MINUTES, maxSize);
+    }
+
+    @SuppressWarnings("unchecked")
+    StripedTTLConcurrentCache(final long ttl, final TimeUnit ttlUnit, final long maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The max size of cache must be positive");
+        }
+        this.ttl = ttlUnit.toMillis(ttl);
+        this.maxSize = maxSize;
+
+        int segmentCount = 1;
+        while (segmentCount * 2 <= Math.min(MAX_SEGMENTS, maxSize)) {
+            segmentCount *= 2;
+        }
+        segments = new Segment[segmentCount];
+        // The headroom for the uneven key hashes, the total is bounded by the max size
+        final long capacity = Math.min(maxSize, 2 * ((maxSize + segmentCount - 1) / segmentCount));
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<K, V>((int) Math.min(capacity, Integer.MAX_VALUE), size);
+        }
+
+        // Expired entries are removed when they're got or put, the janitor frees the ones no longer used
+        scheduledExecutorService.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                final long now = System.currentTimeMillis();
+                for (final Segment<K, V> segment : segments) {
+                    segment.lock();
+                    try {
+                        segment.expire(now);
+                    } finally {
+                        segment.unlock();
+                    }
+                }
+            }
+        }, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public V get(final Object key) {
+        final Segment<K, V> segment = segmentFor(key);
+        final long now = System.currentTimeMillis();
+        segment.lock();
+        try {
+            final Node<K, V> node = segment.map.get(key);
+            if (node == null) {
+                segment.misses++;
+                return null;
+            }
+            if (node.expireAt <= now) {
+                segment.remove(node);
+                segment.expirations++;
+                segment.misses++;
+                return null;
+            }
+            segment.moveToAccessHead(node);
+            segment.hits++;
+            return node.value;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    @Override
+    public V putIfAbsent(final K key, final V value) {
+        final Segment<K, V> segment = segmentFor(key);
+        final long now = System.currentTimeMillis();
+        segment.lock();
+        try {
+            segment.expire(now);
+            final Node<K, V> existing = segment.map.get(key);
+            if (existing != null) {
+                segment.moveToAccessHead(existing);
+                return existing.value;
+            }
+            while (segment.map.size() >= segment.capacity) {
+                segment.evict();
+            }
+            reserve(segment);
+            segment.add(new Node<K, V>(key, value, now + ttl));
+            return null;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    /**
+     * Reserve the room of one entry in the max size, evicting the least recently used entry of the locked segment
+     * first, then of the other segments not locked by the other puts.
+     */
+    private void reserve(final Segment<K, V> locked) {
+        while (true) {
+            final long current = size.get();
+            if (current < maxSize) {
+                if (size.compareAndSet(current, current + 1)) {
+                    return;
+                }
+                continue;
+            }
+            if (locked.accessTail != null) {
+                locked.evict();
+                continue;
+            }
+            if (!evictFromOthers(locked)) {
+                // The entries are being put to the segments locked, retry after them
+                Thread.yield();
+            }
+        }
+    }
+
+    private boolean evictFromOthers(final Segment<K, V> locked) {
+        for (final Segment<K, V> segment : segments) {
+            if (segment != locked && segment.tryLock()) {
+                try {
+                    if (segment.accessTail != null) {
+                        segment.evict();
+                        return true;
+                    }
+                } finally {
+                    segment.unlock();
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void shutdownNow() {
+        scheduledExecutorService.shutdownNow();
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public long getHitCount() {
+        long count = 0;
+        for (final Segment<K, V> segment : segments) {
+            segment.lock();
+            try {
+                count += segment.hits;
+            } finally {
+                segment.unlock();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long getMissCount() {
+        long count = 0;
+        for (final Segment<K, V> segment : segments) {
+            segment.lock();
+            try {
+                count += segment.misses;
+            } finally {
+                segment.unlock();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        long count = 0;
+        for (final Segment<K, V> segment : segments) {
+            segment.lock();
+            try {
+                count += segment.evictions;
+            } finally {
+                segment.unlock();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long getExpirationCount() {
+        long count = 0;
+        for (final Segment<K, V> segment : segments) {
+            segment.lock();
+            try {
+                count += segment.expirations;
+            } finally {
+                segment.unlock();
+            }
+        }
+        return count;
+    }
+
+    private Segment<K, V> segmentFor(final Object key) {
+        // Spread the hash bits, as the segments are selected by the low bits
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & (segments.length - 1)];
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final long expireAt;
+        private Node<K, V> accessPrev;
+        private Node<K, V> accessNext;
+        private Node<K, V> insertionPrev;
+        private Node<K, V> insertionNext;
+
+        private Node(final K key, final V value, final long expireAt) {
+            this.key = key;
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+
+    /**
+     * The segment with its entries, the access order list and the insertion order list, guarded by itself as the lock.
+     * The list heads are the most recent ones.
+     */
+    @SuppressWarnings("serial")
+    private static final class Segment<K, V> extends ReentrantLock {
+        private final int capacity;
+        private final AtomicLong totalSize;
+        private final Map<Object, Node<K, V>> map = new HashMap<Object, Node<K, V>>();
+        private Node<K, V> accessHead;
+        private Node<K, V> accessTail;
+        private Node<K, V> insertionHead;
+        private Node<K, V> insertionTail;
+        private long hits;
+        private long misses;
+        private long evictions;
+        private long expirations;
+
+        private Segment(final int capacity, final AtomicLong totalSize) {
+            this.capacity = capacity;
+            this.totalSize = totalSize;
+        }
+
+        /**
+         * Add the node, whose room has been reserved in the total size
+         */
+        private void add(final Node<K, V> node) {
+            map.put(node.key, node);
+
+            node.accessNext = accessHead;
+            if (accessHead != null) {
+                accessHead.accessPrev = node;
+            }
+            accessHead = node;
+            if (accessTail == null) {
+                accessTail = node;
+            }
+
+            node.insertionNext = insertionHead;
+            if (insertionHead != null) {
+                insertionHead.insertionPrev = node;
+            }
+            insertionHead = node;
+            if (insertionTail == null) {
+                insertionTail = node;
+            }
+        }
+
+        private void evict() {
+            remove(accessTail);
+            evictions++;
+        }
+
+        private void remove(final Node<K, V> node) {
+            map.remove(node.key);
+            totalSize.decrementAndGet();
+            unlinkAccess(node);
+
+            if (node.insertionPrev != null) {
+                node.insertionPrev.insertionNext = node.insertionNext;
+            } else {
+                insertionHead = node.insertionNext;
+            }
+            if (node.insertionNext != null) {
+                node.insertionNext.insertionPrev = node.insertionPrev;
+            } else {
+                insertionTail = node.insertionPrev;
+            }
+            node.insertionPrev = null;
+            node.insertionNext = null;
+        }
+
+        private void moveToAccessHead(final Node<K, V> node) {
+            if (node == accessHead) {
+                return;
+            }
+            unlinkAccess(node);
+            node.accessNext = accessHead;
+            accessHead.accessPrev = node;
+            accessHead = node;
+        }
+
+        private void unlinkAccess(final Node<K, V> node) {
+            if (node.accessPrev != null) {
+                node.accessPrev.accessNext = node.accessNext;
+            } else {
+                accessHead = node.accessNext;
+            }
+            if (node.accessNext != null) {
+                node.accessNext.accessPrev = node.accessPrev;
+            } else {
+                accessTail = node.accessPrev;
+            }
+            node.accessPrev = null;
+            node.accessNext = null;
+        }
+
+        private void expire(final long now) {
+            // All entries share the same TTL, so the oldest inserted ones expire first
+            while (insertionTail != null && insertionTail.expireAt <= now) {
+                remove(insertionTail);
+                expirations++;
+            }
+        }
+    }
+}
@@ -30,6 +30,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCache;
 
@@ -40,6 +41,10 @@ public final class TTLConcurrentCache<K, V> implements ConcurrentCache<K, V> {
     private final List<K> oldestKey = new LinkedList<K>();
     private final Long ttl;
     private final Long maxSize;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong expirationCount = new AtomicLong();
 
     public TTLConcurrentCache(final Long ttl, final Long maxSize) {
         this.ttl = ttl * 60000;
@@ -55,6 +60,7 @@ public final class TTLConcurrentCache<K, V> implements ConcurrentCache<K, V> {
                             timestampMap.remove(key);
                             storeMap.remove(key);
                             iterator.remove();
+                            expirationCount.incrementAndGet();
                         }
                         break;
                     }
@@ -66,7 +72,13 @@ public final class TTLConcurrentCache<K, V> implements ConcurrentCache<K, V> {
     @Override
     public V get(Object key) {
         removeIfExpired(key);
-        return storeMap.get(key);
+        final V value = storeMap.get(key);
+        if (value != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return value;
     }
 
     @Override
@@ -77,6 +89,7 @@ public final class TTLConcurrentCache<K, V> implements ConcurrentCache<K, V> {
                 timestampMap.remove(oldest);
                 storeMap.remove(oldest);
                 oldestKey.remove(0);
+                evictionCount.incrementAndGet();
             }
             if (!oldestKey.contains(key)) {
                 oldestKey.add(key);
@@ -91,12 +104,33 @@ public final class TTLConcurrentCache<K, V> implements ConcurrentCache<K, V> {
         scheduledExecutorService.shutdownNow();
     }
 
+    @Override
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    @Override
+    public long getExpirationCount() {
+        return expirationCount.get();
+    }
+
     private void removeIfExpired(Object key) {
         synchronized (timestampMap) {
             if (timestampMap.containsKey(key) && timestampMap.get(key) < (System.currentTimeMillis() - getTtl())) {
                 timestampMap.remove(key);
                 storeMap.remove(key);
                 oldestKey.remove(key);
+                expirationCount.incrementAndGet();
             }
         }
     }
@@ -22,36 +22,197 @@
 
 package com.microsoft.azure.oidc.configuration.impl;
 
-import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
-import com.microsoft.azure.oidc.concurrent.cache.impl.SimpleConcurrentCacheService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.microsoft.azure.oidc.common.name.Name;
 import com.microsoft.azure.oidc.configuration.Configuration;
 import com.microsoft.azure.oidc.configuration.ConfigurationCache;
 import com.microsoft.azure.oidc.configuration.ConfigurationLoader;
+import com.microsoft.azure.oidc.exception.PreconditionException;
 import com.microsoft.azure.oidc.future.FutureHelper;
 import com.microsoft.azure.oidc.future.impl.SimpleFutureHelper;
 
+/**
+ * Keeps the last good configuration and refreshes it in the background on one shared thread, before it gets stale.
+ * Requests are only blocked on the very first load, concurrent loads share one refresh, and a failed refresh keeps
+ * serving the last good configuration until the retry succeeds.
+ */
 public class SimpleConfigurationCache implements ConfigurationCache {
     private static final ConfigurationCache INSTANCE = new SimpleConfigurationCache();
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimpleConfigurationCache.class);
 
-    private final ConfigurationLoader configurationLoader = SimpleConfigurationLoader.getInstance();
+    private static final long REFRESH_INTERVAL = TimeUnit.MINUTES.toMillis(50);
+    private static final long RETRY_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    private static final long KEY_REFRESH_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+
+    private final ConfigurationLoader configurationLoader;
 
     private final FutureHelper futureHelper = SimpleFutureHelper.getInstance();
 
-    private final ConcurrentCacheService concurrentCacheService = SimpleConcurrentCacheService.getInstance();
+    private final long refreshInterval;
+
+    private final long retryInterval;
+
+    private final long keyRefreshInterval;
+
+    private final Object lock = new Object();
+
+    private volatile Configuration configuration;
+
+    private volatile long loadedAt;
+
+    private volatile long attemptedAt;
+
+    private long keyRefreshedAt;
+
+    private FutureTask<Configuration> refreshTask;
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    private ScheduledFuture<?> scheduledRefresh;
+
+    private SimpleConfigurationCache() {
+        this(SimpleConfigurationLoader.getInstance(), REFRESH_INTERVAL, RETRY_INTERVAL, KEY_REFRESH_INTERVAL);
+    }
+
+    SimpleConfigurationCache(final ConfigurationLoader configurationLoader, final long refreshInterval,
+            final long retryInterval, final long keyRefreshInterval) {
+        if (configurationLoader == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        this.configurationLoader = configurationLoader;
+        this.refreshInterval = refreshInterval;
+        this.retryInterval = retryInterval;
+        this.keyRefreshInterval = keyRefreshInterval;
+        this.keyRefreshedAt = System.currentTimeMillis() - keyRefreshInterval;
+    }
 
     @Override
     public Configuration load() {
-        final String key = "SINGLE";
-        final Configuration entry = concurrentCacheService.getCache(Configuration.class, "configurationCache").get(key);
-        if (entry != null) {
-            return entry;
+        final Configuration current = configuration;
+        if (current == null) {
+            return futureHelper.getResult(refreshAsync());
+        }
+        // The scheduled refresh is late or failing, revalidate while the current one is still served
+        final long now = System.currentTimeMillis();
+        if (now - loadedAt >= refreshInterval && now - attemptedAt >= retryInterval) {
+            refreshAsync();
+        }
+        return current;
+    }
+
+    @Override
+    public Configuration reload(final Name keyName) {
+        if (keyName == null) {
+            throw new PreconditionException("Required parameter is null");
         }
-        final Configuration result = futureHelper.getResult(configurationLoader.loadAsync());
-        if (result == null) {
-            return result;
+        final Configuration current = configuration;
+        if (current != null && current.getKey(keyName) != null) {
+            return current;
+        }
+        final Future<Configuration> future;
+        synchronized (lock) {
+            final long now = System.currentTimeMillis();
+            if (now - keyRefreshedAt < keyRefreshInterval) {
+                return current;
+            }
+            keyRefreshedAt = now;
+            future = refreshAsync();
+        }
+        LOGGER.info(String.format("Reloading configuration for unknown key %s", keyName.getName()));
+        final Configuration result = futureHelper.getResult(future);
+        return result != null ? result : current;
+    }
+
+    @Override
+    public void shutdownNow() {
+        synchronized (lock) {
+            if (scheduledExecutorService != null) {
+                scheduledExecutorService.shutdownNow();
+                scheduledExecutorService = null;
+            }
+            scheduledRefresh = null;
+            if (refreshTask != null) {
+                refreshTask.cancel(true);
+                refreshTask = null;
+            }
+        }
+    }
+
+    private Future<Configuration> refreshAsync() {
+        synchronized (lock) {
+            if (refreshTask != null) {
+                return refreshTask;
+            }
+            final FutureTask<Configuration> task = new FutureTask<Configuration>(new Callable<Configuration>() {
+                public Configuration call() throws Exception {
+                    return refresh();
+                }
+            });
+            refreshTask = task;
+            getScheduledExecutorService().execute(task);
+            return task;
+        }
+    }
+
+    private Configuration refresh() {
+        attemptedAt = System.currentTimeMillis();
+        Configuration result = null;
+        try {
+            result = configurationLoader.load();
+        } finally {
+            synchronized (lock) {
+                refreshTask = null;
+                if (result != null) {
+                    configuration = result;
+                    loadedAt = System.currentTimeMillis();
+                    scheduleRefresh(refreshInterval);
+                } else {
+                    LOGGER.error("Error refreshing configuration, keep the last loaded one");
+                    scheduleRefresh(retryInterval);
+                }
+            }
+        }
+        return result != null ? result : configuration;
+    }
+
+    private void scheduleRefresh(final long delay) {
+        if (scheduledExecutorService == null) {
+            return;
+        }
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+        scheduledRefresh = scheduledExecutorService.schedule(new Runnable() {
+            @Override
+            public void run() {
+                refreshAsync();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private ScheduledExecutorService getScheduledExecutorService() {
+        if (scheduledExecutorService == null) {
+            scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "configuration-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
         }
-        concurrentCacheService.getCache(Configuration.class, "configurationCache").putIfAbsent(key, result);
-        return result;
+        return scheduledExecutorService;
     }
 
     public static ConfigurationCache getInstance() {
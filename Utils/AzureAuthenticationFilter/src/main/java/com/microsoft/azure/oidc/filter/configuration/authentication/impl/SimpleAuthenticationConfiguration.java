@@ -28,8 +28,11 @@ import java.util.Map;
 import java.util.regex.Pattern;
 
 import com.microsoft.azure.oidc.filter.configuration.authentication.AuthenticationConfiguration;
+import com.microsoft.azure.oidc.filter.configuration.authentication.UriPatternMatcher;
 
 final class SimpleAuthenticationConfiguration implements AuthenticationConfiguration {
+    private static final String FACES_RESOURCE_PATTERN = "/javax.faces.resource/*";
+
     private List<String> exclusionUriPatternList;
     private List<String> authorisationUriPatternList;
     private Map<String, List<String>> authorisationRoleMap;
@@ -37,6 +40,9 @@ final class SimpleAuthenticationConfiguration implements AuthenticationConfigura
     private List<Pattern> exclusionRegexPatternList;
     private List<Pattern> authorisationRegexPatternList;
 
+    private UriPatternMatcher exclusionMatcher;
+    private UriPatternMatcher authorisationMatcher;
+
     public SimpleAuthenticationConfiguration(final List<String> exclusionUriPatternList,
             final List<String> authorisationUriPatternList, final Map<String, List<String>> authorisationRoleMap) {
         setExclusionUriPatternList(exclusionUriPatternList);
@@ -48,8 +54,14 @@ final class SimpleAuthenticationConfiguration implements AuthenticationConfigura
         this.exclusionUriPatternList = exclusionUriPatternList;
         exclusionRegexPatternList = new ArrayList<Pattern>();
         exclusionRegexPatternList.add(Pattern.compile(
-                "/javax.faces.resource/*".replaceAll("([^a-zA-Z0-9\\*])", "\\\\$1").replaceAll("\\*", "(\\.\\*)")));
-        if (exclusionRegexPatternList == null) {
+                FACES_RESOURCE_PATTERN.replaceAll("([^a-zA-Z0-9\\*])", "\\\\$1").replaceAll("\\*", "(\\.\\*)")));
+        final List<String> exclusionPatterns = new ArrayList<String>();
+        exclusionPatterns.add(FACES_RESOURCE_PATTERN);
+        if (exclusionUriPatternList != null) {
+            exclusionPatterns.addAll(exclusionUriPatternList);
+        }
+        exclusionMatcher = new SimpleUriPatternMatcher(exclusionPatterns);
+        if (exclusionUriPatternList == null) {
             return;
         }
         for (final String pattern : exclusionUriPatternList) {
@@ -71,8 +83,10 @@ final class SimpleAuthenticationConfiguration implements AuthenticationConfigura
         this.authorisationUriPatternList = authorisationUriPatternList;
         authorisationRegexPatternList = new ArrayList<Pattern>();
         if (authorisationUriPatternList == null) {
+            authorisationMatcher = new SimpleUriPatternMatcher(new ArrayList<String>());
             return;
         }
+        authorisationMatcher = new SimpleUriPatternMatcher(authorisationUriPatternList);
         for (final String pattern : authorisationUriPatternList) {
             final String localPattern = pattern.trim();
             if (localPattern.endsWith("*")) {
@@ -116,4 +130,14 @@ final class SimpleAuthenticationConfiguration implements AuthenticationConfigura
     public Map<String, List<String>> getAuthorisationRoleMap() {
         return authorisationRoleMap;
     }
+
+    @Override
+    public UriPatternMatcher getExclusionMatcher() {
+        return exclusionMatcher;
+    }
+
+    @Override
+    public UriPatternMatcher getAuthorisationMatcher() {
+        return authorisationMatcher;
+    }
 }
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.filter.configuration.authentication.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.microsoft.azure.oidc.exception.PreconditionException;
+import com.microsoft.azure.oidc.filter.configuration.authentication.UriPatternMatcher;
+
+/**
+ * Matches a URI against all the configured URI patterns in one walk of a prefix trie, built from the literal text
+ * before the first "*" of each pattern. Only the patterns whose prefix is on the walked path are checked for the
+ * rest of the URI, and the lowest matching pattern index wins, the same as trying the patterns in order.
+ *
+ * The "*" matches any characters but line terminators, or only word characters for the patterns starting with "/"
+ * and not ending with "*", the same as the regex patterns of {@link SimpleAuthenticationConfiguration}.
+ */
+final class SimpleUriPatternMatcher implements UriPatternMatcher {
+    private static final int NO_MATCH = -1;
+
+    private final Node root = new Node();
+    private final String[][] segments;
+    private final boolean[] isWordWildcard;
+    private final AtomicLongArray matchCounts;
+    private final AtomicLong missCount = new AtomicLong();
+
+    public SimpleUriPatternMatcher(final List<String> patterns) {
+        if (patterns == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        segments = new String[patterns.size()][];
+        isWordWildcard = new boolean[patterns.size()];
+        matchCounts = new AtomicLongArray(patterns.size());
+        for (int index = 0; index < patterns.size(); index++) {
+            final String pattern = patterns.get(index).trim();
+            isWordWildcard[index] = !pattern.endsWith("*") && pattern.startsWith("/");
+            segments[index] = split(pattern);
+            root.add(segments[index], index);
+        }
+        root.freeze();
+    }
+
+    @Override
+    public int match(final String uri) {
+        if (uri == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        int best = Integer.MAX_VALUE;
+        Node node = root;
+        for (int position = 0; node != null; position++) {
+            // The wildcard patterns are kept in index order, the first one matching is the lowest of the node
+            for (final int index : node.wildcardPatterns) {
+                if (index >= best) {
+                    break;
+                }
+                if (matchesRest(index, 1, uri, position)) {
+                    best = index;
+                    break;
+                }
+            }
+            if (position == uri.length()) {
+                if (node.exactPattern != NO_MATCH && node.exactPattern < best) {
+                    best = node.exactPattern;
+                }
+                break;
+            }
+            node = node.getChild(uri.charAt(position));
+        }
+        if (best == Integer.MAX_VALUE) {
+            missCount.incrementAndGet();
+            return NO_MATCH;
+        }
+        matchCounts.incrementAndGet(best);
+        return best;
+    }
+
+    @Override
+    public int size() {
+        return segments.length;
+    }
+
+    @Override
+    public long getMatchCount(final int index) {
+        return matchCounts.get(index);
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Matches the "*" before the segment and the segment itself, from the position of the URI
+     */
+    private boolean matchesRest(final int index, final int segment, final String uri, final int position) {
+        final String literal = segments[index][segment];
+        if (segment == segments[index].length - 1) {
+            // The last segment has to end the URI, so the wildcard can only take what is before it
+            final int end = uri.length() - literal.length();
+            return end >= position && isWildcardText(index, uri, position, end) && uri.startsWith(literal, end);
+        }
+        for (int end = position; end <= uri.length(); end++) {
+            if (uri.startsWith(literal, end) && matchesRest(index, segment + 1, uri, end + literal.length())) {
+                return true;
+            }
+            if (end == uri.length() || !isWildcardChar(index, uri.charAt(end))) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private boolean isWildcardText(final int index, final String uri, final int start, final int end) {
+        for (int position = start; position < end; position++) {
+            if (!isWildcardChar(index, uri.charAt(position))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isWildcardChar(final int index, final char c) {
+        if (isWordWildcard[index]) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+        }
+        return c != '\n' && c != '\r' && c != '\u0085' && c != '\u2028' && c != '\u2029';
+    }
+
+    private static String[] split(final String pattern) {
+        final List<String> parts = new ArrayList<String>();
+        int start = 0;
+        for (int position = pattern.indexOf('*'); position >= 0; position = pattern.indexOf('*', start)) {
+            parts.add(pattern.substring(start, position));
+            start = position + 1;
+        }
+        parts.add(pattern.substring(start));
+        return parts.toArray(new String[parts.size()]);
+    }
+
+    private static final class Node {
+        private Map<Character, Node> childMap = new TreeMap<Character, Node>();
+        private List<Integer> wildcardPatternList = new ArrayList<Integer>();
+        private char[] keys;
+        private Node[] children;
+        private int[] wildcardPatterns;
+        private int exactPattern = NO_MATCH;
+
+        private void add(final String[] segments, final int index) {
+            Node node = this;
+            for (final char c : segments[0].toCharArray()) {
+                Node child = node.childMap.get(c);
+                if (child == null) {
+                    child = new Node();
+                    node.childMap.put(c, child);
+                }
+                node = child;
+            }
+            if (segments.length > 1) {
+                node.wildcardPatternList.add(index);
+            } else if (node.exactPattern == NO_MATCH) {
+                node.exactPattern = index;
+            }
+        }
+
+        private void freeze() {
+            keys = new char[childMap.size()];
+            children = new Node[childMap.size()];
+            int position = 0;
+            for (final Map.Entry<Character, Node> entry : childMap.entrySet()) {
+                keys[position] = entry.getKey();
+                children[position] = entry.getValue();
+                entry.getValue().freeze();
+                position++;
+            }
+            wildcardPatterns = new int[wildcardPatternList.size()];
+            for (position = 0; position < wildcardPatterns.length; position++) {
+                wildcardPatterns[position] = wildcardPatternList.get(position);
+            }
+            childMap = null;
+            wildcardPatternList = null;
+        }
+
+        private Node getChild(final char c) {
+            final int position = Arrays.binarySearch(keys, c);
+            return position < 0 ? null : children[position];
+        }
+    }
+}
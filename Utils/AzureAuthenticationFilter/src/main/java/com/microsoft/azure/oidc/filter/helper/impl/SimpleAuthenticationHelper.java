@@ -26,8 +26,6 @@ import java.io.IOException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -54,6 +52,7 @@ import com.microsoft.azure.oidc.configuration.ConfigurationCache;
 import com.microsoft.azure.oidc.configuration.impl.SimpleConfigurationCache;
 import com.microsoft.azure.oidc.exception.GeneralException;
 import com.microsoft.azure.oidc.exception.PreconditionException;
+import com.microsoft.azure.oidc.filter.configuration.authentication.AuthenticationConfiguration;
 import com.microsoft.azure.oidc.filter.configuration.authentication.AuthenticationConfigurationService;
 import com.microsoft.azure.oidc.filter.configuration.authentication.impl.SimpleAuthenticationConfigurationService;
 import com.microsoft.azure.oidc.filter.helper.AuthenticationHelper;
@@ -62,9 +61,11 @@ import com.microsoft.azure.oidc.filter.request.impl.SandboxRequestWrapper;
 import com.microsoft.azure.oidc.graph.GraphCache;
 import com.microsoft.azure.oidc.graph.impl.SimpleGraphCache;
 import com.microsoft.azure.oidc.token.Token;
+import com.microsoft.azure.oidc.token.TokenCache;
 import com.microsoft.azure.oidc.token.TokenParser;
 import com.microsoft.azure.oidc.token.TokenValidator;
 import com.microsoft.azure.oidc.token.impl.SimpeTokenParser;
+import com.microsoft.azure.oidc.token.impl.SimpleTokenCache;
 import com.microsoft.azure.oidc.token.impl.SimpleTokenValidator;
 
 public final class SimpleAuthenticationHelper implements AuthenticationHelper {
@@ -77,6 +78,8 @@ public final class SimpleAuthenticationHelper implements AuthenticationHelper {
 
     private final TokenValidator tokenValidator = SimpleTokenValidator.getInstance();
 
+    private final TokenCache tokenCache = SimpleTokenCache.getInstance();
+
     private final GraphCache graphCache = SimpleGraphCache.getInstance();
 
     private final ApplicationSettingsLoader applicationSettingsLoader = SimpleApplicationSettingsLoader.getInstance();
@@ -170,12 +173,23 @@ public final class SimpleAuthenticationHelper implements AuthenticationHelper {
 
     @Override
     public Token getToken(final String tokenString) {
+        final Token token = tokenCache.getVerifiedToken(tokenString);
+        if (token != null) {
+            return token;
+        }
         return tokenParser.getToken(tokenString);
     }
 
     @Override
     public Boolean isValidToken(final Token token) {
-        return tokenValidator.validateCommon(token);
+        if (tokenCache.isVerified(token)) {
+            return Boolean.TRUE;
+        }
+        final Boolean result = tokenValidator.validateCommon(token);
+        if (result) {
+            tokenCache.putVerified(token);
+        }
+        return result;
     }
 
     @Override
@@ -227,12 +241,8 @@ public final class SimpleAuthenticationHelper implements AuthenticationHelper {
             final int length = httpRequest.getRequestURI().length();
             uriString = httpRequest.getRequestURI().substring(length);
         }
-        for (final Pattern pattern : authenticationConfigurationService.get().getExclusionRegexPatternList()) {
-            final Matcher matcher = pattern.matcher(uriString);
-            final Boolean isMatchFound = matcher.matches();
-            if (isMatchFound) {
-                return Boolean.TRUE;
-            }
+        if (authenticationConfigurationService.get().getExclusionMatcher().match(uriString) >= 0) {
+            return Boolean.TRUE;
         }
         return Boolean.FALSE;
     }
@@ -246,25 +256,18 @@ public final class SimpleAuthenticationHelper implements AuthenticationHelper {
             final int length = httpRequest.getRequestURI().length();
             uriString = httpRequest.getRequestURI().substring(length);
         }
-        int index = 0;
-        for (final String urlPattern : authenticationConfigurationService.get().getAuthorisationUriPatternList()) {
-            final Pattern pattern = authenticationConfigurationService.get().getAuthorisationRegexPatternList()
-                    .get(index++);
-            final Matcher matcher = pattern.matcher(uriString);
-            final Boolean isMatchFound = matcher.matches();
-            if (isMatchFound) {
-                final HttpServletRequest authRequest = getAuthenticationWrapper(httpRequest, token);
-                for (final String roleName : authenticationConfigurationService.get().getAuthorisationRoleMap()
-                        .get(urlPattern)) {
-                    final Boolean isUserInRole = authRequest.isUserInRole(roleName);
-                    if (isUserInRole) {
-                        return Boolean.TRUE;
-                    }
-                }
-                return Boolean.FALSE;
-            }
+        final AuthenticationConfiguration authenticationConfiguration = authenticationConfigurationService.get();
+        final int index = authenticationConfiguration.getAuthorisationMatcher().match(uriString);
+        if (index < 0) {
+            return Boolean.TRUE;
+        }
+        if (token == null) {
+            return Boolean.FALSE;
         }
-        return Boolean.TRUE;
+        final String urlPattern = authenticationConfiguration.getAuthorisationUriPatternList().get(index);
+        // All the roles of the pattern are resolved with one Graph call
+        return graphCache.isUserInAnyRole(token.getUserID().getValue(),
+                authenticationConfiguration.getAuthorisationRoleMap().get(urlPattern));
     }
 
     private String addCookie(final HttpServletRequest httpRequest, final HttpServletResponse httpResponse,
@@ -22,8 +22,12 @@
 
 package com.microsoft.azure.oidc.graph;
 
+import java.util.List;
+
 public interface GraphCache {
 
     Boolean isUserInRole(String userID, String role);
 
+    Boolean isUserInAnyRole(String userID, List<String> roles);
+
 }
@@ -22,10 +22,14 @@
 
 package com.microsoft.azure.oidc.graph;
 
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Future;
 
 public interface GraphService {
 
     Future<Boolean> isUserInRoleAsync(String userID, String role);
 
+    Map<String, Boolean> getUserRoles(String userID, List<String> roles);
+
 }
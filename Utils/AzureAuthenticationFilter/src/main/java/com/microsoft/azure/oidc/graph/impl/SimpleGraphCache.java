@@ -22,35 +22,63 @@
 
 package com.microsoft.azure.oidc.graph.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCache;
 import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
 import com.microsoft.azure.oidc.concurrent.cache.impl.SimpleConcurrentCacheService;
-import com.microsoft.azure.oidc.future.FutureHelper;
-import com.microsoft.azure.oidc.future.impl.SimpleFutureHelper;
 import com.microsoft.azure.oidc.graph.GraphCache;
 import com.microsoft.azure.oidc.graph.GraphService;
 
 public class SimpleGraphCache implements GraphCache {
     private static final GraphCache INSTANCE = new SimpleGraphCache();
 
-    private final GraphService springGraphService = SimpleGraphService.getInstance();
-
-    private final FutureHelper futureHelper = SimpleFutureHelper.getInstance();
+    private final GraphService graphService = SimpleGraphService.getInstance();
 
     private final ConcurrentCacheService concurrentCacheService = SimpleConcurrentCacheService.getInstance();
 
     @Override
-    public Boolean isUserInRole(String userID, String role) {
-        final String key = String.format("%s:%s", userID, role);
-        final Boolean entry = concurrentCacheService.getCache(Boolean.class, "roleCache").get(key);
-        if (entry != null) {
-            return entry;
+    public Boolean isUserInRole(final String userID, final String role) {
+        final List<String> roles = new ArrayList<String>();
+        roles.add(role);
+        return isUserInAnyRole(userID, roles);
+    }
+
+    @Override
+    public Boolean isUserInAnyRole(final String userID, final List<String> roles) {
+        final ConcurrentCache<String, Boolean> cache = concurrentCacheService.getCache(Boolean.class, "roleCache");
+        final List<String> missingRoles = new ArrayList<String>();
+        for (final String role : roles) {
+            final Boolean entry = cache.get(getKey(userID, role));
+            if (entry == null) {
+                missingRoles.add(role);
+            } else if (entry) {
+                return Boolean.TRUE;
+            }
         }
-        final Boolean result = futureHelper.getResult(springGraphService.isUserInRoleAsync(userID, role));
+        if (missingRoles.isEmpty()) {
+            return Boolean.FALSE;
+        }
+        final Map<String, Boolean> result = graphService.getUserRoles(userID, missingRoles);
         if (result == null) {
-            return result;
+            // Not cached, the roles are looked up again with the next request
+            return Boolean.FALSE;
+        }
+        Boolean isUserInAnyRole = Boolean.FALSE;
+        for (final String role : missingRoles) {
+            final Boolean isUserInRole = result.get(role);
+            cache.putIfAbsent(getKey(userID, role), isUserInRole);
+            if (isUserInRole) {
+                isUserInAnyRole = Boolean.TRUE;
+            }
         }
-        concurrentCacheService.getCache(Boolean.class, "roleCache").putIfAbsent(key, result);
-        return result;
+        return isUserInAnyRole;
+    }
+
+    private String getKey(final String userID, final String role) {
+        return String.format("%s:%s", userID, role);
     }
 
     public static GraphCache getInstance() {
@@ -22,169 +22,284 @@
 
 package com.microsoft.azure.oidc.graph.impl;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-
-import javax.net.ssl.HttpsURLConnection;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.microsoft.azure.oidc.application.settings.ApplicationSettings;
 import com.microsoft.azure.oidc.application.settings.ApplicationSettingsLoader;
-import com.microsoft.azure.oidc.application.settings.Secret;
 import com.microsoft.azure.oidc.application.settings.Tenant;
 import com.microsoft.azure.oidc.application.settings.impl.SimpleApplicationSettingsLoader;
-import com.microsoft.azure.oidc.common.id.ID;
-import com.microsoft.azure.oidc.exception.GeneralException;
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCache;
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
+import com.microsoft.azure.oidc.concurrent.cache.impl.SimpleConcurrentCacheService;
+import com.microsoft.azure.oidc.exception.PreconditionException;
 import com.microsoft.azure.oidc.graph.GraphService;
 
+/**
+ * Resolves the roles (the group display names) of a user with one checkMemberGroups call. The application token is
+ * kept until it is about to expire, and the group objectIds are kept in the "groupCache", so a user's first request
+ * usually costs a single Graph round trip. The responses are always read to the end so that the connections are
+ * kept alive for the next call.
+ */
 public final class SimpleGraphService implements GraphService {
     private static final GraphService INSTANCE = new SimpleGraphService();
     private static final Logger LOGGER = LoggerFactory.getLogger(SimpleGraphService.class);
 
+    private static final String GRAPH_URL = "https://graph.windows.net";
+    private static final String LOGIN_URL = "https://login.microsoftonline.com";
+    private static final String API_VERSION = "api-version=1.6";
+    private static final String UNKNOWN_GROUP = "";
+    private static final int MAX_GROUPS_PER_CHECK = 20;
+    private static final int MAX_GROUPS_PER_FILTER = 10;
+    private static final long TOKEN_EXPIRY_MARGIN = TimeUnit.MINUTES.toMillis(5);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     private final ApplicationSettingsLoader applicationSettingsLoader = SimpleApplicationSettingsLoader.getInstance();
 
+    private final ConcurrentCacheService concurrentCacheService = SimpleConcurrentCacheService.getInstance();
+
+    private final ExecutorService executorService = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "graph-service");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final String graphUrl;
+
+    private final String loginUrl;
+
+    private final Object tokenLock = new Object();
+
+    private volatile BearerToken bearerToken;
+
+    private SimpleGraphService() {
+        this(GRAPH_URL, LOGIN_URL);
+    }
+
+    SimpleGraphService(final String graphUrl, final String loginUrl) {
+        if (graphUrl == null || loginUrl == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        this.graphUrl = graphUrl;
+        this.loginUrl = loginUrl;
+    }
+
     @Override
     public Future<Boolean> isUserInRoleAsync(final String userID, final String role) {
-        final ExecutorService executorService = Executors.newSingleThreadExecutor();
-        final Future<Boolean> future = executorService.submit(new Callable<Boolean>() {
+        return executorService.submit(new Callable<Boolean>() {
             public Boolean call() throws Exception {
-                return isUserInRole(userID, role);
+                final List<String> roles = new ArrayList<String>();
+                roles.add(role);
+                final Map<String, Boolean> result = getUserRoles(userID, roles);
+                return result == null ? Boolean.FALSE : result.get(role);
             }
         });
-        executorService.shutdown();
-        return future;
     }
 
-    private Boolean isUserInRole(final String userID, final String role) {
+    @Override
+    public Map<String, Boolean> getUserRoles(final String userID, final List<String> roles) {
+        if (userID == null || roles == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
         try {
             final ApplicationSettings applicationSettings = applicationSettingsLoader.load();
-            final String bearerToken = getBearerToken(applicationSettings.getTenant(),
-                    applicationSettings.getPrincipalId(), applicationSettings.getPrincipalSecret());
-            final String roleID = getGroupID(applicationSettings.getTenant(), role, bearerToken);
-            if (roleID == null) {
-                return Boolean.FALSE;
+            final String token = getBearerToken(applicationSettings);
+            final Map<String, String> groupIDs = getGroupIDs(applicationSettings.getTenant(), roles, token);
+            final Set<String> knownGroupIDs = new LinkedHashSet<String>();
+            for (final String groupID : groupIDs.values()) {
+                if (!UNKNOWN_GROUP.equals(groupID)) {
+                    knownGroupIDs.add(groupID);
+                }
+            }
+            final Set<String> memberGroupIDs = getMemberGroupIDs(applicationSettings.getTenant(), userID,
+                    new ArrayList<String>(knownGroupIDs), token);
+            final Map<String, Boolean> result = new HashMap<String, Boolean>();
+            for (final String role : roles) {
+                result.put(role, memberGroupIDs.contains(groupIDs.get(role)));
             }
-            return isUserInGroup(applicationSettings.getTenant(), userID, roleID, bearerToken);
-        } catch (GeneralException e) {
-            LOGGER.error("General Exception", e);
-            return Boolean.FALSE;
+            return result;
+        } catch (IOException e) {
+            LOGGER.error("IO Exception", e);
+            // The token may have been revoked, get a new one for the next call
+            bearerToken = null;
+            return null;
         } catch (RuntimeException e) {
             LOGGER.error(e.getMessage(), e);
-            return Boolean.FALSE;
+            return null;
         }
     }
 
-    private Boolean isUserInGroup(final Tenant tenant, final String userID, final String groupID,
-            final String bearerToken) {
-        try {
-            final String urlString = String.format("https://graph.windows.net/%s/isMemberOf?api-version=1.6",
-                    tenant.getName());
-            final String payload = String.format("{\"groupId\":\"%s\",\"memberId\":\"%s\"}", groupID, userID);
-            final URL url = new URL(urlString);
-            final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestProperty("Host", "graph.windows.net");
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setRequestProperty("Accept", "application/json");
-            connection.setRequestProperty("Authorization", "Bearer " + bearerToken);
-            connection.setRequestMethod("POST");
-            connection.setDoOutput(true);
-            connection.getOutputStream().write(payload.getBytes());
-            connection.getOutputStream().flush();
-            final StringBuilder result = new StringBuilder();
-            try (final BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                for (String line = in.readLine(); line != null; line = in.readLine()) {
-                    result.append(line);
-                }
+    private Set<String> getMemberGroupIDs(final Tenant tenant, final String userID, final List<String> groupIDs,
+            final String token) throws IOException {
+        final Set<String> memberGroupIDs = new HashSet<String>();
+        final String urlString = String.format("%s/%s/users/%s/checkMemberGroups?%s", graphUrl, tenant.getName(),
+                URLEncoder.encode(userID, "UTF-8"), API_VERSION);
+        for (int start = 0; start < groupIDs.size(); start += MAX_GROUPS_PER_CHECK) {
+            final ObjectNode payload = MAPPER.createObjectNode();
+            final ArrayNode ids = payload.putArray("groupIds");
+            for (final String groupID : groupIDs.subList(start, Math.min(start + MAX_GROUPS_PER_CHECK, groupIDs.size()))) {
+                ids.add(groupID);
+            }
+            final JsonNode node = request("POST", urlString, token, "application/json",
+                    MAPPER.writeValueAsString(payload));
+            for (final JsonNode groupNode : node.get("value")) {
+                memberGroupIDs.add(groupNode.asText());
             }
-            final ObjectMapper mapper = new ObjectMapper();
-            final JsonNode node = mapper.readValue(result.toString().getBytes(), JsonNode.class);
-            return node.get("value").asBoolean();
-        } catch (IOException e) {
-            LOGGER.error("IO Exception", e);
-            return Boolean.FALSE;
-        } catch (RuntimeException e) {
-            LOGGER.error(e.getMessage(), e);
-            return Boolean.FALSE;
         }
+        return memberGroupIDs;
     }
 
-    private String getGroupID(final Tenant tenant, final String group, final String bearerToken) {
-        try {
-            final String urlString = String.format(
-                    "https://graph.windows.net/%s/groups?$filter=displayName%%20eq%%20'%s'&api-version=1.6",
-                    tenant.getName(), URLEncoder.encode(group, "UTF-8"));
-            final URL url = new URL(urlString);
-            final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestProperty("Host", "graph.windows.net");
-            connection.setRequestProperty("Accept", "application/json");
-            connection.setRequestProperty("Authorization", "Bearer " + bearerToken);
-            final StringBuilder result = new StringBuilder();
-            try (final BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                for (String line = in.readLine(); line != null; line = in.readLine()) {
-                    result.append(line);
+    private Map<String, String> getGroupIDs(final Tenant tenant, final List<String> groups, final String token)
+            throws IOException {
+        final Map<String, String> groupIDs = new HashMap<String, String>();
+        final ConcurrentCache<String, String> cache = concurrentCacheService.getCache(String.class, "groupCache");
+        final List<String> unresolved = new ArrayList<String>();
+        for (final String group : new LinkedHashSet<String>(groups)) {
+            final String groupID = cache == null ? null : cache.get(group);
+            if (groupID == null) {
+                unresolved.add(group);
+            } else {
+                groupIDs.put(group, groupID);
+            }
+        }
+        for (int start = 0; start < unresolved.size(); start += MAX_GROUPS_PER_FILTER) {
+            final List<String> batch = unresolved.subList(start,
+                    Math.min(start + MAX_GROUPS_PER_FILTER, unresolved.size()));
+            final StringBuilder filter = new StringBuilder();
+            for (final String group : batch) {
+                if (filter.length() > 0) {
+                    filter.append(" or ");
                 }
+                filter.append("displayName eq '").append(group.replace("'", "''")).append("'");
             }
-            final ObjectMapper mapper = new ObjectMapper();
-            final JsonNode node = mapper.readValue(result.toString().getBytes(), JsonNode.class);
+            final String urlString = String.format("%s/%s/groups?$filter=%s&%s", graphUrl, tenant.getName(),
+                    URLEncoder.encode(filter.toString(), "UTF-8").replace("+", "%20"), API_VERSION);
+            final JsonNode node = request("GET", urlString, token, null, null);
+            // The Graph displayName filter is case insensitive
+            final Map<String, String> found = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
             for (final JsonNode groupNode : node.get("value")) {
-                return groupNode.get("objectId").asText();
+                final String displayName = groupNode.get("displayName").asText();
+                if (!found.containsKey(displayName)) {
+                    found.put(displayName, groupNode.get("objectId").asText());
+                }
+            }
+            for (final String group : batch) {
+                final String groupID = found.containsKey(group) ? found.get(group) : UNKNOWN_GROUP;
+                groupIDs.put(group, groupID);
+                if (cache != null) {
+                    cache.putIfAbsent(group, groupID);
+                }
             }
-            return null;
-        } catch (IOException e) {
-            LOGGER.error("IO Exception", e);
-            return null;
-        } catch (RuntimeException e) {
-            LOGGER.error(e.getMessage(), e);
-            return null;
         }
+        return groupIDs;
     }
 
-    private String getBearerToken(final Tenant tenant, final ID principal, final Secret secret) {
-        try {
+    private String getBearerToken(final ApplicationSettings applicationSettings) throws IOException {
+        final BearerToken current = bearerToken;
+        if (current != null && !current.isExpiring()) {
+            return current.getValue();
+        }
+        synchronized (tokenLock) {
+            if (bearerToken != null && !bearerToken.isExpiring()) {
+                return bearerToken.getValue();
+            }
             final String payload = String.format(
-                    "grant_type=client_credentials&client_id=%s&client_secret=%s&resource=%s", principal.getValue(),
-                    URLEncoder.encode(secret.getValue(), "UTF-8"),
-                    URLEncoder.encode("https://graph.windows.net", "UTF-8"));
-            final URL url = new URL(
-                    String.format("https://login.microsoftonline.com/%s/oauth2/token", tenant.getName()));
-            final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Host", "login.microsoftonline.com");
-            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-            connection.setRequestProperty("Accept", "application/json");
+                    "grant_type=client_credentials&client_id=%s&client_secret=%s&resource=%s",
+                    URLEncoder.encode(applicationSettings.getPrincipalId().getValue(), "UTF-8"),
+                    URLEncoder.encode(applicationSettings.getPrincipalSecret().getValue(), "UTF-8"),
+                    URLEncoder.encode(GRAPH_URL, "UTF-8"));
+            final JsonNode node = request("POST",
+                    String.format("%s/%s/oauth2/token", loginUrl, applicationSettings.getTenant().getName()), null,
+                    "application/x-www-form-urlencoded", payload);
+            final long expiresIn = node.has("expires_in") ? node.get("expires_in").asLong() : 0L;
+            bearerToken = new BearerToken(node.get("access_token").asText(),
+                    System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(expiresIn));
+            return bearerToken.getValue();
+        }
+    }
+
+    private JsonNode request(final String method, final String urlString, final String token,
+            final String contentType, final String payload) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(urlString).openConnection();
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Accept", "application/json");
+        if (token != null) {
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+        }
+        if (payload != null) {
+            connection.setRequestProperty("Content-Type", contentType);
             connection.setDoOutput(true);
-            connection.getOutputStream().write(payload.getBytes());
-            connection.getOutputStream().flush();
-            final StringBuilder result = new StringBuilder();
-            try (final BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                for (String line = in.readLine(); line != null; line = in.readLine()) {
-                    result.append(line);
+            try (final OutputStream out = connection.getOutputStream()) {
+                out.write(payload.getBytes("UTF-8"));
+            }
+        }
+        final int responseCode = connection.getResponseCode();
+        final InputStream stream = responseCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (stream != null) {
+            try (final InputStream in = stream) {
+                final byte[] buffer = new byte[8192];
+                for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                    body.write(buffer, 0, read);
                 }
             }
-            final ObjectMapper mapper = new ObjectMapper();
-            final JsonNode node = mapper.readValue(result.toString().getBytes(), JsonNode.class);
-            return node.get("access_token").asText();
-        } catch (IOException e) {
-            LOGGER.error("IO Exception", e);
-            return null;
-        } catch (RuntimeException e) {
-            LOGGER.error(e.getMessage(), e);
-            return null;
         }
+        if (responseCode >= 400) {
+            throw new IOException(String.format("Graph request failed with HTTP %s: %s", responseCode,
+                    body.toString("UTF-8")));
+        }
+        return MAPPER.readTree(body.toByteArray());
     }
 
     public static GraphService getInstance() {
         return INSTANCE;
     }
+
+    private static final class BearerToken {
+        private final String value;
+        private final long expiresAt;
+
+        public BearerToken(final String value, final long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public boolean isExpiring() {
+            return System.currentTimeMillis() >= expiresAt - TOKEN_EXPIRY_MARGIN;
+        }
+    }
 }
@@ -31,4 +31,6 @@ public interface KeyStoreLoader {
 
     Future<JsonNode> loadAsync(EndPoint endPoint);
 
+    JsonNode load(EndPoint endPoint);
+
 }
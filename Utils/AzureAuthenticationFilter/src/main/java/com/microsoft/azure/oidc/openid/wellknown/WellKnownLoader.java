@@ -30,4 +30,6 @@ public interface WellKnownLoader {
 
     Future<JsonNode> loadAsync();
 
+    JsonNode load();
+
 }
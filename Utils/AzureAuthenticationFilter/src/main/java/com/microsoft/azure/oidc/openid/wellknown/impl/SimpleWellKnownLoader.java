@@ -60,6 +60,7 @@ public final class SimpleWellKnownLoader implements WellKnownLoader {
         return future;
     }
 
+    @Override
     public JsonNode load() {
         try {
             final ApplicationSettings applicationSettings = applicationSettingsLoader.load();
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.token.impl;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.microsoft.azure.oidc.common.timestamp.TimeStamp;
+import com.microsoft.azure.oidc.common.timestamp.TimeStampFactory;
+import com.microsoft.azure.oidc.common.timestamp.impl.SimpleTimeStampFactory;
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCache;
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
+import com.microsoft.azure.oidc.concurrent.cache.impl.SimpleConcurrentCacheService;
+import com.microsoft.azure.oidc.exception.GeneralException;
+import com.microsoft.azure.oidc.exception.PreconditionException;
+import com.microsoft.azure.oidc.token.Token;
+import com.microsoft.azure.oidc.token.TokenCache;
+
+/**
+ * Keeps the tokens which have passed the signature and claims validation, keyed by the SHA-256 hash of the token
+ * string, so that a repeated token skips the parsing and the signature verification. The entries are only served
+ * until the token expires, the bound of the cache itself is the "tokenCache" size.
+ */
+public final class SimpleTokenCache implements TokenCache {
+    private static final TokenCache INSTANCE = new SimpleTokenCache();
+
+    private static final ThreadLocal<MessageDigest> DIGEST = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new GeneralException("No Such Algorithm Exception", e);
+            }
+        }
+    };
+
+    private final ConcurrentCacheService concurrentCacheService = SimpleConcurrentCacheService.getInstance();
+
+    private final TimeStampFactory timeStampFactory = SimpleTimeStampFactory.getInstance();
+
+    @Override
+    public Token getVerifiedToken(final String value) {
+        if (value == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final ConcurrentCache<String, Token> cache = getCache();
+        if (cache == null) {
+            return null;
+        }
+        final Token entry = cache.get(getKey(value));
+        if (entry == null || !isUnexpired(entry)) {
+            return null;
+        }
+        return entry;
+    }
+
+    @Override
+    public Boolean isVerified(final Token token) {
+        if (token == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final ConcurrentCache<String, Token> cache = getCache();
+        if (cache == null) {
+            return Boolean.FALSE;
+        }
+        final Token entry = cache.get(getKey(token));
+        if (entry == null || !isUnexpired(entry)) {
+            return Boolean.FALSE;
+        }
+        return entry.equals(token);
+    }
+
+    @Override
+    public void putVerified(final Token token) {
+        if (token == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final ConcurrentCache<String, Token> cache = getCache();
+        if (cache == null || !isUnexpired(token)) {
+            return;
+        }
+        cache.putIfAbsent(getKey(token), token);
+    }
+
+    private ConcurrentCache<String, Token> getCache() {
+        return concurrentCacheService.getCache(Token.class, "tokenCache");
+    }
+
+    private Boolean isUnexpired(final Token token) {
+        final TimeStamp now = timeStampFactory.createTimeStamp(System.currentTimeMillis() / 1000);
+        return token.getExpiration().compareTo(now) > 0;
+    }
+
+    private String getKey(final Token token) {
+        return getKey(token.getPayload().getValue() + "." + token.getSignature().getValue());
+    }
+
+    private String getKey(final String value) {
+        try {
+            return Base64.encodeBase64String(DIGEST.get().digest(value.getBytes("UTF-8")));
+        } catch (UnsupportedEncodingException e) {
+            throw new GeneralException("Unsupported Encoding Exception", e);
+        }
+    }
+
+    public static TokenCache getInstance() {
+        return INSTANCE;
+    }
+}
@@ -31,6 +31,8 @@ import java.security.Signature;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.RSAPublicKeySpec;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
@@ -39,12 +41,14 @@ import org.slf4j.LoggerFactory;
 import com.microsoft.azure.oidc.application.settings.ApplicationSettings;
 import com.microsoft.azure.oidc.application.settings.ApplicationSettingsLoader;
 import com.microsoft.azure.oidc.application.settings.impl.SimpleApplicationSettingsLoader;
+import com.microsoft.azure.oidc.common.name.Name;
 import com.microsoft.azure.oidc.common.timestamp.TimeStamp;
 import com.microsoft.azure.oidc.common.timestamp.TimeStampFactory;
 import com.microsoft.azure.oidc.common.timestamp.impl.SimpleTimeStampFactory;
 import com.microsoft.azure.oidc.configuration.Configuration;
 import com.microsoft.azure.oidc.configuration.ConfigurationCache;
 import com.microsoft.azure.oidc.configuration.impl.SimpleConfigurationCache;
+import com.microsoft.azure.oidc.configuration.key.Key;
 import com.microsoft.azure.oidc.exception.GeneralException;
 import com.microsoft.azure.oidc.exception.PreconditionException;
 import com.microsoft.azure.oidc.filter.configuration.algorithm.AlgorithmConfigurationService;
@@ -56,6 +60,13 @@ public class SimpleTokenValidator implements TokenValidator {
     private static final TokenValidator INSTANCE = new SimpleTokenValidator();
     private static final Logger LOGGER = LoggerFactory.getLogger(SimpleTokenValidator.class);
 
+    private static final ThreadLocal<Map<String, Signature>> SIGNATURES = new ThreadLocal<Map<String, Signature>>() {
+        @Override
+        protected Map<String, Signature> initialValue() {
+            return new HashMap<String, Signature>();
+        }
+    };
+
     private final ApplicationSettingsLoader applicationSettingsLoader = SimpleApplicationSettingsLoader.getInstance();
 
     private final ConfigurationCache configurationCache = SimpleConfigurationCache.getInstance();
@@ -64,6 +75,8 @@ public class SimpleTokenValidator implements TokenValidator {
 
     private final AlgorithmConfigurationService algorithmConfigurationService = SimpleAlgorithmConfigurationService.getInstance();
 
+    private volatile PublicKeys publicKeys;
+
     @Override
     public Boolean validateSignature(final Token token) {
         if (token == null) {
@@ -72,35 +85,73 @@ public class SimpleTokenValidator implements TokenValidator {
         if (algorithmConfigurationService.get().getAlgorithmClassMap().get(token.getAlgorithm().getName()).equals("HMAC")) {
             return Boolean.FALSE;
         }
-        final Configuration configuration = configurationCache.load();
+        Configuration configuration = configurationCache.load();
         if (configuration == null) {
             throw new GeneralException("Error loading configuration");
         }
+        if (configuration.getKey(token.getKeyName()) == null) {
+            configuration = configurationCache.reload(token.getKeyName());
+        }
         try {
             final TimeStamp now = timeStampFactory.createTimeStamp(System.currentTimeMillis() / 1000);
-            if (configuration.getKey(token.getKeyName()).getNotBefore().compareTo(now) > 0) {
+            final Key key = configuration.getKey(token.getKeyName());
+            if (key == null || key.getNotBefore().compareTo(now) > 0) {
                 return Boolean.FALSE;
             }
-            final Base64 decoder = new Base64();
-            final BigInteger exponent = new BigInteger(1,
-                    decoder.decode(configuration.getKey(token.getKeyName()).getExponent().getValue()));
-            final BigInteger modulus = new BigInteger(1,
-                    decoder.decode(configuration.getKey(token.getKeyName()).getSecret().getValue()));
-            final RSAPublicKeySpec pubKeySpec = new RSAPublicKeySpec(modulus, exponent);
-            final KeyFactory keyFactory = KeyFactory
-                    .getInstance(algorithmConfigurationService.get().getAlgorithmClassMap().get(token.getAlgorithm().getName()));
-            final PublicKey pubKey = keyFactory.generatePublic(pubKeySpec);
-            final Signature sig = Signature
-                    .getInstance(algorithmConfigurationService.get().getAlgorithmMap().get(token.getAlgorithm().getName()));
+            final PublicKey pubKey = getPublicKeys(configuration,
+                    algorithmConfigurationService.get().getAlgorithmClassMap().get(token.getAlgorithm().getName()))
+                            .get(token.getKeyName());
+            if (pubKey == null) {
+                return Boolean.FALSE;
+            }
+            final Signature sig = getSignature(
+                    algorithmConfigurationService.get().getAlgorithmMap().get(token.getAlgorithm().getName()));
             sig.initVerify(pubKey);
             sig.update(token.getPayload().getValue().getBytes());
-            return sig.verify(decoder.decode(token.getSignature().getValue()));
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException | SignatureException | InvalidKeyException e) {
+            return sig.verify(Base64.decodeBase64(token.getSignature().getValue()));
+        } catch (NoSuchAlgorithmException | SignatureException | InvalidKeyException e) {
             LOGGER.error(e.getMessage(), e);
             return Boolean.FALSE;
         }
     }
 
+    /**
+     * The public keys are generated once for each loaded configuration, and regenerated when the configuration
+     * cache loads a new one.
+     */
+    private Map<Name, PublicKey> getPublicKeys(final Configuration configuration, final String keyAlgorithm)
+            throws NoSuchAlgorithmException {
+        final PublicKeys current = publicKeys;
+        if (current != null && current.configuration == configuration && current.keyAlgorithm.equals(keyAlgorithm)) {
+            return current.keys;
+        }
+        final KeyFactory keyFactory = KeyFactory.getInstance(keyAlgorithm);
+        final Map<Name, PublicKey> keys = new HashMap<Name, PublicKey>();
+        for (final Map.Entry<Name, Key> entry : configuration.getKeys().entrySet()) {
+            try {
+                final BigInteger exponent = new BigInteger(1,
+                        Base64.decodeBase64(entry.getValue().getExponent().getValue()));
+                final BigInteger modulus = new BigInteger(1,
+                        Base64.decodeBase64(entry.getValue().getSecret().getValue()));
+                keys.put(entry.getKey(), keyFactory.generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+            } catch (InvalidKeySpecException e) {
+                LOGGER.error(e.getMessage(), e);
+            }
+        }
+        publicKeys = new PublicKeys(configuration, keyAlgorithm, keys);
+        return keys;
+    }
+
+    private Signature getSignature(final String algorithm) throws NoSuchAlgorithmException {
+        final Map<String, Signature> signatures = SIGNATURES.get();
+        Signature signature = signatures.get(algorithm);
+        if (signature == null) {
+            signature = Signature.getInstance(algorithm);
+            signatures.put(algorithm, signature);
+        }
+        return signature;
+    }
+
     @Override
     public Boolean validateAudience(final Token token) {
         if (token == null) {
@@ -190,4 +241,17 @@ public class SimpleTokenValidator implements TokenValidator {
     public static TokenValidator getInstance() {
         return INSTANCE;
     }
+
+    private static final class PublicKeys {
+        private final Configuration configuration;
+        private final String keyAlgorithm;
+        private final Map<Name, PublicKey> keys;
+
+        public PublicKeys(final Configuration configuration, final String keyAlgorithm,
+                final Map<Name, PublicKey> keys) {
+            this.configuration = configuration;
+            this.keyAlgorithm = keyAlgorithm;
+            this.keys = keys;
+        }
+    }
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.concurrent.cache.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class StripedTTLConcurrentCacheTest {
+    private StripedTTLConcurrentCache<Integer, String> cache;
+
+    @After
+    public void tearDown() {
+        if (cache != null) {
+            cache.shutdownNow();
+        }
+    }
+
+    @Test
+    public void expireEntriesAfterTTL() throws Exception {
+        cache = new StripedTTLConcurrentCache<Integer, String>(100, TimeUnit.MILLISECONDS, 10);
+
+        assertNull(cache.putIfAbsent(1, "one"));
+        assertEquals("one", cache.putIfAbsent(1, "another"));
+        assertEquals("one", cache.get(1));
+
+        Thread.sleep(200);
+
+        assertNull(cache.get(1));
+        assertEquals(0, cache.size());
+        assertNull(cache.putIfAbsent(1, "another"));
+        assertEquals("another", cache.get(1));
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getExpirationCount());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsedEntry() {
+        // The even keys share one of the 2 segments, where the LRU order is kept
+        cache = new StripedTTLConcurrentCache<Integer, String>(10, TimeUnit.MINUTES, 3);
+
+        cache.putIfAbsent(0, "0");
+        cache.putIfAbsent(2, "2");
+        cache.putIfAbsent(4, "4");
+        assertEquals("0", cache.get(0));
+
+        cache.putIfAbsent(6, "6");
+
+        assertNull(cache.get(2));
+        assertEquals("0", cache.get(0));
+        assertEquals("4", cache.get(4));
+        assertEquals("6", cache.get(6));
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(0, cache.getExpirationCount());
+    }
+
+    @Test
+    public void boundSizeGloballyUnderConcurrentPuts() throws Exception {
+        final int maxSize = 100;
+        final int threads = 8;
+        final int putsPerThread = 5000;
+        cache = new StripedTTLConcurrentCache<Integer, String>(10, TimeUnit.MINUTES, maxSize);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean isOverMaxSize = new AtomicBoolean();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+
+        try {
+            for (int t = 0; t < threads; t++) {
+                final int base = t * putsPerThread;
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+
+                        for (int i = 0; i < putsPerThread; i++) {
+                            cache.putIfAbsent(base + i, "value");
+                            if (cache.size() > maxSize) {
+                                isOverMaxSize.set(true);
+                            }
+                        }
+                    }
+                }));
+            }
+
+            start.countDown();
+            for (final Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertFalse(isOverMaxSize.get());
+
+        int cached = 0;
+        for (int key = 0; key < threads * putsPerThread; key++) {
+            if (cache.get(key) != null) {
+                cached++;
+            }
+        }
+
+        // The entries counted are the ones actually kept, all the others are evicted
+        assertTrue(cached <= maxSize);
+        assertEquals(cache.size(), cached);
+        assertEquals(threads * putsPerThread - cached, cache.getEvictionCount());
+    }
+}
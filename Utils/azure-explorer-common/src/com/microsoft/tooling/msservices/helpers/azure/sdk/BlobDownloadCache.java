@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.tooling.msservices.helpers.azure.sdk;
+
+import com.google.common.hash.Hashing;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The on-disk cache of the downloaded blob files, keyed by the account, container and path of the blob, and
+ * validated by the blob ETag. Only the latest version of a blob is kept, and the least recently used files are
+ * evicted once the total size is over the limit.
+ *
+ * A cached file is named by the hashes of its blob key and ETag, so that the index can be rebuilt by scanning the
+ * cache directory, with the file modified time as the last use time.
+ */
+public class BlobDownloadCache {
+    public static final long DEFAULT_MAX_SIZE = 1024L * 1024 * 1024;
+
+    private static final String FILE_SUFFIX = ".blob";
+
+    private static class Entry {
+        final String etagHash;
+        final File file;
+        final long length;
+
+        Entry(@NotNull String etagHash, @NotNull File file, long length) {
+            this.etagHash = etagHash;
+            this.file = file;
+            this.length = length;
+        }
+    }
+
+    @NotNull
+    private final File directory;
+
+    private final long maxSize;
+
+    private long totalSize = 0;
+
+    // Keyed by the blob key hash, in the access order
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Constructor
+     *
+     * @param directory the cache directory, which is created if not existing
+     * @param maxSize the max total size of the cached files in bytes
+     */
+    public BlobDownloadCache(@NotNull File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+
+        load();
+    }
+
+    @NotNull
+    public File getDirectory() {
+        return directory;
+    }
+
+    public synchronized long getTotalSize() {
+        return totalSize;
+    }
+
+    private synchronized void load() {
+        final File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+
+        for (File file : files) {
+            final String name = file.getName();
+            final String[] hashes = name.substring(0, name.length() - FILE_SUFFIX.length()).split("\\.");
+
+            if (hashes.length != 2) {
+                continue;
+            }
+
+            final Entry entry = new Entry(hashes[1], file, file.length());
+            final Entry replaced = entries.put(hashes[0], entry);
+            if (replaced != null) {
+                totalSize -= replaced.length;
+                deleteEntryFile(replaced);
+            }
+
+            totalSize += entry.length;
+        }
+
+        evict();
+    }
+
+    /**
+     * Get the cached file of the blob version
+     *
+     * @param account the storage account name
+     * @param container the container name
+     * @param path the blob path
+     * @param etag the blob ETag
+     * @return the cached file, or null if the blob version isn't cached
+     */
+    @Nullable
+    public synchronized File get(@NotNull String account,
+                                 @NotNull String container,
+                                 @NotNull String path,
+                                 @NotNull String etag) {
+        final Entry entry = entries.get(hashKey(account, container, path));
+
+        if (entry == null || !entry.etagHash.equals(hash(etag)) || !entry.file.isFile()) {
+            return null;
+        }
+
+        // Touch for the eviction order after restarting
+        entry.file.setLastModified(System.currentTimeMillis());
+
+        return entry.file;
+    }
+
+    /**
+     * Put a copy of the downloaded blob file into the cache, replacing the other version of the blob cached
+     *
+     * @param account the storage account name
+     * @param container the container name
+     * @param path the blob path
+     * @param etag the blob ETag
+     * @param downloaded the downloaded file to copy from
+     * @throws IOException for copying errors
+     */
+    public void put(@NotNull String account,
+                    @NotNull String container,
+                    @NotNull String path,
+                    @NotNull String etag,
+                    @NotNull File downloaded) throws IOException {
+        if (downloaded.length() > maxSize) {
+            return;
+        }
+
+        final String keyHash = hashKey(account, container, path);
+        final String etagHash = hash(etag);
+        final File file = new File(directory, keyHash + "." + etagHash + FILE_SUFFIX);
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create the blob cache directory " + directory);
+        }
+
+        // Copy outside of the lock, the same blob version downloaded concurrently gets the same content
+        final File temp = File.createTempFile(keyHash, ".tmp", directory);
+        try {
+            Files.copy(downloaded.toPath(), temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+            synchronized (this) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+                final Entry entry = new Entry(etagHash, file, file.length());
+                final Entry replaced = entries.put(keyHash, entry);
+                if (replaced != null) {
+                    totalSize -= replaced.length;
+
+                    if (!replaced.file.equals(file)) {
+                        deleteEntryFile(replaced);
+                    }
+                }
+
+                totalSize += entry.length;
+                evict();
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+
+        while (totalSize > maxSize && it.hasNext()) {
+            final Entry eldest = it.next().getValue();
+
+            totalSize -= eldest.length;
+            deleteEntryFile(eldest);
+            it.remove();
+        }
+    }
+
+    private static void deleteEntryFile(@NotNull Entry entry) {
+        try {
+            Files.deleteIfExists(entry.file.toPath());
+        } catch (IOException ignored) {
+            // The file opened by others can't be deleted on Windows, it's left as an orphan
+        }
+    }
+
+    @NotNull
+    private static String hashKey(@NotNull String account, @NotNull String container, @NotNull String path) {
+        return hash(account + "/" + container + "/" + path);
+    }
+
+    @NotNull
+    private static String hash(@NotNull String value) {
+        return Hashing.sha256().hashString(value, StandardCharsets.UTF_8).toString().substring(0, 32);
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.tooling.msservices.helpers.azure.sdk;
+
+import com.microsoft.azure.storage.queue.CloudQueue;
+import com.microsoft.azure.storage.queue.CloudQueueMessage;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.utils.ParallelWorkers;
+import com.microsoft.tooling.msservices.model.storage.QueueMessage;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.GregorianCalendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * The bulk operations of a large queue, with the requests sent by parallel workers.
+ *
+ * The messages are inspected beyond the 32 messages peek limit by retrieving them in batches of 32 with a
+ * visibility timeout: the retrieved messages are hidden from the following retrieves, so that the workers page
+ * through the queue without overlapping, and the messages show up again after the timeout. The dequeuing works
+ * the same way, with the retrieved messages deleted. The Queue service has no batch for putting messages, the
+ * enqueuing sends one request per message in parallel.
+ */
+public class BulkQueueOperations {
+    public static final int MAX_BATCH_SIZE = 32;
+    public static final int DEFAULT_CONCURRENCY = 8;
+
+    // Long enough to delete the batch retrieved
+    private static final int DEQUEUE_VISIBILITY_TIMEOUT_SECONDS = 60;
+
+    /**
+     * The messages got and the throughput metrics of a bulk operation
+     */
+    public static class Result {
+        private final List<QueueMessage> messages;
+        private final int messageCount;
+        private final int requestCount;
+        private final long elapsedMs;
+
+        Result(@NotNull List<QueueMessage> messages, int messageCount, int requestCount, long elapsedMs) {
+            this.messages = messages;
+            this.messageCount = messageCount;
+            this.requestCount = requestCount;
+            this.elapsedMs = elapsedMs;
+        }
+
+        /**
+         * @return the messages inspected or dequeued, in the insertion order; empty for enqueuing
+         */
+        @NotNull
+        public List<QueueMessage> getMessages() {
+            return messages;
+        }
+
+        public int getMessageCount() {
+            return messageCount;
+        }
+
+        public int getRequestCount() {
+            return requestCount;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public double getMessagesPerSecond() {
+            return messageCount * 1000.0 / Math.max(1, elapsedMs);
+        }
+    }
+
+    private final CloudQueue queue;
+    private final int concurrency;
+
+    /**
+     * Constructor
+     *
+     * @param queue the queue to operate
+     * @param concurrency the max requests sent in parallel
+     */
+    public BulkQueueOperations(@NotNull CloudQueue queue, int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("Bad concurrency " + concurrency + " for bulk queue operations");
+        }
+
+        this.queue = queue;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Inspect the messages by retrieving them with the visibility timeout. The messages retrieved are invisible to
+     * the consumers until the timeout, and their dequeue counts are increased.
+     *
+     * @param maxMessages the max messages to inspect
+     * @param visibilityTimeoutInSeconds the time to hide the messages inspected, which should be longer than the
+     *                                   inspection
+     * @return the messages inspected
+     * @throws Exception the first error of the requests
+     */
+    @NotNull
+    public Result inspect(int maxMessages, int visibilityTimeoutInSeconds) throws Exception {
+        return retrieve(maxMessages, visibilityTimeoutInSeconds, false);
+    }
+
+    /**
+     * Dequeue the messages, which are retrieved and deleted
+     *
+     * @param maxMessages the max messages to dequeue
+     * @return the messages dequeued
+     * @throws Exception the first error of the requests
+     */
+    @NotNull
+    public Result dequeue(int maxMessages) throws Exception {
+        return retrieve(maxMessages, DEQUEUE_VISIBILITY_TIMEOUT_SECONDS, true);
+    }
+
+    @NotNull
+    private Result retrieve(int maxMessages, final int visibilityTimeoutInSeconds, final boolean delete)
+            throws Exception {
+        final String queueName = queue.getName();
+        final Calendar calendarTemplate = new GregorianCalendar();
+        final List<QueueMessage> messages = Collections.synchronizedList(new ArrayList<QueueMessage>());
+        final AtomicInteger remaining = new AtomicInteger(maxMessages);
+        final AtomicInteger requests = new AtomicInteger();
+
+        final long elapsedMs = runWorkers(new ParallelWorkers.Step() {
+            @Override
+            public boolean run() throws Exception {
+                final int count = reserve(remaining);
+                if (count == 0) {
+                    return false;
+                }
+
+                final Iterable<CloudQueueMessage> batch =
+                        queue.retrieveMessages(count, visibilityTimeoutInSeconds, null, null);
+                requests.incrementAndGet();
+
+                int got = 0;
+                for (CloudQueueMessage cqm : batch) {
+                    messages.add(StorageClientSDKManager.getQueueMessage(cqm, queueName, calendarTemplate));
+                    got++;
+
+                    if (delete) {
+                        queue.deleteMessage(cqm);
+                        requests.incrementAndGet();
+                    }
+                }
+
+                remaining.addAndGet(count - got);
+
+                // No visible message left
+                return got > 0;
+            }
+        });
+
+        final List<QueueMessage> sorted = new ArrayList<QueueMessage>(messages);
+        Collections.sort(sorted, new Comparator<QueueMessage>() {
+            @Override
+            public int compare(QueueMessage m1, QueueMessage m2) {
+                return m1.getInsertionTime().compareTo(m2.getInsertionTime());
+            }
+        });
+
+        return new Result(sorted, sorted.size(), requests.get(), elapsedMs);
+    }
+
+    private static int reserve(@NotNull AtomicInteger remaining) {
+        while (true) {
+            final int current = remaining.get();
+            if (current <= 0) {
+                return 0;
+            }
+
+            final int count = Math.min(current, MAX_BATCH_SIZE);
+            if (remaining.compareAndSet(current, current - count)) {
+                return count;
+            }
+        }
+    }
+
+    /**
+     * Enqueue the messages
+     *
+     * @param contents the message contents
+     * @param timeToLiveInSeconds the time-to-live of the messages
+     * @return the count of messages enqueued
+     * @throws Exception the first error of the requests
+     */
+    @NotNull
+    public Result enqueue(@NotNull final Iterator<String> contents, final int timeToLiveInSeconds) throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+
+        final long elapsedMs = runWorkers(new ParallelWorkers.Step() {
+            @Override
+            public boolean run() throws Exception {
+                final String content;
+
+                synchronized (contents) {
+                    if (!contents.hasNext()) {
+                        return false;
+                    }
+
+                    content = contents.next();
+                }
+
+                queue.addMessage(new CloudQueueMessage(content), timeToLiveInSeconds, 0, null, null);
+                count.incrementAndGet();
+
+                return true;
+            }
+        });
+
+        return new Result(Collections.<QueueMessage>emptyList(), count.get(), count.get(), elapsedMs);
+    }
+
+    /**
+     * Enqueue the non-empty lines of the UTF-8 text file as messages, the file is read while enqueuing
+     *
+     * @param file the text file
+     * @param timeToLiveInSeconds the time-to-live of the messages
+     * @return the count of messages enqueued
+     * @throws Exception the first error of the requests or the file reading
+     */
+    @NotNull
+    public Result enqueue(@NotNull File file, int timeToLiveInSeconds) throws Exception {
+        try (Stream<String> lines = Files.lines(file.toPath(), StandardCharsets.UTF_8)) {
+            return enqueue(lines.filter(line -> !line.isEmpty()).iterator(), timeToLiveInSeconds);
+        }
+    }
+
+    private long runWorkers(@NotNull ParallelWorkers.Step step) throws Exception {
+        final long start = System.nanoTime();
+
+        new ParallelWorkers(concurrency, "queue-bulk-worker").run(step);
+
+        return Math.max(1, (System.nanoTime() - start) / 1000000);
+    }
+}
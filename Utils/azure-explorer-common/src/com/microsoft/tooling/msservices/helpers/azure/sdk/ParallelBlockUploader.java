@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.tooling.msservices.helpers.azure.sdk;
+
+import com.microsoft.azure.storage.core.Base64;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import com.microsoft.azuretools.utils.ParallelWorkers;
+import com.microsoft.tooling.msservices.helpers.CallableSingleArg;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Upload a local file as a block blob with the blocks uploaded in parallel. Each worker reads its blocks from
+ * the file by positional reads of a shared FileChannel, a failed block is retried by itself without restarting
+ * the upload, and the block list is committed in order once all blocks are uploaded.
+ *
+ * The block size is chosen by the file size to give every worker several blocks, and the workers are halved
+ * once a block fails, to back off from a throttling or congested service.
+ */
+public class ParallelBlockUploader {
+    public static final long MIN_BLOCK_SIZE = 1024 * 1024;
+    public static final long MAX_BLOCK_SIZE = 32 * 1024 * 1024;
+    public static final int MAX_BLOCK_COUNT = 50000;
+    public static final int MAX_CONCURRENCY = 16;
+    public static final int MAX_BLOCK_RETRIES = 3;
+
+    private static final int BLOCKS_PER_WORKER = 8;
+    private static final long RETRY_BACKOFF_MS = 500;
+
+    /**
+     * The block blob to upload to
+     */
+    public interface BlockStore {
+        void uploadBlock(@NotNull String blockId, @NotNull InputStream content, long length) throws Exception;
+
+        void commitBlocks(@NotNull List<String> blockIds) throws Exception;
+    }
+
+    private final long blockSize;
+    private final int concurrency;
+
+    /**
+     * Constructor
+     *
+     * @param blockSize the block size in bytes
+     * @param concurrency the max blocks uploaded in parallel
+     */
+    public ParallelBlockUploader(long blockSize, int concurrency) {
+        if (blockSize <= 0 || blockSize > Integer.MAX_VALUE || concurrency <= 0) {
+            throw new IllegalArgumentException(
+                    "Bad block size " + blockSize + " or concurrency " + concurrency + " for block uploading");
+        }
+
+        this.blockSize = blockSize;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Create the uploader with the block size and concurrency adapted to the file length
+     *
+     * @param length the file length in bytes
+     * @return the uploader
+     */
+    @NotNull
+    public static ParallelBlockUploader forLength(long length) {
+        final int maxConcurrency = Math.min(Math.max(4, Runtime.getRuntime().availableProcessors() * 2),
+                                            MAX_CONCURRENCY);
+
+        // Round up to MB, and keep the blocks count under the service limit
+        long blockSize = Math.max(length / ((long) maxConcurrency * BLOCKS_PER_WORKER), MIN_BLOCK_SIZE);
+        blockSize = (blockSize + MIN_BLOCK_SIZE - 1) / MIN_BLOCK_SIZE * MIN_BLOCK_SIZE;
+        blockSize = Math.max(Math.min(blockSize, MAX_BLOCK_SIZE), (length + MAX_BLOCK_COUNT - 1) / MAX_BLOCK_COUNT);
+
+        final long blockCount = (length + blockSize - 1) / blockSize;
+
+        return new ParallelBlockUploader(blockSize, (int) Math.max(1, Math.min(maxConcurrency, blockCount)));
+    }
+
+    public long getBlockSize() {
+        return blockSize;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Get the block ID of the block index. Block IDs of a blob must be in the same length, and the IDs are
+     * stable so that the block uploaded again replaces the uncommitted one.
+     *
+     * @param index the block index
+     * @return the Base64 encoded block ID
+     */
+    @NotNull
+    public static String getBlockId(int index) {
+        return Base64.encode(String.format("block-%08d", index).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Upload the file and commit the blocks
+     *
+     * @param file the file to upload
+     * @param store the block blob to upload to
+     * @param progress the callback with the bytes uploaded, called after each block uploaded
+     * @throws Exception the last error of the block failed after retries, or the committing error
+     */
+    public void upload(@NotNull File file,
+                       @NotNull BlockStore store,
+                       @Nullable CallableSingleArg<Void, Long> progress) throws Exception {
+        final long length = file.length();
+        final int blockCount = (int) ((length + blockSize - 1) / blockSize);
+        final List<String> blockIds = new ArrayList<>(blockCount);
+
+        for (int i = 0; i < blockCount; i++) {
+            blockIds.add(getBlockId(i));
+        }
+
+        if (progress != null) {
+            progress.call(0L);
+        }
+
+        final ParallelWorkers workers =
+                new ParallelWorkers(Math.max(1, Math.min(concurrency, blockCount)), "blob-block-uploader");
+        final AtomicInteger nextBlock = new AtomicInteger();
+        final AtomicLong uploadedBytes = new AtomicLong();
+        final Object progressLock = new Object();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            workers.run(() -> {
+                final int index = nextBlock.getAndIncrement();
+                if (index >= blockCount) {
+                    return false;
+                }
+
+                final long offset = (long) index * blockSize;
+                final int size = (int) Math.min(blockSize, length - offset);
+
+                uploadBlockWithRetries(channel, store, blockIds.get(index), offset, size, workers);
+
+                // Count under the lock, so that the progresses are reported in order
+                synchronized (progressLock) {
+                    final long uploaded = uploadedBytes.addAndGet(size);
+
+                    if (progress != null) {
+                        progress.call(uploaded);
+                    }
+                }
+
+                return true;
+            });
+        }
+
+        store.commitBlocks(blockIds);
+    }
+
+    private static void uploadBlockWithRetries(@NotNull FileChannel channel,
+                                               @NotNull BlockStore store,
+                                               @NotNull String blockId,
+                                               long offset,
+                                               int size,
+                                               @NotNull ParallelWorkers workers) throws Exception {
+        final byte[] block = readBlock(channel, offset, size);
+        int retries = 0;
+
+        while (true) {
+            try {
+                store.uploadBlock(blockId, new ByteArrayInputStream(block), size);
+
+                return;
+            } catch (InterruptedException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                if (++retries > MAX_BLOCK_RETRIES) {
+                    throw ex;
+                }
+
+                workers.backOff();
+                TimeUnit.MILLISECONDS.sleep(RETRY_BACKOFF_MS * (1L << (retries - 1)));
+            }
+        }
+    }
+
+    @NotNull
+    private static byte[] readBlock(@NotNull FileChannel channel, long offset, int size) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("The file is shorter than expected at offset " + (offset + buffer.position()));
+            }
+        }
+
+        return buffer.array();
+    }
+}
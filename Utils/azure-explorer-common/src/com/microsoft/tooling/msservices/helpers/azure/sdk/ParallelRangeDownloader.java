@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.tooling.msservices.helpers.azure.sdk;
+
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import com.microsoft.azuretools.utils.ParallelWorkers;
+import com.microsoft.tooling.msservices.helpers.CallableSingleArg;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Download a blob into a local file with the byte ranges downloaded in parallel. The file is pre-sized to the
+ * blob length, and each worker streams its range straight into the file by positional writes of a shared
+ * FileChannel, without buffering the range in memory. A failed range is downloaded again by itself.
+ *
+ * The range size and workers are chosen by the blob size the same way as {@link ParallelBlockUploader}, and the
+ * workers are halved once a range fails.
+ */
+public class ParallelRangeDownloader {
+    public static final long MIN_RANGE_SIZE = 1024 * 1024;
+    public static final long MAX_RANGE_SIZE = 32 * 1024 * 1024;
+    public static final int MAX_CONCURRENCY = 16;
+    public static final int MAX_RANGE_RETRIES = 3;
+
+    private static final int RANGES_PER_WORKER = 8;
+    private static final long RETRY_BACKOFF_MS = 500;
+
+    /**
+     * The blob to download from
+     */
+    public interface RangeSource {
+        void downloadRange(long offset, long length, @NotNull OutputStream out) throws Exception;
+    }
+
+    private final long rangeSize;
+    private final int concurrency;
+
+    /**
+     * Constructor
+     *
+     * @param rangeSize the range size in bytes
+     * @param concurrency the max ranges downloaded in parallel
+     */
+    public ParallelRangeDownloader(long rangeSize, int concurrency) {
+        if (rangeSize <= 0 || concurrency <= 0) {
+            throw new IllegalArgumentException(
+                    "Bad range size " + rangeSize + " or concurrency " + concurrency + " for range downloading");
+        }
+
+        this.rangeSize = rangeSize;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Create the downloader with the range size and concurrency adapted to the blob length
+     *
+     * @param length the blob length in bytes
+     * @return the downloader
+     */
+    @NotNull
+    public static ParallelRangeDownloader forLength(long length) {
+        final int maxConcurrency = Math.min(Math.max(4, Runtime.getRuntime().availableProcessors() * 2),
+                                            MAX_CONCURRENCY);
+
+        // Round up to MB
+        long rangeSize = Math.max(length / ((long) maxConcurrency * RANGES_PER_WORKER), MIN_RANGE_SIZE);
+        rangeSize = (rangeSize + MIN_RANGE_SIZE - 1) / MIN_RANGE_SIZE * MIN_RANGE_SIZE;
+        rangeSize = Math.min(rangeSize, MAX_RANGE_SIZE);
+
+        final long rangeCount = (length + rangeSize - 1) / rangeSize;
+
+        return new ParallelRangeDownloader(rangeSize, (int) Math.max(1, Math.min(maxConcurrency, rangeCount)));
+    }
+
+    public long getRangeSize() {
+        return rangeSize;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Download the blob into the file, which is created or truncated to the blob length
+     *
+     * @param source the blob to download from
+     * @param length the blob length in bytes
+     * @param file the file to download into
+     * @param progress the callback with the bytes downloaded, called after each range downloaded
+     * @throws Exception the last error of the range failed after retries
+     */
+    public void download(@NotNull RangeSource source,
+                         long length,
+                         @NotNull File file,
+                         @Nullable CallableSingleArg<Void, Long> progress) throws Exception {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        }
+
+        if (progress != null) {
+            progress.call(0L);
+        }
+
+        final long rangeCount = (length + rangeSize - 1) / rangeSize;
+        final ParallelWorkers workers =
+                new ParallelWorkers((int) Math.max(1, Math.min(concurrency, rangeCount)), "blob-range-downloader");
+        final AtomicLong nextRange = new AtomicLong();
+        final AtomicLong downloadedBytes = new AtomicLong();
+        final Object progressLock = new Object();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            workers.run(() -> {
+                final long index = nextRange.getAndIncrement();
+                if (index >= rangeCount) {
+                    return false;
+                }
+
+                final long offset = index * rangeSize;
+                final long size = Math.min(rangeSize, length - offset);
+
+                downloadRangeWithRetries(channel, source, offset, size, workers);
+
+                // Count under the lock, so that the progresses are reported in order
+                synchronized (progressLock) {
+                    final long downloaded = downloadedBytes.addAndGet(size);
+
+                    if (progress != null) {
+                        progress.call(downloaded);
+                    }
+                }
+
+                return true;
+            });
+        }
+    }
+
+    private static void downloadRangeWithRetries(@NotNull FileChannel channel,
+                                                 @NotNull RangeSource source,
+                                                 long offset,
+                                                 long size,
+                                                 @NotNull ParallelWorkers workers) throws Exception {
+        int retries = 0;
+
+        while (true) {
+            // The range downloaded again overwrites the partial content written by the failed one
+            final ChannelRangeOutputStream out = new ChannelRangeOutputStream(channel, offset, size);
+
+            try {
+                source.downloadRange(offset, size, out);
+
+                if (out.getWritten() != size) {
+                    throw new IOException(String.format(
+                            "Got %d bytes of the range at offset %d, but %d expected", out.getWritten(), offset, size));
+                }
+
+                return;
+            } catch (InterruptedException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                if (++retries > MAX_RANGE_RETRIES) {
+                    throw ex;
+                }
+
+                workers.backOff();
+                TimeUnit.MILLISECONDS.sleep(RETRY_BACKOFF_MS * (1L << (retries - 1)));
+            }
+        }
+    }
+
+    /**
+     * The output stream writing a range of the file by positional writes
+     */
+    private static class ChannelRangeOutputStream extends OutputStream {
+        private final FileChannel channel;
+        private final long offset;
+        private final long size;
+        private long written = 0;
+
+        ChannelRangeOutputStream(@NotNull FileChannel channel, long offset, long size) {
+            this.channel = channel;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        long getWritten() {
+            return written;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(@NotNull byte[] bytes, int off, int len) throws IOException {
+            if (written + len > size) {
+                throw new IOException("Got more bytes than the range size " + size + " at offset " + offset);
+            }
+
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes, off, len);
+
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer, offset + written);
+            }
+        }
+    }
+}
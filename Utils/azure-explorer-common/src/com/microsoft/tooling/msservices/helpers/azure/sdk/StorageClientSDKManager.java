@@ -23,7 +23,10 @@
 package com.microsoft.tooling.msservices.helpers.azure.sdk;
 
 import com.google.common.base.Strings;
+import com.microsoft.azure.storage.AccessCondition;
 import com.microsoft.azure.storage.CloudStorageAccount;
+import com.microsoft.azure.storage.ResultContinuation;
+import com.microsoft.azure.storage.ResultSegment;
 import com.microsoft.azure.storage.StorageException;
 import com.microsoft.azure.storage.blob.*;
 import com.microsoft.azure.storage.core.Base64;
@@ -38,29 +41,48 @@ import com.microsoft.tooling.msservices.model.storage.BlobContainer;
 import com.microsoft.tooling.msservices.model.storage.BlobDirectory;
 import com.microsoft.tooling.msservices.model.storage.BlobFile;
 import com.microsoft.tooling.msservices.model.storage.BlobItem;
+import com.microsoft.tooling.msservices.model.storage.BlobItemPage;
 import com.microsoft.tooling.msservices.model.storage.ClientStorageAccount;
 import com.microsoft.tooling.msservices.model.storage.Queue;
 import com.microsoft.tooling.msservices.model.storage.QueueMessage;
 import com.microsoft.tooling.msservices.model.storage.Table;
 import com.microsoft.tooling.msservices.model.storage.TableEntity;
 import com.microsoft.tooling.msservices.model.storage.TableEntity.Property;
+import com.microsoft.tooling.msservices.model.storage.TableEntityPage;
 import com.microsoft.azure.management.storage.StorageAccount;
+import com.microsoft.azuretools.authmanage.CommonSettings;
 import com.microsoft.azuretools.azurecommons.helpers.AzureCmdException;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import com.microsoft.azuretools.utils.StorageAccoutUtils;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
 import java.security.InvalidKeyException;
 import java.util.*;
 import java.util.Map.Entry;
 
 public class StorageClientSDKManager {
+    public static final int DEFAULT_BLOB_PAGE_SIZE = 1000;
+
+    public static final int DEFAULT_TABLE_PAGE_SIZE = 1000;
+
+    private static final String BLOB_CACHE_DIR = "BlobCache";
+    private static final String PARTITION_KEY = "PartitionKey";
+    private static final String ROW_KEY = "RowKey";
+    private static final String TIMESTAMP = "Timestamp";
+
     private static StorageClientSDKManager apiManager;
 
+    private BlobDownloadCache blobDownloadCache;
+
     private StorageClientSDKManager() {
     }
 
@@ -230,7 +252,34 @@ public class StorageClientSDKManager {
     public List<BlobItem> getBlobItems(@NotNull String connectionString, @NotNull BlobDirectory blobDirectory)
             throws AzureCmdException {
         List<BlobItem> biList = new ArrayList<BlobItem>();
+        ResultContinuation continuationToken = null;
+
+        do {
+            BlobItemPage page = getBlobItemPage(connectionString, blobDirectory, continuationToken, DEFAULT_BLOB_PAGE_SIZE);
+
+            biList.addAll(page.getItems());
+            continuationToken = page.getContinuationToken();
+        } while (continuationToken != null);
 
+        return biList;
+    }
+
+    /**
+     * List one page of the blob items in the directory
+     *
+     * @param connectionString the storage connection string
+     * @param blobDirectory the directory to list
+     * @param continuationToken the cursor got from the previous page, or null for the first page
+     * @param pageSize the max count of items in the page
+     * @return the page with the cursor to the next page
+     * @throws AzureCmdException for listing errors
+     */
+    @NotNull
+    public BlobItemPage getBlobItemPage(@NotNull String connectionString,
+                                        @NotNull BlobDirectory blobDirectory,
+                                        @Nullable ResultContinuation continuationToken,
+                                        int pageSize)
+            throws AzureCmdException {
         try {
             CloudBlobClient client = getCloudBlobClient(connectionString);
             String containerName = blobDirectory.getContainerName();
@@ -239,63 +288,103 @@ public class StorageClientSDKManager {
             CloudBlobContainer container = client.getContainerReference(containerName);
             CloudBlobDirectory directory = container.getDirectoryReference(blobDirectory.getPath());
 
-            for (ListBlobItem item : directory.listBlobs()) {
-                String uri = item.getUri() != null ? item.getUri().toString() : "";
-
-                if (item instanceof CloudBlobDirectory) {
-                    CloudBlobDirectory subDirectory = (CloudBlobDirectory) item;
-
-                    String name = extractBlobItemName(subDirectory.getPrefix(), delimiter);
-                    String path = Strings.nullToEmpty(subDirectory.getPrefix());
-
-                    biList.add(new BlobDirectory(name, uri, containerName, path));
-                } else if (item instanceof CloudBlob) {
-                    CloudBlob blob = (CloudBlob) item;
-
-                    String name = extractBlobItemName(blob.getName(), delimiter);
-                    String path = Strings.nullToEmpty(blob.getName());
-                    String type = "";
-                    String cacheControlHeader = "";
-                    String contentEncoding = "";
-                    String contentLanguage = "";
-                    String contentType = "";
-                    String contentMD5Header = "";
-                    String eTag = "";
-                    Calendar lastModified = new GregorianCalendar();
-                    long size = 0;
-
-                    BlobProperties properties = blob.getProperties();
-
-                    if (properties != null) {
-                        if (properties.getBlobType() != null) {
-                            type = properties.getBlobType().toString();
-                        }
-
-                        cacheControlHeader = Strings.nullToEmpty(properties.getCacheControl());
-                        contentEncoding = Strings.nullToEmpty(properties.getContentEncoding());
-                        contentLanguage = Strings.nullToEmpty(properties.getContentLanguage());
-                        contentType = Strings.nullToEmpty(properties.getContentType());
-                        contentMD5Header = Strings.nullToEmpty(properties.getContentMD5());
-                        eTag = Strings.nullToEmpty(properties.getEtag());
-
-                        if (properties.getLastModified() != null) {
-                            lastModified.setTime(properties.getLastModified());
-                        }
-
-                        size = properties.getLength();
-                    }
+            ResultSegment<ListBlobItem> segment = directory.listBlobsSegmented(
+                    "", false, EnumSet.noneOf(BlobListingDetails.class), pageSize, continuationToken, null, null);
 
-                    biList.add(new BlobFile(name, uri, containerName, path, type, cacheControlHeader, contentEncoding,
-                            contentLanguage, contentType, contentMD5Header, eTag, lastModified, size));
+            // Cloning a calendar is much cheaper than creating one with the default time zone and locale lookup
+            Calendar calendarTemplate = new GregorianCalendar();
+            List<BlobItem> biList = new ArrayList<BlobItem>(segment.getResults().size());
+
+            for (ListBlobItem item : segment.getResults()) {
+                BlobItem blobItem = toBlobItem(item, containerName, delimiter, calendarTemplate);
+
+                if (blobItem != null) {
+                    biList.add(blobItem);
                 }
             }
 
-            return biList;
+            return new BlobItemPage(blobDirectory, biList, segment.getHasMoreResults() ? segment.getContinuationToken() : null);
         } catch (Throwable t) {
             throw new AzureCmdException("Error retrieving the Blob Item list", t);
         }
     }
 
+    /**
+     * List the page following the specified one
+     *
+     * @param connectionString the storage connection string
+     * @param page the page listed
+     * @param pageSize the max count of items in the next page
+     * @return the next page, which is empty without cursor if the page specified is the last one
+     * @throws AzureCmdException for listing errors
+     */
+    @NotNull
+    public BlobItemPage getNextBlobItemPage(@NotNull String connectionString, @NotNull BlobItemPage page, int pageSize)
+            throws AzureCmdException {
+        if (!page.hasMore()) {
+            return new BlobItemPage(page.getDirectory(), new ArrayList<BlobItem>(), null);
+        }
+
+        return getBlobItemPage(connectionString, page.getDirectory(), page.getContinuationToken(), pageSize);
+    }
+
+    @Nullable
+    private static BlobItem toBlobItem(@NotNull ListBlobItem item,
+                                       @NotNull String containerName,
+                                       @NotNull String delimiter,
+                                       @NotNull Calendar calendarTemplate) {
+        String uri = item.getUri() != null ? item.getUri().toString() : "";
+
+        if (item instanceof CloudBlobDirectory) {
+            CloudBlobDirectory subDirectory = (CloudBlobDirectory) item;
+
+            String name = extractBlobItemName(subDirectory.getPrefix(), delimiter);
+            String path = Strings.nullToEmpty(subDirectory.getPrefix());
+
+            return new BlobDirectory(name, uri, containerName, path);
+        } else if (item instanceof CloudBlob) {
+            CloudBlob blob = (CloudBlob) item;
+
+            String name = extractBlobItemName(blob.getName(), delimiter);
+            String path = Strings.nullToEmpty(blob.getName());
+            String type = "";
+            String cacheControlHeader = "";
+            String contentEncoding = "";
+            String contentLanguage = "";
+            String contentType = "";
+            String contentMD5Header = "";
+            String eTag = "";
+            Calendar lastModified = (Calendar) calendarTemplate.clone();
+            long size = 0;
+
+            BlobProperties properties = blob.getProperties();
+
+            if (properties != null) {
+                if (properties.getBlobType() != null) {
+                    type = properties.getBlobType().toString();
+                }
+
+                cacheControlHeader = Strings.nullToEmpty(properties.getCacheControl());
+                contentEncoding = Strings.nullToEmpty(properties.getContentEncoding());
+                contentLanguage = Strings.nullToEmpty(properties.getContentLanguage());
+                contentType = Strings.nullToEmpty(properties.getContentType());
+                contentMD5Header = Strings.nullToEmpty(properties.getContentMD5());
+                eTag = Strings.nullToEmpty(properties.getEtag());
+
+                if (properties.getLastModified() != null) {
+                    lastModified.setTime(properties.getLastModified());
+                }
+
+                size = properties.getLength();
+            }
+
+            return new BlobFile(name, uri, containerName, path, type, cacheControlHeader, contentEncoding,
+                    contentLanguage, contentType, contentMD5Header, eTag, lastModified, size);
+        }
+
+        return null;
+    }
+
     @NotNull
     public BlobDirectory createBlobDirectory(@NotNull StorageAccount storageAccount,
                                              @NotNull BlobDirectory parentBlobDirectory,
@@ -405,6 +494,52 @@ public class StorageClientSDKManager {
         }
     }
 
+    /**
+     * Upload the file content to the block blob with the blocks uploaded in parallel
+     *
+     * @param connectionString the storage account connection string
+     * @param blobContainer the blob container
+     * @param filePath the blob path in the container
+     * @param file the file to upload
+     * @param processBlock the callback with the bytes uploaded
+     * @throws AzureCmdException for uploading errors
+     */
+    public void uploadBlobFileContent(@NotNull String connectionString,
+                                      @NotNull BlobContainer blobContainer,
+                                      @NotNull String filePath,
+                                      @NotNull File file,
+                                      @Nullable CallableSingleArg<Void, Long> processBlock)
+            throws AzureCmdException {
+        try {
+            CloudBlobClient client = getCloudBlobClient(connectionString);
+            String containerName = blobContainer.getName();
+
+            CloudBlobContainer container = client.getContainerReference(containerName);
+            final CloudBlockBlob blob = container.getBlockBlobReference(filePath);
+
+            ParallelBlockUploader.forLength(file.length()).upload(file, new ParallelBlockUploader.BlockStore() {
+                @Override
+                public void uploadBlock(@NotNull String blockId, @NotNull InputStream content, long length)
+                        throws Exception {
+                    blob.uploadBlock(blockId, content, length);
+                }
+
+                @Override
+                public void commitBlocks(@NotNull List<String> blockIds) throws Exception {
+                    ArrayList<BlockEntry> blockEntries = new ArrayList<BlockEntry>();
+
+                    for (String blockId : blockIds) {
+                        blockEntries.add(new BlockEntry(blockId, BlockSearchMode.UNCOMMITTED));
+                    }
+
+                    blob.commitBlockList(blockEntries);
+                }
+            }, processBlock);
+        } catch (Throwable t) {
+            throw new AzureCmdException("Error uploading the Blob File content", t);
+        }
+    }
+
     public void downloadBlobFileContent(@NotNull String connectionString,
                                         @NotNull BlobFile blobFile,
                                         @NotNull OutputStream content)
@@ -423,6 +558,102 @@ public class StorageClientSDKManager {
         }
     }
 
+    /**
+     * Download the blob into the file by parallel ranged downloading, or copy it from the local cache if the
+     * blob version (ETag) is cached
+     *
+     * @param connectionString the storage connection string
+     * @param blobFile the blob to download
+     * @param targetFile the file to download into
+     * @param processBlock the callback with the bytes downloaded
+     * @throws AzureCmdException for downloading errors
+     */
+    public void downloadBlobFile(@NotNull String connectionString,
+                                 @NotNull BlobFile blobFile,
+                                 @NotNull File targetFile,
+                                 @Nullable CallableSingleArg<Void, Long> processBlock)
+            throws AzureCmdException {
+        try {
+            CloudBlobClient client = getCloudBlobClient(connectionString);
+            String account = client.getEndpoint().toString();
+            String containerName = blobFile.getContainerName();
+
+            CloudBlobContainer container = client.getContainerReference(containerName);
+            final CloudBlob blob = getCloudBlob(container, blobFile);
+
+            // One HEAD request for the current version
+            blob.downloadAttributes();
+
+            final String etag = blob.getProperties().getEtag();
+            final long length = blob.getProperties().getLength();
+            BlobDownloadCache cache = getBlobDownloadCache();
+            File cached = cache != null ? cache.get(account, containerName, blobFile.getPath(), etag) : null;
+
+            if (cached != null && copyCachedFile(cached, targetFile)) {
+                if (processBlock != null) {
+                    processBlock.call(length);
+                }
+
+                return;
+            }
+
+            // Pin all ranges to the version got, rather than mixing versions if the blob is changed meanwhile
+            final AccessCondition ifMatch = AccessCondition.generateIfMatchCondition(etag);
+
+            ParallelRangeDownloader.forLength(length).download(new ParallelRangeDownloader.RangeSource() {
+                @Override
+                public void downloadRange(long offset, long rangeLength, @NotNull OutputStream out) throws Exception {
+                    blob.downloadRange(offset, rangeLength, out, ifMatch, null, null);
+                }
+            }, length, targetFile, processBlock);
+
+            if (cache != null) {
+                try {
+                    cache.put(account, containerName, blobFile.getPath(), etag, targetFile);
+                } catch (IOException ignored) {
+                    // The blob is downloaded even if it can't be cached
+                }
+            }
+        } catch (Throwable t) {
+            throw new AzureCmdException("Error downloading the Blob File content", t);
+        }
+    }
+
+    private static boolean copyCachedFile(@NotNull File cached, @NotNull File targetFile) throws IOException {
+        try {
+            Files.copy(cached.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (NoSuchFileException ignored) {
+            // The entry is evicted or replaced by another download meanwhile, take it as a cache miss
+            return false;
+        }
+    }
+
+    /**
+     * Get the blob download cache under the settings directory. The blob contents are never cached in the shared
+     * temporary directory, the blobs are downloaded without caching before the settings directory is set.
+     *
+     * @return the cache, or null if the settings directory isn't set
+     */
+    @Nullable
+    private synchronized BlobDownloadCache getBlobDownloadCache() {
+        if (blobDownloadCache == null) {
+            String baseDir = CommonSettings.getSettingsBaseDir();
+            if (baseDir == null) {
+                return null;
+            }
+
+            blobDownloadCache = new BlobDownloadCache(new File(baseDir, BLOB_CACHE_DIR),
+                                                      BlobDownloadCache.DEFAULT_MAX_SIZE);
+        }
+
+        return blobDownloadCache;
+    }
+
+    synchronized void setBlobDownloadCache(@NotNull BlobDownloadCache blobDownloadCache) {
+        this.blobDownloadCache = blobDownloadCache;
+    }
+
     @NotNull
     public List<Queue> getQueues(@NotNull StorageAccount storageAccount)
             throws AzureCmdException {
@@ -491,25 +722,10 @@ public class StorageClientSDKManager {
 
             CloudQueue cloudQueue = client.getQueueReference(queueName);
 
-            for (CloudQueueMessage cqm : cloudQueue.peekMessages(32)) {
-                String id = Strings.nullToEmpty(cqm.getId());
-                String content = Strings.nullToEmpty(cqm.getMessageContentAsString());
-
-                Calendar insertionTime = new GregorianCalendar();
+            Calendar calendarTemplate = new GregorianCalendar();
 
-                if (cqm.getInsertionTime() != null) {
-                    insertionTime.setTime(cqm.getInsertionTime());
-                }
-
-                Calendar expirationTime = new GregorianCalendar();
-
-                if (cqm.getExpirationTime() != null) {
-                    expirationTime.setTime(cqm.getExpirationTime());
-                }
-
-                int dequeueCount = cqm.getDequeueCount();
-
-                qmList.add(new QueueMessage(id, queueName, content, insertionTime, expirationTime, dequeueCount));
+            for (CloudQueueMessage cqm : cloudQueue.peekMessages(BulkQueueOperations.MAX_BATCH_SIZE)) {
+                qmList.add(getQueueMessage(cqm, queueName, calendarTemplate));
             }
 
             return qmList;
@@ -553,29 +769,7 @@ public class StorageClientSDKManager {
 
             CloudQueue cloudQueue = client.getQueueReference(queueName);
             CloudQueueMessage cqm = cloudQueue.retrieveMessage();
-
-            String id = "";
-            String content = "";
-            Calendar insertionTime = new GregorianCalendar();
-            Calendar expirationTime = new GregorianCalendar();
-            int dequeueCount = 0;
-
-            if (cqm != null) {
-                id = Strings.nullToEmpty(cqm.getId());
-                content = Strings.nullToEmpty(cqm.getMessageContentAsString());
-
-                if (cqm.getInsertionTime() != null) {
-                    insertionTime.setTime(cqm.getInsertionTime());
-                }
-
-                if (cqm.getExpirationTime() != null) {
-                    expirationTime.setTime(cqm.getExpirationTime());
-                }
-
-                dequeueCount = cqm.getDequeueCount();
-            }
-
-            QueueMessage queueMessage = new QueueMessage(id, queueName, content, insertionTime, expirationTime, dequeueCount);
+            QueueMessage queueMessage = getQueueMessage(cqm, queueName, new GregorianCalendar());
 
             if (cqm != null) {
                 cloudQueue.deleteMessage(cqm);
@@ -587,6 +781,81 @@ public class StorageClientSDKManager {
         }
     }
 
+    /**
+     * Inspect the messages beyond the peek limit, see {@link BulkQueueOperations#inspect(int, int)}
+     *
+     * @param connectionString the storage connection string
+     * @param queueName the queue name
+     * @param maxMessages the max messages to inspect
+     * @param visibilityTimeoutInSeconds the time to hide the messages inspected
+     * @return the messages inspected with the throughput metrics
+     * @throws AzureCmdException for inspecting errors
+     */
+    @NotNull
+    public BulkQueueOperations.Result inspectQueueMessages(@NotNull String connectionString,
+                                                           @NotNull String queueName,
+                                                           int maxMessages,
+                                                           int visibilityTimeoutInSeconds)
+            throws AzureCmdException {
+        try {
+            return getBulkQueueOperations(connectionString, queueName).inspect(maxMessages, visibilityTimeoutInSeconds);
+        } catch (Throwable t) {
+            throw new AzureCmdException("Error inspecting the Queue Messages", t);
+        }
+    }
+
+    /**
+     * Enqueue each non-empty line of the text file as a message
+     *
+     * @param connectionString the storage connection string
+     * @param queueName the queue name
+     * @param file the UTF-8 text file
+     * @param timeToLiveInSeconds the time-to-live of the messages
+     * @return the throughput metrics
+     * @throws AzureCmdException for enqueuing errors
+     */
+    @NotNull
+    public BulkQueueOperations.Result createQueueMessages(@NotNull String connectionString,
+                                                          @NotNull String queueName,
+                                                          @NotNull File file,
+                                                          int timeToLiveInSeconds)
+            throws AzureCmdException {
+        try {
+            return getBulkQueueOperations(connectionString, queueName).enqueue(file, timeToLiveInSeconds);
+        } catch (Throwable t) {
+            throw new AzureCmdException("Error creating the Queue Messages", t);
+        }
+    }
+
+    /**
+     * Dequeue the messages in batches
+     *
+     * @param connectionString the storage connection string
+     * @param queueName the queue name
+     * @param maxMessages the max messages to dequeue
+     * @return the messages dequeued with the throughput metrics
+     * @throws AzureCmdException for dequeuing errors
+     */
+    @NotNull
+    public BulkQueueOperations.Result dequeueQueueMessages(@NotNull String connectionString,
+                                                           @NotNull String queueName,
+                                                           int maxMessages)
+            throws AzureCmdException {
+        try {
+            return getBulkQueueOperations(connectionString, queueName).dequeue(maxMessages);
+        } catch (Throwable t) {
+            throw new AzureCmdException("Error dequeuing the Queue Messages", t);
+        }
+    }
+
+    @NotNull
+    private static BulkQueueOperations getBulkQueueOperations(@NotNull String connectionString,
+                                                              @NotNull String queueName) throws Exception {
+        CloudQueueClient client = getCloudStorageAccount(connectionString).createCloudQueueClient();
+
+        return new BulkQueueOperations(client.getQueueReference(queueName), BulkQueueOperations.DEFAULT_CONCURRENCY);
+    }
+
     @NotNull
     public List<Table> getTables(@NotNull StorageAccount storageAccount)
             throws AzureCmdException {
@@ -646,31 +915,105 @@ public class StorageClientSDKManager {
                                               @NotNull String filter)
             throws AzureCmdException {
         List<TableEntity> teList = new ArrayList<TableEntity>();
+        String connectionString;
 
         try {
-            CloudTableClient client = getCloudTableClient(storageAccount);
-            String tableName = table.getName();
+            connectionString = getConnectionString(storageAccount);
+        } catch (Throwable t) {
+            throw new AzureCmdException("Error retrieving the Table Entity list", t);
+        }
+
+        TableEntityPage page = getTableEntityPage(
+                connectionString, table.getName(), filter, null, null, DEFAULT_TABLE_PAGE_SIZE);
+        teList.addAll(page.getEntities());
+
+        while (page.hasMore()) {
+            page = getNextTableEntityPage(connectionString, page, DEFAULT_TABLE_PAGE_SIZE);
+            teList.addAll(page.getEntities());
+        }
+
+        return teList;
+    }
+
+    /**
+     * Query one page of the table entities
+     *
+     * @param connectionString the storage connection string
+     * @param tableName the table name
+     * @param filter the query filter, or empty for all entities
+     * @param columns the columns to project in the service side, or null for all columns. The partition key, row key
+     *                and timestamp are always got.
+     * @param continuationToken the cursor got from the previous page, or null for the first page
+     * @param pageSize the max count of entities in the page, which is limited to 1000 by the service
+     * @return the page with the cursor to the next page
+     * @throws AzureCmdException for query errors
+     */
+    @NotNull
+    public TableEntityPage getTableEntityPage(@NotNull String connectionString,
+                                              @NotNull String tableName,
+                                              @NotNull String filter,
+                                              @Nullable List<String> columns,
+                                              @Nullable ResultContinuation continuationToken,
+                                              int pageSize)
+            throws AzureCmdException {
+        try {
+            CloudTableClient client = getCloudStorageAccount(connectionString).createCloudTableClient();
             CloudTable cloudTable = client.getTableReference(tableName);
 
-            TableQuery<DynamicTableEntity> tableQuery = TableQuery.from(DynamicTableEntity.class);
+            TableQuery<DynamicTableEntity> tableQuery = TableQuery.from(DynamicTableEntity.class).take(pageSize);
 
             if (!filter.isEmpty()) {
                 tableQuery.where(filter);
             }
 
+            if (columns != null) {
+                Set<String> projection = new LinkedHashSet<String>(Arrays.asList(PARTITION_KEY, ROW_KEY, TIMESTAMP));
+                projection.addAll(columns);
+
+                tableQuery.select(projection.toArray(new String[0]));
+            }
+
+            // The minimal metadata (Json) still annotates the types which can't be inferred from JSON values
             TableRequestOptions tro = new TableRequestOptions();
-            tro.setTablePayloadFormat(TablePayloadFormat.JsonFullMetadata);
+            tro.setTablePayloadFormat(TablePayloadFormat.Json);
+
+            ResultSegment<DynamicTableEntity> segment = cloudTable.executeSegmented(tableQuery, continuationToken, tro, null);
+            List<TableEntity> teList = new ArrayList<TableEntity>(segment.getResults().size());
 
-            for (DynamicTableEntity dte : cloudTable.execute(tableQuery, tro, null)) {
+            for (DynamicTableEntity dte : segment.getResults()) {
                 teList.add(getTableEntity(tableName, dte));
             }
 
-            return teList;
+            return new TableEntityPage(tableName, filter, columns, teList,
+                    segment.getHasMoreResults() ? segment.getContinuationToken() : null);
         } catch (Throwable t) {
             throw new AzureCmdException("Error retrieving the Table Entity list", t);
         }
     }
 
+    /**
+     * Query the page following the specified one, with the same query
+     *
+     * @param connectionString the storage connection string
+     * @param page the page got
+     * @param pageSize the max count of entities in the next page
+     * @return the next page, which is empty without cursor if the page specified is the last one
+     * @throws AzureCmdException for query errors
+     */
+    @NotNull
+    public TableEntityPage getNextTableEntityPage(@NotNull String connectionString,
+                                                  @NotNull TableEntityPage page,
+                                                  int pageSize)
+            throws AzureCmdException {
+        if (!page.hasMore()) {
+            return new TableEntityPage(page.getTableName(), page.getFilter(), page.getColumns(),
+                    new ArrayList<TableEntity>(), null);
+        }
+
+        return getTableEntityPage(connectionString, page.getTableName(), page.getFilter(), page.getColumns(),
+                page.getContinuationToken(), pageSize);
+    }
+
     @NotNull
     public TableEntity createTableEntity(@NotNull StorageAccount storageAccount, @NotNull String tableName,
                                          @NotNull String partitionKey, @NotNull String rowKey,
@@ -884,6 +1227,35 @@ public class StorageClientSDKManager {
         }
     }
 
+    @NotNull
+    static QueueMessage getQueueMessage(@Nullable CloudQueueMessage cqm,
+                                        @NotNull String queueName,
+                                        @NotNull Calendar calendarTemplate) throws StorageException {
+        String id = "";
+        String content = "";
+        Calendar insertionTime = (Calendar) calendarTemplate.clone();
+        Calendar expirationTime = (Calendar) calendarTemplate.clone();
+        int dequeueCount = 0;
+
+        if (cqm != null) {
+            id = Strings.nullToEmpty(cqm.getId());
+
+            content = Strings.nullToEmpty(cqm.getMessageContentAsString());
+
+            if (cqm.getInsertionTime() != null) {
+                insertionTime.setTime(cqm.getInsertionTime());
+            }
+
+            if (cqm.getExpirationTime() != null) {
+                expirationTime.setTime(cqm.getExpirationTime());
+            }
+
+            dequeueCount = cqm.getDequeueCount();
+        }
+
+        return new QueueMessage(id, queueName, content, insertionTime, expirationTime, dequeueCount);
+    }
+
     @NotNull
     private static TableEntity getTableEntity(@NotNull String tableName,
                                               @NotNull DynamicTableEntity dte) {
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.tooling.msservices.model.storage;
+
+import com.microsoft.azure.storage.ResultContinuation;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
+import java.util.List;
+
+/**
+ * One page of the blob items listed in a blob directory, with the cursor to list the next page
+ */
+public class BlobItemPage {
+    private final BlobDirectory directory;
+    private final List<BlobItem> items;
+    private final ResultContinuation continuationToken;
+
+    public BlobItemPage(@NotNull BlobDirectory directory,
+                        @NotNull List<BlobItem> items,
+                        @Nullable ResultContinuation continuationToken) {
+        this.directory = directory;
+        this.items = items;
+        this.continuationToken = continuationToken;
+    }
+
+    @NotNull
+    public BlobDirectory getDirectory() {
+        return directory;
+    }
+
+    @NotNull
+    public List<BlobItem> getItems() {
+        return items;
+    }
+
+    @Nullable
+    public ResultContinuation getContinuationToken() {
+        return continuationToken;
+    }
+
+    public boolean hasMore() {
+        return continuationToken != null;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.tooling.msservices.model.storage;
+
+import com.microsoft.azure.storage.ResultContinuation;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
+import java.util.List;
+
+/**
+ * One page of the table entities queried, with the query and the cursor to query the next page
+ */
+public class TableEntityPage {
+    private final String tableName;
+    private final String filter;
+    private final List<String> columns;
+    private final List<TableEntity> entities;
+    private final ResultContinuation continuationToken;
+
+    public TableEntityPage(@NotNull String tableName,
+                           @NotNull String filter,
+                           @Nullable List<String> columns,
+                           @NotNull List<TableEntity> entities,
+                           @Nullable ResultContinuation continuationToken) {
+        this.tableName = tableName;
+        this.filter = filter;
+        this.columns = columns;
+        this.entities = entities;
+        this.continuationToken = continuationToken;
+    }
+
+    @NotNull
+    public String getTableName() {
+        return tableName;
+    }
+
+    @NotNull
+    public String getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return the projected columns, or null for all columns
+     */
+    @Nullable
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    @NotNull
+    public List<TableEntity> getEntities() {
+        return entities;
+    }
+
+    @Nullable
+    public ResultContinuation getContinuationToken() {
+        return continuationToken;
+    }
+
+    public boolean hasMore() {
+        return continuationToken != null;
+    }
+}
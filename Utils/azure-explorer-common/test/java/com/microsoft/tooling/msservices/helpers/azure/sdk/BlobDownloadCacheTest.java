@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.tooling.msservices.helpers.azure.sdk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class BlobDownloadCacheTest {
+    private File directory;
+    private File downloaded;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("blob-cache").toFile();
+        downloaded = File.createTempFile("blob-downloaded", ".bin");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+
+        directory.delete();
+        downloaded.delete();
+    }
+
+    private void put(BlobDownloadCache cache, String path, String etag, int size) throws Exception {
+        final byte[] bytes = new byte[size];
+        Arrays.fill(bytes, (byte) etag.hashCode());
+        Files.write(downloaded.toPath(), bytes);
+
+        cache.put("account", "container", path, etag, downloaded);
+    }
+
+    @Test
+    public void testHitOnSameETagOnly() throws Exception {
+        final BlobDownloadCache cache = new BlobDownloadCache(directory, 1000);
+
+        put(cache, "a.txt", "0x1", 100);
+
+        final File hit = cache.get("account", "container", "a.txt", "0x1");
+        assertNotNull(hit);
+        assertArrayEquals(Files.readAllBytes(downloaded.toPath()), Files.readAllBytes(hit.toPath()));
+
+        assertNull(cache.get("account", "container", "a.txt", "0x2"));
+        assertNull(cache.get("account", "container", "b.txt", "0x1"));
+        assertNull(cache.get("other", "container", "a.txt", "0x1"));
+    }
+
+    @Test
+    public void testNewVersionReplacesOldOne() throws Exception {
+        final BlobDownloadCache cache = new BlobDownloadCache(directory, 1000);
+
+        put(cache, "a.txt", "0x1", 100);
+        put(cache, "a.txt", "0x2", 200);
+
+        assertNull(cache.get("account", "container", "a.txt", "0x1"));
+        assertNotNull(cache.get("account", "container", "a.txt", "0x2"));
+        assertEquals(200, cache.getTotalSize());
+        assertEquals(1, directory.listFiles().length);
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws Exception {
+        final BlobDownloadCache cache = new BlobDownloadCache(directory, 300);
+
+        put(cache, "a.txt", "0x1", 100);
+        put(cache, "b.txt", "0x1", 100);
+        put(cache, "c.txt", "0x1", 100);
+
+        // Use a.txt, so that b.txt is the least recently used one
+        assertNotNull(cache.get("account", "container", "a.txt", "0x1"));
+
+        put(cache, "d.txt", "0x1", 100);
+
+        assertNull(cache.get("account", "container", "b.txt", "0x1"));
+        assertNotNull(cache.get("account", "container", "a.txt", "0x1"));
+        assertNotNull(cache.get("account", "container", "c.txt", "0x1"));
+        assertNotNull(cache.get("account", "container", "d.txt", "0x1"));
+        assertEquals(300, cache.getTotalSize());
+    }
+
+    @Test
+    public void testSkipBlobLargerThanLimit() throws Exception {
+        final BlobDownloadCache cache = new BlobDownloadCache(directory, 100);
+
+        put(cache, "a.txt", "0x1", 101);
+
+        assertNull(cache.get("account", "container", "a.txt", "0x1"));
+        assertEquals(0, cache.getTotalSize());
+    }
+
+    @Test
+    public void testReloadFromDirectory() throws Exception {
+        final BlobDownloadCache cache = new BlobDownloadCache(directory, 1000);
+
+        put(cache, "a.txt", "0x1", 100);
+        put(cache, "b.txt", "0x1", 200);
+
+        final BlobDownloadCache reloaded = new BlobDownloadCache(directory, 1000);
+
+        assertEquals(300, reloaded.getTotalSize());
+        assertNotNull(reloaded.get("account", "container", "a.txt", "0x1"));
+        assertNotNull(reloaded.get("account", "container", "b.txt", "0x1"));
+        assertNull(reloaded.get("account", "container", "a.txt", "0x2"));
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.tooling.msservices.helpers.azure.sdk;
+
+import com.microsoft.azure.storage.CloudStorageAccount;
+import com.microsoft.azure.storage.queue.CloudQueue;
+import com.microsoft.tooling.msservices.model.storage.QueueMessage;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BulkQueueOperationsTest {
+    private static final String ACCOUNT = "devstoreaccount1";
+    private static final String ACCOUNT_KEY =
+            "Eby8vdM02xNOcqFlqUwJPLlmEtlCDXJ1OUzFT50uSRZ6IFsuFq2UVErCz4I6tq/K1SZFPTOtr/KBHBeksoGMGw==";
+    private static final String QUEUE = "myqueue";
+    private static final Pattern MESSAGE_TEXT_PATTERN = Pattern.compile("<MessageText>(.*)</MessageText>");
+
+    private HttpServer server;
+    private String connectionString;
+    private volatile long latencyMs = 0;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger concurrentRequests = new AtomicInteger();
+    private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+
+    /**
+     * The in-memory queue of the stub, with the insertion time in seconds as the order
+     */
+    private static class StubMessage {
+        final String id = UUID.randomUUID().toString();
+        final String text;
+        final long insertionTime;
+        long visibleTime = 0;
+        int dequeueCount = 0;
+        String popReceipt = "";
+
+        StubMessage(String text, long insertionTime) {
+            this.text = text;
+            this.insertionTime = insertionTime;
+        }
+    }
+
+    private final Map<String, StubMessage> messages = new LinkedHashMap<>();
+    private final Set<String> deletedIds = new HashSet<>();
+    private long nextInsertionTime = 1500000000000L;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/" + ACCOUNT + "/" + QUEUE + "/messages", this::handleMessages);
+        server.setExecutor(Executors.newFixedThreadPool(16));
+        server.start();
+
+        connectionString = String.format(
+                "DefaultEndpointsProtocol=http;AccountName=%s;AccountKey=%s;QueueEndpoint=http://127.0.0.1:%d/%s",
+                ACCOUNT, ACCOUNT_KEY, server.getAddress().getPort(), ACCOUNT);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private void handleMessages(HttpExchange exchange) throws IOException {
+        final String body = IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8);
+        final Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        final String path = exchange.getRequestURI().getPath();
+
+        requestCount.incrementAndGet();
+        maxConcurrentRequests.accumulateAndGet(concurrentRequests.incrementAndGet(), Math::max);
+
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException ignored) {
+        } finally {
+            concurrentRequests.decrementAndGet();
+        }
+
+        final StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?><QueueMessagesList>");
+        int status;
+
+        synchronized (messages) {
+            final long now = System.currentTimeMillis();
+
+            switch (exchange.getRequestMethod()) {
+                case "POST": {
+                    final Matcher matcher = MESSAGE_TEXT_PATTERN.matcher(body);
+                    assertTrue(body, matcher.find());
+
+                    final StubMessage message = new StubMessage(matcher.group(1), nextInsertionTime += 1000);
+                    messages.put(message.id, message);
+                    appendMessage(xml, message, false);
+                    status = 201;
+                    break;
+                }
+                case "GET": {
+                    final int count = Integer.parseInt(params.getOrDefault("numofmessages", "1"));
+                    final int visibilityTimeout = Integer.parseInt(params.getOrDefault("visibilitytimeout", "30"));
+                    int got = 0;
+
+                    for (StubMessage message : messages.values()) {
+                        if (got == count) {
+                            break;
+                        }
+
+                        if (message.visibleTime <= now) {
+                            message.visibleTime = now + visibilityTimeout * 1000L;
+                            message.dequeueCount++;
+                            message.popReceipt = UUID.randomUUID().toString();
+                            appendMessage(xml, message, true);
+                            got++;
+                        }
+                    }
+
+                    status = 200;
+                    break;
+                }
+                case "DELETE": {
+                    final String id = path.substring(path.lastIndexOf('/') + 1);
+                    final StubMessage message = messages.get(id);
+                    if (message != null && message.popReceipt.equals(params.get("popreceipt"))) {
+                        messages.remove(id);
+                        deletedIds.add(id);
+                        status = 204;
+                    } else {
+                        // HttpURLConnection resends the idempotent request silently on a stale keep-alive connection
+                        status = deletedIds.contains(id) ? 204 : 404;
+                    }
+                    break;
+                }
+                default:
+                    status = 405;
+            }
+        }
+
+        xml.append("</QueueMessagesList>");
+
+        final byte[] response = status == 204 ? new byte[0] : xml.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.getResponseHeaders().add("x-ms-version", "2018-03-28");
+        exchange.sendResponseHeaders(status, response.length == 0 ? -1 : response.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    private static void appendMessage(StringBuilder xml, StubMessage message, boolean withText) {
+        xml.append("<QueueMessage><MessageId>").append(message.id).append("</MessageId>")
+           .append("<InsertionTime>").append(formatTime(message.insertionTime)).append("</InsertionTime>")
+           .append("<ExpirationTime>").append(formatTime(message.insertionTime + 7 * 86400000L)).append("</ExpirationTime>")
+           .append("<PopReceipt>").append(message.popReceipt).append("</PopReceipt>")
+           .append("<TimeNextVisible>").append(formatTime(message.visibleTime)).append("</TimeNextVisible>");
+
+        if (withText) {
+            xml.append("<DequeueCount>").append(message.dequeueCount).append("</DequeueCount>")
+               .append("<MessageText>").append(message.text).append("</MessageText>");
+        }
+
+        xml.append("</QueueMessage>");
+    }
+
+    private static String formatTime(long time) {
+        final SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+        return format.format(new Date(time));
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws IOException {
+        final Map<String, String> params = new HashMap<>();
+
+        if (rawQuery == null) {
+            return params;
+        }
+
+        for (String pair : rawQuery.split("&")) {
+            final int eq = pair.indexOf('=');
+            params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+        }
+
+        return params;
+    }
+
+    private Iterator<String> contents(int count) {
+        final List<String> contents = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            contents.add("message " + i);
+        }
+
+        return contents.iterator();
+    }
+
+    private CloudQueue getCloudQueue() throws Exception {
+        return CloudStorageAccount.parse(connectionString).createCloudQueueClient().getQueueReference(QUEUE);
+    }
+
+    @Test
+    public void testEnqueueFromFileAndInspectBeyondPeekLimit() throws Exception {
+        final File file = File.createTempFile("queue-messages", ".txt");
+
+        try {
+            final List<String> lines = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                lines.add("message " + i);
+            }
+            lines.add("");
+            Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+
+            final StorageClientSDKManager manager = StorageClientSDKManager.getManager();
+            final BulkQueueOperations.Result enqueued = manager.createQueueMessages(connectionString, QUEUE, file, 3600);
+
+            assertEquals(1000, enqueued.getMessageCount());
+            assertEquals(1000, messages.size());
+
+            final BulkQueueOperations.Result inspected = manager.inspectQueueMessages(connectionString, QUEUE, 10000, 30);
+            final Set<String> ids = new HashSet<>();
+            final Set<String> contents = new HashSet<>();
+
+            for (QueueMessage message : inspected.getMessages()) {
+                ids.add(message.getId());
+                contents.add(message.getContent());
+                assertEquals(1, message.getDequeueCount());
+            }
+
+            assertEquals(1000, inspected.getMessageCount());
+            assertEquals(1000, ids.size());
+            assertTrue(contents.contains("message 0") && contents.contains("message 999"));
+
+            // In the insertion order
+            for (int i = 1; i < inspected.getMessages().size(); i++) {
+                assertTrue(inspected.getMessages().get(i - 1).getInsertionTime()
+                                   .before(inspected.getMessages().get(i).getInsertionTime()));
+            }
+
+            // The messages are hidden but kept
+            assertEquals(0, manager.inspectQueueMessages(connectionString, QUEUE, 10000, 30).getMessageCount());
+            assertEquals(1000, messages.size());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testDequeueDeletesMessages() throws Exception {
+        new BulkQueueOperations(getCloudQueue(), 4).enqueue(contents(200), 3600);
+
+        final BulkQueueOperations.Result dequeued =
+                StorageClientSDKManager.getManager().dequeueQueueMessages(connectionString, QUEUE, 150);
+
+        assertEquals(150, dequeued.getMessageCount());
+        assertEquals(50, messages.size());
+
+        // At least 5 retrieves of up to 32 messages, and one delete per message
+        assertTrue(dequeued.getRequestCount() >= 5 + 150);
+        assertTrue(dequeued.getRequestCount() <= 5 + 150 + BulkQueueOperations.DEFAULT_CONCURRENCY);
+    }
+
+    @Test
+    public void testPeekFirstMessages() throws Exception {
+        new BulkQueueOperations(getCloudQueue(), 1).enqueue(contents(100), 3600);
+
+        final List<QueueMessage> batch = new BulkQueueOperations(getCloudQueue(), 1).inspect(5, 30).getMessages();
+
+        assertEquals(5, batch.size());
+        assertEquals("message 0", batch.get(0).getContent());
+    }
+
+    @Test
+    public void testParallelInspectInBatches() throws Exception {
+        new BulkQueueOperations(getCloudQueue(), 16).enqueue(contents(3000), 3600);
+        latencyMs = 5;
+        maxConcurrentRequests.set(0);
+
+        final BulkQueueOperations.Result inspected = new BulkQueueOperations(getCloudQueue(), 8).inspect(3000, 30);
+
+        assertEquals(3000, inspected.getMessageCount());
+
+        // Retrieves of up to 32 messages, sent by the workers in parallel
+        final int batches = (3000 + BulkQueueOperations.MAX_BATCH_SIZE - 1) / BulkQueueOperations.MAX_BATCH_SIZE;
+        assertTrue(inspected.getRequestCount() >= batches);
+        assertTrue(inspected.getRequestCount() <= batches + 8);
+        assertTrue(maxConcurrentRequests.get() > 1 && maxConcurrentRequests.get() <= 8);
+    }
+
+    @Test
+    @Ignore("The wall-clock benchmark, run it manually")
+    public void benchmarkParallelInspectThroughput() throws Exception {
+        new BulkQueueOperations(getCloudQueue(), 16).enqueue(contents(3000), 3600);
+        latencyMs = 10;
+
+        final BulkQueueOperations.Result sequential = new BulkQueueOperations(getCloudQueue(), 1).inspect(3000, 1);
+
+        // Wait for the messages to be visible again
+        Thread.sleep(1100);
+
+        final BulkQueueOperations.Result parallel = new BulkQueueOperations(getCloudQueue(), 8).inspect(3000, 1);
+
+        System.out.println(String.format(
+                "Inspected %d messages with 10ms latency per request: sequential %.0f msg/s in %d requests, "
+                        + "8 workers %.0f msg/s in %d requests",
+                parallel.getMessageCount(),
+                sequential.getMessagesPerSecond(), sequential.getRequestCount(),
+                parallel.getMessagesPerSecond(), parallel.getRequestCount()));
+    }
+}
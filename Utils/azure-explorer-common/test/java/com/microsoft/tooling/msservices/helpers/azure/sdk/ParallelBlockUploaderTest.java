@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.tooling.msservices.helpers.azure.sdk;
+
+import com.microsoft.tooling.msservices.helpers.CallableSingleArg;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelBlockUploaderTest {
+    private static final int MB = 1024 * 1024;
+
+    private File file;
+    private byte[] content;
+
+    /**
+     * The in-memory block blob stub, with the latency per block and the failures injected per block ID
+     */
+    private static class BlockStoreStub implements ParallelBlockUploader.BlockStore {
+        private final Map<String, byte[]> blocks = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> uploadCounts = new ConcurrentHashMap<>();
+        private final Map<String, Integer> failures = new ConcurrentHashMap<>();
+        private final AtomicInteger concurrentUploads = new AtomicInteger();
+        private final AtomicInteger maxConcurrentUploads = new AtomicInteger();
+        private final long latencyMs;
+        private List<String> committed;
+
+        BlockStoreStub(long latencyMs) {
+            this.latencyMs = latencyMs;
+        }
+
+        @Override
+        public void uploadBlock(String blockId, InputStream content, long length) throws Exception {
+            maxConcurrentUploads.accumulateAndGet(concurrentUploads.incrementAndGet(), Math::max);
+
+            try {
+                uploadCounts.computeIfAbsent(blockId, id -> new AtomicInteger()).incrementAndGet();
+                Thread.sleep(latencyMs);
+
+                final byte[] bytes = IOUtils.toByteArray(content);
+                assertEquals(length, bytes.length);
+
+                final Integer remainingFailures = failures.get(blockId);
+                if (remainingFailures != null && remainingFailures > 0) {
+                    failures.put(blockId, remainingFailures - 1);
+                    throw new IOException("Injected failure of block " + blockId);
+                }
+
+                blocks.put(blockId, bytes);
+            } finally {
+                concurrentUploads.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void commitBlocks(List<String> blockIds) throws Exception {
+            committed = new ArrayList<>(blockIds);
+        }
+
+        byte[] getCommittedContent() throws Exception {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            for (String blockId : committed) {
+                out.write(blocks.get(blockId));
+            }
+
+            return out.toByteArray();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        content = new byte[10 * MB + 123];
+        new Random(42).nextBytes(content);
+
+        file = File.createTempFile("block-uploader", ".jar");
+        Files.write(file.toPath(), content);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testUploadBlocksAndCommitInOrder() throws Exception {
+        final BlockStoreStub store = new BlockStoreStub(1);
+        final List<Long> progresses = Collections.synchronizedList(new ArrayList<>());
+
+        new ParallelBlockUploader(MB, 4).upload(file, store, new CallableSingleArg<Void, Long>() {
+            @Override
+            public Void call(Long uploadedBytes) {
+                progresses.add(uploadedBytes);
+                return null;
+            }
+        });
+
+        assertEquals(11, store.committed.size());
+        for (int i = 0; i < store.committed.size(); i++) {
+            assertEquals(ParallelBlockUploader.getBlockId(i), store.committed.get(i));
+        }
+
+        assertArrayEquals(content, store.getCommittedContent());
+        assertTrue(store.maxConcurrentUploads.get() > 1 && store.maxConcurrentUploads.get() <= 4);
+
+        // Progresses start from 0, and increase to the file length
+        assertEquals(12, progresses.size());
+        assertEquals(0L, (long) progresses.get(0));
+        for (int i = 1; i < progresses.size(); i++) {
+            assertTrue(progresses.get(i) > progresses.get(i - 1));
+        }
+        assertEquals(content.length, (long) progresses.get(progresses.size() - 1));
+    }
+
+    @Test
+    public void testRetryFailedBlockOnly() throws Exception {
+        final BlockStoreStub store = new BlockStoreStub(1);
+        store.failures.put(ParallelBlockUploader.getBlockId(3), 2);
+
+        new ParallelBlockUploader(MB, 4).upload(file, store, null);
+
+        assertArrayEquals(content, store.getCommittedContent());
+        assertEquals(3, store.uploadCounts.get(ParallelBlockUploader.getBlockId(3)).get());
+
+        store.uploadCounts.forEach((blockId, count) -> {
+            if (!blockId.equals(ParallelBlockUploader.getBlockId(3))) {
+                assertEquals(1, count.get());
+            }
+        });
+    }
+
+    @Test
+    public void testFailAfterRetries() throws Exception {
+        final BlockStoreStub store = new BlockStoreStub(1);
+        store.failures.put(ParallelBlockUploader.getBlockId(2), Integer.MAX_VALUE);
+
+        try {
+            new ParallelBlockUploader(MB, 4).upload(file, store, null);
+            fail("The uploading should fail");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().contains(ParallelBlockUploader.getBlockId(2)));
+        }
+
+        assertEquals(ParallelBlockUploader.MAX_BLOCK_RETRIES + 1,
+                     store.uploadCounts.get(ParallelBlockUploader.getBlockId(2)).get());
+        assertNull(store.committed);
+    }
+
+    @Test
+    public void testProgressesInOrder() throws Exception {
+        final BlockStoreStub store = new BlockStoreStub(0);
+        final List<Long> progresses = Collections.synchronizedList(new ArrayList<>());
+        final Random random = new Random(7);
+
+        // Small blocks and a slow callback, so that the blocks done by the workers interleave
+        new ParallelBlockUploader(MB / 16, 8).upload(file, store, new CallableSingleArg<Void, Long>() {
+            @Override
+            public Void call(Long uploadedBytes) throws Exception {
+                progresses.add(uploadedBytes);
+                Thread.sleep(random.nextInt(2));
+                return null;
+            }
+        });
+
+        assertEquals(content.length / (MB / 16) + 2, progresses.size());
+        for (int i = 1; i < progresses.size(); i++) {
+            assertTrue("Progress " + progresses.get(i) + " after " + progresses.get(i - 1),
+                       progresses.get(i) > progresses.get(i - 1));
+        }
+        assertEquals(content.length, (long) progresses.get(progresses.size() - 1));
+    }
+
+    @Test
+    @Ignore("The wall-clock benchmark, run it manually")
+    public void benchmarkParallelThroughput() throws Exception {
+        final long sequentialMs = measureUploadMs(new ParallelBlockUploader(MB / 4, 1));
+        final long parallelMs = measureUploadMs(new ParallelBlockUploader(MB / 4, 8));
+
+        System.out.println(String.format(
+                "Uploaded %d bytes with 20ms latency per block: sequential %.1f MB/s, 8 workers %.1f MB/s",
+                content.length,
+                content.length * 1000.0 / MB / sequentialMs,
+                content.length * 1000.0 / MB / parallelMs));
+    }
+
+    private long measureUploadMs(ParallelBlockUploader uploader) throws Exception {
+        final BlockStoreStub store = new BlockStoreStub(20);
+        final long start = System.nanoTime();
+
+        uploader.upload(file, store, null);
+
+        assertArrayEquals(content, store.getCommittedContent());
+
+        return Math.max(1, (System.nanoTime() - start) / 1000000);
+    }
+
+    @Test
+    public void testAdaptToFileLength() throws Exception {
+        final ParallelBlockUploader small = ParallelBlockUploader.forLength(100);
+        assertEquals(ParallelBlockUploader.MIN_BLOCK_SIZE, small.getBlockSize());
+        assertEquals(1, small.getConcurrency());
+
+        final ParallelBlockUploader large = ParallelBlockUploader.forLength(500L * MB);
+        assertTrue(large.getBlockSize() > ParallelBlockUploader.MIN_BLOCK_SIZE);
+        assertTrue(large.getBlockSize() <= ParallelBlockUploader.MAX_BLOCK_SIZE);
+        assertEquals(0, large.getBlockSize() % MB);
+        assertTrue(large.getConcurrency() >= 4 && large.getConcurrency() <= ParallelBlockUploader.MAX_CONCURRENCY);
+
+        final ParallelBlockUploader huge = ParallelBlockUploader.forLength(4000L * 1024 * MB);
+        assertTrue((4000L * 1024 * MB + huge.getBlockSize() - 1) / huge.getBlockSize()
+                           <= ParallelBlockUploader.MAX_BLOCK_COUNT);
+    }
+
+    @Test
+    public void testUploadEmptyFile() throws Exception {
+        Files.write(file.toPath(), new byte[0]);
+        final BlockStoreStub store = new BlockStoreStub(0);
+
+        ParallelBlockUploader.forLength(0).upload(file, store, null);
+
+        assertEquals(Collections.emptyList(), store.committed);
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.tooling.msservices.helpers.azure.sdk;
+
+import com.microsoft.tooling.msservices.helpers.CallableSingleArg;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelRangeDownloaderTest {
+    private static final int MB = 1024 * 1024;
+
+    private File file;
+    private byte[] content;
+
+    /**
+     * The in-memory blob stub, with the latency per range and the failures injected per range offset. A failed
+     * range writes half of its content before failing.
+     */
+    private class RangeSourceStub implements ParallelRangeDownloader.RangeSource {
+        private final Map<Long, AtomicInteger> downloadCounts = new ConcurrentHashMap<>();
+        private final Map<Long, Integer> failures = new ConcurrentHashMap<>();
+        private final AtomicInteger concurrentDownloads = new AtomicInteger();
+        private final AtomicInteger maxConcurrentDownloads = new AtomicInteger();
+        private final long latencyMs;
+
+        RangeSourceStub(long latencyMs) {
+            this.latencyMs = latencyMs;
+        }
+
+        @Override
+        public void downloadRange(long offset, long length, OutputStream out) throws Exception {
+            maxConcurrentDownloads.accumulateAndGet(concurrentDownloads.incrementAndGet(), Math::max);
+
+            try {
+                downloadCounts.computeIfAbsent(offset, o -> new AtomicInteger()).incrementAndGet();
+                Thread.sleep(latencyMs);
+
+                final Integer remainingFailures = failures.get(offset);
+                if (remainingFailures != null && remainingFailures > 0) {
+                    failures.put(offset, remainingFailures - 1);
+                    out.write(new byte[(int) length / 2]);
+                    throw new IOException("Injected failure of range " + offset);
+                }
+
+                // Write in small chunks like the SDK
+                for (long pos = offset; pos < offset + length; pos += 8192) {
+                    out.write(content, (int) pos, (int) Math.min(8192, offset + length - pos));
+                }
+            } finally {
+                concurrentDownloads.decrementAndGet();
+            }
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        content = new byte[10 * MB + 123];
+        new Random(42).nextBytes(content);
+
+        file = File.createTempFile("range-downloader", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testDownloadRangesIntoFile() throws Exception {
+        final RangeSourceStub source = new RangeSourceStub(10);
+        final List<Long> progresses = Collections.synchronizedList(new ArrayList<>());
+
+        // Over-sized existing file is truncated
+        Files.write(file.toPath(), new byte[content.length + 1000]);
+
+        new ParallelRangeDownloader(MB, 4).download(source, content.length, file, new CallableSingleArg<Void, Long>() {
+            @Override
+            public Void call(Long downloadedBytes) {
+                progresses.add(downloadedBytes);
+                return null;
+            }
+        });
+
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        assertEquals(11, source.downloadCounts.size());
+        assertTrue(source.maxConcurrentDownloads.get() > 1 && source.maxConcurrentDownloads.get() <= 4);
+
+        // Progresses start from 0, and increase to the blob length
+        assertEquals(12, progresses.size());
+        assertEquals(0L, (long) progresses.get(0));
+        for (int i = 1; i < progresses.size(); i++) {
+            assertTrue(progresses.get(i) > progresses.get(i - 1));
+        }
+        assertEquals(content.length, (long) progresses.get(progresses.size() - 1));
+    }
+
+    @Test
+    public void testRetryFailedRangeOnly() throws Exception {
+        final RangeSourceStub source = new RangeSourceStub(1);
+        source.failures.put(3L * MB, 2);
+
+        new ParallelRangeDownloader(MB, 4).download(source, content.length, file, null);
+
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        assertEquals(3, source.downloadCounts.get(3L * MB).get());
+
+        source.downloadCounts.forEach((offset, count) -> {
+            if (offset != 3L * MB) {
+                assertEquals(1, count.get());
+            }
+        });
+    }
+
+    @Test
+    public void testFailAfterRetries() throws Exception {
+        final RangeSourceStub source = new RangeSourceStub(1);
+        source.failures.put(2L * MB, Integer.MAX_VALUE);
+
+        try {
+            new ParallelRangeDownloader(MB, 4).download(source, content.length, file, null);
+            fail("The downloading should fail");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().contains(String.valueOf(2L * MB)));
+        }
+
+        assertEquals(ParallelRangeDownloader.MAX_RANGE_RETRIES + 1, source.downloadCounts.get(2L * MB).get());
+    }
+
+    @Test
+    public void testFailOnShortRange() throws Exception {
+        final ParallelRangeDownloader.RangeSource truncated = (offset, length, out) -> out.write(new byte[1]);
+
+        try {
+            new ParallelRangeDownloader(MB, 1).download(truncated, 10, file, null);
+            fail("The downloading should fail");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().contains("Got 1 bytes"));
+        }
+    }
+
+    @Test
+    public void testProgressesInOrder() throws Exception {
+        final List<Long> progresses = Collections.synchronizedList(new ArrayList<>());
+        final Random random = new Random(7);
+
+        // Small ranges and a slow callback, so that the ranges done by the workers interleave
+        new ParallelRangeDownloader(MB / 16, 8).download(new RangeSourceStub(0), content.length, file,
+                new CallableSingleArg<Void, Long>() {
+                    @Override
+                    public Void call(Long downloadedBytes) throws Exception {
+                        progresses.add(downloadedBytes);
+                        Thread.sleep(random.nextInt(2));
+                        return null;
+                    }
+                });
+
+        assertEquals(content.length / (MB / 16) + 2, progresses.size());
+        for (int i = 1; i < progresses.size(); i++) {
+            assertTrue("Progress " + progresses.get(i) + " after " + progresses.get(i - 1),
+                       progresses.get(i) > progresses.get(i - 1));
+        }
+        assertEquals(content.length, (long) progresses.get(progresses.size() - 1));
+    }
+
+    @Test
+    @Ignore("The wall-clock benchmark, run it manually")
+    public void benchmarkParallelThroughput() throws Exception {
+        final long sequentialMs = measureDownloadMs(new ParallelRangeDownloader(MB / 4, 1));
+        final long parallelMs = measureDownloadMs(new ParallelRangeDownloader(MB / 4, 8));
+
+        System.out.println(String.format(
+                "Downloaded %d bytes with 20ms latency per range: sequential %.1f MB/s, 8 workers %.1f MB/s",
+                content.length,
+                content.length * 1000.0 / MB / sequentialMs,
+                content.length * 1000.0 / MB / parallelMs));
+    }
+
+    private long measureDownloadMs(ParallelRangeDownloader downloader) throws Exception {
+        final long start = System.nanoTime();
+
+        downloader.download(new RangeSourceStub(20), content.length, file, null);
+
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+
+        return Math.max(1, (System.nanoTime() - start) / 1000000);
+    }
+
+    @Test
+    public void testAdaptToBlobLength() throws Exception {
+        final ParallelRangeDownloader small = ParallelRangeDownloader.forLength(100);
+        assertEquals(ParallelRangeDownloader.MIN_RANGE_SIZE, small.getRangeSize());
+        assertEquals(1, small.getConcurrency());
+
+        final ParallelRangeDownloader large = ParallelRangeDownloader.forLength(500L * MB);
+        assertTrue(large.getRangeSize() > ParallelRangeDownloader.MIN_RANGE_SIZE);
+        assertTrue(large.getRangeSize() <= ParallelRangeDownloader.MAX_RANGE_SIZE);
+        assertEquals(0, large.getRangeSize() % MB);
+        assertTrue(large.getConcurrency() >= 4 && large.getConcurrency() <= ParallelRangeDownloader.MAX_CONCURRENCY);
+    }
+
+    @Test
+    public void testDownloadEmptyBlob() throws Exception {
+        Files.write(file.toPath(), new byte[10]);
+
+        ParallelRangeDownloader.forLength(0).download(new RangeSourceStub(0), 0, file, null);
+
+        assertEquals(0, file.length());
+    }
+}
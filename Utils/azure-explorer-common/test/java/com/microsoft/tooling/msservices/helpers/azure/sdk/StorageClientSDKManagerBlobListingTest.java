@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.tooling.msservices.helpers.azure.sdk;
+
+import com.microsoft.tooling.msservices.model.storage.BlobDirectory;
+import com.microsoft.tooling.msservices.model.storage.BlobFile;
+import com.microsoft.tooling.msservices.model.storage.BlobItem;
+import com.microsoft.tooling.msservices.model.storage.BlobItemPage;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StorageClientSDKManagerBlobListingTest {
+    private static final String ACCOUNT = "devstoreaccount1";
+    private static final String ACCOUNT_KEY =
+            "Eby8vdM02xNOcqFlqUwJPLlmEtlCDXJ1OUzFT50uSRZ6IFsuFq2UVErCz4I6tq/K1SZFPTOtr/KBHBeksoGMGw==";
+    private static final String CONTAINER = "container";
+
+    private static final int BLOB_COUNT = 10000;
+
+    // Blobs in the stub container of the benchmark, can be set with system property
+    private static final int BENCHMARK_BLOB_COUNT = Integer.getInteger("blobListing.blobCount", 1000000);
+
+    private HttpServer server;
+    private String connectionString;
+    private final AtomicInteger listRequests = new AtomicInteger();
+    private volatile int blobCount = BLOB_COUNT;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/" + ACCOUNT + "/" + CONTAINER, this::handleListBlobs);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+
+        connectionString = String.format(
+                "DefaultEndpointsProtocol=http;AccountName=%s;AccountKey=%s;BlobEndpoint=http://127.0.0.1:%d/%s",
+                ACCOUNT, ACCOUNT_KEY, server.getAddress().getPort(), ACCOUNT);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * The List Blobs stub with the flat blob names `dir/blob0000000` ..., one sub directory `dir/sub/` listed first,
+     * and the blob index as the marker
+     */
+    private void handleListBlobs(HttpExchange exchange) throws IOException {
+        IOUtils.toByteArray(exchange.getRequestBody());
+        listRequests.incrementAndGet();
+
+        final Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        final int maxResults = params.containsKey("maxresults") ? Integer.parseInt(params.get("maxresults")) : 5000;
+        final int marker = params.containsKey("marker") ? Integer.parseInt(params.get("marker")) : -1;
+        final int end = Math.min(blobCount, marker + maxResults);
+
+        final StringBuilder xml = new StringBuilder(maxResults * 320);
+        xml.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>")
+           .append("<EnumerationResults ServiceEndpoint=\"http://127.0.0.1/").append(ACCOUNT)
+           .append("/\" ContainerName=\"").append(CONTAINER).append("\">")
+           .append("<Prefix>").append(params.get("prefix")).append("</Prefix>")
+           .append("<MaxResults>").append(maxResults).append("</MaxResults>")
+           .append("<Delimiter>/</Delimiter><Blobs>");
+
+        for (int i = marker; i < end; i++) {
+            if (i < 0) {
+                xml.append("<BlobPrefix><Name>dir/sub/</Name></BlobPrefix>");
+                continue;
+            }
+
+            xml.append("<Blob><Name>").append(blobName(i)).append("</Name><Properties>")
+               .append("<Last-Modified>Wed, 09 Sep 2009 09:20:02 GMT</Last-Modified>")
+               .append("<Etag>0x8CBFF45D8A29A19</Etag>")
+               .append("<Content-Length>").append(i).append("</Content-Length>")
+               .append("<Content-Type>application/octet-stream</Content-Type>")
+               .append("<BlobType>BlockBlob</BlobType>")
+               .append("</Properties></Blob>");
+        }
+
+        xml.append("</Blobs>");
+        if (end < blobCount) {
+            xml.append("<NextMarker>").append(end).append("</NextMarker>");
+        } else {
+            xml.append("<NextMarker/>");
+        }
+        xml.append("</EnumerationResults>");
+
+        final byte[] body = xml.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.getResponseHeaders().add("x-ms-version", "2018-03-28");
+        exchange.sendResponseHeaders(200, body.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws IOException {
+        final Map<String, String> params = new HashMap<>();
+
+        for (String pair : rawQuery.split("&")) {
+            final int eq = pair.indexOf('=');
+            params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+        }
+
+        return params;
+    }
+
+    private static String blobName(int index) {
+        return String.format("dir/blob%07d", index);
+    }
+
+    private BlobDirectory getDirectory() {
+        return new BlobDirectory("dir", "", CONTAINER, "dir/");
+    }
+
+    @Test
+    public void testListPagesWithContinuation() throws Exception {
+        final StorageClientSDKManager manager = StorageClientSDKManager.getManager();
+
+        final BlobItemPage first = manager.getBlobItemPage(connectionString, getDirectory(), null, 100);
+        assertEquals(100, first.getItems().size());
+        assertTrue(first.hasMore());
+        assertTrue(first.getItems().get(0) instanceof BlobDirectory);
+        assertEquals("dir/sub/", first.getItems().get(0).getPath());
+
+        final BlobFile firstFile = (BlobFile) first.getItems().get(1);
+        assertEquals("blob0000000", firstFile.getName());
+        assertEquals(blobName(0), firstFile.getPath());
+        assertEquals("BLOCK_BLOB", firstFile.getType());
+        assertEquals(2009, firstFile.getLastModified().get(java.util.Calendar.YEAR));
+
+        final BlobItemPage second = manager.getNextBlobItemPage(connectionString, first, 100);
+        assertEquals(100, second.getItems().size());
+        assertEquals(blobName(99), second.getItems().get(0).getPath());
+        assertEquals(99, ((BlobFile) second.getItems().get(0)).getSize());
+        assertEquals(2, listRequests.get());
+    }
+
+    @Test
+    public void testNextPageOfLastPageIsEmpty() throws Exception {
+        final StorageClientSDKManager manager = StorageClientSDKManager.getManager();
+        final BlobItemPage last = new BlobItemPage(getDirectory(), java.util.Collections.<BlobItem>emptyList(), null);
+
+        final BlobItemPage next = manager.getNextBlobItemPage(connectionString, last, 100);
+
+        assertFalse(next.hasMore());
+        assertTrue(next.getItems().isEmpty());
+        assertEquals(0, listRequests.get());
+    }
+
+    @Test
+    public void testListAllPages() throws Exception {
+        final List<BlobItem> all = StorageClientSDKManager.getManager().getBlobItems(connectionString, getDirectory());
+
+        // The sub directory and the blobs, one request per page
+        assertEquals(BLOB_COUNT + 1, all.size());
+        assertEquals(blobName(BLOB_COUNT - 1), all.get(all.size() - 1).getPath());
+        assertEquals((BLOB_COUNT + StorageClientSDKManager.DEFAULT_BLOB_PAGE_SIZE)
+                             / StorageClientSDKManager.DEFAULT_BLOB_PAGE_SIZE,
+                     listRequests.get());
+    }
+
+    @Test
+    @Ignore("The wall-clock benchmark, run it manually")
+    public void benchmarkFirstPageLatencyVersusFullListing() throws Exception {
+        final StorageClientSDKManager manager = StorageClientSDKManager.getManager();
+        blobCount = BENCHMARK_BLOB_COUNT;
+
+        long start = System.nanoTime();
+        final BlobItemPage first = manager.getBlobItemPage(
+                connectionString, getDirectory(), null, StorageClientSDKManager.DEFAULT_BLOB_PAGE_SIZE);
+        final long firstPageMs = Math.max(1, (System.nanoTime() - start) / 1000000);
+
+        listRequests.set(0);
+        start = System.nanoTime();
+        final List<BlobItem> all = manager.getBlobItems(connectionString, getDirectory());
+        final long fullListingMs = Math.max(1, (System.nanoTime() - start) / 1000000);
+
+        System.out.println(String.format(
+                "Listed %d blobs: first page of %d in %d ms, full listing in %d ms with %d requests",
+                all.size(), first.getItems().size(), firstPageMs, fullListingMs, listRequests.get()));
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.tooling.msservices.helpers.azure.sdk;
+
+import com.microsoft.tooling.msservices.model.storage.TableEntity;
+import com.microsoft.tooling.msservices.model.storage.TableEntityPage;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StorageClientSDKManagerTableQueryTest {
+    private static final String ACCOUNT = "devstoreaccount1";
+    private static final String ACCOUNT_KEY =
+            "Eby8vdM02xNOcqFlqUwJPLlmEtlCDXJ1OUzFT50uSRZ6IFsuFq2UVErCz4I6tq/K1SZFPTOtr/KBHBeksoGMGw==";
+    private static final String TABLE = "mytable";
+    private static final int ENTITY_COUNT = 2500;
+
+    private HttpServer server;
+    private String connectionString;
+    private final List<Map<String, String>> requests = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> acceptHeaders = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/" + ACCOUNT + "/" + TABLE, this::handleQueryEntities);
+        server.start();
+
+        connectionString = String.format(
+                "DefaultEndpointsProtocol=http;AccountName=%s;AccountKey=%s;TableEndpoint=http://127.0.0.1:%d/%s",
+                ACCOUNT, ACCOUNT_KEY, server.getAddress().getPort(), ACCOUNT);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * The Query Entities stub with the entities `p0/r0000000` ..., the row index as the continuation row key, and the
+     * `$select` projection honored
+     */
+    private void handleQueryEntities(HttpExchange exchange) throws IOException {
+        IOUtils.toByteArray(exchange.getRequestBody());
+
+        final Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        requests.add(params);
+        acceptHeaders.add(exchange.getRequestHeaders().getFirst("Accept"));
+
+        final int top = params.containsKey("$top") ? Integer.parseInt(params.get("$top")) : 1000;
+        final int start = params.containsKey("NextRowKey") ? Integer.parseInt(params.get("NextRowKey").substring(1)) : 0;
+        final int end = Math.min(ENTITY_COUNT, start + top);
+        final List<String> select = params.containsKey("$select")
+                ? Arrays.asList(params.get("$select").split(","))
+                : null;
+
+        final StringBuilder json = new StringBuilder("{\"odata.metadata\":\"http://127.0.0.1/")
+                .append(ACCOUNT).append("/$metadata#").append(TABLE).append("\",\"value\":[");
+
+        for (int i = start; i < end; i++) {
+            if (i > start) {
+                json.append(',');
+            }
+
+            json.append("{\"odata.etag\":\"W/\\\"datetime'2019-01-01T00%3A00%3A00.0000000Z'\\\"\"")
+                .append(",\"PartitionKey\":\"p0\",\"RowKey\":\"").append(rowKey(i)).append('"')
+                .append(",\"Timestamp@odata.type\":\"Edm.DateTime\",\"Timestamp\":\"2019-01-01T00:00:00.0000000Z\"");
+
+            if (select == null || select.contains("Name")) {
+                json.append(",\"Name\":\"entity ").append(i).append('"');
+            }
+
+            if (select == null || select.contains("Count")) {
+                json.append(",\"Count@odata.type\":\"Edm.Int64\",\"Count\":\"").append(i).append('"');
+            }
+
+            json.append('}');
+        }
+
+        json.append("]}");
+
+        if (end < ENTITY_COUNT) {
+            exchange.getResponseHeaders().add("x-ms-continuation-NextPartitionKey", "1!4!cDA-");
+            exchange.getResponseHeaders().add("x-ms-continuation-NextRowKey", rowKey(end));
+        }
+
+        final byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add(
+                "Content-Type", "application/json;odata=minimalmetadata;streaming=true;charset=utf-8");
+        exchange.getResponseHeaders().add("x-ms-version", "2017-07-29");
+        exchange.sendResponseHeaders(200, body.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws IOException {
+        final Map<String, String> params = new HashMap<>();
+
+        if (rawQuery == null) {
+            return params;
+        }
+
+        for (String pair : rawQuery.split("&")) {
+            final int eq = pair.indexOf('=');
+            params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+        }
+
+        return params;
+    }
+
+    private static String rowKey(int index) {
+        return String.format("r%07d", index);
+    }
+
+    @Test
+    public void testQueryPagesWithContinuation() throws Exception {
+        final StorageClientSDKManager manager = StorageClientSDKManager.getManager();
+
+        final TableEntityPage first = manager.getTableEntityPage(connectionString, TABLE, "", null, null, 1000);
+        assertEquals(1000, first.getEntities().size());
+        assertTrue(first.hasMore());
+
+        final TableEntity entity = first.getEntities().get(1);
+        assertEquals("p0", entity.getPartitionKey());
+        assertEquals(rowKey(1), entity.getRowKey());
+        assertEquals(TableEntity.PropertyType.Long, entity.getProperties().get("Count").getType());
+        assertEquals(1L, (long) entity.getProperties().get("Count").getValueAsLong());
+        assertEquals("entity 1", entity.getProperties().get("Name").getValueAsString());
+
+        final TableEntityPage second = manager.getNextTableEntityPage(connectionString, first, 1000);
+        final TableEntityPage last = manager.getNextTableEntityPage(connectionString, second, 1000);
+        assertEquals(rowKey(1000), second.getEntities().get(0).getRowKey());
+        assertEquals(500, last.getEntities().size());
+        assertFalse(last.hasMore());
+
+        assertEquals(3, requests.size());
+        assertEquals("1000", requests.get(0).get("$top"));
+        assertNull(requests.get(0).get("NextRowKey"));
+        assertEquals(rowKey(2000), requests.get(2).get("NextRowKey"));
+
+        // Minimal metadata payloads
+        for (String accept : acceptHeaders) {
+            assertTrue(accept, accept.contains("odata=minimalmetadata"));
+        }
+
+        // No more request after the last page
+        assertTrue(manager.getNextTableEntityPage(connectionString, last, 1000).getEntities().isEmpty());
+        assertEquals(3, requests.size());
+    }
+
+    @Test
+    public void testQueryWithFilterAndProjection() throws Exception {
+        final TableEntityPage page = StorageClientSDKManager.getManager().getTableEntityPage(
+                connectionString, TABLE, "PartitionKey eq 'p0'", Collections.singletonList("Name"), null, 10);
+
+        assertEquals(10, page.getEntities().size());
+        assertEquals("PartitionKey eq 'p0'", requests.get(0).get("$filter"));
+        assertEquals(Arrays.asList("PartitionKey", "RowKey", "Timestamp", "Name"),
+                     Arrays.asList(requests.get(0).get("$select").split(",")));
+
+        final TableEntity entity = page.getEntities().get(0);
+        assertTrue(entity.getProperties().containsKey("Name"));
+        assertFalse(entity.getProperties().containsKey("Count"));
+        assertEquals(Collections.singletonList("Name"), page.getColumns());
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.utils;
+
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The manifest of a deployed WAR/JAR artifact, which records the CRC-32 and size of each entry. The values are read
+ * from the zip central directory, so the entries are not decompressed.
+ *
+ * The manifest also records the Kudu deployment id which was active after the artifact deployed, to tell if there
+ * are other deployments since then.
+ */
+public class DeploymentManifest {
+    private static final String ACTIVE_DEPLOYMENT_PREFIX = "# active ";
+
+    @Nullable
+    private final String activeDeploymentId;
+
+    @NotNull
+    private final SortedMap<String, String> entries;
+
+    private DeploymentManifest(@Nullable String activeDeploymentId, @NotNull SortedMap<String, String> entries) {
+        this.activeDeploymentId = activeDeploymentId;
+        this.entries = entries;
+    }
+
+    /**
+     * The entries changed between two manifests
+     */
+    public static class Diff {
+        private final int added;
+        private final int changed;
+        private final int removed;
+
+        Diff(int added, int changed, int removed) {
+            this.added = added;
+            this.changed = changed;
+            this.removed = removed;
+        }
+
+        public int getAdded() {
+            return added;
+        }
+
+        public int getChanged() {
+            return changed;
+        }
+
+        public int getRemoved() {
+            return removed;
+        }
+
+        public boolean isEmpty() {
+            return added == 0 && changed == 0 && removed == 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d added, %d changed, %d removed", added, changed, removed);
+        }
+    }
+
+    /**
+     * Create the manifest of the artifact
+     *
+     * @param artifact the WAR/JAR file
+     * @return the manifest without active deployment id
+     * @throws IOException for reading errors
+     */
+    @NotNull
+    public static DeploymentManifest of(@NotNull File artifact) throws IOException {
+        final SortedMap<String, String> entries = new TreeMap<>();
+
+        try (ZipFile zipFile = new ZipFile(artifact)) {
+            final Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+
+            while (zipEntries.hasMoreElements()) {
+                final ZipEntry entry = zipEntries.nextElement();
+
+                if (!entry.isDirectory()) {
+                    entries.put(entry.getName(), String.format("%08x %d", entry.getCrc(), entry.getSize()));
+                }
+            }
+        }
+
+        return new DeploymentManifest(null, entries);
+    }
+
+    /**
+     * Parse the manifest text
+     *
+     * @param text the text got by {@link #toText()}
+     * @return the manifest parsed
+     * @throws IOException for bad manifest lines
+     */
+    @NotNull
+    public static DeploymentManifest parse(@NotNull String text) throws IOException {
+        final SortedMap<String, String> entries = new TreeMap<>();
+        String activeDeploymentId = null;
+
+        try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(ACTIVE_DEPLOYMENT_PREFIX)) {
+                    activeDeploymentId = line.substring(ACTIVE_DEPLOYMENT_PREFIX.length());
+                    continue;
+                }
+
+                // <crc> <size> <name>, the name could have spaces
+                final int crcEnd = line.indexOf(' ');
+                final int sizeEnd = crcEnd < 0 ? -1 : line.indexOf(' ', crcEnd + 1);
+                if (sizeEnd < 0) {
+                    throw new IOException("Bad deployment manifest line: " + line);
+                }
+
+                entries.put(line.substring(sizeEnd + 1), line.substring(0, sizeEnd));
+            }
+        }
+
+        return new DeploymentManifest(activeDeploymentId, entries);
+    }
+
+    @NotNull
+    public String toText() {
+        final StringBuilder text = new StringBuilder();
+
+        if (activeDeploymentId != null) {
+            text.append(ACTIVE_DEPLOYMENT_PREFIX).append(activeDeploymentId).append('\n');
+        }
+
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            text.append(entry.getValue()).append(' ').append(entry.getKey()).append('\n');
+        }
+
+        return text.toString();
+    }
+
+    @Nullable
+    public String getActiveDeploymentId() {
+        return activeDeploymentId;
+    }
+
+    @NotNull
+    public DeploymentManifest withActiveDeploymentId(@Nullable String activeDeploymentId) {
+        return new DeploymentManifest(activeDeploymentId, entries);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Compare with the last deployed manifest, the active deployment ids are not compared
+     *
+     * @param last the last deployed manifest
+     * @return the entries changed since the last one, or all entries as added if there is no last one
+     */
+    @NotNull
+    public Diff diff(@Nullable DeploymentManifest last) {
+        if (last == null) {
+            return new Diff(entries.size(), 0, 0);
+        }
+
+        int added = 0;
+        int changed = 0;
+
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            final String lastValue = last.entries.get(entry.getKey());
+
+            if (lastValue == null) {
+                added++;
+            } else if (!lastValue.equals(entry.getValue())) {
+                changed++;
+            }
+        }
+
+        return new Diff(added, changed, last.entries.size() - (entries.size() - added));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final DeploymentManifest that = (DeploymentManifest) o;
+        return Objects.equals(activeDeploymentId, that.activeDeploymentId) && entries.equals(that.entries);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(activeDeploymentId, entries);
+    }
+}
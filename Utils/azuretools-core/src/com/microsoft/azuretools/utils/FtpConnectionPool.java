@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.utils;
+
+import com.microsoft.azure.management.appservice.PublishingProfile;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.io.CopyStreamAdapter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The pool of logged in FTP connections to one App Service FTP server, which are shared by the steps of a deployment
+ * instead of connecting and logging in for each of them.
+ *
+ * The exploded application directory is removed with the connections in parallel: the tree is listed level by
+ * level, then the files are deleted, then the directories from the deepest level.
+ */
+public class FtpConnectionPool implements Closeable {
+    public static final int DEFAULT_MAX_CONNECTIONS = 4;
+    public static final int FTP_PORT = 21;
+
+    // The idle connection could be dropped by the server, check it before reuse
+    private static final long VALIDATE_AFTER_IDLE_MS = 10 * 1000;
+
+    @NotNull
+    private final String host;
+
+    private final int port;
+
+    @NotNull
+    private final String username;
+
+    @NotNull
+    private final String password;
+
+    private final int maxConnections;
+
+    private final Semaphore permits;
+
+    private final LinkedBlockingDeque<FTPClient> idleConnections = new LinkedBlockingDeque<>();
+
+    private final Map<FTPClient, Long> idleSince = new ConcurrentHashMap<>();
+
+    private final AtomicInteger logins = new AtomicInteger();
+
+    private volatile boolean closed = false;
+
+    /**
+     * The action with a pooled connection
+     */
+    public interface FtpAction<T> {
+        T run(@NotNull FTPClient ftp) throws IOException;
+    }
+
+    public FtpConnectionPool(@NotNull PublishingProfile pp, int maxConnections) {
+        this(URI.create("ftp://" + pp.ftpUrl()).getHost(), FTP_PORT, pp.ftpUsername(), pp.ftpPassword(),
+                maxConnections);
+    }
+
+    public FtpConnectionPool(@NotNull String host,
+                             int port,
+                             @NotNull String username,
+                             @NotNull String password,
+                             int maxConnections) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("Bad max FTP connections " + maxConnections);
+        }
+
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+        this.maxConnections = maxConnections;
+        this.permits = new Semaphore(maxConnections, true);
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @return the count of connections logged in by the pool
+     */
+    public int getLoginCount() {
+        return logins.get();
+    }
+
+    /**
+     * Run the action with a connection from the pool. The connection is disconnected instead of returned to the pool
+     * if the action fails with an IOException, since the control channel state is unknown.
+     *
+     * @param action the action to run
+     * @return the action result
+     * @throws IOException the connecting or action errors
+     */
+    public <T> T execute(@NotNull FtpAction<T> action) throws IOException {
+        final FTPClient ftp = borrow();
+
+        try {
+            final T result = action.run(ftp);
+            release(ftp);
+
+            return result;
+        } catch (IOException | RuntimeException e) {
+            invalidate(ftp);
+            throw e;
+        }
+    }
+
+    @NotNull
+    private FTPClient borrow() throws IOException {
+        if (closed) {
+            throw new IOException("The FTP connection pool is closed");
+        }
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an FTP connection");
+        }
+
+        try {
+            FTPClient ftp;
+            while ((ftp = idleConnections.pollFirst()) != null) {
+                final Long since = idleSince.remove(ftp);
+
+                if (since != null && System.currentTimeMillis() - since < VALIDATE_AFTER_IDLE_MS) {
+                    return ftp;
+                }
+
+                if (isAlive(ftp)) {
+                    return ftp;
+                }
+
+                disconnectQuietly(ftp);
+            }
+
+            ftp = WebAppUtils.getFtpConnection(host, port, username, password);
+            logins.incrementAndGet();
+
+            return ftp;
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(@NotNull FTPClient ftp) {
+        if (closed || !ftp.isConnected()) {
+            disconnectQuietly(ftp);
+        } else {
+            idleSince.put(ftp, System.currentTimeMillis());
+            idleConnections.offerFirst(ftp);
+        }
+
+        permits.release();
+    }
+
+    private void invalidate(@NotNull FTPClient ftp) {
+        disconnectQuietly(ftp);
+        permits.release();
+    }
+
+    private static boolean isAlive(@NotNull FTPClient ftp) {
+        try {
+            return ftp.isConnected() && ftp.sendNoOp();
+        } catch (IOException ignored) {
+            return false;
+        }
+    }
+
+    private static void disconnectQuietly(@NotNull FTPClient ftp) {
+        try {
+            if (ftp.isConnected()) {
+                ftp.disconnect();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Upload the stream to the file with retries
+     *
+     * @param path the remote file path
+     * @param stream the content
+     * @param indicator the progress indicator to show the uploading throughput
+     * @return the tries count
+     * @throws IOException the uploading errors after all tries
+     */
+    public int storeFile(@NotNull final String path,
+                         @NotNull final InputStream stream,
+                         @Nullable final IProgressIndicator indicator) throws IOException {
+        return execute(ftp -> {
+            final long start = System.nanoTime();
+
+            if (indicator != null) {
+                ftp.setCopyStreamListener(new CopyStreamAdapter() {
+                    @Override
+                    public void bytesTransferred(long totalBytesTransferred, int bytesTransferred, long streamSize) {
+                        final double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+
+                        indicator.setText2(String.format("Uploaded %d KB (%.1f MB/s)",
+                                totalBytesTransferred / 1024, totalBytesTransferred / seconds / 1024 / 1024));
+                    }
+                });
+            }
+
+            try {
+                return WebAppUtils.uploadFileToFtp(ftp, path, stream, indicator);
+            } finally {
+                ftp.setCopyStreamListener(null);
+            }
+        });
+    }
+
+    /**
+     * Remove the directory recursively with the pooled connections in parallel. The removal stops if the indicator
+     * is canceled.
+     *
+     * @param path the directory path
+     * @param pi the progress indicator to show the removing progress
+     * @return the count of files and directories removed
+     * @throws IOException the first listing or removing errors
+     */
+    public int removeDirectory(@NotNull final String path, @Nullable final IProgressIndicator pi) throws IOException {
+        final long start = System.nanoTime();
+        final AtomicInteger removed = new AtomicInteger();
+
+        // List the tree level by level, the directories of the same level are listed in parallel
+        final List<String> files = Collections.synchronizedList(new ArrayList<>());
+        final List<List<String>> levels = new ArrayList<>();
+        List<String> level = Collections.singletonList(path);
+
+        while (!level.isEmpty()) {
+            levels.add(level);
+
+            final List<String> subDirectories = Collections.synchronizedList(new ArrayList<>());
+            runInParallel(level, pi, directory -> {
+                for (FTPFile ftpFile : execute(ftp -> ftp.listFiles(directory))) {
+                    final String name = ftpFile.getName();
+                    if (name.equals(".") || name.equals("..")) {
+                        continue;
+                    }
+
+                    (ftpFile.isDirectory() ? subDirectories : files).add(directory + "/" + name);
+                }
+            });
+
+            level = new ArrayList<>(subDirectories);
+        }
+
+        final int total = files.size() + levels.stream().mapToInt(List::size).sum();
+        final RemoveStep removeFile = new RemoveStep(false, removed, total, start, pi);
+        final RemoveStep removeDirectory = new RemoveStep(true, removed, total, start, pi);
+
+        runInParallel(files, pi, removeFile);
+
+        // A directory can be removed only after its sub directories
+        for (int i = levels.size() - 1; i >= 0; i--) {
+            runInParallel(levels.get(i), pi, removeDirectory);
+        }
+
+        if (pi != null) {
+            pi.setText2("");
+        }
+
+        return removed.get();
+    }
+
+    private interface Step {
+        void run(@NotNull String path) throws IOException;
+    }
+
+    private class RemoveStep implements Step {
+        private final boolean isDirectory;
+        private final AtomicInteger removed;
+        private final int total;
+        private final long start;
+        @Nullable
+        private final IProgressIndicator pi;
+
+        RemoveStep(boolean isDirectory, AtomicInteger removed, int total, long start, @Nullable IProgressIndicator pi) {
+            this.isDirectory = isDirectory;
+            this.removed = removed;
+            this.total = total;
+            this.start = start;
+            this.pi = pi;
+        }
+
+        @Override
+        public void run(@NotNull String path) throws IOException {
+            execute(ftp -> isDirectory ? ftp.removeDirectory(path) : ftp.deleteFile(path));
+
+            final int count = removed.incrementAndGet();
+            if (pi != null) {
+                final double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+                pi.setText2(String.format("Removing from FTP server: %d/%d (%.0f/s) %s",
+                        count, total, count / seconds, path));
+            }
+        }
+    }
+
+    private void runInParallel(@NotNull List<String> paths,
+                               @Nullable IProgressIndicator pi,
+                               @NotNull Step step) throws IOException {
+        if (paths.isEmpty()) {
+            return;
+        }
+
+        final Iterator<String> iterator = paths.iterator();
+
+        try {
+            new ParallelWorkers(Math.min(maxConnections, paths.size()), "ftp-remove-worker").run(() -> {
+                final String path;
+
+                synchronized (iterator) {
+                    if ((pi != null && pi.isCanceled()) || !iterator.hasNext()) {
+                        return false;
+                    }
+
+                    path = iterator.next();
+                }
+
+                step.run(path);
+
+                return true;
+            });
+        } catch (IOException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while removing from FTP server");
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Log out and disconnect the idle connections, the connections in use are disconnected when they are returned
+     */
+    @Override
+    public void close() {
+        closed = true;
+
+        FTPClient ftp;
+        while ((ftp = idleConnections.pollFirst()) != null) {
+            idleSince.remove(ftp);
+
+            try {
+                ftp.logout();
+            } catch (IOException ignored) {
+            }
+
+            disconnectQuietly(ftp);
+        }
+    }
+}
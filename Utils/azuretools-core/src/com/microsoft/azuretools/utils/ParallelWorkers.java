@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.utils;
+
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Run the steps of a job by parallel workers, each worker runs the steps until there is nothing more to do. The
+ * first failed step stops all the workers, and the failure is thrown after they are stopped.
+ *
+ * The active workers can be halved with {@link #backOff()}, such as after a throttled request, then the workers
+ * over the active count retire after their current steps.
+ */
+public class ParallelWorkers {
+    /**
+     * The step run by the workers repeatedly
+     */
+    public interface Step {
+        /**
+         * @return false if the worker has nothing more to do
+         * @throws Exception the error to stop all the workers
+         */
+        boolean run() throws Exception;
+    }
+
+    private final int concurrency;
+
+    @NotNull
+    private final String threadName;
+
+    @NotNull
+    private final AtomicInteger activeWorkers;
+
+    /**
+     * Constructor
+     *
+     * @param concurrency the workers count
+     * @param threadName the name prefix of the worker threads
+     */
+    public ParallelWorkers(int concurrency, @NotNull String threadName) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("Bad concurrency " + concurrency + " for parallel workers");
+        }
+
+        this.concurrency = concurrency;
+        this.threadName = threadName;
+        this.activeWorkers = new AtomicInteger(concurrency);
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getActiveWorkers() {
+        return activeWorkers.get();
+    }
+
+    /**
+     * Halve the active workers, at least one worker is kept
+     */
+    public void backOff() {
+        activeWorkers.updateAndGet(count -> Math.max(1, count / 2));
+    }
+
+    /**
+     * Run the step by the active workers until all of them have nothing more to do
+     *
+     * @param step the step to run repeatedly
+     * @throws Exception the first error of the steps
+     */
+    public void run(@NotNull Step step) throws Exception {
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final AtomicInteger threadIndex = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(activeWorkers.get(), runnable -> {
+            final Thread thread = new Thread(runnable, threadName + "-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+
+            for (int worker = 0; worker < activeWorkers.get(); worker++) {
+                final int workerIndex = worker;
+
+                futures.add(executor.submit(() -> {
+                    try {
+                        boolean hasMore = true;
+
+                        while (hasMore && workerIndex < activeWorkers.get() && failure.get() == null) {
+                            hasMore = step.run();
+                        }
+                    } catch (Exception ex) {
+                        failure.compareAndSet(null, ex);
+                    }
+
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException ex) {
+                    failure.compareAndSet(null, ex.getCause() instanceof Exception
+                            ? (Exception) ex.getCause()
+                            : new ExecutionException(ex.getCause()));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+}
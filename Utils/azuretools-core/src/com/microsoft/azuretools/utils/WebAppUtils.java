@@ -52,6 +52,8 @@ import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPFile;
 import org.apache.commons.net.ftp.FTPReply;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -61,10 +63,14 @@ import java.net.ConnectException;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class WebAppUtils {
+    private static final Logger LOGGER = Logger.getLogger(WebAppUtils.class.getName());
 
     public static final String TYPE_WAR = "war";
     public static final String TYPE_JAR = "jar";
@@ -74,11 +80,16 @@ public class WebAppUtils {
     private static final String FTP_ROOT_PATH = "/site/wwwroot/";
     private static final String FTP_WEB_APPS_PATH = FTP_ROOT_PATH + "webapps/";
     private static final String WEB_CONFIG_FILENAME = "web.config";
+    private static final String FTP_DEPLOYMENTS_PATH = "/site/deployments/";
+    private static final String FTP_ACTIVE_DEPLOYMENT_PATH = FTP_DEPLOYMENTS_PATH + "active";
+    private static final String DEPLOYMENT_MANIFEST_FORMAT = FTP_DEPLOYMENTS_PATH + "azure-toolkit-%s.manifest";
     private static final String NO_TARGET_FILE = "Cannot find target file: %s.";
+    private static final String MANIFEST_NOT_SAVED = "Failed to save the deployment manifest %s: %s";
     private static final String ROOT = "ROOT";
     private static final String JAVASE_ROOT= "app";
     private static final String JAVASE_ARTIFACT_NAME = "app.jar";
     private static final int FTP_MAX_TRY = 3;
+    private static final int FTP_BUFFER_SIZE = 1024 * 1024;
     private static final int DEPLOY_MAX_TRY = 3;
     private static final int SLEEP_TIME = 5000; // milliseconds
     private static final String DEFAULT_VALUE_WHEN_VERSION_INVALID = "";
@@ -91,32 +102,40 @@ public class WebAppUtils {
             " %s, retrying immediately (%d/%d)";
     public static final String RETRY_FAIL_MESSAGE = "Failed to deploy after %d times of retry.";
     public static final String COPYING_RESOURCES = "Copying resources to staging folder...";
+    public static final String DEPLOY_UNCHANGED = "The artifact is not changed since the last deployment, skip deploying.";
+    public static final String DEPLOY_CHANGES = "Changes since the last deployment: %s";
+    public static final String DEPLOY_MANIFEST_UNAVAILABLE = "Cannot compare with the last deployment: %s";
 
 
     @NotNull
     public static FTPClient getFtpConnection(PublishingProfile pp) throws IOException {
+        URI uri = URI.create("ftp://" + pp.ftpUrl());
 
-        FTPClient ftp = new FTPClient();
+        return getFtpConnection(uri.getHost(), FtpConnectionPool.FTP_PORT, pp.ftpUsername(), pp.ftpPassword());
+    }
 
-        System.out.println("\t\t" + pp.ftpUrl());
-        System.out.println("\t\t" + pp.ftpUsername());
-        System.out.println("\t\t" + pp.ftpPassword());
+    @NotNull
+    static FTPClient getFtpConnection(String host, int port, String username, String password) throws IOException {
+        FTPClient ftp = new FTPClient();
 
-        URI uri = URI.create("ftp://" + pp.ftpUrl());
-        ftp.connect(uri.getHost(), 21);
+        ftp.connect(host, port);
         final int replyCode = ftp.getReplyCode();
         if (!FTPReply.isPositiveCompletion(replyCode)) {
             ftp.disconnect();
             throw new ConnectException("Unable to connect to FTP server");
         }
 
-        if (!ftp.login(pp.ftpUsername(), pp.ftpPassword())) {
+        if (!ftp.login(username, password)) {
+            ftp.disconnect();
             throw new ConnectException("Unable to login to FTP server");
         }
 
         ftp.setControlKeepAliveTimeout(Constants.connection_read_timeout_ms);
         ftp.setFileType(FTP.BINARY_FILE_TYPE);
         ftp.enterLocalPassiveMode();//Switch to passive mode
+        ftp.setBufferSize(FTP_BUFFER_SIZE);
+        ftp.setSendDataSocketBufferSize(FTP_BUFFER_SIZE);
+        ftp.setReceieveDataSocketBufferSize(FTP_BUFFER_SIZE);
 
         return ftp;
     }
@@ -126,45 +145,37 @@ public class WebAppUtils {
         if (!file.exists()) {
             throw new FileNotFoundException(String.format(NO_TARGET_FILE, artifactPath));
         }
-        FTPClient ftp = null;
-        InputStream input = null;
         int uploadingTryCount = 0;
-        try {
-            if (indicator != null) indicator.setText("Connecting to FTP server...");
-
-            ftp = getFtpConnection(pp);
-            ensureWebAppsFolderExist(ftp);
+        if (indicator != null) indicator.setText("Connecting to FTP server...");
+        try (FtpConnectionPool ftpPool = new FtpConnectionPool(pp, FtpConnectionPool.DEFAULT_MAX_CONNECTIONS);
+             InputStream input = new FileInputStream(artifactPath)) {
+            ftpPool.execute(ftp -> {
+                ensureWebAppsFolderExist(ftp);
+                return null;
+            });
             if (indicator != null) indicator.setText("Uploading the application...");
-            input = new FileInputStream(artifactPath);
             int indexOfDot = artifactPath.lastIndexOf(".");
             String fileType = artifactPath.substring(indexOfDot + 1);
 
             switch (fileType) {
                 case TYPE_WAR:
                     if (toRoot) {
-                        WebAppUtils.removeFtpDirectory(ftp, FTP_WEB_APPS_PATH + ROOT, indicator);
-                        ftp.deleteFile(FTP_WEB_APPS_PATH + ROOT + "." + TYPE_WAR);
-                        uploadingTryCount = uploadFileToFtp(ftp, FTP_WEB_APPS_PATH + ROOT + "." + TYPE_WAR, input, indicator);
+                        ftpPool.removeDirectory(FTP_WEB_APPS_PATH + ROOT, indicator);
+                        ftpPool.execute(ftp -> ftp.deleteFile(FTP_WEB_APPS_PATH + ROOT + "." + TYPE_WAR));
+                        uploadingTryCount = ftpPool.storeFile(FTP_WEB_APPS_PATH + ROOT + "." + TYPE_WAR, input, indicator);
                     } else {
-                        WebAppUtils.removeFtpDirectory(ftp, FTP_WEB_APPS_PATH + artifactName, indicator);
-                        ftp.deleteFile(artifactName + "." + TYPE_WAR);
-                        uploadingTryCount = uploadFileToFtp(ftp, FTP_WEB_APPS_PATH + artifactName + "." + TYPE_WAR, input, indicator);
+                        ftpPool.removeDirectory(FTP_WEB_APPS_PATH + artifactName, indicator);
+                        ftpPool.execute(ftp -> ftp.deleteFile(artifactName + "." + TYPE_WAR));
+                        uploadingTryCount = ftpPool.storeFile(FTP_WEB_APPS_PATH + artifactName + "." + TYPE_WAR, input, indicator);
                     }
                     break;
                 case TYPE_JAR:
-                    uploadingTryCount = uploadFileToFtp(ftp, FTP_ROOT_PATH + ROOT + "." + TYPE_JAR, input, indicator);
+                    uploadingTryCount = ftpPool.storeFile(FTP_ROOT_PATH + ROOT + "." + TYPE_JAR, input, indicator);
                     break;
                 default:
                     break;
             }
             if (indicator != null) indicator.setText("Logging out of FTP server...");
-            ftp.logout();
-        } finally {
-            if (input != null)
-                input.close();
-            if (ftp != null && ftp.isConnected()) {
-                ftp.disconnect();
-            }
         }
         return uploadingTryCount;
     }
@@ -174,25 +185,19 @@ public class WebAppUtils {
         if (!file.exists()) {
             throw new FileNotFoundException(String.format(NO_TARGET_FILE, artifactPath));
         }
-        FTPClient ftp = null;
         int uploadingTryCount;
-        try (InputStream input = new FileInputStream(artifactPath)){
-            if (indicator != null) {
-                indicator.setText("Connecting to FTP server...");
-            }
-            ftp = getFtpConnection(pp);
+        if (indicator != null) {
+            indicator.setText("Connecting to FTP server...");
+        }
+        try (FtpConnectionPool ftpPool = new FtpConnectionPool(pp, 1);
+             InputStream input = new FileInputStream(artifactPath)) {
             if (indicator != null) {
                 indicator.setText("Uploading the application...");
             }
-            uploadingTryCount = uploadFileToFtp(ftp, FTP_ROOT_PATH + JAVASE_ROOT + "." + TYPE_JAR, input, indicator);
+            uploadingTryCount = ftpPool.storeFile(FTP_ROOT_PATH + JAVASE_ROOT + "." + TYPE_JAR, input, indicator);
             if (indicator != null) {
                 indicator.setText("Logging out of FTP server...");
             }
-            ftp.logout();
-        } finally {
-            if (ftp != null && ftp.isConnected()) {
-                ftp.disconnect();
-            }
         }
         return uploadingTryCount;
     }
@@ -221,6 +226,10 @@ public class WebAppUtils {
         throw new IOException("FTP client can't make directory, reply code: " + ftp.getReplyCode());
     }
 
+    /**
+     * Remove the FTP directory recursively with one connection, see {@link FtpConnectionPool#removeDirectory} to
+     * remove it with the pooled connections in parallel
+     */
     public static void removeFtpDirectory(FTPClient ftpClient, String path, IProgressIndicator pi) throws IOException {
         String prefix = "Removing from FTP server: ";
         FTPFile[] subFiles = ftpClient.listFiles(path);
@@ -296,7 +305,8 @@ public class WebAppUtils {
     }
 
     /**
-     * Deploys artifact to Azure App Service
+     * Deploys artifact to Azure App Service, the deployment is skipped if the artifact is not changed since the last
+     * deployment
      * @param deployTarget the web app or deployment slot
      * @param artifact artifact to deploy
      * @param isDeployToRoot
@@ -304,9 +314,43 @@ public class WebAppUtils {
      */
     public static void deployArtifactsToAppService(WebAppBase deployTarget
             , File artifact, boolean isDeployToRoot, IProgressIndicator progressIndicator) throws WebAppException {
+        deployArtifactsToAppService(deployTarget, artifact, isDeployToRoot, true, progressIndicator);
+    }
+
+    /**
+     * Deploys artifact to Azure App Service
+     * @param deployTarget the web app or deployment slot
+     * @param artifact artifact to deploy
+     * @param isDeployToRoot
+     * @param isDifferential whether to compare the artifact entries with the manifest of the last deployment, and
+     *                       skip stopping, deploying and starting if nothing changed
+     * @param progressIndicator
+     */
+    public static void deployArtifactsToAppService(WebAppBase deployTarget, File artifact, boolean isDeployToRoot,
+            boolean isDifferential, IProgressIndicator progressIndicator) throws WebAppException {
         if (!(deployTarget instanceof WebApp || deployTarget instanceof DeploymentSlot)) {
             throw new WebAppException("Illegal deploy target.");
         }
+        DeploymentManifest manifest = null;
+        String manifestPath = null;
+        if (isDifferential) {
+            try {
+                manifest = DeploymentManifest.of(artifact);
+                manifestPath = getDeploymentManifestPath(artifact, isDeployToRoot);
+                DeploymentManifest lastManifest = readLastDeploymentManifest(deployTarget.getPublishingProfile(),
+                        manifestPath);
+                DeploymentManifest.Diff diff = manifest.diff(lastManifest);
+                if (diff.isEmpty()) {
+                    progressIndicator.setText(DEPLOY_UNCHANGED);
+                    return;
+                }
+                progressIndicator.setText(String.format(DEPLOY_CHANGES, diff));
+            } catch (IOException | RuntimeException e) {
+                // Deploy as usual without the manifest
+                manifest = null;
+                progressIndicator.setText(String.format(DEPLOY_MANIFEST_UNAVAILABLE, e.getMessage()));
+            }
+        }
         // stop target app service
         String stopMessage = deployTarget instanceof WebApp ? STOP_WEB_APP : STOP_DEPLOYMENT_SLOT;
         progressIndicator.setText(stopMessage);
@@ -316,6 +360,9 @@ public class WebAppUtils {
                 deployWebAppToJavaSERuntime(deployTarget, artifact, progressIndicator) :
                 deployWebAppToWebContainer(deployTarget, artifact, isDeployToRoot, progressIndicator);
         if (deployResult) {
+            if (manifest != null) {
+                saveDeploymentManifest(deployTarget.getPublishingProfile(), manifestPath, manifest);
+            }
             String successMessage = deployTarget instanceof WebApp ?
                     DEPLOY_SUCCESS_WEB_APP : DEPLOY_SUCCESS_DEPLOYMENT_SLOT;
             progressIndicator.setText(successMessage);
@@ -323,6 +370,73 @@ public class WebAppUtils {
         }
     }
 
+    private static String getDeploymentManifestPath(File artifact, boolean isDeployToRoot) {
+        String target;
+        if (isJarBaseOnFileName(artifact.getPath())) {
+            target = JAVASE_ROOT;
+        } else {
+            target = isDeployToRoot ? ROOT : FilenameUtils.getBaseName(artifact.getName());
+        }
+        return String.format(DEPLOYMENT_MANIFEST_FORMAT, target);
+    }
+
+    /**
+     * Read the manifest of the last deployment, which is taken as out of date if there are other deployments since
+     * then
+     *
+     * @return the manifest, or null if there is no manifest or it's out of date
+     */
+    private static DeploymentManifest readLastDeploymentManifest(PublishingProfile pp, String manifestPath)
+            throws IOException {
+        try (FtpConnectionPool ftpPool = new FtpConnectionPool(pp, 1)) {
+            return ftpPool.execute(ftp -> {
+                String manifestText = retrieveFtpText(ftp, manifestPath);
+                if (manifestText == null) {
+                    return null;
+                }
+                DeploymentManifest lastManifest = DeploymentManifest.parse(manifestText);
+                String activeDeploymentId = StringUtils.trim(retrieveFtpText(ftp, FTP_ACTIVE_DEPLOYMENT_PATH));
+                // Not trusted unless both deployment ids are known and the same
+                return StringUtils.isNotEmpty(activeDeploymentId) &&
+                        activeDeploymentId.equals(lastManifest.getActiveDeploymentId()) ? lastManifest : null;
+            });
+        }
+    }
+
+    /**
+     * Save the manifest with the active deployment id, the next deployment will be a full one if it fails or the
+     * active deployment id is unknown
+     */
+    private static void saveDeploymentManifest(PublishingProfile pp, String manifestPath, DeploymentManifest manifest) {
+        try (FtpConnectionPool ftpPool = new FtpConnectionPool(pp, 1)) {
+            ftpPool.execute(ftp -> {
+                String activeDeploymentId = StringUtils.trim(retrieveFtpText(ftp, FTP_ACTIVE_DEPLOYMENT_PATH));
+                if (StringUtils.isEmpty(activeDeploymentId)) {
+                    LOGGER.warning(String.format(MANIFEST_NOT_SAVED, manifestPath, "no active deployment id"));
+                    return false;
+                }
+                byte[] manifestText = manifest.withActiveDeploymentId(activeDeploymentId).toText()
+                        .getBytes(StandardCharsets.UTF_8);
+                if (!ftp.storeFile(manifestPath, new ByteArrayInputStream(manifestText))) {
+                    LOGGER.warning(String.format(MANIFEST_NOT_SAVED, manifestPath,
+                            StringUtils.trim(ftp.getReplyString())));
+                    return false;
+                }
+                return true;
+            });
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format(MANIFEST_NOT_SAVED, manifestPath, e.getMessage()), e);
+        }
+    }
+
+    private static String retrieveFtpText(FTPClient ftp, String path) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (!ftp.retrieveFile(path, output)) {
+            return null;
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
     private static boolean isJarBaseOnFileName(String filePath) {
         int index = filePath.lastIndexOf(".");
         if (index < 0) {
@@ -465,44 +579,31 @@ public class WebAppUtils {
     }
 
     public static void uploadWebConfig(WebApp webApp, InputStream fileStream, IProgressIndicator indicator) throws IOException {
-        FTPClient ftp = null;
-        try {
-            if(indicator != null) indicator.setText("Stopping the service...");
-            webApp.stop();
-
-            PublishingProfile pp = webApp.getPublishingProfile();
-            ftp = getFtpConnection(pp);
+        if(indicator != null) indicator.setText("Stopping the service...");
+        webApp.stop();
 
+        PublishingProfile pp = webApp.getPublishingProfile();
+        try (FtpConnectionPool ftpPool = new FtpConnectionPool(pp, 1)) {
             if(indicator != null) indicator.setText("Uploading " + WEB_CONFIG_FILENAME + "...");
-            uploadFileToFtp(ftp, FTP_ROOT_PATH + WEB_CONFIG_FILENAME, fileStream, indicator);
-
-            if(indicator != null) indicator.setText("Starting the service...");
-            webApp.start();
-        } finally {
-            if (ftp != null && ftp.isConnected()) {
-                ftp.disconnect();
-            }
+            ftpPool.storeFile(FTP_ROOT_PATH + WEB_CONFIG_FILENAME, fileStream, indicator);
         }
+
+        if(indicator != null) indicator.setText("Starting the service...");
+        webApp.start();
     }
 
     public static int uploadToRemoteServer(WebAppBase webApp, String fileName, InputStream ins,
         IProgressIndicator indicator, String targetPath) throws IOException {
-        FTPClient ftp = null;
-        try {
-            PublishingProfile pp = webApp.getPublishingProfile();
-            ftp = getFtpConnection(pp);
+        PublishingProfile pp = webApp.getPublishingProfile();
+        try (FtpConnectionPool ftpPool = new FtpConnectionPool(pp, 1)) {
             if (indicator != null) {
                 indicator.setText(String.format("Uploading %s ...", fileName));
             }
-            return uploadFileToFtp(ftp, targetPath, ins, indicator);
-        } finally {
-            if (ftp != null && ftp.isConnected()) {
-                ftp.disconnect();
-            }
+            return ftpPool.storeFile(targetPath, ins, indicator);
         }
     }
 
-    private static int uploadFileToFtp(FTPClient ftp, String path, InputStream stream, IProgressIndicator indicator) throws IOException {
+    static int uploadFileToFtp(FTPClient ftp, String path, InputStream stream, IProgressIndicator indicator) throws IOException {
         boolean success;
         int count = 0;
         int rc = 0;
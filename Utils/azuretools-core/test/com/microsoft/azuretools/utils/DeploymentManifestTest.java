@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DeploymentManifestTest {
+    private File artifact;
+
+    @Before
+    public void setUp() throws Exception {
+        artifact = File.createTempFile("deployment-manifest", ".war");
+    }
+
+    @After
+    public void tearDown() {
+        artifact.delete();
+    }
+
+    private DeploymentManifest manifestOf(Map<String, String> entries) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(artifact))) {
+            zip.putNextEntry(new ZipEntry("WEB-INF/"));
+            zip.closeEntry();
+
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+
+        return DeploymentManifest.of(artifact);
+    }
+
+    private static Map<String, String> appEntries() {
+        final Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("index.jsp", "<html>Hello</html>");
+        entries.put("WEB-INF/web.xml", "<web-app/>");
+        entries.put("WEB-INF/classes/App.class", "class App");
+        entries.put("WEB-INF/lib/my lib.jar", "lib");
+
+        return entries;
+    }
+
+    @Test
+    public void testUnchangedArtifact() throws Exception {
+        final DeploymentManifest last = manifestOf(appEntries());
+        final DeploymentManifest current = manifestOf(appEntries());
+
+        assertEquals(4, current.size());
+        assertTrue(current.diff(last).isEmpty());
+        assertEquals(last, current);
+    }
+
+    @Test
+    public void testChangedEntries() throws Exception {
+        final DeploymentManifest last = manifestOf(appEntries());
+
+        final Map<String, String> entries = appEntries();
+        entries.put("WEB-INF/classes/App.class", "class App2");
+        entries.put("WEB-INF/classes/Other.class", "class Other");
+        entries.remove("index.jsp");
+
+        final DeploymentManifest.Diff diff = manifestOf(entries).diff(last);
+
+        assertFalse(diff.isEmpty());
+        assertEquals(1, diff.getAdded());
+        assertEquals(1, diff.getChanged());
+        assertEquals(1, diff.getRemoved());
+        assertEquals("1 added, 1 changed, 1 removed", diff.toString());
+    }
+
+    @Test
+    public void testNoLastDeployment() throws Exception {
+        final DeploymentManifest.Diff diff = manifestOf(appEntries()).diff(null);
+
+        assertEquals(4, diff.getAdded());
+        assertFalse(diff.isEmpty());
+    }
+
+    @Test
+    public void testTextRoundTrip() throws Exception {
+        final DeploymentManifest manifest = manifestOf(appEntries());
+        assertNull(manifest.getActiveDeploymentId());
+        assertEquals(manifest, DeploymentManifest.parse(manifest.toText()));
+
+        final DeploymentManifest deployed = manifest.withActiveDeploymentId("a1b2c3");
+        final DeploymentManifest parsed = DeploymentManifest.parse(deployed.toText());
+
+        assertEquals("a1b2c3", parsed.getActiveDeploymentId());
+        assertEquals(deployed, parsed);
+        assertTrue(manifest.diff(parsed).isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void testBadManifest() throws Exception {
+        DeploymentManifest.parse("not-a-manifest-line\n");
+    }
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.utils;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.net.ftp.FTPClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FtpConnectionPoolTest {
+    private static final String USER = "app\\$app";
+    private static final String PASSWORD = "password";
+    private static final String APP_PATH = "/site/wwwroot/webapps/ROOT";
+
+    private StubFtpServer server;
+
+    /**
+     * The minimal FTP server in memory, with the passive mode data connections for LIST and STOR
+     */
+    private static class StubFtpServer implements Closeable {
+        private final ServerSocket serverSocket;
+        private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "stub-ftp-session");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        private final Set<String> directories = new TreeSet<>();
+        private final Map<String, byte[]> files = new HashMap<>();
+        private final AtomicInteger logins = new AtomicInteger();
+        private final AtomicInteger commands = new AtomicInteger();
+        private volatile long latencyMs = 0;
+
+        StubFtpServer() throws IOException {
+            serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            executor.submit(() -> {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        final Socket socket = serverSocket.accept();
+                        executor.submit(() -> session(socket));
+                    } catch (IOException ignored) {
+                    }
+                }
+            });
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        synchronized void mkdirs(String path) {
+            for (int i = path.indexOf('/', 1); i > 0; i = path.indexOf('/', i + 1)) {
+                directories.add(path.substring(0, i));
+            }
+
+            directories.add(path);
+        }
+
+        synchronized void putFile(String path, byte[] content) {
+            mkdirs(path.substring(0, path.lastIndexOf('/')));
+            files.put(path, content);
+        }
+
+        synchronized int countUnder(String path) {
+            int count = 0;
+
+            for (String directory : directories) {
+                if (directory.equals(path) || directory.startsWith(path + "/")) {
+                    count++;
+                }
+            }
+
+            for (String file : files.keySet()) {
+                if (file.startsWith(path + "/")) {
+                    count++;
+                }
+            }
+
+            return count;
+        }
+
+        private synchronized List<String> list(String path) {
+            final List<String> lines = new ArrayList<>();
+
+            for (String directory : directories) {
+                if (directory.startsWith(path + "/") && directory.indexOf('/', path.length() + 1) < 0) {
+                    lines.add(listLine("drwxr-xr-x", 0, directory));
+                }
+            }
+
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                if (file.getKey().startsWith(path + "/") && file.getKey().indexOf('/', path.length() + 1) < 0) {
+                    lines.add(listLine("-rw-r--r--", file.getValue().length, file.getKey()));
+                }
+            }
+
+            return lines;
+        }
+
+        private static String listLine(String permissions, long size, String path) {
+            return String.format("%s   1 owner    group %12d Jan 01  2020 %s",
+                                 permissions, size, path.substring(path.lastIndexOf('/') + 1));
+        }
+
+        private synchronized boolean removeDirectory(String path) {
+            if (!directories.contains(path) || !list(path).isEmpty()) {
+                return false;
+            }
+
+            return directories.remove(path);
+        }
+
+        private synchronized boolean deleteFile(String path) {
+            return files.remove(path) != null;
+        }
+
+        private void session(Socket socket) {
+            try (Socket control = socket;
+                 BufferedReader in = new BufferedReader(
+                         new InputStreamReader(control.getInputStream(), StandardCharsets.ISO_8859_1));
+                 Writer out = new OutputStreamWriter(control.getOutputStream(), StandardCharsets.ISO_8859_1)) {
+                ServerSocket passive = null;
+                reply(out, "220 Stub FTP server ready");
+
+                String line;
+                while ((line = in.readLine()) != null) {
+                    commands.incrementAndGet();
+
+                    final int space = line.indexOf(' ');
+                    final String command = (space < 0 ? line : line.substring(0, space)).toUpperCase();
+                    final String argument = space < 0 ? "" : line.substring(space + 1);
+
+                    Thread.sleep(latencyMs);
+
+                    switch (command) {
+                        case "USER":
+                            reply(out, "331 Password required");
+                            break;
+                        case "PASS":
+                            logins.incrementAndGet();
+                            reply(out, "230 User logged in");
+                            break;
+                        case "SYST":
+                            reply(out, "215 UNIX Type: L8");
+                            break;
+                        case "TYPE":
+                        case "NOOP":
+                            reply(out, "200 OK");
+                            break;
+                        case "PASV": {
+                            passive = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+                            final int port = passive.getLocalPort();
+                            reply(out, String.format("227 Entering Passive Mode (127,0,0,1,%d,%d)", port / 256, port % 256));
+                            break;
+                        }
+                        case "LIST":
+                            reply(out, "150 Opening data connection");
+                            try (ServerSocket listening = passive; Socket data = listening.accept()) {
+                                final StringBuilder listing = new StringBuilder();
+                                for (String entry : list(argument)) {
+                                    listing.append(entry).append("\r\n");
+                                }
+
+                                data.getOutputStream().write(listing.toString().getBytes(StandardCharsets.ISO_8859_1));
+                            }
+                            reply(out, "226 Transfer complete");
+                            break;
+                        case "STOR":
+                            reply(out, "150 Opening data connection");
+                            try (ServerSocket listening = passive; Socket data = listening.accept()) {
+                                putFile(argument, IOUtils.toByteArray(data.getInputStream()));
+                            }
+                            reply(out, "226 Transfer complete");
+                            break;
+                        case "DELE":
+                            reply(out, deleteFile(argument) ? "250 Deleted" : "550 Not found");
+                            break;
+                        case "RMD":
+                            reply(out, removeDirectory(argument) ? "250 Removed" : "550 Not empty or not found");
+                            break;
+                        case "MKD":
+                            mkdirs(argument);
+                            reply(out, "257 Created");
+                            break;
+                        case "QUIT":
+                            reply(out, "221 Bye");
+                            return;
+                        default:
+                            reply(out, "502 Not implemented");
+                    }
+                }
+            } catch (IOException | InterruptedException ignored) {
+            }
+        }
+
+        private static void reply(Writer out, String reply) throws IOException {
+            out.write(reply + "\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+            executor.shutdownNow();
+        }
+    }
+
+    private static class RecordingIndicator implements IProgressIndicator {
+        final List<String> texts2 = new ArrayList<>();
+        volatile boolean canceled = false;
+
+        @Override
+        public void setText(String text) {
+        }
+
+        @Override
+        public synchronized void setText2(String text2) {
+            texts2.add(text2);
+        }
+
+        @Override
+        public void setFraction(double fraction) {
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public void notifyComplete() {
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubFtpServer();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    private FtpConnectionPool createPool(int maxConnections) {
+        return new FtpConnectionPool("127.0.0.1", server.getPort(), USER, PASSWORD, maxConnections);
+    }
+
+    /**
+     * The exploded WAR tree with 20 directories, each with 20 files and a sub directory with 10 files
+     *
+     * @return the count of files and directories under the application directory, including itself
+     */
+    private int createExplodedApp() {
+        server.mkdirs(APP_PATH);
+
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < 20; j++) {
+                server.putFile(String.format("%s/dir%d/file%d.class", APP_PATH, i, j), new byte[] { (byte) j });
+            }
+
+            for (int j = 0; j < 10; j++) {
+                server.putFile(String.format("%s/dir%d/sub/file%d.class", APP_PATH, i, j), new byte[] { (byte) j });
+            }
+        }
+
+        return 1 + 20 * (1 + 20 + 1 + 10);
+    }
+
+    @Test
+    public void testRemoveDirectoryInParallel() throws Exception {
+        final int total = createExplodedApp();
+        assertEquals(total, server.countUnder(APP_PATH));
+        server.latencyMs = 2;
+
+        final RecordingIndicator indicator = new RecordingIndicator();
+        try (FtpConnectionPool pool = createPool(8)) {
+            assertEquals(total, pool.removeDirectory(APP_PATH, indicator));
+            assertTrue(pool.getLoginCount() > 1 && pool.getLoginCount() <= 8);
+        }
+
+        assertEquals(0, server.countUnder(APP_PATH));
+        assertTrue(server.countUnder("/site/wwwroot/webapps") > 0);
+        assertTrue(indicator.texts2.stream().anyMatch(text -> text.startsWith("Removing from FTP server: " + total)));
+    }
+
+    @Test
+    public void testRemoveDirectoryCanceled() throws Exception {
+        final int total = createExplodedApp();
+        final RecordingIndicator indicator = new RecordingIndicator();
+        indicator.canceled = true;
+
+        try (FtpConnectionPool pool = createPool(4)) {
+            assertEquals(0, pool.removeDirectory(APP_PATH, indicator));
+        }
+
+        assertEquals(total, server.countUnder(APP_PATH));
+    }
+
+    @Test
+    public void testStoreFileInBinaryWithReusedConnection() throws Exception {
+        final byte[] content = new byte[3 * 1024 * 1024];
+        new Random(1).nextBytes(content);
+
+        final RecordingIndicator indicator = new RecordingIndicator();
+        try (FtpConnectionPool pool = createPool(4)) {
+            assertEquals(1, pool.storeFile("/site/wwwroot/ROOT.war", new ByteArrayInputStream(content), indicator));
+            assertFalse(pool.execute(ftp -> ftp.deleteFile("/site/wwwroot/app.jar")));
+            pool.storeFile("/site/wwwroot/app.jar", new ByteArrayInputStream(new byte[] { '\r', '\n' }), null);
+
+            // All the steps run one by one with the same connection
+            assertEquals(1, pool.getLoginCount());
+        }
+
+        assertArrayEquals(content, server.files.get("/site/wwwroot/ROOT.war"));
+        assertArrayEquals(new byte[] { '\r', '\n' }, server.files.get("/site/wwwroot/app.jar"));
+        assertTrue(indicator.texts2.stream().anyMatch(text -> text.startsWith("Uploaded 3072 KB")));
+    }
+
+    @Test
+    public void testFailedConnectionIsNotReused() throws Exception {
+        try (FtpConnectionPool pool = createPool(1)) {
+            final FTPClient[] broken = new FTPClient[1];
+
+            try {
+                pool.execute(ftp -> {
+                    broken[0] = ftp;
+                    throw new IOException("Broken control connection");
+                });
+            } catch (IOException ignored) {
+            }
+
+            assertFalse(broken[0].isConnected());
+            assertTrue(pool.execute(ftp -> ftp != broken[0] && ftp.sendNoOp()));
+            assertEquals(2, pool.getLoginCount());
+        }
+    }
+
+    @Test
+    @Ignore("The wall-clock benchmark, run it manually")
+    public void benchmarkParallelRemoval() throws Exception {
+        server.latencyMs = 2;
+
+        final int total = createExplodedApp();
+        final FTPClient ftp = WebAppUtils.getFtpConnection("127.0.0.1", server.getPort(), USER, PASSWORD);
+        long start = System.nanoTime();
+        WebAppUtils.removeFtpDirectory(ftp, APP_PATH, null);
+        final long sequentialMs = (System.nanoTime() - start) / 1000000;
+        ftp.disconnect();
+
+        assertEquals(0, server.countUnder(APP_PATH));
+
+        createExplodedApp();
+        start = System.nanoTime();
+        try (FtpConnectionPool pool = createPool(FtpConnectionPool.DEFAULT_MAX_CONNECTIONS * 2)) {
+            pool.removeDirectory(APP_PATH, null);
+        }
+        final long parallelMs = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(0, server.countUnder(APP_PATH));
+
+        System.out.println(String.format(
+                "Removed %d entries with 2ms latency per command: one connection %dms, %d connections %dms",
+                total, sequentialMs, FtpConnectionPool.DEFAULT_MAX_CONNECTIONS * 2, parallelMs));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelWorkersTest {
+    @Test
+    public void testRunAllStepsInParallel() throws Exception {
+        final ParallelWorkers workers = new ParallelWorkers(4, "test-worker");
+        final AtomicInteger next = new AtomicInteger();
+        final Set<Integer> done = ConcurrentHashMap.newKeySet();
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+        final CountDownLatch allStarted = new CountDownLatch(4);
+
+        workers.run(() -> {
+            final int index = next.getAndIncrement();
+            if (index >= 100) {
+                return false;
+            }
+
+            // All the workers run the first steps at the same time
+            if (index < 4) {
+                allStarted.countDown();
+                assertTrue(allStarted.await(10, TimeUnit.SECONDS));
+            }
+
+            threads.add(Thread.currentThread().getName());
+            done.add(index);
+
+            return true;
+        });
+
+        assertEquals(100, done.size());
+        assertEquals(4, threads.size());
+        threads.forEach(name -> assertTrue(name.startsWith("test-worker-")));
+    }
+
+    @Test
+    public void testStopAllWorkersOnFirstFailure() throws Exception {
+        final ParallelWorkers workers = new ParallelWorkers(4, "test-worker");
+        final AtomicInteger next = new AtomicInteger();
+        final IOException error = new IOException("Injected failure");
+
+        try {
+            workers.run(() -> {
+                if (next.getAndIncrement() == 10) {
+                    throw error;
+                }
+
+                return true;
+            });
+
+            fail("The workers should fail");
+        } catch (IOException ex) {
+            assertSame(error, ex);
+        }
+
+        // All the workers have stopped when the failure is thrown
+        final int steps = next.get();
+        Thread.sleep(50);
+        assertEquals(steps, next.get());
+    }
+
+    @Test
+    public void testRetireWorkersAfterBackOff() throws Exception {
+        final ParallelWorkers workers = new ParallelWorkers(8, "test-worker");
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunningAfterBackOff = new AtomicInteger();
+
+        workers.backOff();
+        workers.backOff();
+        assertEquals(2, workers.getActiveWorkers());
+
+        workers.run(() -> {
+            maxRunningAfterBackOff.accumulateAndGet(running.incrementAndGet(), Math::max);
+
+            try {
+                Thread.sleep(1);
+                return next.getAndIncrement() < 50;
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+
+        assertTrue(maxRunningAfterBackOff.get() <= 2);
+
+        workers.backOff();
+        workers.backOff();
+        assertEquals(1, workers.getActiveWorkers());
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.common;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.microsoft.azure.hdinsight.sdk.common.errorresponse.HttpErrorStatus;
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HttpObservableScenario {
+    public static class Item {
+        public int id;
+        public String name;
+    }
+
+    private WireMockServer httpServerMock;
+    private HttpObservable http;
+    private int itemCount;
+    private long allocatedWithString;
+    private long allocatedWithStreaming;
+
+    @Before
+    public void setUp() {
+        httpServerMock = new WireMockServer(wireMockConfig().dynamicPort());
+        httpServerMock.start();
+        http = new HttpObservable();
+    }
+
+    @After
+    public void tearDown() {
+        httpServerMock.stop();
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + httpServerMock.port() + path;
+    }
+
+    private static long getAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Given("^mock a http service in HttpObservableScenario for GET request '(.+)' to return '(.+)'$")
+    public void mockResponse(String path, String response) {
+        httpServerMock.stubFor(WireMock.get(WireMock.urlEqualTo(path))
+                .willReturn(WireMock.aResponse().withStatus(200).withBody(response)));
+    }
+
+    @Given("^mock a http service in HttpObservableScenario for GET request '(.+)' to return a JSON array of (\\d+) MB$")
+    public void mockLargeArrayResponse(String path, int sizeMB) {
+        StringBuilder body = new StringBuilder(sizeMB * 1024 * 1024 + 1024).append('[');
+        itemCount = 0;
+
+        while (body.length() < sizeMB * 1024 * 1024) {
+            if (itemCount > 0) {
+                body.append(',');
+            }
+
+            body.append("{\"id\":").append(itemCount).append(",\"name\":\"item name of ").append(itemCount).append("\"}");
+            itemCount++;
+        }
+
+        httpServerMock.stubFor(WireMock.get(WireMock.urlEqualTo(path))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withBody(body.append(']').toString().getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Then("^streaming get '(.+)' should return item (\\d+) named '(.+)'$")
+    public void checkStreamingGet(String path, int id, String name) {
+        Item item = http.getWithStreaming(url(path), null, null, Item.class).toBlocking().single();
+
+        assertThat(item.id).isEqualTo(id);
+        assertThat(item.name).isEqualTo(name);
+    }
+
+    @Then("^streaming get '(.+)' array elements of field '(.*)' should have ids:$")
+    public void checkArrayElements(String path, String field, List<Integer> ids) {
+        List<Item> items = http.getArrayElements(url(path), null, null, field.isEmpty() ? null : field, Item.class)
+                .toList()
+                .toBlocking()
+                .single();
+
+        assertThat(items).extracting(item -> item.id).containsExactlyElementsOf(ids);
+    }
+
+    @Then("^streaming get '(.+)' array elements of field '(.*)' should be empty$")
+    public void checkEmptyArrayElements(String path, String field) {
+        checkArrayElements(path, field, Collections.emptyList());
+    }
+
+    @Then("^streaming get '(.+)' should fail with status code (\\d+)$")
+    public void checkStreamingGetError(String path, int statusCode) {
+        Throwable error = http.getWithStreaming(url(path), null, null, Item.class)
+                .map(item -> (Throwable) null)
+                .onErrorReturn(err -> err)
+                .toBlocking()
+                .single();
+
+        assertThat(error).isInstanceOf(HttpErrorStatus.class);
+        assertThat(((HttpErrorStatus) error).getStatusCode()).isEqualTo(statusCode);
+    }
+
+    @Then("^get '(.+)' as string and as streaming elements should allocate less with streaming$")
+    public void compareAllocation(String path) {
+        // Warm up both paths with a small request
+        mockResponse("/warmup", "[{\"id\":1,\"name\":\"a\"}]");
+        http.get(url("/warmup"), null, null, Item[].class).toBlocking().single();
+        http.getArrayElements(url("/warmup"), null, null, null, Item.class).count().toBlocking().single();
+
+        long start = getAllocatedBytes();
+        Item[] items = http.get(url(path), null, null, Item[].class).toBlocking().single();
+        allocatedWithString = getAllocatedBytes() - start;
+        assertThat(items).hasSize(itemCount);
+        items = null;
+
+        start = getAllocatedBytes();
+        int count = http.getArrayElements(url(path), null, null, null, Item.class).count().toBlocking().single();
+        allocatedWithStreaming = getAllocatedBytes() - start;
+        assertThat(count).isEqualTo(itemCount);
+
+        assertThat(allocatedWithStreaming)
+                .as("Allocated for %d items: %d MB with String, %d MB with streaming",
+                    itemCount, allocatedWithString >> 20, allocatedWithStreaming >> 20)
+                .isLessThan(allocatedWithString / 2);
+    }
+}
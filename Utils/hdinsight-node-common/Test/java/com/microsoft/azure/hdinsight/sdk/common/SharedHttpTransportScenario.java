@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.hdinsight.sdk.common;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class SharedHttpTransportScenario {
+    private WireMockServer httpServerMock;
+    private CloseableHttpResponse leakedResponse;
+
+    @Before
+    public void setUp() {
+        httpServerMock = new WireMockServer(wireMockConfig().dynamicPort());
+        httpServerMock.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (leakedResponse != null) {
+            leakedResponse.close();
+            leakedResponse = null;
+        }
+
+        SharedHttpTransport.setMaxConnectionsPerRoute(SharedHttpTransport.DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+        SharedHttpTransport.setConnectionRequestTimeoutMs(SharedHttpTransport.DEFAULT_CONNECTION_REQUEST_TIMEOUT_MS);
+        httpServerMock.stop();
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + httpServerMock.port() + path;
+    }
+
+    private PoolStats getRouteStats() {
+        return SharedHttpTransport.getStats(new HttpRoute(new HttpHost("localhost", httpServerMock.port())));
+    }
+
+    private static int getStatusCode(String url) throws IOException {
+        try (CloseableHttpResponse response = new HttpObservable().getHttpClient().execute(new HttpGet(url))) {
+            EntityUtils.consume(response.getEntity());
+
+            return response.getStatusLine().getStatusCode();
+        }
+    }
+
+    @Given("^mock a http service in SharedHttpTransportScenario for GET request '(.+)' to return '(.+)'$")
+    public void mockResponse(String path, String response) {
+        httpServerMock.stubFor(WireMock.get(WireMock.urlEqualTo(path))
+                .willReturn(WireMock.aResponse().withStatus(200).withBody(response)));
+    }
+
+    @Given("^the shared transport allows (\\d+) connections? per route and waits (\\d+)ms for a pooled connection$")
+    public void configureTransport(int maxPerRoute, int timeoutMs) {
+        SharedHttpTransport.setMaxConnectionsPerRoute(maxPerRoute);
+        SharedHttpTransport.setConnectionRequestTimeoutMs(timeoutMs);
+    }
+
+    @Given("^a response of '(.+)' is leaked without closing$")
+    public void leakResponse(String path) throws Throwable {
+        leakedResponse = new HttpObservable().getHttpClient().execute(new HttpGet(url(path)));
+    }
+
+    @Given("^the leaked response is closed$")
+    public void closeLeakedResponse() throws Throwable {
+        leakedResponse.close();
+        leakedResponse = null;
+    }
+
+    @Then("^(\\d+) HttpObservable instances get '(.+)' one after another with one pooled connection$")
+    public void checkConnectionReused(int count, String path) throws Throwable {
+        for (int i = 0; i < count; i++) {
+            assertThat(getStatusCode(url(path))).isEqualTo(200);
+        }
+
+        PoolStats stats = getRouteStats();
+        assertThat(stats.getLeased()).isEqualTo(0);
+        assertThat(stats.getAvailable()).isEqualTo(1);
+    }
+
+    @Then("^getting '(.+)' should fail waiting for a pooled connection$")
+    public void checkConnectionPoolTimeout(String path) {
+        Throwable error = catchThrowable(() -> getStatusCode(url(path)));
+
+        assertThat(error).isInstanceOf(ConnectionPoolTimeoutException.class);
+        assertThat(getRouteStats().getLeased()).isEqualTo(1);
+    }
+
+    @Then("^an OAuthTokenHttpObservable gets '(.+)' with the strict connection pool only$")
+    public void checkStrictPool(String path) throws Throwable {
+        final HttpRoute route = new HttpRoute(new HttpHost("localhost", httpServerMock.port()));
+
+        try (CloseableHttpResponse response =
+                     new OAuthTokenHttpObservable("token").getHttpClient().execute(new HttpGet(url(path)))) {
+            EntityUtils.consume(response.getEntity());
+            assertThat(response.getStatusLine().getStatusCode()).isEqualTo(200);
+        }
+
+        assertThat(SharedHttpTransport.getStrictConnectionManager().getStats(route).getAvailable()).isEqualTo(1);
+        assertThat(SharedHttpTransport.getStats(route).getAvailable()).isEqualTo(0);
+    }
+
+    @Then("^getting '(.+)' should succeed$")
+    public void checkGet(String path) throws Throwable {
+        assertThat(getStatusCode(url(path))).isEqualTo(200);
+    }
+}
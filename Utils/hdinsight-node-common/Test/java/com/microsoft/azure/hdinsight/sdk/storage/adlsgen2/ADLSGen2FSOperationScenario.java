@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.storage.adlsgen2;
+
+import com.microsoft.azure.hdinsight.sdk.common.HttpObservable;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ADLSGen2FSOperationScenario {
+    private static final int MB = 1024 * 1024;
+    private static final Pattern POSITION_PATTERN = Pattern.compile("position=(\\d+)");
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private long appendLatencyMs;
+
+    private File tempDir;
+    private File artifact;
+
+    // The stub file: the committed content, and the appended chunks keyed by position to be flushed
+    private ByteArrayOutputStream committed;
+    private Map<Long, byte[]> appended;
+    private List<Long> appendPositions;
+    private Map<Long, AtomicInteger> appendAttempts;
+    private Map<Long, Integer> appendFailures;
+    private List<Long> flushPositions;
+    private AtomicInteger appendsInFlight;
+    private AtomicInteger maxAppendsInFlight;
+
+    private long sequentialMs;
+    private long parallelMs;
+
+    @Before
+    public void setUp() {
+        committed = new ByteArrayOutputStream();
+        appended = new ConcurrentHashMap<>();
+        appendPositions = Collections.synchronizedList(new ArrayList<>());
+        appendAttempts = new ConcurrentHashMap<>();
+        appendFailures = new ConcurrentHashMap<>();
+        flushPositions = Collections.synchronizedList(new ArrayList<>());
+        appendsInFlight = new AtomicInteger();
+        maxAppendsInFlight = new AtomicInteger();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (server != null) {
+            server.stop(0);
+            serverExecutor.shutdownNow();
+            server = null;
+        }
+
+        if (tempDir != null) {
+            FileUtils.deleteDirectory(tempDir);
+            tempDir = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        final String query = exchange.getRequestURI().getQuery();
+        final byte[] body = IOUtils.toByteArray(exchange.getRequestBody());
+        int status = 200;
+
+        if (exchange.getRequestMethod().equals("PATCH") && query.contains("action=append")) {
+            final long position = getPosition(query);
+            final int inFlight = appendsInFlight.incrementAndGet();
+            maxAppendsInFlight.accumulateAndGet(inFlight, Math::max);
+
+            try {
+                Thread.sleep(appendLatencyMs);
+            } catch (InterruptedException ignored) {
+            }
+
+            appendsInFlight.decrementAndGet();
+            appendAttempts.computeIfAbsent(position, key -> new AtomicInteger()).incrementAndGet();
+
+            if (appendFailures.getOrDefault(position, 0) > 0) {
+                appendFailures.merge(position, -1, Integer::sum);
+                status = 500;
+            } else {
+                appended.put(position, body);
+                appendPositions.add(position);
+                status = 202;
+            }
+        } else if (exchange.getRequestMethod().equals("PATCH") && query.contains("action=flush")) {
+            final long position = getPosition(query);
+
+            synchronized (this) {
+                flushPositions.add(position);
+
+                while (committed.size() < position) {
+                    final byte[] chunk = appended.remove((long) committed.size());
+                    if (chunk == null) {
+                        status = 400;
+                        break;
+                    }
+
+                    committed.write(chunk, 0, chunk.length);
+                }
+            }
+        } else if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.getResponseHeaders().add("Content-Length", String.valueOf(committed.size()));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+
+            return;
+        }
+
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    private static long getPosition(String query) {
+        final Matcher matcher = POSITION_PATTERN.matcher(query);
+        assertThat(matcher.find()).isTrue();
+
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private String getFilePath() {
+        return String.format("http://127.0.0.1:%d/fs/SparkSubmission/job.jar", server.getAddress().getPort());
+    }
+
+    private void upload(int chunkMb, int concurrency, long flushInterval, long fromOffset) {
+        new ADLSGen2FSOperation(new HttpObservable())
+                .setAppendChunkSize(chunkMb * MB)
+                .setAppendConcurrency(concurrency)
+                .setFlushInterval(flushInterval)
+                .uploadData(getFilePath(), artifact, fromOffset)
+                .toBlocking()
+                .single();
+    }
+
+    @Given("^an ADLS Gen2 stub with (\\d+)ms latency per append$")
+    public void startStub(long latencyMs) throws IOException {
+        appendLatencyMs = latencyMs;
+        serverExecutor = Executors.newFixedThreadPool(16);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/fs", this::handle);
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @And("^a (\\d+) MB artifact to upload into ADLS Gen2$")
+    public void createArtifact(int sizeMb) throws IOException {
+        tempDir = Files.createTempDirectory("adlsGen2Upload").toFile();
+        artifact = new File(tempDir, "job.jar");
+
+        final byte[] content = new byte[sizeMb * MB];
+        new Random(sizeMb).nextBytes(content);
+        FileUtils.writeByteArrayToFile(artifact, content);
+    }
+
+    @And("^the ADLS Gen2 append at (\\d+) MB fails (\\d+) times$")
+    public void failAppend(int positionMb, int times) {
+        appendFailures.put((long) positionMb * MB, times);
+    }
+
+    @And("^the ADLS Gen2 file has the first (\\d+) MB of the artifact committed$")
+    public void commitFirst(int sizeMb) throws IOException {
+        committed.write(FileUtils.readFileToByteArray(artifact), 0, sizeMb * MB);
+    }
+
+    @When("^upload the artifact into ADLS Gen2 in (\\d+) MB chunks with (\\d+) concurrency$")
+    public void uploadArtifact(int chunkMb, int concurrency) throws IOException {
+        upload(chunkMb, concurrency, ADLSGen2FSOperation.DEFAULT_FLUSH_INTERVAL, 0);
+    }
+
+    @When("^upload the artifact into ADLS Gen2 in (\\d+) MB chunks with (\\d+) concurrency and (\\d+) MB flush interval$")
+    public void resumeArtifact(int chunkMb, int concurrency, int flushIntervalMb) throws IOException {
+        final ADLSGen2FSOperation op = new ADLSGen2FSOperation(new HttpObservable());
+        final long committedLength = op.getFileLength(getFilePath()).toBlocking().single();
+
+        upload(chunkMb, concurrency, (long) flushIntervalMb * MB, committedLength);
+    }
+
+    @When("^benchmark uploading the artifact into ADLS Gen2 in (\\d+) MB chunks with (\\d+) and (\\d+) concurrency$")
+    public void benchmark(int chunkMb, int sequentialConcurrency, int parallelConcurrency) {
+        long start = System.nanoTime();
+        upload(chunkMb, sequentialConcurrency, ADLSGen2FSOperation.DEFAULT_FLUSH_INTERVAL, 0);
+        sequentialMs = (System.nanoTime() - start) / 1000000;
+
+        committed.reset();
+
+        start = System.nanoTime();
+        upload(chunkMb, parallelConcurrency, ADLSGen2FSOperation.DEFAULT_FLUSH_INTERVAL, 0);
+        parallelMs = (System.nanoTime() - start) / 1000000;
+    }
+
+    @Then("^the ADLS Gen2 appends should be at every (\\d+) MB from (\\d+) MB$")
+    public void checkAppendPositions(int chunkMb, int fromMb) {
+        final List<Long> expected = new ArrayList<>();
+        for (long position = (long) fromMb * MB; position < artifact.length(); position += chunkMb * MB) {
+            expected.add(position);
+        }
+
+        assertThat(appendPositions).containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    @And("^the ADLS Gen2 flushes should be at '(.+)' MB$")
+    public void checkFlushPositions(String positionsMb) {
+        assertThat(flushPositions).containsExactlyElementsOf(Arrays.stream(positionsMb.split(",\\s*"))
+                .map(position -> Long.parseLong(position) * MB)
+                .collect(Collectors.toList()));
+    }
+
+    @And("^the ADLS Gen2 file should have the artifact content$")
+    public void checkContent() throws IOException {
+        assertThat(committed.toByteArray()).isEqualTo(FileUtils.readFileToByteArray(artifact));
+    }
+
+    @And("^the ADLS Gen2 appends in flight should be more than (\\d+) and no more than (\\d+)$")
+    public void checkAppendsInFlight(int min, int max) {
+        assertThat(maxAppendsInFlight.get()).isGreaterThan(min).isLessThanOrEqualTo(max);
+    }
+
+    @Then("^the ADLS Gen2 append at (\\d+) MB should be requested (\\d+) times$")
+    public void checkAppendAttempts(int positionMb, int times) {
+        assertThat(appendAttempts.get((long) positionMb * MB).get()).isEqualTo(times);
+    }
+
+    @Then("^the ADLS Gen2 parallel upload should be at least (\\d+) times faster$")
+    public void checkSpeedUp(int times) {
+        assertThat(sequentialMs)
+                .as("sequential upload %d ms vs parallel upload %d ms", sequentialMs, parallelMs)
+                .isGreaterThanOrEqualTo(parallelMs * times);
+    }
+}
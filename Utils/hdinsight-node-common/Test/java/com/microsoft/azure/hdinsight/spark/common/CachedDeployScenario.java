@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common;
+
+import com.microsoft.azure.hdinsight.common.MessageInfoType;
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import org.apache.commons.io.FileUtils;
+import rx.Observable;
+import rx.Observer;
+import rx.observers.TestSubscriber;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachedDeployScenario {
+    static class FakeStorage implements CacheableDeployable {
+        final Map<String, byte[]> objects = new HashMap<>();
+        final List<String> uploadedDestinations = new ArrayList<>();
+        final List<Integer> uploadedFrom = new ArrayList<>();
+        int breakAfter = -1;
+        private int destinationCount = 0;
+
+        @Override
+        public String getDestinationRoot() {
+            return "fake://storage/SparkSubmission/";
+        }
+
+        @Override
+        public String newDestination(File src) {
+            return getDestinationRoot() + (destinationCount++) + "/" + src.getName();
+        }
+
+        @Override
+        public Observable<String> deployTo(File src,
+                                           String destination,
+                                           Observer<AbstractMap.SimpleImmutableEntry<MessageInfoType, String>> logSubject) {
+            return Observable.fromCallable(() -> {
+                final byte[] content = Files.readAllBytes(src.toPath());
+                final byte[] uploaded = objects.getOrDefault(destination, new byte[0]);
+                final int from = uploaded.length <= content.length ? uploaded.length : 0;
+
+                uploadedDestinations.add(destination);
+                uploadedFrom.add(from);
+
+                if (breakAfter >= 0) {
+                    objects.put(destination, Arrays.copyOf(content, breakAfter));
+                    breakAfter = -1;
+
+                    throw new IOException("Connection reset");
+                }
+
+                objects.put(destination, content);
+
+                return destination + "?op=OPEN";
+            });
+        }
+
+        @Override
+        public Observable<Boolean> isDeployed(String destination, long length) {
+            return Observable.just(objects.containsKey(destination) && objects.get(destination).length == length);
+        }
+    }
+
+    private File tempDir;
+    private File artifact;
+    private File indexFile;
+    private FakeStorage storage;
+    private ArtifactDeployIndex index;
+    private List<TestSubscriber<String>> deployments;
+
+    @Before
+    public void setUp() {
+        storage = new FakeStorage();
+        deployments = new ArrayList<>();
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        if (tempDir != null) {
+            FileUtils.deleteDirectory(tempDir);
+            tempDir = null;
+        }
+    }
+
+    @Given("^a (\\d+) bytes Spark job artifact to deploy with cache$")
+    public void createArtifact(int size) throws IOException {
+        tempDir = Files.createTempDirectory("cachedDeploy").toFile();
+        artifact = new File(tempDir, "job.jar");
+        indexFile = new File(tempDir, "deployIndex.json");
+        index = new ArtifactDeployIndex(indexFile);
+
+        final byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        FileUtils.writeByteArrayToFile(artifact, content);
+    }
+
+    @And("^the storage breaks the upload after (\\d+) bytes$")
+    public void breakUpload(int bytes) {
+        storage.breakAfter = bytes;
+    }
+
+    @When("^deploy the artifact with cache (\\d+) times$")
+    public void deploy(int times) {
+        for (int i = 0; i < times; i++) {
+            final TestSubscriber<String> deployment = new TestSubscriber<>();
+            new CachedDeploy(storage, index).deploy(artifact, new TestSubscriber<>()).subscribe(deployment);
+
+            deployments.add(deployment);
+        }
+    }
+
+    @And("^change the artifact content$")
+    public void changeArtifact() throws IOException {
+        final byte[] content = FileUtils.readFileToByteArray(artifact);
+        content[0]++;
+        FileUtils.writeByteArrayToFile(artifact, content);
+
+        // Not to be taken as the same file by the modified time
+        assertThat(artifact.setLastModified(artifact.lastModified() + 2000)).isTrue();
+    }
+
+    @And("^remove the uploaded artifacts from storage$")
+    public void removeUploaded() {
+        storage.objects.clear();
+    }
+
+    @And("^reload the deploy index from file$")
+    public void reloadIndex() {
+        index = new ArtifactDeployIndex(indexFile);
+    }
+
+    @Then("^the artifact should be uploaded (\\d+) times$")
+    public void checkUploadTimes(int times) {
+        assertThat(storage.uploadedDestinations).hasSize(times);
+    }
+
+    @And("^all the deployments should get the same uploaded path$")
+    public void checkSameUploadedPath() {
+        final Set<String> paths = new HashSet<>();
+
+        deployments.forEach(deployment -> {
+            deployment.assertNoErrors();
+            paths.addAll(deployment.getOnNextEvents());
+        });
+
+        assertThat(paths).hasSize(1);
+    }
+
+    @And("^the storage should have (\\d+) artifacts$")
+    public void checkStorageObjects(int count) {
+        assertThat(storage.objects).hasSize(count);
+    }
+
+    @Then("^the first deployment should fail$")
+    public void checkFirstFailed() {
+        deployments.get(0).assertError(IOException.class);
+    }
+
+    @And("^the last upload should resume from (\\d+) bytes into the same destination$")
+    public void checkResumed(int from) {
+        assertThat(storage.uploadedDestinations).hasSize(2);
+        assertThat(storage.uploadedDestinations.get(1)).isEqualTo(storage.uploadedDestinations.get(0));
+        assertThat(storage.uploadedFrom).containsExactly(0, from);
+
+        deployments.get(1).assertNoErrors();
+        deployments.get(1).assertValue(storage.uploadedDestinations.get(0) + "?op=OPEN");
+    }
+
+    @And("^the storage should have (\\d+) artifacts with the full content$")
+    public void checkFullContent(int count) throws IOException {
+        checkStorageObjects(count);
+
+        final byte[] content = FileUtils.readFileToByteArray(artifact);
+        storage.objects.values().forEach(uploaded -> assertThat(uploaded).isEqualTo(content));
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import cucumber.api.java.After;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import rx.Observable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.UnknownServiceException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LivyBatchStatusMonitorScenario {
+    private static final Pattern LIST_QUERY_PATTERN = Pattern.compile("from=(\\d+)&size=(\\d+)");
+    private static final Pattern BATCH_PATH_PATTERN = Pattern.compile("/batches/(\\d+)");
+
+    private HttpServer server;
+
+    // Listed batches in the order of ID, and the batches got only one by one
+    private final SortedMap<Integer, String> batchStates = Collections.synchronizedSortedMap(new TreeMap<>());
+    private final Map<Integer, String> unlistedBatchStates = Collections.synchronizedMap(new HashMap<>());
+    private final Map<Integer, Integer> unlistedBatchErrorCodes = Collections.synchronizedMap(new HashMap<>());
+    private final AtomicInteger listingErrorsLeft = new AtomicInteger();
+    private int listingErrorCode;
+
+    private final AtomicInteger listRequests = new AtomicInteger();
+    private final AtomicInteger singleRequests = new AtomicInteger();
+    private Future<List<List<String>>> watched;
+    private final Map<Integer, Future<List<String>>> watchedOneByOne = new HashMap<>();
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    private void startLivyStub() throws IOException {
+        if (server != null) {
+            return;
+        }
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/batches", this::handle);
+        server.start();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        final Matcher batchMatcher = BATCH_PATH_PATTERN.matcher(exchange.getRequestURI().getPath());
+        final String query = exchange.getRequestURI().getQuery();
+        String body = null;
+        int errorCode = 404;
+
+        if (batchMatcher.matches()) {
+            singleRequests.incrementAndGet();
+
+            final int id = Integer.parseInt(batchMatcher.group(1));
+            final String state = batchStates.getOrDefault(id, unlistedBatchStates.get(id));
+
+            if (state != null) {
+                body = batchJson(id, state);
+            } else {
+                errorCode = unlistedBatchErrorCodes.getOrDefault(id, 404);
+            }
+        } else if (query != null && listingErrorsLeft.getAndDecrement() > 0) {
+            listRequests.incrementAndGet();
+            errorCode = listingErrorCode;
+        } else if (query != null) {
+            listRequests.incrementAndGet();
+
+            final Matcher queryMatcher = LIST_QUERY_PATTERN.matcher(query);
+            assertThat(queryMatcher.find()).isTrue();
+
+            final int from = Integer.parseInt(queryMatcher.group(1));
+            final int size = Integer.parseInt(queryMatcher.group(2));
+            final List<Map.Entry<Integer, String>> batches;
+
+            synchronized (batchStates) {
+                batches = new ArrayList<>(batchStates.entrySet());
+            }
+
+            body = String.format("{\"from\":%d,\"total\":%d,\"sessions\":[%s]}",
+                    from,
+                    batches.size(),
+                    batches.subList(Math.min(from, batches.size()), Math.min(from + size, batches.size())).stream()
+                            .map(batch -> batchJson(batch.getKey(), batch.getValue()))
+                            .collect(Collectors.joining(",")));
+        }
+
+        final byte[] bytes = (body == null ? "Error " + errorCode : body).getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(body == null ? errorCode : 200, bytes.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String batchJson(int id, String state) {
+        return String.format("{\"id\":%d,\"state\":\"%s\",\"appId\":null,\"log\":[]}", id, state);
+    }
+
+    @Given("^a Livy stub with (\\d+) batches from ID (\\d+) in state '(.+)'$")
+    public void createLivyStub(int count, int fromId, String state) throws Throwable {
+        for (int id = fromId; id < fromId + count; id++) {
+            batchStates.put(id, state);
+        }
+
+        startLivyStub();
+    }
+
+    @Given("^a Livy stub batch (\\d+) not listed in state '(.+)'$")
+    public void createUnlistedBatch(int id, String state) throws Throwable {
+        unlistedBatchStates.put(id, state);
+    }
+
+    @Given("^a Livy stub batch (\\d+) not listed responding (\\d+)$")
+    public void createUnlistedBatchError(int id, int errorCode) throws Throwable {
+        unlistedBatchErrorCodes.put(id, errorCode);
+    }
+
+    @Given("^the Livy stub responds (\\d+) to the first (\\d+) batches listing requests$")
+    public void failListing(int errorCode, int count) throws Throwable {
+        listingErrorCode = errorCode;
+        listingErrorsLeft.set(count);
+    }
+
+    private static SparkBatchSubmission createSubmission() throws Throwable {
+        final SparkBatchSubmission submission = mock(SparkBatchSubmission.class);
+        when(submission.getBatchSparkJobStatus(anyString(), anyInt())).thenCallRealMethod();
+        when(submission.getAllBatchesSparkJobs(anyString())).thenCallRealMethod();
+        when(submission.getHttpResponseViaGet(anyString())).thenCallRealMethod();
+        when(submission.getHttpResponseViaGet(anyString(), any(), any())).thenCallRealMethod();
+        when(submission.getHttpClient(anyBoolean())).thenCallRealMethod();
+        when(submission.getHttpClient()).thenCallRealMethod();
+
+        return submission;
+    }
+
+    private LivyBatchStatusMonitor createMonitor(int intervalMs) throws Throwable {
+        final LivyBatchStatusMonitor monitor = LivyBatchStatusMonitor.of(
+                URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/batches"), createSubmission());
+        monitor.setPollingIntervalMs(intervalMs);
+
+        return monitor;
+    }
+
+    private static List<Integer> parseIds(String ids) {
+        return Arrays.stream(ids.split(",\\s*")).map(Integer::parseInt).collect(Collectors.toList());
+    }
+
+    @When("^watch the Livy batches '(.+)' one by one with (\\d+)ms polling interval$")
+    public void watchBatchesOneByOne(String ids, int intervalMs) throws Throwable {
+        final LivyBatchStatusMonitor monitor = createMonitor(intervalMs);
+
+        for (int id : parseIds(ids)) {
+            watchedOneByOne.put(id, monitor.watch(id)
+                    .map(SparkSubmitResponse::getState)
+                    .toList()
+                    .toBlocking()
+                    .toFuture());
+        }
+    }
+
+    @When("^watch the Livy batches from ID (\\d+) to (\\d+) with (\\d+)ms polling interval$")
+    public void watchBatches(int fromId, int toId, int intervalMs) throws Throwable {
+        final LivyBatchStatusMonitor monitor = createMonitor(intervalMs);
+
+        final List<Observable<List<String>>> watches = new ArrayList<>();
+        for (int id = fromId; id <= toId; id++) {
+            watches.add(monitor.watch(id)
+                    .map(SparkSubmitResponse::getState)
+                    .toList());
+        }
+
+        watched = Observable.merge(watches).toList().toBlocking().toFuture();
+
+        // Wait for the first polling cycle done, after which the second listing request is sent
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (listRequests.get() < 2 && !watched.isDone() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @And("^the Livy stub batches turn to '(.+)' after (\\d+)ms$")
+    public void turnBatchesState(String state, int delayMs) throws Throwable {
+        Thread.sleep(delayMs);
+
+        synchronized (batchStates) {
+            batchStates.replaceAll((id, old) -> state);
+        }
+    }
+
+    @And("^the Livy stub removes the batches before ID (\\d+) after (\\d+)ms$")
+    public void removeOlderBatches(int beforeId, int delayMs) throws Throwable {
+        Thread.sleep(delayMs);
+
+        batchStates.headMap(beforeId).clear();
+    }
+
+    @Then("^all watched Livy batches should go through states '(.+)'$")
+    public void checkTransitions(String expectedStates) throws Throwable {
+        final List<String> expected = Arrays.asList(expectedStates.split(",\\s*"));
+
+        watched.get().forEach(states -> assertThat(states).isEqualTo(expected));
+    }
+
+    @Then("^the Livy batches '(.+)' should go through states '(.+)'$")
+    public void checkTransitionsOneByOne(String ids, String expectedStates) throws Throwable {
+        final List<String> expected = Arrays.asList(expectedStates.split(",\\s*"));
+
+        for (int id : parseIds(ids)) {
+            assertThat(watchedOneByOne.get(id).get(10, TimeUnit.SECONDS)).isEqualTo(expected);
+        }
+    }
+
+    @Then("^the watch of Livy batch (\\d+) should fail with '(.+)'$")
+    public void checkWatchFailure(int id, String message) throws Throwable {
+        final Throwable error = catchThrowable(() -> watchedOneByOne.get(id).get(10, TimeUnit.SECONDS));
+
+        assertThat(error).isInstanceOf(ExecutionException.class);
+        assertThat(error.getCause()).isInstanceOf(UnknownServiceException.class).hasMessageContaining(message);
+    }
+
+    @Then("^the Livy batch status monitors of one URL should be shared by the same submission only$")
+    public void checkMonitorsBySubmission() throws Throwable {
+        final URI uri = URI.create("http://127.0.0.1:8998/batches");
+        final SparkBatchSubmission submission = createSubmission();
+
+        assertThat(LivyBatchStatusMonitor.of(uri, submission)).isSameAs(LivyBatchStatusMonitor.of(uri, submission));
+        assertThat(LivyBatchStatusMonitor.of(uri, submission)).isNotSameAs(LivyBatchStatusMonitor.of(uri, createSubmission()));
+    }
+
+    @Then("^the Livy stub should get at most (\\d+) single batch status requests$")
+    public void checkMaxSingleRequests(int maxRequests) throws Throwable {
+        // Only the polls with the listing failed fall back to getting the batches one by one
+        assertThat(singleRequests.get()).isLessThanOrEqualTo(maxRequests);
+    }
+
+    @Then("^the Livy stub should get (\\d+) single batch status requests$")
+    public void checkSingleRequests(int expected) throws Throwable {
+        assertThat(singleRequests.get()).isEqualTo(expected);
+    }
+
+    @Then("^the Livy batches listing requests should be more than (\\d+)$")
+    public void checkMoreListRequests(int minRequests) throws Throwable {
+        assertThat(listRequests.get()).isGreaterThan(minRequests);
+    }
+
+    @Then("^the Livy batches listing requests should be fewer than (\\d+)$")
+    public void checkListRequests(int maxRequests) throws Throwable {
+        assertThat(listRequests.get()).isLessThan(maxRequests);
+    }
+}
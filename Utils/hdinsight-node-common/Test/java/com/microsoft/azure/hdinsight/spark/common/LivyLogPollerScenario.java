@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common;
+
+import cucumber.api.java.Before;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import rx.Observable;
+import rx.Subscription;
+
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LivyLogPollerScenario {
+    private List<String> lines;
+    private List<Integer> pageSizes;
+    private List<Long> fetchTimes;
+    private AtomicInteger probes;
+    private Set<String> pollingThreads;
+    private List<List<String>> jobLines;
+
+    @Before
+    public void setUp() {
+        lines = Collections.synchronizedList(new ArrayList<>());
+        pageSizes = Collections.synchronizedList(new ArrayList<>());
+        fetchTimes = Collections.synchronizedList(new ArrayList<>());
+        probes = new AtomicInteger();
+        pollingThreads = ConcurrentHashMap.newKeySet();
+        jobLines = new ArrayList<>();
+    }
+
+    private LivyLogPoller createPoller(List<String> source, int[] offset, LivyLogPoller.StateProbe probe, long idleMs) {
+        return new LivyLogPoller(
+                () -> offset[0],
+                (from, size) -> {
+                    synchronized (source) {
+                        return new ArrayList<>(source.subList(Math.min(from, source.size()),
+                                                              Math.min(from + size, source.size())));
+                    }
+                },
+                (from, size) -> {
+                    pollingThreads.add(Thread.currentThread().getName());
+                    offset[0] += size;
+                    return true;
+                },
+                probe,
+                idleMs);
+    }
+
+    @Given("^poll Livy logs with (\\d+) backlogged lines and (\\d+)ms idle interval$")
+    public void pollBackloggedLogs(int lineCount, int idleMs) throws Throwable {
+        List<String> source = IntStream.range(0, lineCount)
+                .mapToObj(i -> "line " + i)
+                .collect(Collectors.toList());
+        int[] offset = { 0 };
+
+        new LivyLogPoller(
+                () -> offset[0],
+                (from, size) -> {
+                    pageSizes.add(size);
+                    return source.subList(Math.min(from, source.size()), Math.min(from + size, source.size()));
+                },
+                (from, size) -> {
+                    offset[0] += size;
+                    return true;
+                },
+                () -> Observable.just(false),
+                idleMs)
+                .poll()
+                .toBlocking()
+                .subscribe(lines::add);
+    }
+
+    @Then("^all (\\d+) Livy log lines should be polled in order$")
+    public void checkPolledLines(int lineCount) throws Throwable {
+        assertThat(lines).hasSize(lineCount);
+
+        for (int i = 0; i < lineCount; i++) {
+            assertThat(lines.get(i)).isEqualTo("line " + i);
+        }
+    }
+
+    @Then("^the Livy log page sizes should be '(.*)'$")
+    public void checkPageSizes(String expectedSizes) throws Throwable {
+        List<Integer> expected = Arrays.stream(expectedSizes.split(",\\s*"))
+                .map(Integer::parseInt)
+                .collect(Collectors.toList());
+
+        // The draining fetches after the last full page
+        assertThat(pageSizes.subList(0, expected.size())).isEqualTo(expected);
+    }
+
+    @Given("^poll Livy logs with no log and (\\d+) idle probes with (\\d+)ms idle interval$")
+    public void pollIdleLogs(int idleProbes, int idleMs) throws Throwable {
+        new LivyLogPoller(
+                () -> 0,
+                (from, size) -> {
+                    fetchTimes.add(System.nanoTime());
+                    pageSizes.add(size);
+                    return Collections.emptyList();
+                },
+                (from, size) -> true,
+                () -> Observable.fromCallable(() -> probes.incrementAndGet() <= idleProbes),
+                idleMs)
+                .poll()
+                .toBlocking()
+                .subscribe(lines::add);
+    }
+
+    @Then("^the Livy log state should be probed (\\d+) times$")
+    public void checkProbes(int expectedProbes) throws Throwable {
+        assertThat(probes.get()).isEqualTo(expectedProbes);
+        assertThat(lines).isEmpty();
+        assertThat(pageSizes).containsOnly(LivyLogPoller.MIN_PAGE_SIZE);
+    }
+
+    @Then("^the Livy log idle intervals should grow from (\\d+)ms up to (\\d+)ms$")
+    public void checkIdleIntervals(int minMs, int maxMs) throws Throwable {
+        List<Long> intervalsMs = new ArrayList<>();
+        for (int i = 1; i < fetchTimes.size(); i++) {
+            intervalsMs.add((fetchTimes.get(i) - fetchTimes.get(i - 1)) / 1000000);
+        }
+
+        // The intervals are doubled for each idle probe, and the last draining fetch is without waiting
+        assertThat(intervalsMs.get(0)).isGreaterThanOrEqualTo(minMs - 1);
+        assertThat(intervalsMs.get(3)).isGreaterThanOrEqualTo(maxMs - 1);
+        assertThat(intervalsMs.get(4)).isGreaterThanOrEqualTo(maxMs - 1).isLessThan(maxMs * 2);
+        assertThat(intervalsMs.get(intervalsMs.size() - 1)).isLessThan(minMs);
+    }
+
+    @Given("^poll Livy logs of (\\d+) jobs with (\\d+) lines per (\\d+)ms$")
+    public void pollManyJobs(int jobCount, int linesPerTick, int tickMs) throws Throwable {
+        List<Observable<List<String>>> polls = new ArrayList<>();
+        List<List<String>> sources = new ArrayList<>();
+
+        for (int job = 0; job < jobCount; job++) {
+            List<String> source = new ArrayList<>();
+            AtomicInteger ticks = new AtomicInteger();
+            sources.add(source);
+
+            polls.add(createPoller(source, new int[] { 0 }, () -> Observable.fromCallable(() -> ticks.incrementAndGet() <= 20), tickMs)
+                    .poll()
+                    .toList());
+        }
+
+        // The jobs produce logs while they are polled
+        Future<List<List<String>>> polled = Observable.merge(polls).toList().toBlocking().toFuture();
+        Thread producer = new Thread(() -> {
+            try {
+                for (int tick = 0; tick < 20; tick++) {
+                    for (List<String> source : sources) {
+                        synchronized (source) {
+                            for (int i = 0; i < linesPerTick; i++) {
+                                source.add("line " + source.size());
+                            }
+                        }
+                    }
+
+                    Thread.sleep(tickMs);
+                }
+            } catch (InterruptedException ignored) {
+            }
+        });
+        producer.start();
+        producer.join();
+
+        jobLines = polled.get();
+    }
+
+    @Then("^all Livy log pollers should get (\\d+) lines without more than (\\d+) polling threads$")
+    public void checkManyJobs(int lineCount, int maxThreads) throws Throwable {
+        assertThat(jobLines).hasSize(200);
+        jobLines.forEach(jobLog -> assertThat(jobLog).hasSize(lineCount));
+        assertThat(pollingThreads.size()).isLessThanOrEqualTo(maxThreads);
+        assertThat(pollingThreads).allMatch(name -> name.startsWith("livy-log-poller-"));
+    }
+
+    @Given("^poll Livy logs with (\\d+) backlogged lines while (\\d+) other pollers wait for their state probes$")
+    public void pollWithPendingProbes(int lineCount, int waitingPollers) throws Throwable {
+        List<Subscription> waiting = new ArrayList<>();
+
+        for (int i = 0; i < waitingPollers; i++) {
+            // The state probe never returns, such as a job status not got yet
+            waiting.add(createPoller(new ArrayList<>(), new int[] { 0 }, Observable::never, 10)
+                    .poll()
+                    .subscribe());
+        }
+
+        List<String> source = IntStream.range(0, lineCount)
+                .mapToObj(i -> "line " + i)
+                .collect(Collectors.toList());
+
+        try {
+            createPoller(source, new int[] { 0 }, () -> Observable.just(false), 10)
+                    .poll()
+                    .timeout(10, TimeUnit.SECONDS)
+                    .toBlocking()
+                    .subscribe(lines::add);
+        } finally {
+            waiting.forEach(Subscription::unsubscribe);
+        }
+    }
+
+    @Given("^poll Livy logs with (\\d+) backlogged lines while (\\d+) other pollers' log fetches stall$")
+    public void pollWithStalledFetches(int lineCount, int stalledPollers) throws Throwable {
+        CountDownLatch stall = new CountDownLatch(1);
+        List<Subscription> stalled = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < stalledPollers; i++) {
+                // The log fetch hangs, such as a Livy connection without response
+                stalled.add(new LivyLogPoller(
+                        () -> 0,
+                        (from, size) -> {
+                            try {
+                                stall.await();
+                            } catch (InterruptedException ex) {
+                                throw new InterruptedIOException();
+                            }
+
+                            return Collections.emptyList();
+                        },
+                        (from, size) -> true,
+                        () -> Observable.just(false),
+                        10)
+                        .poll()
+                        .subscribe(line -> {}, err -> {}));
+            }
+
+            List<String> source = IntStream.range(0, lineCount)
+                    .mapToObj(i -> "line " + i)
+                    .collect(Collectors.toList());
+
+            createPoller(source, new int[] { 0 }, () -> Observable.just(false), 10)
+                    .poll()
+                    .timeout(10, TimeUnit.SECONDS)
+                    .toBlocking()
+                    .subscribe(lines::add);
+        } finally {
+            stall.countDown();
+            stalled.forEach(Subscription::unsubscribe);
+        }
+    }
+}
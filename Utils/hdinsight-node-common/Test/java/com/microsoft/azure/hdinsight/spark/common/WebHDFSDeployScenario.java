@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common;
+
+import com.microsoft.azure.hdinsight.common.MessageInfoType;
+import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
+import com.microsoft.azure.hdinsight.sdk.common.HttpObservable;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import rx.observers.TestSubscriber;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.AbstractMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class WebHDFSDeployScenario {
+    private static final long MB = 1024 * 1024;
+    private static final Pattern PERCENTAGE_PATTERN = Pattern.compile("\\((\\d+)%\\)$");
+
+    private HttpServer server;
+    private File tempDir;
+    private File artifact;
+
+    private AtomicLong receivedBytes;
+    private AtomicBoolean isExpectContinue;
+    private long heapBaseline;
+    private long heapPeak;
+    private TestSubscriber<AbstractMap.SimpleImmutableEntry<MessageInfoType, String>> logs;
+    private TestSubscriber<String> deployed;
+
+    @Before
+    public void setUp() {
+        receivedBytes = new AtomicLong();
+        isExpectContinue = new AtomicBoolean();
+        logs = new TestSubscriber<>();
+        deployed = new TestSubscriber<>();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+
+        if (tempDir != null) {
+            FileUtils.deleteDirectory(tempDir);
+            tempDir = null;
+        }
+    }
+
+    private void handleNameNode(HttpExchange exchange) throws IOException {
+        final String query = exchange.getRequestURI().getQuery();
+        IOUtils.toByteArray(exchange.getRequestBody());
+
+        if (query.contains("op=CREATE")) {
+            exchange.getResponseHeaders().add("Location", String.format("http://127.0.0.1:%d/datanode%s?%s",
+                    server.getAddress().getPort(), exchange.getRequestURI().getPath(), query));
+            exchange.sendResponseHeaders(307, -1);
+        } else {
+            exchange.sendResponseHeaders(200, -1);
+        }
+
+        exchange.close();
+    }
+
+    private void handleDataNode(HttpExchange exchange) throws IOException {
+        isExpectContinue.set("100-continue".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Expect")));
+
+        final byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                receivedBytes.addAndGet(read);
+            }
+        }
+
+        exchange.sendResponseHeaders(201, -1);
+        exchange.close();
+    }
+
+    @Given("^a WebHDFS stub$")
+    public void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/webhdfs", this::handleNameNode);
+        server.createContext("/datanode", this::handleDataNode);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @And("^a (\\d+) MB sparse artifact to deploy by WebHDFS$")
+    public void createArtifact(long sizeMb) throws IOException {
+        tempDir = Files.createTempDirectory("webHdfsDeploy").toFile();
+        artifact = new File(tempDir, "job.jar");
+
+        try (RandomAccessFile file = new RandomAccessFile(artifact, "rw")) {
+            file.setLength(sizeMb * MB);
+        }
+    }
+
+    @When("^deploy the artifact by WebHDFS$")
+    public void deploy() throws InterruptedException {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        final WebHDFSDeploy deploy = new WebHDFSDeploy(
+                mock(IClusterDetail.class),
+                new HttpObservable(),
+                String.format("http://127.0.0.1:%d/webhdfs/v1/SparkSubmission/", server.getAddress().getPort()));
+
+        System.gc();
+        heapBaseline = memory.getHeapMemoryUsage().getUsed();
+        heapPeak = heapBaseline;
+
+        final AtomicBoolean isDone = new AtomicBoolean();
+        final Thread sampler = new Thread(() -> {
+            while (!isDone.get()) {
+                heapPeak = Math.max(heapPeak, memory.getHeapMemoryUsage().getUsed());
+
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException ignored) {
+                    return;
+                }
+            }
+        });
+        sampler.start();
+
+        deploy.deploy(artifact, logs).subscribe(deployed);
+        deployed.awaitTerminalEvent();
+
+        isDone.set(true);
+        sampler.join();
+
+        deployed.assertNoErrors();
+    }
+
+    @Then("^the WebHDFS stub should receive all the artifact bytes with 100-continue$")
+    public void checkReceived() {
+        assertThat(receivedBytes.get()).isEqualTo(artifact.length());
+        assertThat(isExpectContinue.get()).isTrue();
+    }
+
+    @And("^the heap used during deploying by WebHDFS should grow less than (\\d+) MB$")
+    public void checkHeap(long limitMb) {
+        assertThat(heapPeak - heapBaseline).isLessThan(limitMb * MB);
+    }
+
+    @And("^the WebHDFS deploy progress should be reported up to 100%$")
+    public void checkProgress() {
+        final List<AbstractMap.SimpleImmutableEntry<MessageInfoType, String>> messages = logs.getOnNextEvents();
+        assertThat(messages.size()).isGreaterThanOrEqualTo(10);
+
+        int lastPercentage = -1;
+        for (AbstractMap.SimpleImmutableEntry<MessageInfoType, String> message : messages) {
+            assertThat(message.getKey()).isEqualTo(MessageInfoType.Info);
+
+            final Matcher matcher = PERCENTAGE_PATTERN.matcher(message.getValue());
+            assertThat(matcher.find()).isTrue();
+
+            final int percentage = Integer.parseInt(matcher.group(1));
+            assertThat(percentage).isGreaterThan(lastPercentage);
+            lastPercentage = percentage;
+        }
+
+        assertThat(lastPercentage).isEqualTo(100);
+    }
+
+    @And("^the WebHDFS deploy progress should be reported (\\d+) times$")
+    public void checkProgressTimes(int times) {
+        assertThat(logs.getOnNextEvents()).hasSize(times);
+        assertThat(logs.getOnNextEvents().get(times - 1).getValue()).endsWith("(100%)");
+    }
+
+    @And("^the WebHDFS deploy should get the uploaded path ending with '(.+)'$")
+    public void checkUploadedPath(String suffix) {
+        deployed.assertValueCount(1);
+        assertThat(deployed.getOnNextEvents().get(0)).endsWith(suffix);
+    }
+}
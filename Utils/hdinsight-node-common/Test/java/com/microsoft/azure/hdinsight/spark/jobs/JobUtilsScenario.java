@@ -28,6 +28,7 @@ import cucumber.api.java.en.Given;
 import cucumber.api.java.en.Then;
 import org.apache.http.client.CredentialsProvider;
 
+import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -46,6 +47,12 @@ public class JobUtilsScenario {
         httpServerMock.stub(action, serviceUrl, statusCode, response);
     }
 
+    @Given("^mock a http service in JobUtilsScenario for (.+) request '(.+)' to return plain text '(.+)' with status code (\\d+)$")
+    public void mockHttpServiceWithPlainText(String action, String serviceUrl, String response, int statusCode) throws Throwable {
+        httpServerMock.stubWithHeader(
+                action, serviceUrl, statusCode, response, Collections.singletonMap("Content-Type", "text/plain"));
+    }
+
     @Then("^Yarn log observable from '(.*)' should produce events:$")
     public void checkYarnLogObservable(String logUrl, List<String> logs) throws Throwable {
         List<String> logsGot = JobUtils.createYarnLogObservable(null, null, httpServerMock.completeUrl(logUrl), "stderr", 10)
@@ -77,4 +84,14 @@ public class JobUtilsScenario {
 
         assertThat(actual).isEqualTo(expect);
     }
+
+    @Then("^the complete chars length of '(.*)' followed by (\\d+) replacement chars should be (\\d+)$")
+    public void checkCompleteCharsLength(String logs, int replacementCount, int expect) throws Throwable {
+        StringBuilder window = new StringBuilder(logs);
+        for (int i = 0; i < replacementCount; i++) {
+            window.append('\uFFFD');
+        }
+
+        assertThat(YarnContainerLogTailer.completeCharsLength(window.toString())).isEqualTo(expect);
+    }
 }
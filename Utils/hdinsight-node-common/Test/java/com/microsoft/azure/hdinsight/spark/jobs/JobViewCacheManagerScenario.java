@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.task.Task;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import rx.subjects.PublishSubject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JobViewCacheManagerScenario {
+    private final AtomicInteger fetchCount = new AtomicInteger();
+    private PublishSubject<List<Task>> blockedFetching;
+    private List<List<Task>> subscriberTasks;
+
+    @Before
+    public void setUp() {
+        fetchCount.set(0);
+        blockedFetching = PublishSubject.create();
+        subscriberTasks = new ArrayList<>();
+    }
+
+    private static ApplicationKey createKey(String clusterUrl, String appId) {
+        IClusterDetail cluster = mock(IClusterDetail.class);
+        when(cluster.getName()).thenReturn(clusterUrl);
+        when(cluster.getConnectionUrl()).thenReturn(clusterUrl);
+
+        return new ApplicationKey(cluster, appId);
+    }
+
+    @Given("^(\\d+) subscribers fetch the tasks of application '(.+)' on cluster '(.+)' while the fetching is blocked$")
+    public void fetchTasksConcurrently(int subscriberCount, String appId, String clusterUrl) throws Throwable {
+        for (int i = 0; i < subscriberCount; i++) {
+            // Every subscriber has its own key instance, with the application ID in different cases
+            String id = i % 2 == 0 ? appId : appId.toUpperCase();
+            List<Task> tasks = Collections.synchronizedList(new ArrayList<>());
+            subscriberTasks.add(tasks);
+
+            JobViewCacheManager.fetchTasksByStages(createKey(clusterUrl, id), key -> {
+                fetchCount.incrementAndGet();
+
+                return blockedFetching;
+            }).subscribe(tasks::addAll);
+        }
+    }
+
+    @Given("^the blocked tasks fetching emits (\\d+) stages with one task each and completes$")
+    public void completeBlockedFetching(int stageCount) throws Throwable {
+        IntStream.range(0, stageCount).forEach(i -> blockedFetching.onNext(Collections.singletonList(new Task())));
+        blockedFetching.onCompleted();
+    }
+
+    @Then("^the tasks fetching should be called (\\d+) times?$")
+    public void checkFetchCount(int expect) throws Throwable {
+        assertThat(fetchCount.get()).isEqualTo(expect);
+    }
+
+    @Then("^every subscriber should get (\\d+) tasks$")
+    public void checkSubscriberTasks(int expect) throws Throwable {
+        assertThat(subscriberTasks.stream().map(List::size).collect(Collectors.toList()))
+                .isNotEmpty()
+                .containsOnly(expect);
+    }
+
+    @Then("^the tasks fetching of application '(.+)' on cluster '(.+)' should( not)? be in flight$")
+    public void checkInFlight(String appId, String clusterUrl, String not) throws Throwable {
+        assertThat(JobViewCacheManager.isTasksFetchingInFlight(createKey(clusterUrl, appId))).isEqualTo(not == null);
+    }
+
+    @Then("^application key '(.+)' on cluster '(.+)' should( not)? equal application key '(.+)' on cluster '(.+)'$")
+    public void checkKeyEquality(String appId, String clusterUrl, String not, String thatAppId, String thatClusterUrl)
+            throws Throwable {
+        ApplicationKey key = createKey(clusterUrl, appId);
+        ApplicationKey that = createKey(thatClusterUrl, thatAppId);
+
+        if (not == null) {
+            assertThat(key).isEqualTo(that);
+            assertThat(key.hashCode()).isEqualTo(that.hashCode());
+        } else {
+            assertThat(key).isNotEqualTo(that);
+        }
+    }
+}
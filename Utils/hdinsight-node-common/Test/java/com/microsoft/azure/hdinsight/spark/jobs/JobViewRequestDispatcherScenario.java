@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.sun.net.httpserver.HttpServer;
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import org.apache.commons.io.IOUtils;
+import rx.Observable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobViewRequestDispatcherScenario {
+    private HttpServer server;
+    private final AtomicInteger loadCount = new AtomicInteger();
+    private CountDownLatch loadLatch;
+    private HttpURLConnection lastConnection;
+    private String lastBody;
+    private String lastEtag;
+
+    @Before
+    public void setUp() throws Exception {
+        loadCount.set(0);
+        loadLatch = new CountDownLatch(0);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/items", httpExchange -> JobViewRequestDispatcher.dispatchJson(
+                httpExchange, "test_items", () -> {
+                    loadCount.incrementAndGet();
+                    loadLatch.await(10, TimeUnit.SECONDS);
+
+                    List<String> items = new ArrayList<>();
+                    for (int i = 0; i < 200; i++) {
+                        items.add("item" + i);
+                    }
+
+                    return items;
+                }));
+        server.createContext("/stream", httpExchange -> JobViewRequestDispatcher.dispatchJsonArrayStream(
+                httpExchange, "test_stream", () -> Observable.just(Arrays.asList("item0", "item1"))
+                        .concatWith(Observable.error(new IOException("stage 3 failed")))));
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private HttpURLConnection open(String path) throws Exception {
+        URL url = new URL("http", "127.0.0.1", server.getAddress().getPort(), path);
+
+        return (HttpURLConnection) url.openConnection();
+    }
+
+    @Given("^the Job View dispatcher loading is blocked$")
+    public void blockLoading() {
+        loadLatch = new CountDownLatch(1);
+    }
+
+    @Given("^send (\\d+) concurrent Job View requests to '(.+)' and unblock the loading$")
+    public void sendConcurrentRequests(int count, String path) throws Throwable {
+        ExecutorService clients = Executors.newFixedThreadPool(count);
+        List<Future<Integer>> responses = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            responses.add(clients.submit(() -> open(path).getResponseCode()));
+        }
+
+        // Wait for the first loading starting, then all requests are in flight
+        while (loadCount.get() == 0) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+        loadLatch.countDown();
+
+        for (Future<Integer> response : responses) {
+            assertThat(response.get(10, TimeUnit.SECONDS)).isEqualTo(200);
+        }
+
+        clients.shutdown();
+    }
+
+    @Given("^send Job View request to '(.+)' with header '(.+)' as '(.*)'$")
+    public void sendRequest(String path, String header, String value) throws Throwable {
+        lastConnection = open(path);
+        if (!value.isEmpty()) {
+            lastConnection.setRequestProperty(header, value.equals("$etag") ? lastEtag : value);
+        }
+
+        if (lastConnection.getResponseCode() == 200) {
+            try (InputStream in = "gzip".equals(lastConnection.getContentEncoding())
+                    ? new GZIPInputStream(lastConnection.getInputStream())
+                    : lastConnection.getInputStream()) {
+                lastBody = IOUtils.toString(in, StandardCharsets.UTF_8);
+            }
+
+            lastEtag = lastConnection.getHeaderField("ETag");
+        }
+    }
+
+    @Then("^the Job View response should be (\\d+) with content encoding '(.*)'$")
+    public void checkResponse(int code, String encoding) throws Throwable {
+        assertThat(lastConnection.getResponseCode()).isEqualTo(code);
+        assertThat(String.valueOf(lastConnection.getContentEncoding())).isEqualTo(encoding);
+
+        if (code == 200) {
+            assertThat(lastBody).startsWith("[\"item0\",\"item1\"").endsWith("\"item199\"]");
+            assertThat(lastEtag).isNotEmpty();
+        }
+    }
+
+    @Then("^the Job View response body should be '(.*)'$")
+    public void checkResponseBody(String body) throws Throwable {
+        assertThat(lastBody).isEqualTo(body);
+    }
+
+    @Then("^the Job View loading should be called (\\d+) times?$")
+    public void checkLoadCount(int count) {
+        assertThat(loadCount.get()).isEqualTo(count);
+        assertThat(JobViewRequestDispatcher.getAverageLatencyMs("test_items")).isGreaterThan(0);
+    }
+}
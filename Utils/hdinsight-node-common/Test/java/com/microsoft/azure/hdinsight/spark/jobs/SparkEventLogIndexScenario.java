@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import cucumber.api.java.Before;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SparkEventLogIndexScenario {
+    private byte[] eventLog;
+    private SparkEventLogIndex index;
+    private List<String> collected;
+
+    @Before
+    public void setUp() {
+        eventLog = new byte[0];
+        index = null;
+        collected = new ArrayList<>();
+    }
+
+    @Given("^Spark event log lines are:$")
+    public void setEventLogLines(List<String> lines) throws Throwable {
+        eventLog = lines.stream()
+                .collect(Collectors.joining("\n"))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Given("^build Spark event log index collecting '(.+)'$")
+    public void buildIndex(String type) throws Throwable {
+        try (InputStream in = new ByteArrayInputStream(eventLog)) {
+            index = SparkEventLogIndex.build("app_1", eventLog.length, in,
+                    EnumSet.of(SparkEventLogIndex.EventType.valueOf(type)), (t, line) -> collected.add(line));
+        }
+    }
+
+    @Given("^save and reload the Spark event log index$")
+    public void saveAndReloadIndex() throws Throwable {
+        File file = File.createTempFile("eventLogs", ".idx");
+        file.deleteOnExit();
+
+        index.save(file);
+        index = SparkEventLogIndex.load(file).orElse(null);
+
+        assertThat(index).isNotNull();
+        assertThat(index.getEntryName()).isEqualTo("app_1");
+        assertThat(index.getSourceLength()).isEqualTo(eventLog.length);
+    }
+
+    @Then("^the Spark event log index should have (\\d+) events and (\\d+) '(.+)' events$")
+    public void checkIndexSize(int size, int count, String type) throws Throwable {
+        assertThat(index.size()).isEqualTo(size);
+        assertThat(index.count(SparkEventLogIndex.EventType.valueOf(type))).isEqualTo(count);
+    }
+
+    @Then("^the collected Spark events should be the same as read by index '(.+)'$")
+    public void checkCollectedEvents(String type) throws Throwable {
+        try (InputStream in = new ByteArrayInputStream(eventLog)) {
+            List<String> events = index.readEvents(in, SparkEventLogIndex.EventType.valueOf(type));
+
+            assertThat(events).containsExactlyElementsOf(collected);
+        }
+    }
+
+    @Then("^the Spark events read by index '(.+)' should have Job IDs:$")
+    public void checkJobIds(String type, List<String> jobIds) throws Throwable {
+        try (InputStream in = new ByteArrayInputStream(eventLog)) {
+            List<String> events = index.readEvents(in, SparkEventLogIndex.EventType.valueOf(type));
+
+            assertThat(events.stream()
+                    .map(event -> event.replaceAll(".*\"Job ID\":(\\d+).*", "$1"))
+                    .collect(Collectors.toList()))
+                    .containsExactlyElementsOf(jobIds);
+        }
+    }
+}
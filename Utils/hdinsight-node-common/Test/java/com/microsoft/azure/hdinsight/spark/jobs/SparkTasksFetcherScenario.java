@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.microsoft.azure.hdinsight.sdk.rest.spark.stage.Stage;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.task.Task;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SparkTasksFetcherScenario {
+    private final AtomicInteger concurrentRequests = new AtomicInteger();
+    private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+    private List<List<Task>> stageTasks;
+    private Throwable error;
+
+    @Before
+    public void setUp() {
+        concurrentRequests.set(0);
+        maxConcurrentRequests.set(0);
+        stageTasks = Collections.synchronizedList(new ArrayList<>());
+        error = null;
+    }
+
+    @Given("^fetch tasks of (\\d+) stages from cluster '(.+)' with max (\\d+) concurrent requests and (\\d+)ms latency$")
+    public void fetchTasks(int stageCount, String clusterName, int maxConcurrent, int latencyMs) throws Throwable {
+        fetchTasksWithFailures(stageCount, clusterName, maxConcurrent, latencyMs, "");
+    }
+
+    @Given("^fetch tasks of (\\d+) stages from cluster '(.+)' with max (\\d+) concurrent requests and (\\d+)ms latency, failing stages (.+)$")
+    public void fetchTasksWithFailures(int stageCount,
+                                       String clusterName,
+                                       int maxConcurrent,
+                                       int latencyMs,
+                                       String failedStages) throws Throwable {
+        Set<String> failedStageIds = new HashSet<>(Arrays.asList(failedStages.split(",")));
+
+        SparkTasksFetcher.setMaxConcurrentRequests(clusterName, maxConcurrent);
+
+        List<Stage> stages = IntStream.range(0, stageCount)
+                .mapToObj(i -> {
+                    Stage stage = new Stage();
+                    stage.setStageId(i);
+
+                    return stage;
+                })
+                .collect(Collectors.toList());
+
+        SparkTasksFetcher.fetch(clusterName, stages, stage -> {
+            maxConcurrentRequests.accumulateAndGet(concurrentRequests.incrementAndGet(), Math::max);
+
+            try {
+                Thread.sleep(latencyMs);
+            } finally {
+                concurrentRequests.decrementAndGet();
+            }
+
+            if (failedStageIds.contains(String.valueOf(stage.getStageId()))) {
+                throw new IOException("stage " + stage.getStageId() + " failed");
+            }
+
+            return Collections.singletonList(new Task());
+        })
+                .toBlocking()
+                .subscribe(stageTasks::add, err -> error = err);
+    }
+
+    @Then("^all (\\d+) stage tasks should be fetched with no more than (\\d+) concurrent requests$")
+    public void checkFetchedTasks(int stageCount, int maxConcurrent) throws Throwable {
+        assertThat(error).isNull();
+        assertThat(stageTasks).hasSize(stageCount);
+        assertThat(maxConcurrentRequests.get()).isBetween(2, maxConcurrent);
+    }
+
+    @Then("^(\\d+) stage tasks should be fetched and the stages (.+) should be reported as failed$")
+    public void checkFailedStages(int stageCount, String failedStages) throws Throwable {
+        assertThat(stageTasks).hasSize(stageCount);
+        assertThat(error).isInstanceOf(StageTasksFetchException.class);
+        assertThat(((StageTasksFetchException) error).getFailedStages()).containsOnly(failedStages.split(","));
+    }
+}
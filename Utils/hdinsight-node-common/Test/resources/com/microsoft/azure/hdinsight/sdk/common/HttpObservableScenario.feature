@@ -0,0 +1,28 @@
+Feature: HttpObservable Testing
+
+  Scenario: streaming get deserializes the object from response stream
+    Given mock a http service in HttpObservableScenario for GET request '/item/1' to return '{"id":1,"name":"first"}'
+    Then streaming get '/item/1' should return item 1 named 'first'
+
+  Scenario: streaming get propagates the HTTP error status
+    Given mock a http service in HttpObservableScenario for GET request '/item/1' to return '{"id":1,"name":"first"}'
+    Then streaming get '/item/2' should fail with status code 404
+
+  Scenario: get array elements one by one from the top level array or the array field
+    Given mock a http service in HttpObservableScenario for GET request '/items' to return '[{"id":1},{"id":2},{"id":3}]'
+    And mock a http service in HttpObservableScenario for GET request '/items/value' to return '{"nextLink":{"a":[1]},"value":[{"id":4},{"id":5}],"count":2}'
+    And mock a http service in HttpObservableScenario for GET request '/items/empty' to return '{"count":0}'
+    Then streaming get '/items' array elements of field '' should have ids:
+      | 1 |
+      | 2 |
+      | 3 |
+    And streaming get '/items/value' array elements of field 'value' should have ids:
+      | 4 |
+      | 5 |
+    And streaming get '/items/empty' array elements of field 'value' should be empty
+
+  # The allocation benchmark depends on GC and JIT, run it manually with: -Dcucumber.options="--tags @benchmark"
+  @benchmark
+  Scenario: streaming the elements of a 50 MB JSON array allocates much less than reading it into String
+    Given mock a http service in HttpObservableScenario for GET request '/items/large' to return a JSON array of 50 MB
+    Then get '/items/large' as string and as streaming elements should allocate less with streaming
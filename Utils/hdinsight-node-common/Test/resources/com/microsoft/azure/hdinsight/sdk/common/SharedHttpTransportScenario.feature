@@ -0,0 +1,17 @@
+Feature: SharedHttpTransport Testing
+
+  Scenario: the HttpObservable instances share the pooled connections
+    Given mock a http service in SharedHttpTransportScenario for GET request '/shared' to return 'ok'
+    Then 5 HttpObservable instances get '/shared' one after another with one pooled connection
+
+  Scenario: a leaked response doesn't block the later requests forever
+    Given mock a http service in SharedHttpTransportScenario for GET request '/leaked' to return 'ok'
+    And the shared transport allows 1 connection per route and waits 300ms for a pooled connection
+    And a response of '/leaked' is leaked without closing
+    Then getting '/leaked' should fail waiting for a pooled connection
+    Given the leaked response is closed
+    Then getting '/leaked' should succeed
+
+  Scenario: the Azure requests with the bearer tokens don't share the cluster connection pool
+    Given mock a http service in SharedHttpTransportScenario for GET request '/token' to return 'ok'
+    Then an OAuthTokenHttpObservable gets '/token' with the strict connection pool only
@@ -0,0 +1,36 @@
+Feature: ADLSGen2FSOperation Testing
+
+  Scenario: append the chunks in parallel at their positions and flush once
+    Given an ADLS Gen2 stub with 20ms latency per append
+    And a 10 MB artifact to upload into ADLS Gen2
+    When upload the artifact into ADLS Gen2 in 1 MB chunks with 4 concurrency
+    Then the ADLS Gen2 appends should be at every 1 MB from 0 MB
+    And the ADLS Gen2 flushes should be at '10' MB
+    And the ADLS Gen2 file should have the artifact content
+    And the ADLS Gen2 appends in flight should be more than 1 and no more than 4
+
+  Scenario: retry the failed chunks individually
+    Given an ADLS Gen2 stub with 0ms latency per append
+    And a 6 MB artifact to upload into ADLS Gen2
+    And the ADLS Gen2 append at 3 MB fails 2 times
+    When upload the artifact into ADLS Gen2 in 1 MB chunks with 4 concurrency
+    Then the ADLS Gen2 append at 3 MB should be requested 3 times
+    And the ADLS Gen2 append at 2 MB should be requested 1 times
+    And the ADLS Gen2 file should have the artifact content
+
+  Scenario: flush per interval and resume from the committed length
+    Given an ADLS Gen2 stub with 0ms latency per append
+    And a 10 MB artifact to upload into ADLS Gen2
+    And the ADLS Gen2 file has the first 3 MB of the artifact committed
+    When upload the artifact into ADLS Gen2 in 1 MB chunks with 2 concurrency and 4 MB flush interval
+    Then the ADLS Gen2 appends should be at every 1 MB from 3 MB
+    And the ADLS Gen2 flushes should be at '7, 10' MB
+    And the ADLS Gen2 file should have the artifact content
+
+  # The wall-clock benchmark, run it manually with: -Dcucumber.options="--tags @benchmark"
+  @benchmark
+  Scenario: upload faster with parallel chunks
+    Given an ADLS Gen2 stub with 50ms latency per append
+    And a 16 MB artifact to upload into ADLS Gen2
+    When benchmark uploading the artifact into ADLS Gen2 in 1 MB chunks with 1 and 8 concurrency
+    Then the ADLS Gen2 parallel upload should be at least 3 times faster
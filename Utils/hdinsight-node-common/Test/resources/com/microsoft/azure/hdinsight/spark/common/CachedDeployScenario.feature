@@ -0,0 +1,39 @@
+Feature: CachedDeploy Testing
+
+  Scenario: skip uploading the unchanged artifact
+    Given a 3000 bytes Spark job artifact to deploy with cache
+    When deploy the artifact with cache 2 times
+    Then the artifact should be uploaded 1 times
+    And all the deployments should get the same uploaded path
+
+  Scenario: upload the changed artifact again
+    Given a 3000 bytes Spark job artifact to deploy with cache
+    When deploy the artifact with cache 1 times
+    And change the artifact content
+    And deploy the artifact with cache 1 times
+    Then the artifact should be uploaded 2 times
+    And the storage should have 2 artifacts
+
+  Scenario: upload again if the uploaded artifact is removed
+    Given a 3000 bytes Spark job artifact to deploy with cache
+    When deploy the artifact with cache 1 times
+    And remove the uploaded artifacts from storage
+    And deploy the artifact with cache 1 times
+    Then the artifact should be uploaded 2 times
+    And the storage should have 1 artifacts
+
+  Scenario: resume the interrupted upload
+    Given a 3000 bytes Spark job artifact to deploy with cache
+    And the storage breaks the upload after 1024 bytes
+    When deploy the artifact with cache 2 times
+    Then the first deployment should fail
+    And the last upload should resume from 1024 bytes into the same destination
+    And the storage should have 1 artifacts with the full content
+
+  Scenario: reuse the uploaded artifact after reloading the index
+    Given a 3000 bytes Spark job artifact to deploy with cache
+    When deploy the artifact with cache 1 times
+    And reload the deploy index from file
+    And deploy the artifact with cache 1 times
+    Then the artifact should be uploaded 1 times
+    And all the deployments should get the same uploaded path
@@ -0,0 +1,46 @@
+Feature: LivyBatchStatusMonitor Testing
+
+  Scenario: watch the state transitions of many batches with the batches listing
+    Given a Livy stub with 20 batches from ID 100 in state 'starting'
+    When watch the Livy batches from ID 100 to 119 with 50ms polling interval
+    And the Livy stub batches turn to 'running' after 300ms
+    And the Livy stub batches turn to 'success' after 300ms
+    Then all watched Livy batches should go through states 'starting, running, success'
+    And the Livy stub should get 0 single batch status requests
+    And the Livy batches listing requests should be fewer than 40
+
+  Scenario: locate the watched batches after the older batches are removed
+    Given a Livy stub with 350 batches from ID 0 in state 'running'
+    When watch the Livy batches from ID 300 to 309 with 50ms polling interval
+    And the Livy stub removes the batches before ID 250 after 300ms
+    And the Livy stub batches turn to 'dead' after 300ms
+    Then all watched Livy batches should go through states 'running, dead'
+    And the Livy stub should get 0 single batch status requests
+
+  Scenario: get the batch not listed one by one
+    Given a Livy stub with 5 batches from ID 0 in state 'running'
+    And a Livy stub batch 999 not listed in state 'success'
+    When watch the Livy batches from ID 999 to 999 with 50ms polling interval
+    Then all watched Livy batches should go through states 'success'
+    And the Livy stub should get 1 single batch status requests
+
+  Scenario: the batch status failures only fail the watch of that batch
+    Given a Livy stub with 5 batches from ID 0 in state 'running'
+    And a Livy stub batch 999 not listed responding 500
+    When watch the Livy batches '0, 1, 2, 3, 4, 998, 999' one by one with 50ms polling interval
+    And the Livy stub batches turn to 'success' after 500ms
+    Then the watch of Livy batch 998 should fail with 'Can't find Livy batch 998'
+    And the watch of Livy batch 999 should fail with 'Got response 500'
+    And the Livy batches '0, 1, 2, 3, 4' should go through states 'running, success'
+
+  Scenario: the transient listing failures don't disable the batches listing
+    Given a Livy stub with 5 batches from ID 0 in state 'running'
+    And the Livy stub responds 503 to the first 2 batches listing requests
+    When watch the Livy batches '0, 1, 2, 3, 4' one by one with 50ms polling interval
+    And the Livy stub batches turn to 'success' after 500ms
+    Then the Livy batches '0, 1, 2, 3, 4' should go through states 'running, success'
+    And the Livy batches listing requests should be more than 2
+    And the Livy stub should get at most 10 single batch status requests
+
+  Scenario: the monitors are shared by the same submission only
+    Then the Livy batch status monitors of one URL should be shared by the same submission only
@@ -0,0 +1,23 @@
+Feature: LivyLogPoller Testing
+
+  Scenario: poll the backlogged logs with growing page sizes
+    Given poll Livy logs with 6000 backlogged lines and 10ms idle interval
+    Then all 6000 Livy log lines should be polled in order
+    And the Livy log page sizes should be '128, 256, 512, 1024, 2048, 2048, 2048, 2048'
+
+  Scenario: back off the idle polls exponentially
+    Given poll Livy logs with no log and 5 idle probes with 20ms idle interval
+    Then the Livy log state should be probed 6 times
+    And the Livy log idle intervals should grow from 20ms up to 160ms
+
+  Scenario: poll logs of many jobs on the shared threads
+    Given poll Livy logs of 200 jobs with 3 lines per 10ms
+    Then all Livy log pollers should get 60 lines without more than 4 polling threads
+
+  Scenario: the pending state probes don't take the polling threads
+    Given poll Livy logs with 300 backlogged lines while 10 other pollers wait for their state probes
+    Then all 300 Livy log lines should be polled in order
+
+  Scenario: the stalled log fetches don't take the polling threads
+    Given poll Livy logs with 300 backlogged lines while 10 other pollers' log fetches stall
+    Then all 300 Livy log lines should be polled in order
@@ -0,0 +1,17 @@
+Feature: WebHDFSDeploy Testing
+
+  Scenario: stream the artifact from disk with flat heap usage
+    Given a WebHDFS stub
+    And a 1024 MB sparse artifact to deploy by WebHDFS
+    When deploy the artifact by WebHDFS
+    Then the WebHDFS stub should receive all the artifact bytes with 100-continue
+    And the heap used during deploying by WebHDFS should grow less than 64 MB
+    And the WebHDFS deploy progress should be reported up to 100%
+    And the WebHDFS deploy should get the uploaded path ending with '/job.jar?op=OPEN'
+
+  Scenario: report the progress of a small artifact once
+    Given a WebHDFS stub
+    And a 1 MB sparse artifact to deploy by WebHDFS
+    When deploy the artifact by WebHDFS
+    Then the WebHDFS stub should receive all the artifact bytes with 100-continue
+    And the WebHDFS deploy progress should be reported 1 times
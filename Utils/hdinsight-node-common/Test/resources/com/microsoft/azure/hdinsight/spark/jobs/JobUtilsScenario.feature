@@ -34,3 +34,29 @@ Feature: JobUtils Testing
   Scenario: getInformationFromYarnLogDom can read Spark 2.2 Yarn History server log format
     Given mock a http service in JobUtilsScenario for GET request '/yarnui/10.0.0.15/node/containerlogs/container_e02_1492415936046_0015_01_000001/livy/stderr?start=0' to return '<!DOCTYPE html PUBLIC "-//W3C//DTD HTML 4.01//EN" "http://www.w3.org/TR/html4/strict.dtd"> <html> <meta http-equiv="X-UA-Compatible" content="IE=8"> <meta http-equiv="Content-type" content="text/html; charset=UTF-8"> <title> Logs for container_e03_1492780173422_0013_02_000001 </title>   <table id="layout" class="ui-widget-content"> <thead> <tr> <td colspan="2"> <div id="header" class="ui-widget"> <div id="user"> Logged in as: dr.who </div> <div id="logo"> <img src="/yarnui/static/hadoop-st.png"> </div> <h1> Logs for container_e03_1492780173422_0013_02_000001 </h1> </div> </td> </tr> </thead> <tfoot> <tr> <td colspan="2"> <div id="footer" class="ui-widget"> </div> </td> </tr> </tfoot> <tbody> <tr> <td id="navcell"> <div id="nav"> <h3> ResourceManager </h3> <ul> <li> <a href="/yarnui/hn/">RM Home</a> </ul> <h3> NodeManager </h3> <ul> <li> <a href="/yarnui/10.0.0.15/node/node">Node Information</a> <li> <a href="/yarnui/10.0.0.15/node/allApplications">List of Applications</a> <li> <a href="/yarnui/10.0.0.15/node/allContainers">List of Containers</a> </ul> <h3> Tools </h3> <ul> <li> <a href="/yarnui/10.0.0.15/conf">Configuration</a> <li> <a href="/yarnui/10.0.0.15/logs">Local logs</a> <li> <a href="/yarnui/10.0.0.15/stacks">Server stacks</a> <li> <a href="/yarnui/10.0.0.15/jmx?qry=Hadoop:*">Server metrics</a> </ul> </div> </td> <td class="content"> <pre>\n\n</pre> <p> Log Type: stderr <pre>spark2.2stderr</pre> </td> </tr> </tbody> </table> </html>' with status code 200
     Then get YarnUI log 'stderr' from '/yarnui/10.0.0.15/node/containerlogs/container_e02_1492415936046_0015_01_000001/livy' should return 'spark2.2stderr'
+
+  Scenario: getInformationFromYarnLogDom can read Yarn History server log format with multiple log types
+    Given mock a http service in JobUtilsScenario for GET request '/yarnui/10.0.0.15/node/containerlogs/container_e02_1492415936046_0015_01_000001/livy/stderr?start=0' to return '<!DOCTYPE html PUBLIC "-//W3C//DTD HTML 4.01//EN" "http://www.w3.org/TR/html4/strict.dtd"> <html> <meta http-equiv="X-UA-Compatible" content="IE=8"> <meta http-equiv="Content-type" content="text/html; charset=UTF-8"> <title> Logs for container_e03_1492780173422_0013_02_000001 </title> <script type="text/javascript">var pre = "<pre>not a log</pre>";</script> <table id="layout" class="ui-widget-content"> <tbody> <tr> <td id="navcell"> <div id="nav"> <h3> ResourceManager </h3> </div> </td> <td class="content"> <p>Log Type: directory.info</p><p>Log Upload Time: Tue Apr 18 02:36:09 +0000 2017</p><p>Log Length: 3</p><pre>dir</pre><p>Log Type: stderr</p><p>Log Upload Time: Tue Apr 18 02:36:09 +0000 2017</p><p>Log Length: 22</p><pre>a &lt; b &amp;&amp; c &gt; d</pre><p>Log Type: stdout</p><p>Log Upload Time: Tue Apr 18 02:36:09 +0000 2017</p><p>Log Length: 3</p><pre>out</pre> </td> </tr> </tbody> </table> </html>' with status code 200
+    Then get YarnUI log 'stderr' from '/yarnui/10.0.0.15/node/containerlogs/container_e02_1492415936046_0015_01_000001/livy' should return 'a < b && c > d'
+
+  Scenario: getInformationFromYarnLogDom can read raw log endpoint
+    Given mock a http service in JobUtilsScenario for GET request '/ws/v1/node/containerlogs/container_e02_1492415936046_0015_01_000001/stderr?start=0' to return plain text '<pre>raw log</pre>' with status code 200
+    Then get YarnUI log 'stderr' from '/ws/v1/node/containerlogs/container_e02_1492415936046_0015_01_000001' should return '<pre>raw log</pre>'
+
+  Scenario: getInformationFromYarnLogDom returns empty for the log moving to history server
+    Given mock a http service in JobUtilsScenario for GET request '/yarnui/10.0.0.15/node/containerlogs/container_e02_1492415936046_0015_01_000001/livy/stderr?start=0' to return 'Forbidden' with status code 403
+    Then get YarnUI log 'stderr' from '/yarnui/10.0.0.15/node/containerlogs/container_e02_1492415936046_0015_01_000001/livy' should return ''
+
+  Scenario: createYarnLogObservable counts the offset in UTF-8 bytes and handles CRLF
+    Given mock a http service in JobUtilsScenario for GET request '/yarnui/10.0.0.15/node/containerlogs/container_e02_1492415936046_0015_01_000001/livy/stderr?start=0&&end=10' to return '<!DOCTYPE html PUBLIC "-//W3C//DTD HTML 4.01//EN" "http://www.w3.org/TR/html4/strict.dtd"> <html> <meta http-equiv="Content-type" content="text/html; charset=UTF-8"> <title> Logs for container_e03_1492780173422_0013_02_000001 </title> <table id="layout" class="ui-widget-content"> <tbody> <tr> <td id="navcell"> <div id="nav"> <h3> NodeManager </h3> </div> </td> <td class="content"> <p> Log Type: stderr <pre>&#20013;1\r\nab</pre> </td> </tr> </tbody> </table> </html>' with status code 200
+    And mock a http service in JobUtilsScenario for GET request '/yarnui/10.0.0.15/node/containerlogs/container_e02_1492415936046_0015_01_000001/livy/stderr?start=6&&end=16' to return '<!DOCTYPE html PUBLIC "-//W3C//DTD HTML 4.01//EN" "http://www.w3.org/TR/html4/strict.dtd"> <html> <meta http-equiv="Content-type" content="text/html; charset=UTF-8"> <title> Logs for container_e03_1492780173422_0013_02_000001 </title> <table id="layout" class="ui-widget-content"> <tbody> <tr> <td id="navcell"> <div id="nav"> <h3> NodeManager </h3> </div> </td> <td class="content"> <p> Log Type: stderr <pre>ab&#233;\n</pre> </td> </tr> </tbody> </table> </html>' with status code 200
+    And mock a http service in JobUtilsScenario for GET request '/yarnui/10.0.0.15/node/containerlogs/container_e02_1492415936046_0015_01_000001/livy/stderr?start=11&&end=21' to return '<!DOCTYPE html PUBLIC "-//W3C//DTD HTML 4.01//EN" "http://www.w3.org/TR/html4/strict.dtd"> <html> <meta http-equiv="Content-type" content="text/html; charset=UTF-8"> <title> Logs for container_e03_1492780173422_0013_02_000001 </title> <table id="layout" class="ui-widget-content"> <tbody> <tr> <td id="navcell"> <div id="nav"> <h3> NodeManager </h3> </div> </td> <td class="content"> <p> Log Type: stderr <pre></pre> </td> </tr> </tbody> </table> </html>' with status code 200
+    And mock a http service in JobUtilsScenario for GET request '/yarnui/10.0.0.15/node/containerlogs/container_e02_1492415936046_0015_01_000001/livy/stderr?start=11' to return '<!DOCTYPE html PUBLIC "-//W3C//DTD HTML 4.01//EN" "http://www.w3.org/TR/html4/strict.dtd"> <html> <meta http-equiv="Content-type" content="text/html; charset=UTF-8"> <title> Logs for container_e03_1492780173422_0013_02_000001 </title> <table id="layout" class="ui-widget-content"> <tbody> <tr> <td id="navcell"> <div id="nav"> <h3> NodeManager </h3> </div> </td> <td class="content"> <p> Log Type: stderr <pre></pre> </td> </tr> </tbody> </table> </html>' with status code 200
+    Then Yarn log observable from '/yarnui/10.0.0.15/node/containerlogs/container_e02_1492415936046_0015_01_000001/livy' should produce events:
+      | 中1 |
+      | abé |
+
+  Scenario: completeCharsLength strips only the replacement chars of an incomplete UTF-8 char
+    Then the complete chars length of 'ab' followed by 2 replacement chars should be 2
+    And the complete chars length of 'ab' followed by 5 replacement chars should be 4
+    And the complete chars length of '' followed by 10 replacement chars should be 7
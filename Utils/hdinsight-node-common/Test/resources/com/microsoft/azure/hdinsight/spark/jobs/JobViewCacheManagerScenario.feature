@@ -0,0 +1,15 @@
+Feature: JobViewCacheManager Testing
+
+  Scenario: the application keys are compared by cluster and application ID ignoring case
+    Then application key 'application_01' on cluster 'https://c1.net' should equal application key 'APPLICATION_01' on cluster 'https://C1.net'
+    And application key 'application_01' on cluster 'https://c1.net' should not equal application key 'application_02' on cluster 'https://c1.net'
+    And application key 'application_01' on cluster 'https://c1.net' should not equal application key 'application_01' on cluster 'https://c2.net'
+    And application key 'https://c1.net' on cluster 'https://c1.net' should not equal application key 'application_01' on cluster 'https://c1.net'
+
+  Scenario: the concurrent tasks fetching of the same application is coalesced
+    Given 5 subscribers fetch the tasks of application 'application_coalesce' on cluster 'https://c1.net' while the fetching is blocked
+    Then the tasks fetching should be called 1 time
+    And the tasks fetching of application 'application_coalesce' on cluster 'https://c1.net' should be in flight
+    Given the blocked tasks fetching emits 3 stages with one task each and completes
+    Then every subscriber should get 3 tasks
+    And the tasks fetching of application 'application_coalesce' on cluster 'https://c1.net' should not be in flight
@@ -0,0 +1,23 @@
+Feature: JobViewRequestDispatcher Testing
+
+  Scenario: the identical JSON requests in flight are coalesced into one loading
+    Given the Job View dispatcher loading is blocked
+    And send 5 concurrent Job View requests to '/items?appId=1' and unblock the loading
+    Then the Job View loading should be called 1 time
+
+  Scenario: the JSON response is gzip compressed if accepted
+    Given send Job View request to '/items?appId=2' with header 'Accept-Encoding' as 'gzip'
+    Then the Job View response should be 200 with content encoding 'gzip'
+    And send Job View request to '/items?appId=2' with header 'Accept-Encoding' as ''
+    Then the Job View response should be 200 with content encoding 'null'
+
+  Scenario: the JSON response is not modified with the same ETag
+    Given send Job View request to '/items?appId=3' with header 'If-None-Match' as ''
+    Then the Job View response should be 200 with content encoding 'null'
+    And send Job View request to '/items?appId=3' with header 'If-None-Match' as '$etag'
+    Then the Job View response should be 304 with content encoding 'null'
+    And the Job View loading should be called 2 times
+
+  Scenario: the JSON array stream failed in the middle ends with an error element
+    Given send Job View request to '/stream?appId=4' with header 'Accept-Encoding' as ''
+    Then the Job View response body should be '["item0","item1",{"streamError":"stage 3 failed"}]'
@@ -0,0 +1,32 @@
+Feature: SparkEventLogIndex Testing
+
+  Scenario: build index by scanning the event log heads and read the job start events back by offsets
+    Given Spark event log lines are:
+      | {"Event":"SparkListenerLogStart","Spark Version":"2.1.0"}                                      |
+      | {"Event":"SparkListenerJobStart","Job ID":0,"Submission Time":1,"Properties":{"name":"中"}} |
+      | {"Event":"SparkListenerStageSubmitted","Stage Info":{"Stage ID":0}}                            |
+      | {"Event":"SparkListenerTaskStart","Stage ID":0,"Task Info":{"Task ID":0}}                      |
+      | {"Event":"SparkListenerTaskEnd","Stage ID":0,"Task Info":{"Task ID":0}}                        |
+      | {"Event":"SparkListenerStageCompleted","Stage Info":{"Stage ID":0}}                            |
+      | {"Event":"SparkListenerJobEnd","Job ID":0}                                                     |
+      | {"Event" : "SparkListenerJobStart", "Job ID":1,"Submission Time":2}                             |
+      | {"Event":"SparkListenerApplicationEnd","Timestamp":3}                                          |
+    And build Spark event log index collecting 'JobStart'
+    Then the Spark event log index should have 7 events and 2 'JobStart' events
+    And the collected Spark events should be the same as read by index 'JobStart'
+    And the Spark events read by index 'JobStart' should have Job IDs:
+      | 0 |
+      | 1 |
+
+  Scenario: the saved index can be loaded to read events
+    Given Spark event log lines are:
+      | {"Event":"SparkListenerTaskEnd","Stage ID":0,"Task Info":{"Task ID":0},"Task Metrics":{"Executor Deserialize Time":123,"Executor Run Time":456,"Result Size":2000,"JVM GC Time":0,"Result Serialization Time":1}} |
+      | {"Event":"SparkListenerJobStart","Job ID":5,"Submission Time":1}                                 |
+      | {"Event":"SparkListenerJobStart","Job ID":6,"Submission Time":1}                                 |
+    And build Spark event log index collecting 'TaskEnd'
+    And save and reload the Spark event log index
+    Then the Spark event log index should have 3 events and 1 'TaskEnd' events
+    And the collected Spark events should be the same as read by index 'TaskEnd'
+    And the Spark events read by index 'JobStart' should have Job IDs:
+      | 5 |
+      | 6 |
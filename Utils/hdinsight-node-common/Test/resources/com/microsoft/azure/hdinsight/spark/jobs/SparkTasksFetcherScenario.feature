@@ -0,0 +1,13 @@
+Feature: SparkTasksFetcher Testing
+
+  Scenario: fetch tasks of 1k stages concurrently with bounded requests per cluster
+    Given fetch tasks of 1000 stages from cluster 'cluster1k' with max 8 concurrent requests and 5ms latency
+    Then all 1000 stage tasks should be fetched with no more than 8 concurrent requests
+
+  Scenario: fetch tasks of 10k stages concurrently with bounded requests per cluster
+    Given fetch tasks of 10000 stages from cluster 'cluster10k' with max 32 concurrent requests and 1ms latency
+    Then all 10000 stage tasks should be fetched with no more than 32 concurrent requests
+
+  Scenario: the failed stages don't stop fetching the others and are reported at the end
+    Given fetch tasks of 20 stages from cluster 'clusterFailing' with max 4 concurrent requests and 1ms latency, failing stages 3,11
+    Then 18 stage tasks should be fetched and the stages 3.0,11.0 should be reported as failed
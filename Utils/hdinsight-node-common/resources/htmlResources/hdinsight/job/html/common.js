@@ -79,6 +79,82 @@ function getMessageAsync(url, type, callback, appId) {
     xmlHttp.send(null);
 }
 
+/**
+ * The parser of a JSON array of objects received in chunks, which parses the objects completed so far
+ */
+function JsonArrayStreamParser() {
+    this.position = 0;
+    this.depth = 0;
+    this.inString = false;
+    this.escaped = false;
+    this.elementStart = -1;
+}
+
+JsonArrayStreamParser.prototype.parse = function (text) {
+    var elements = [];
+    for (; this.position < text.length; ++this.position) {
+        var c = text.charAt(this.position);
+        if (this.inString) {
+            if (this.escaped) {
+                this.escaped = false;
+            } else if (c === '\\') {
+                this.escaped = true;
+            } else if (c === '"') {
+                this.inString = false;
+            }
+        } else if (c === '"') {
+            this.inString = true;
+        } else if (c === '{' || c === '[') {
+            if (++this.depth === 2) {
+                this.elementStart = this.position;
+            }
+        } else if (c === '}' || c === ']') {
+            if (--this.depth === 1) {
+                elements.push(JSON.parse(text.substring(this.elementStart, this.position + 1)));
+            }
+        }
+    }
+    return elements;
+};
+
+/**
+ * Get the streamed JSON array, the elements are passed to the callback as soon as they are received
+ */
+function getJsonArrayStreamAsync(url, type, callback, appId) {
+    var queries = {
+        'http-type' : type || 'spark',
+        'cluster-name' : spark.clusterName || '0',
+        'appId' : appId || '0'
+    };
+    var queryString = serializeQuery(queries);
+    var parser = new JsonArrayStreamParser();
+
+    var xmlHttp = new XMLHttpRequest();
+    xmlHttp.timeout = 60 * 1000;
+    xmlHttp.ontimeout = function () {
+        if (--asyncMessageCounter === 0) {
+            $('body').css("cursor", "default");
+        }
+    };
+    ++asyncMessageCounter;
+    $('body').css("cursor", "progress");
+
+    xmlHttp.onreadystatechange = function () {
+        if (xmlHttp.readyState === 4 && --asyncMessageCounter === 0) {
+            $('body').css("cursor", "default");
+        }
+        if ((xmlHttp.readyState === 3 || xmlHttp.readyState === 4) && xmlHttp.status === 200) {
+            var elements = parser.parse(xmlHttp.responseText);
+            if (elements.length > 0 && callback) {
+                callback(elements);
+            }
+        }
+    };
+
+    xmlHttp.open('GET', spark.localhost + url + '?' + queryString, true);
+    xmlHttp.send(null);
+}
+
 function sendActionSingle(url) {
     getMessageAsync(url, null, null, spark.appId)
 }
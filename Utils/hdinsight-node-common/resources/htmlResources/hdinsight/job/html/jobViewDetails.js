@@ -357,6 +357,18 @@ function renderTaskSummary(myData) {
     });
 
 }
+
+// Append the rows of the tasks streamed after the rendered ones
+function appendTaskSummary(tasks) {
+    var tbody = d3.select('#taskSummaryTbody');
+    tasks.forEach(function (task) {
+        tbody.append('tr')
+            .attr('align', 'center')
+            .attr('class', 'ui-widget-content')
+            .html(generateTaskSummaryLine(task));
+    });
+}
+
 function taskSummaryObjToList(myTaskSummary) {
     var lists = [];
     lists.push(myTaskSummary.taskId);
@@ -323,10 +323,24 @@ function renderStageDetails() {
 }
 
 function renderTaskDetails() {
-    getMessageAsync('/applications/tasks_summary','spark', function(s){
-        var tasks = JSON.parse(s);
-        renderTaskSummary(tasks);
-    }, spark.appId);
+    var appId = spark.appId;
+    $('#task_summary_info_message').text('');
+    getJsonArrayStreamAsync('/applications/tasks_summary', 'spark', function (tasks) {
+        // Drop the stages streamed for the application selected before
+        if (appId !== spark.appId) {
+            return;
+        }
+        // The streamed tasks end with an error element if the stream failed in the middle
+        var streamErrors = tasks.filter(function (task) {
+            return task.streamError !== undefined;
+        });
+        appendTaskSummary(tasks.filter(function (task) {
+            return task.streamError === undefined;
+        }));
+        if (streamErrors.length !== 0) {
+            $('#task_summary_info_message').text('The task summary is incomplete: ' + streamErrors[0].streamError);
+        }
+    }, appId);
 }
 
 function renderExecutors() {
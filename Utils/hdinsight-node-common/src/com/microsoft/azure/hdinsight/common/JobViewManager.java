@@ -24,6 +24,7 @@ package com.microsoft.azure.hdinsight.common;
 
 import com.microsoft.azure.hdinsight.sdk.rest.spark.Application;
 import com.microsoft.azure.hdinsight.spark.jobs.ApplicationKey;
+import com.microsoft.azure.hdinsight.spark.jobs.JobViewCacheManager;
 import com.microsoft.azure.hdinsight.spark.jobs.framework.JobViewPanel;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
@@ -67,5 +68,6 @@ public class JobViewManager {
 
     public static void unRegisterJobView(@NotNull String clusterName) {
         jobViewPanelMap.remove(clusterName);
+        JobViewCacheManager.logCacheStatistics();
     }
 }
@@ -23,7 +23,6 @@
 package com.microsoft.azure.hdinsight.sdk.common;
 
 import org.apache.http.NameValuePair;
-import org.apache.http.impl.client.HttpClients;
 
 import com.microsoft.azure.hdinsight.common.HDInsightLoader;
 import com.microsoft.azuretools.adauth.AuthException;
@@ -62,8 +61,7 @@ public class AzureHttpObservable extends OAuthTokenHttpObservable {
         this.tenantId = tenantId;
         this.apiVersion = apiVersion;
 
-        setHttpClient(HttpClients.custom()
-                .useSystemProperties()
+        setHttpClient(SharedHttpTransport.newStrictClientBuilder()
                 .setDefaultCookieStore(getCookieStore())
                 .setDefaultRequestConfig(getDefaultRequestConfig())
                 .build());
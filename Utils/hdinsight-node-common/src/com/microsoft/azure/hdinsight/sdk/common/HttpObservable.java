@@ -29,11 +29,9 @@ import com.microsoft.azure.hdinsight.sdk.common.errorresponse.*;
 import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
-import com.microsoft.azuretools.service.ServiceManager;
 import com.microsoft.tooling.msservices.components.DefaultLoader;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.http.*;
 import org.apache.http.client.CookieStore;
 import org.apache.http.client.config.AuthSchemes;
@@ -42,29 +40,19 @@ import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.*;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.conn.ssl.DefaultHostnameVerifier;
-import org.apache.http.conn.ssl.NoopHostnameVerifier;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.message.HeaderGroup;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HttpContext;
-import org.apache.http.ssl.SSLContextBuilder;
-import org.apache.http.ssl.TrustStrategy;
 import org.apache.http.util.EntityUtils;
 import rx.Observable;
 import rx.exceptions.Exceptions;
 
-import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.net.UnknownServiceException;
 import java.nio.charset.StandardCharsets;
-import java.security.KeyManagementException;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 import static rx.exceptions.Exceptions.propagate;
@@ -119,17 +107,15 @@ public class HttpObservable implements ILogger {
         this.httpContext.setAttribute(HttpClientContext.COOKIE_STORE, cookieStore);
 
         // Create global request configuration
-        this.defaultRequestConfig = RequestConfig.custom()
+        this.defaultRequestConfig = SharedHttpTransport.newRequestConfigBuilder()
                 .setCookieSpec(CookieSpecs.DEFAULT)
                 .setTargetPreferredAuthSchemes(Arrays.asList(AuthSchemes.KERBEROS, AuthSchemes.DIGEST, AuthSchemes.BASIC))
                 .setProxyPreferredAuthSchemes(Collections.singletonList(AuthSchemes.BASIC))
                 .build();
 
-        this.httpClient = HttpClients.custom()
-                .useSystemProperties()
+        this.httpClient = SharedHttpTransport.newClientBuilder()
                 .setDefaultCookieStore(getCookieStore())
                 .setDefaultRequestConfig(getDefaultRequestConfig())
-                .setSSLSocketFactory(createSSLSocketFactory())
                 .build();
     }
 
@@ -149,11 +135,9 @@ public class HttpObservable implements ILogger {
                     HttpHeaders.AUTHORIZATION, String.format("%s %s", "Basic", new String(encodedAuth))));
         }
 
-        this.httpClient = HttpClients.custom()
-                .useSystemProperties()
+        this.httpClient = SharedHttpTransport.newClientBuilder()
                 .setDefaultCookieStore(getCookieStore())
                 .setDefaultRequestConfig(getDefaultRequestConfig())
-                .setSSLSocketFactory(createSSLSocketFactory())
                 .build();
     }
 
@@ -261,27 +245,6 @@ public class HttpObservable implements ILogger {
         }
     }
 
-    private SSLConnectionSocketFactory createSSLSocketFactory() {
-        TrustStrategy ts = ServiceManager.getServiceProvider(TrustStrategy.class);
-        SSLConnectionSocketFactory sslSocketFactory = null;
-
-        if (ts != null) {
-            try {
-                SSLContext sslContext = new SSLContextBuilder()
-                        .loadTrustMaterial(ts)
-                        .build();
-
-                sslSocketFactory = new SSLConnectionSocketFactory(sslContext,
-                        HttpObservable.isSSLCertificateValidationDisabled()
-                                ? NoopHostnameVerifier.INSTANCE
-                                : new DefaultHostnameVerifier());
-            } catch (NoSuchAlgorithmException | KeyManagementException | KeyStoreException e) {
-                log().error("Prepare SSL Context for HTTPS failure. " + ExceptionUtils.getStackTrace(e));
-            }
-        }
-        return sslSocketFactory;
-    }
-
     @NotNull
     public static HttpErrorStatus classifyHttpError(@NotNull CloseableHttpResponse httpResponse) throws IOException {
         StatusLine status = httpResponse.getStatusLine();
@@ -344,6 +307,89 @@ public class HttpObservable implements ILogger {
                 });
     }
 
+    @FunctionalInterface
+    private interface ContentConverter<T> {
+        Observable<T> convert(@NotNull HttpEntity entity) throws IOException;
+    }
+
+    /**
+     * Helper to deserialize the closeable stream good Http response (2xx) into the specified type from the entity
+     * stream directly, without reading the whole content into a String.
+     * If the response is bad, propagate a HttpResponseException
+     *
+     * @param closeableHttpResponse the source closeable stream
+     * @param clazz the target type to convert
+     * @param <T> the target type
+     * @return the specified type class instance
+     */
+    public static <T> Observable<T> toObjectOnlyOkResponse(@NotNull final CloseableHttpResponse closeableHttpResponse,
+                                                           @NotNull final Class<T> clazz) {
+        return convertOnlyOkResponse(closeableHttpResponse, entity -> {
+            final T result = ObjectConvertUtils.convertJsonStreamToObject(entity.getContent(), clazz);
+
+            // Consume the rest, so that the connection can be reused
+            EntityUtils.consume(entity);
+
+            return Observable.just(result);
+        });
+    }
+
+    /**
+     * Helper to deserialize the elements of the JSON array in the closeable stream good Http response (2xx) one by
+     * one, the elements are emitted while the response stream is being read.
+     * If the response is bad, propagate a HttpResponseException
+     *
+     * @param closeableHttpResponse the source closeable stream
+     * @param arrayFieldName the array field name in the top level JSON object, or null for the top level JSON array
+     * @param clazz the element type to convert
+     * @param <T> the element type
+     * @return the elements of the array
+     */
+    public static <T> Observable<T> toArrayElementsOnlyOkResponse(@NotNull final CloseableHttpResponse closeableHttpResponse,
+                                                                  @Nullable final String arrayFieldName,
+                                                                  @NotNull final Class<T> clazz) {
+        return convertOnlyOkResponse(closeableHttpResponse, entity -> {
+            final Iterator<T> elements = ObjectConvertUtils.iterateJsonArray(entity.getContent(), arrayFieldName, clazz);
+
+            return Observable.from(() -> elements);
+        });
+    }
+
+    private static <T> Observable<T> convertOnlyOkResponse(@NotNull final CloseableHttpResponse closeableHttpResponse,
+                                                           @NotNull final ContentConverter<T> converter) {
+        return Observable.using(
+                // Resource factory
+                () -> closeableHttpResponse,
+                // Observable factory
+                streamResp -> {
+                    try {
+                        StatusLine status = streamResp.getStatusLine();
+
+                        if (status.getStatusCode() >= 300) {
+                            return Observable.error(classifyHttpError(streamResp));
+                        }
+
+                        HttpEntity entity = streamResp.getEntity();
+                        if (entity == null) {
+                            return Observable.error(new HDIException("Empty HTTP server response"));
+                        }
+
+                        return converter.convert(entity);
+                    } catch (IOException e) {
+                        return Observable.error(e);
+                    }
+                },
+                // Resource dispose
+                streamResp -> {
+                    try {
+                        streamResp.close();
+                    } catch (IOException ignore) {
+                        // The connection will be closed automatically after timeout,
+                        // the exception in closing can be ignored.
+                    }
+                });
+    }
+
     /**
      * Helper to convert the http response to a specified type
      *
@@ -457,15 +503,95 @@ public class HttpObservable implements ILogger {
                 .map(resp -> this.convertJsonResponseToObject(resp, clazz));
     }
 
+    /*
+     * RESTful API operations with streaming deserialization from the response content, which don't read the whole
+     * response into a String. They are preferred for the large payloads.
+     */
+    public <T> Observable<T> requestWithObject(@NotNull final HttpRequestBase httpRequest,
+                                               @Nullable final HttpEntity entity,
+                                               @Nullable final List<NameValuePair> parameters,
+                                               @Nullable final List<Header> addOrReplaceHeaders,
+                                               @NotNull final Class<T> clazz) {
+        return request(httpRequest, entity, parameters, addOrReplaceHeaders)
+                .flatMap(resp -> toObjectOnlyOkResponse(resp, clazz));
+    }
+
+    public <T> Observable<T> getWithStreaming(@NotNull final String uri,
+                                              @Nullable final List<NameValuePair> parameters,
+                                              @Nullable final List<Header> addOrReplaceHeaders,
+                                              @NotNull final Class<T> clazz) {
+        return requestWithObject(new HttpGet(uri), null, parameters, addOrReplaceHeaders, clazz);
+    }
+
+    public <T> Observable<T> putWithStreaming(@NotNull final String uri,
+                                              @Nullable final HttpEntity entity,
+                                              @Nullable final List<NameValuePair> parameters,
+                                              @Nullable final List<Header> addOrReplaceHeaders,
+                                              @NotNull final Class<T> clazz) {
+        return requestWithObject(new HttpPut(uri), entity, parameters, addOrReplaceHeaders, clazz);
+    }
+
+    public <T> Observable<T> postWithStreaming(@NotNull final String uri,
+                                               @Nullable final HttpEntity entity,
+                                               @Nullable final List<NameValuePair> parameters,
+                                               @Nullable final List<Header> addOrReplaceHeaders,
+                                               @NotNull final Class<T> clazz) {
+        return requestWithObject(new HttpPost(uri), entity, parameters, addOrReplaceHeaders, clazz);
+    }
+
+    public <T> Observable<T> patchWithStreaming(@NotNull final String uri,
+                                                @Nullable final HttpEntity entity,
+                                                @Nullable final List<NameValuePair> parameters,
+                                                @Nullable final List<Header> addOrReplaceHeaders,
+                                                @NotNull final Class<T> clazz) {
+        return requestWithObject(new HttpPatch(uri), entity, parameters, addOrReplaceHeaders, clazz);
+    }
+
+    /**
+     * Get the elements of a large JSON array one by one, without holding the whole array in memory
+     *
+     * @param uri the request URI
+     * @param parameters the request parameters to add
+     * @param addOrReplaceHeaders the request headers to add or replace
+     * @param arrayFieldName the array field name in the top level JSON object, or null for the top level JSON array
+     * @param clazz the element type to convert
+     * @param <T> the element type
+     * @return the elements of the array
+     */
+    public <T> Observable<T> getArrayElements(@NotNull final String uri,
+                                              @Nullable final List<NameValuePair> parameters,
+                                              @Nullable final List<Header> addOrReplaceHeaders,
+                                              @Nullable final String arrayFieldName,
+                                              @NotNull final Class<T> clazz) {
+        return request(new HttpGet(uri), null, parameters, addOrReplaceHeaders)
+                .flatMap(resp -> toArrayElementsOnlyOkResponse(resp, arrayFieldName, clazz));
+    }
+
+    /**
+     * Execute the request and check the response status code
+     *
+     * @param req the request to execute
+     * @param validStatueCode the expected status code
+     * @param pairs the request parameters to add
+     * @return Observable: the response, which is consumed and closed already to release the connection
+     */
     public Observable<CloseableHttpResponse> executeReqAndCheckStatus(HttpEntityEnclosingRequestBase req, int validStatueCode, List<NameValuePair> pairs) {
         return request(req, req.getEntity(), pairs, Arrays.asList(getDefaultHeaderGroup().getAllHeaders()))
                 .doOnNext(
                         resp -> {
-                            int statusCode = resp.getStatusLine().getStatusCode();
-                            if (statusCode != validStatueCode) {
-                                Exceptions.propagate(new UnknownServiceException(
-                                        String.format("Exceute request with unexpected code %s and resp %s", statusCode, resp)
-                                ));
+                            try {
+                                int statusCode = resp.getStatusLine().getStatusCode();
+                                if (statusCode != validStatueCode) {
+                                    Exceptions.propagate(new UnknownServiceException(
+                                            String.format("Exceute request with unexpected code %s and resp %s", statusCode, resp)
+                                    ));
+                                }
+                            } finally {
+                                EntityUtils.consumeQuietly(resp.getEntity());
+                                try {
+                                    resp.close();
+                                } catch (IOException ignored) {
+                                }
                             }
                         }
                 );
@@ -26,8 +26,6 @@ import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.http.Header;
 import org.apache.http.client.config.CookieSpecs;
-import org.apache.http.client.config.RequestConfig;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicHeader;
 
 import java.io.IOException;
@@ -51,12 +49,11 @@ public class OAuthTokenHttpObservable extends HttpObservable {
         super();
         this.accessToken = accessToken;
 
-        setDefaultRequestConfig(RequestConfig.custom()
+        setDefaultRequestConfig(SharedHttpTransport.newRequestConfigBuilder()
                 .setCookieSpec(CookieSpecs.DEFAULT)
                 .build());
 
-        setHttpClient(HttpClients.custom()
-                .useSystemProperties()
+        setHttpClient(SharedHttpTransport.newStrictClientBuilder()
                 .setDefaultCookieStore(getCookieStore())
                 .setDefaultRequestConfig(getDefaultRequestConfig())
                 .build());
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.common;
+
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.LongConsumer;
+
+/**
+ * The repeatable file entity which streams the file content from disk with a fixed size buffer, so the memory used
+ * doesn't grow with the file size. The bytes sent are reported to the progress listener once per progress interval
+ * and at the end.
+ */
+public class ProgressFileEntity extends AbstractHttpEntity {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @NotNull
+    private final File file;
+
+    @Nullable
+    private final LongConsumer progressListener;
+
+    private final long progressInterval;
+
+    /**
+     * Constructor
+     *
+     * @param file the file to send
+     * @param contentType the content type
+     * @param progressListener the listener of the bytes sent, null for no progress reporting
+     * @param progressInterval the bytes sent between two progress reports
+     */
+    public ProgressFileEntity(@NotNull File file,
+                              @NotNull ContentType contentType,
+                              @Nullable LongConsumer progressListener,
+                              long progressInterval) {
+        this.file = file;
+        this.progressListener = progressListener;
+        this.progressInterval = Math.max(progressInterval, BUFFER_SIZE);
+
+        setContentType(contentType.toString());
+    }
+
+    public ProgressFileEntity(@NotNull File file, @NotNull ContentType contentType) {
+        this(file, contentType, null, Long.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return file.length();
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return new FileInputStream(file);
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long sent = 0;
+        long reported = 0;
+
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                outStream.write(buffer, 0, read);
+                sent += read;
+
+                if (progressListener != null && sent - reported >= progressInterval) {
+                    progressListener.accept(sent);
+                    reported = sent;
+                }
+            }
+
+            outStream.flush();
+        }
+
+        if (progressListener != null && (sent != reported || sent == 0)) {
+            progressListener.accept(sent);
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
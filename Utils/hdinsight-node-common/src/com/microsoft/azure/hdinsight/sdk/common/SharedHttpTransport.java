@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.common;
+
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.service.ServiceManager;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.DefaultHostnameVerifier;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.IdleConnectionEvictor;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.ssl.SSLContextBuilder;
+import org.apache.http.ssl.TrustStrategy;
+
+import javax.net.ssl.SSLContext;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The process-wide HTTP transport shared by all HTTP clients of HDInsight SDK. The connections are pooled per route
+ * and kept alive for reusing, so that the requests to the same host don't pay a TCP and TLS handshake every time.
+ *
+ * The cluster requests share the pools with the SSL context of the IDE trust strategy got from {@link ServiceManager},
+ * one pool for each SSL certificate validation mode, which only decides the hostname verification. The Azure OAuth
+ * and ARM requests carrying the bearer tokens have their own strict pool with the system SSL settings, which is never
+ * affected by the cluster SSL settings. The idle connections are evicted by one background thread per pool. Since the pool is shared by all clients, the requests
+ * wait for a pooled connection no longer than the connection request timeout, so that the responses
+ * leaked without closing can't block all the later requests of the route.
+ */
+public class SharedHttpTransport {
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+    public static final int DEFAULT_MAX_CONNECTIONS_TOTAL = 200;
+    public static final long IDLE_CONNECTION_EVICT_SECONDS = 30;
+    public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT_MS = 60 * 1000;
+
+    private static final ILogger logger = new ILogger() {};
+
+    private enum SslMode {
+        // The system SSL settings
+        STRICT,
+        // The IDE trust strategy with the hostname verified
+        IDE_TRUST,
+        // The IDE trust strategy without the hostname verified, when the SSL certificate validation is disabled
+        IDE_TRUST_NO_HOSTNAME_VERIFICATION
+    }
+
+    private static final Map<SslMode, PoolingHttpClientConnectionManager> connectionManagers = new ConcurrentHashMap<>();
+
+    private static volatile int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+    private static volatile int maxConnectionsTotal = DEFAULT_MAX_CONNECTIONS_TOTAL;
+    private static volatile int connectionRequestTimeoutMs = DEFAULT_CONNECTION_REQUEST_TIMEOUT_MS;
+
+    /**
+     * Create an HTTP client builder with the shared connection manager, the clients built can be closed without
+     * shutting down the shared connection pool. The default request config has the connection request timeout, the
+     * custom one should be created by {@link #newRequestConfigBuilder()}.
+     *
+     * @return the HTTP client builder with system properties
+     */
+    @NotNull
+    public static HttpClientBuilder newClientBuilder() {
+        return newClientBuilder(getConnectionManager());
+    }
+
+    /**
+     * Create an HTTP client builder with the strict connection manager, for the requests to Azure with the bearer
+     * tokens, whose SSL certificates are always validated by the system SSL settings
+     *
+     * @return the HTTP client builder with system properties
+     */
+    @NotNull
+    public static HttpClientBuilder newStrictClientBuilder() {
+        return newClientBuilder(getStrictConnectionManager());
+    }
+
+    @NotNull
+    private static HttpClientBuilder newClientBuilder(@NotNull HttpClientConnectionManager connectionManager) {
+        return HttpClients.custom()
+                .useSystemProperties()
+                .setConnectionManager(connectionManager)
+                .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(newRequestConfigBuilder().build());
+    }
+
+    /**
+     * @return the request config builder with the timeout of waiting for a connection from the shared pool
+     */
+    @NotNull
+    public static RequestConfig.Builder newRequestConfigBuilder() {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(connectionRequestTimeoutMs);
+    }
+
+    /**
+     * Set the timeout of waiting for a connection from the shared pool, which takes effect for the request configs
+     * created later
+     *
+     * @param timeoutMs the connection request timeout in milliseconds
+     */
+    public static void setConnectionRequestTimeoutMs(int timeoutMs) {
+        connectionRequestTimeoutMs = timeoutMs;
+    }
+
+    /**
+     * @return the connection manager of the cluster requests for the current SSL certificate validation mode
+     */
+    @NotNull
+    public static PoolingHttpClientConnectionManager getConnectionManager() {
+        return connectionManagers.computeIfAbsent(
+                HttpObservable.isSSLCertificateValidationDisabled()
+                        ? SslMode.IDE_TRUST_NO_HOSTNAME_VERIFICATION
+                        : SslMode.IDE_TRUST,
+                SharedHttpTransport::createConnectionManager);
+    }
+
+    /**
+     * @return the connection manager of the Azure requests with the system SSL settings
+     */
+    @NotNull
+    public static PoolingHttpClientConnectionManager getStrictConnectionManager() {
+        return connectionManagers.computeIfAbsent(SslMode.STRICT, SharedHttpTransport::createConnectionManager);
+    }
+
+    /**
+     * Set the max connections per route of all connection pools
+     *
+     * @param maxPerRoute the max connections per route
+     */
+    public static void setMaxConnectionsPerRoute(int maxPerRoute) {
+        maxConnectionsPerRoute = maxPerRoute;
+        connectionManagers.values().forEach(manager -> manager.setDefaultMaxPerRoute(maxPerRoute));
+    }
+
+    /**
+     * Set the max connections in total of each connection pool
+     *
+     * @param maxTotal the max connections in total
+     */
+    public static void setMaxConnectionsTotal(int maxTotal) {
+        maxConnectionsTotal = maxTotal;
+        connectionManagers.values().forEach(manager -> manager.setMaxTotal(maxTotal));
+    }
+
+    /**
+     * @return the connections statistics of the current connection pool, including leased, pending, available and
+     *         max connections
+     */
+    @NotNull
+    public static PoolStats getTotalStats() {
+        return getConnectionManager().getTotalStats();
+    }
+
+    /**
+     * @return the routes with connections kept in the current connection pool
+     */
+    @NotNull
+    public static Set<HttpRoute> getRoutes() {
+        return getConnectionManager().getRoutes();
+    }
+
+    /**
+     * @param route the route to check
+     * @return the connections statistics of the route in the current connection pool
+     */
+    @NotNull
+    public static PoolStats getStats(@NotNull HttpRoute route) {
+        return getConnectionManager().getStats(route);
+    }
+
+    @NotNull
+    private static PoolingHttpClientConnectionManager createConnectionManager(@NotNull SslMode sslMode) {
+        final Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", createSSLSocketFactory(sslMode))
+                .build();
+
+        final PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setMaxTotal(maxConnectionsTotal);
+
+        final IdleConnectionEvictor evictor = new IdleConnectionEvictor(
+                connectionManager, IDLE_CONNECTION_EVICT_SECONDS, TimeUnit.SECONDS);
+        evictor.start();
+
+        return connectionManager;
+    }
+
+    @NotNull
+    private static ConnectionSocketFactory createSSLSocketFactory(@NotNull SslMode sslMode) {
+        final TrustStrategy trustStrategy = ServiceManager.getServiceProvider(TrustStrategy.class);
+
+        if (sslMode != SslMode.STRICT && trustStrategy != null) {
+            try {
+                final SSLContext sslContext = new SSLContextBuilder()
+                        .loadTrustMaterial(trustStrategy)
+                        .build();
+
+                return new SSLConnectionSocketFactory(sslContext,
+                        sslMode == SslMode.IDE_TRUST_NO_HOSTNAME_VERIFICATION
+                                ? NoopHostnameVerifier.INSTANCE
+                                : new DefaultHostnameVerifier());
+            } catch (GeneralSecurityException e) {
+                logger.log().error("Prepare SSL Context for HTTPS failure.", e);
+            }
+        }
+
+        return SSLConnectionSocketFactory.getSystemSocketFactory();
+    }
+}
@@ -93,25 +93,39 @@ public class SharedKeyHttpObservable extends HttpObservable {
         HttpEntity entityFromRequest = httpRequest instanceof HttpEntityEnclosingRequestBase
                 ? ((HttpEntityEnclosingRequestBase) httpRequest).getEntity()
                 : null;
+        Header[] signedHeaders;
 
-        if (entityFromRequest != null) {
-            // Job deployment needs to set content-length to generate shared key
-            // httpclient auto adds this header and calculates length when executing
-            // so remove this header after key generation otherwise header already exists exp happens
-            // MUST follow the order when content length is needed to generate key
-            setContentLength(String.valueOf(entityFromRequest.getContentLength()));
-            this.setAuthorization(httpRequest, parameters);
-            this.removeContentLength();
-        } else {
-            this.setAuthorization(httpRequest, parameters);
+        // The key is generated from the shared default headers, sign and take them together so that the parallel
+        // requests don't get the key of each other
+        synchronized (this) {
+            if (entityFromRequest != null) {
+                // The entity content type replaces the default one when executing, sign with it
+                if (entityFromRequest.getContentType() != null) {
+                    setContentType(entityFromRequest.getContentType().getValue());
+                }
+
+                // Job deployment needs to set content-length to generate shared key
+                // httpclient auto adds this header and calculates length when executing
+                // so remove this header after key generation otherwise header already exists exp happens
+                // MUST follow the order when content length is needed to generate key
+                setContentLength(String.valueOf(entityFromRequest.getContentLength()));
+                this.setAuthorization(httpRequest, parameters);
+                this.removeContentLength();
+            } else {
+                this.setAuthorization(httpRequest, parameters);
+            }
+
+            signedHeaders = defaultHeaders.getAllHeaders();
         }
 
-        return super.request(httpRequest, entityFromRequest, parameters, null);
+        return super.request(httpRequest, entityFromRequest, parameters, Arrays.asList(signedHeaders));
     }
 
     @Override
     @Nullable
     public Header[] getDefaultHeaders() throws IOException {
-        return defaultHeaders.getAllHeaders();
+        synchronized (this) {
+            return defaultHeaders.getAllHeaders();
+        }
     }
 }
@@ -23,19 +23,25 @@
 package com.microsoft.azure.hdinsight.sdk.rest;
 
 import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.http.HttpEntity;
 import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
 
 
 public final class ObjectConvertUtils {
@@ -56,6 +62,91 @@ public final class ObjectConvertUtils {
         return null;
     }
 
+    /**
+     * Deserialize the JSON stream into the object directly, without reading it into a string
+     *
+     * @param jsonStream the JSON stream, which is not closed after reading
+     * @param tClass the target type
+     * @return the object deserialized
+     * @throws IOException for reading or deserialization errors
+     */
+    public static <T> T convertJsonStreamToObject(@NotNull InputStream jsonStream, @NotNull Class<T> tClass) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(jsonStream)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+            return objectMapper.readValue(parser, tClass);
+        }
+    }
+
+    /**
+     * Iterate the elements of a JSON array in the stream, the elements are deserialized one by one while iterating.
+     * The {@link UncheckedIOException} is thrown for the errors while iterating.
+     *
+     * @param jsonStream the JSON stream, which is not closed after reading
+     * @param arrayFieldName the field name of the array in the top level JSON object, or null for the top level array
+     * @param tClass the element type
+     * @return the elements iterator, which is empty if the array field doesn't exist or is null
+     * @throws IOException for reading errors or the JSON is not in the expected structure
+     */
+    public static <T> Iterator<T> iterateJsonArray(@NotNull InputStream jsonStream,
+                                                   @Nullable String arrayFieldName,
+                                                   @NotNull Class<T> tClass) throws IOException {
+        final JsonParser parser = jsonFactory.createParser(jsonStream);
+        parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+        JsonToken token = parser.nextToken();
+
+        if (arrayFieldName != null) {
+            if (token != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expect a JSON object with the array field " + arrayFieldName);
+            }
+
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                token = parser.nextToken();
+
+                if (fieldName.equals(arrayFieldName)) {
+                    break;
+                }
+
+                parser.skipChildren();
+            }
+        }
+
+        if (token != JsonToken.START_ARRAY) {
+            if (token == null || token == JsonToken.END_OBJECT || token == JsonToken.VALUE_NULL) {
+                return Collections.emptyIterator();
+            }
+
+            throw new JsonParseException(parser, "Expect a JSON array, but got " + token);
+        }
+
+        return new Iterator<T>() {
+            private JsonToken next = parser.nextToken();
+
+            @Override
+            public boolean hasNext() {
+                return next != null && next != JsonToken.END_ARRAY;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                try {
+                    final T element = objectMapper.readValue(parser, tClass);
+                    next = parser.nextToken();
+
+                    return element;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
     public static <T> Optional<T> convertEntityToObject(@NotNull HttpEntity entity, @NotNull Class<T> tClass) throws IOException {
         final String type = entity.getContentType().getValue().toLowerCase();
 
@@ -108,6 +199,28 @@ public final class ObjectConvertUtils {
         return Optional.empty();
     }
 
+    /**
+     * Serialize the object as JSON into the output stream directly, without building the JSON string
+     *
+     * @param obj the object to serialize
+     * @param out the output stream, which is not closed after writing
+     * @throws IOException for serialization or writing errors
+     */
+    public static <T> void writeObjectAsJson(@NotNull T obj, @NotNull OutputStream out) throws IOException {
+        objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(out, obj);
+    }
+
+    /**
+     * Create a JSON generator to write objects into the output stream one by one
+     *
+     * @param out the output stream, which is closed with the generator
+     * @return the JSON generator with the object codec set
+     * @throws IOException for creating errors
+     */
+    public static JsonGenerator createJsonGenerator(@NotNull OutputStream out) throws IOException {
+        return objectMapper.getFactory().createGenerator(out);
+    }
+
     public static <T> Optional<String> convertObjectToXmlString(@NotNull T obj) {
         try {
             return Optional.ofNullable(xmlMapper.writeValueAsString(obj));
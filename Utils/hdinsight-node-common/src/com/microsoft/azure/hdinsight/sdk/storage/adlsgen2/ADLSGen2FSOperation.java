@@ -27,38 +27,54 @@ import com.microsoft.azure.hdinsight.sdk.rest.azure.storageaccounts.RemoteFile;
 import com.microsoft.azure.hdinsight.sdk.rest.azure.storageaccounts.api.GetRemoteFilesResponse;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
+import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPatch;
 import org.apache.http.client.methods.HttpPut;
-import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.InputStreamEntity;
 import rx.Observable;
+import rx.exceptions.Exceptions;
+import rx.schedulers.Schedulers;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.UnknownServiceException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class ADLSGen2FSOperation {
+    public static final int DEFAULT_APPEND_CHUNK_SIZE = 8 * 1024 * 1024;
+    public static final int DEFAULT_APPEND_CONCURRENCY = 4;
+    public static final long DEFAULT_FLUSH_INTERVAL = 256 * 1024 * 1024;
+    public static final int MAX_APPEND_RETRIES = 3;
+    public static final long APPEND_RETRY_DELAY_MS = 500;
+
     private HttpObservable http;
 
+    // The chunks are read and appended in parallel, so the memory used is bounded by chunk size * concurrency
+    private int appendChunkSize = DEFAULT_APPEND_CHUNK_SIZE;
+
+    private int appendConcurrency = DEFAULT_APPEND_CONCURRENCY;
+
+    // The appended data are flushed per interval, so that the committed length can be resumed from
+    private long flushInterval = DEFAULT_FLUSH_INTERVAL;
+
     @NotNull
     private List<NameValuePair> createDirReqParams;
 
     @NotNull
     private List<NameValuePair> createFileReqParams;
 
-    @NotNull
-    private List<NameValuePair> appendReqParams;
-
     @NotNull
     private ADLSGen2ParamsBuilder listReqBuilder;
 
-    @NotNull
-    private ADLSGen2ParamsBuilder flushReqParamsBuilder;
-
     public ADLSGen2FSOperation(@NotNull HttpObservable http) {
         this.http = http;
         this.createDirReqParams = new ADLSGen2ParamsBuilder()
@@ -68,14 +84,33 @@ public class ADLSGen2FSOperation {
         this.createFileReqParams = new ADLSGen2ParamsBuilder()
                 .setResource("file")
                 .build();
+    }
 
-        this.appendReqParams = new ADLSGen2ParamsBuilder()
-                .setAction("append")
-                .setPosition(0)
-                .build();
+    public int getAppendChunkSize() {
+        return appendChunkSize;
+    }
 
-        this.flushReqParamsBuilder = new ADLSGen2ParamsBuilder()
-                .setAction("flush");
+    public ADLSGen2FSOperation setAppendChunkSize(int appendChunkSize) {
+        this.appendChunkSize = appendChunkSize;
+        return this;
+    }
+
+    public int getAppendConcurrency() {
+        return appendConcurrency;
+    }
+
+    public ADLSGen2FSOperation setAppendConcurrency(int appendConcurrency) {
+        this.appendConcurrency = appendConcurrency;
+        return this;
+    }
+
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    public ADLSGen2FSOperation setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+        return this;
     }
 
     public Observable<Boolean> createDir(String dirpath) {
@@ -91,8 +126,79 @@ public class ADLSGen2FSOperation {
     }
 
     public Observable<Boolean> uploadData(String destFilePath, File src) {
-        return appendData(destFilePath, src)
-                .flatMap(len -> flushData(destFilePath, len));
+        return uploadData(destFilePath, src, 0);
+    }
+
+    /**
+     * Upload the file data from the offset. The data are streamed in chunks, which are appended in parallel at their
+     * positions and retried individually, then flushed once per flush interval.
+     *
+     * @param destFilePath the created destination file path
+     * @param src the file to upload
+     * @param fromOffset the offset to upload from, which is the committed length of the destination file
+     * @return Observable: true when all data are flushed
+     */
+    public Observable<Boolean> uploadData(String destFilePath, File src, long fromOffset) {
+        final long length = src.length();
+        if (fromOffset >= length) {
+            return flushData(destFilePath, length);
+        }
+
+        final List<Long> windowStarts = new ArrayList<>();
+        for (long position = fromOffset; position < length; position += flushInterval) {
+            windowStarts.add(position);
+        }
+
+        return Observable.from(windowStarts)
+                .concatMap(windowStart -> {
+                    final long flushPosition = Math.min(windowStart + flushInterval, length);
+                    final List<Long> chunkOffsets = new ArrayList<>();
+                    for (long offset = windowStart; offset < flushPosition; offset += appendChunkSize) {
+                        chunkOffsets.add(offset);
+                    }
+
+                    return Observable.from(chunkOffsets)
+                            .flatMap(offset -> appendDataWithRetry(
+                                            destFilePath, src, offset, (int) Math.min(appendChunkSize, flushPosition - offset))
+                                            .subscribeOn(Schedulers.io()),
+                                    appendConcurrency)
+                            .toList()
+                            .flatMap(ignore -> flushData(destFilePath, flushPosition));
+                })
+                .last();
+    }
+
+    /**
+     * Get the committed length of the file
+     *
+     * @param filePath the file path
+     * @return Observable: the file length, or -1 if the file doesn't exist
+     */
+    public Observable<Long> getFileLength(String filePath) {
+        return http.request(new HttpHead(filePath), null, null, Arrays.asList(http.getDefaultHeaderGroup().getAllHeaders()))
+                .map(resp -> {
+                    try {
+                        int statusCode = resp.getStatusLine().getStatusCode();
+                        if (statusCode == HttpStatus.SC_NOT_FOUND) {
+                            return -1L;
+                        }
+
+                        Header contentLength = resp.getFirstHeader(HttpHeaders.CONTENT_LENGTH);
+                        if (statusCode != HttpStatus.SC_OK || contentLength == null) {
+                            throw new UnknownServiceException(String.format(
+                                    "Get properties of %s with unexpected code %s and resp %s", filePath, statusCode, resp));
+                        }
+
+                        return Long.parseLong(contentLength.getValue());
+                    } catch (IOException ex) {
+                        throw new RuntimeException(ex);
+                    } finally {
+                        try {
+                            resp.close();
+                        } catch (IOException ignored) {
+                        }
+                    }
+                });
     }
 
     public Observable<RemoteFile> list(String rootPath, String relativePath) {
@@ -108,31 +214,48 @@ public class ADLSGen2FSOperation {
                 .flatMap(pathList -> Observable.from(pathList.getRemoteFiles()));
     }
 
-    private Observable<Long> appendData(String filePath, File src) {
-        try {
-            InputStreamEntity reqEntity = new InputStreamEntity(
-                    new FileInputStream(src),
-                    -1,
-                    ContentType.APPLICATION_OCTET_STREAM);
-            BufferedHttpEntity entity = new BufferedHttpEntity(reqEntity);
-            long len = entity.getContentLength();
+    private Observable<Long> appendDataWithRetry(String filePath, File src, long offset, int length) {
+        return Observable.defer(() -> appendData(filePath, src, offset, length))
+                .retryWhen(errors -> errors
+                        .zipWith(Observable.range(1, MAX_APPEND_RETRIES + 1), (err, attempt) -> {
+                            if (attempt > MAX_APPEND_RETRIES || err instanceof IllegalArgumentException) {
+                                throw Exceptions.propagate(err);
+                            }
+
+                            return attempt;
+                        })
+                        .flatMap(attempt -> Observable.timer(
+                                APPEND_RETRY_DELAY_MS << (attempt - 1), TimeUnit.MILLISECONDS)));
+    }
+
+    private Observable<Long> appendData(String filePath, File src, long offset, int length) {
+        try (RandomAccessFile file = new RandomAccessFile(src, "r")) {
+            byte[] chunk = new byte[length];
+            file.seek(offset);
+            file.readFully(chunk);
 
             HttpPatch req = new HttpPatch(filePath);
-            req.setEntity(entity);
+            req.setEntity(new ByteArrayEntity(chunk, ContentType.APPLICATION_OCTET_STREAM));
             http.setContentType("application/octet-stream");
 
-            return http.executeReqAndCheckStatus(req, 202, this.appendReqParams)
-                    .map(ignore -> len);
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException(new IllegalArgumentException("Can not find the aritifact"));
+            List<NameValuePair> appendReqParams = new ADLSGen2ParamsBuilder()
+                    .setAction("append")
+                    .setPosition(offset)
+                    .build();
+
+            return http.executeReqAndCheckStatus(req, 202, appendReqParams)
+                    .map(ignore -> (long) length);
         } catch (IOException e) {
-            throw new RuntimeException(new IllegalArgumentException("Can not read the aritfact"));
+            return Observable.error(new IllegalArgumentException("Can not read the artifact " + src, e));
         }
     }
 
     private Observable<Boolean> flushData(String filePath, long flushLen) {
         HttpPatch req = new HttpPatch(filePath);
-        List<NameValuePair> flushReqParams = this.flushReqParamsBuilder.setPosition(flushLen).build();
+        List<NameValuePair> flushReqParams = new ADLSGen2ParamsBuilder()
+                .setAction("flush")
+                .setPosition(flushLen)
+                .build();
         http.setContentType("application/json");
 
         return http.executeReqAndCheckStatus(req, 200, flushReqParams)
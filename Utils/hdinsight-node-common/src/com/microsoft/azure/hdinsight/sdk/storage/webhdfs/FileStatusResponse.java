@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.storage.webhdfs;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The response body of WebHDFS `GETFILESTATUS` operation
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class FileStatusResponse {
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class FileStatus {
+        private long length;        // The file length in bytes
+        private String type;        // FILE, DIRECTORY or SYMLINK
+
+        public long getLength() {
+            return length;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public boolean isFile() {
+            return "FILE".equals(type);
+        }
+    }
+
+    @JsonProperty("FileStatus")
+    private FileStatus fileStatus;
+
+    public FileStatus getFileStatus() {
+        return fileStatus;
+    }
+}
@@ -40,7 +40,7 @@ import java.io.File;
 import java.net.URI;
 import java.util.AbstractMap;
 
-public class ADLSGen2Deploy implements Deployable, ILogger {
+public class ADLSGen2Deploy implements CacheableDeployable, ILogger {
     @NotNull
     public HttpObservable http;
 
@@ -57,23 +57,64 @@ public class ADLSGen2Deploy implements Deployable, ILogger {
                 .resolve(JobUtils.getFormatPathByDate() + "/");
     }
 
+    @NotNull
     @Override
-    public Observable<String> deploy(File src,
-                                     Observer<AbstractMap.SimpleImmutableEntry<MessageInfoType, String>> logSubject) {
-        // four steps to upload via adls gen2 rest api
-        // 1.put request to create new dir
-        // 2.put request to create new file(artifact) which is empty
-        // 3.patch request to append data to file
-        // 4.patch request to flush data to file
+    public String getDestinationRoot() {
+        return destinationRootPath;
+    }
 
+    @NotNull
+    @Override
+    public String newDestination(@NotNull File src) {
         URI destURI = getUploadDir();
 
         //remove request / end otherwise invalid url response
         String destStr = destURI.toString();
         String dirPath = destStr.endsWith("/") ? destStr.substring(0, destStr.length() - 1) : destStr;
-        String filePath = String.format("%s/%s", dirPath, src.getName());
+        return String.format("%s/%s", dirPath, src.getName());
+    }
+
+    @NotNull
+    @Override
+    public Observable<String> deployTo(@NotNull File src,
+                                       @NotNull String filePath,
+                                       @NotNull Observer<AbstractMap.SimpleImmutableEntry<MessageInfoType, String>> logSubject) {
+        // four steps to upload via adls gen2 rest api
+        // 1.put request to create new dir
+        // 2.put request to create new file(artifact) which is empty
+        // 3.patch request to append data to file
+        // 4.patch request to flush data to file
+        // An interrupted upload is resumed by appending from the flushed length of the file
+        String dirPath = filePath.substring(0, filePath.lastIndexOf('/'));
 
         ADLSGen2FSOperation op = new ADLSGen2FSOperation(this.http);
+        return op.getFileLength(filePath)
+                .onErrorReturn(err -> -1L)
+                .flatMap(uploadedLength -> {
+                    if (uploadedLength > 0 && uploadedLength <= src.length()) {
+                        logSubject.onNext(new AbstractMap.SimpleImmutableEntry<>(MessageInfoType.Info, String.format(
+                                "Resume uploading %s from %d of %d bytes.", filePath, uploadedLength, src.length())));
+
+                        return op.uploadData(filePath, src, uploadedLength);
+                    }
+
+                    return createDir(op, dirPath)
+                            .doOnNext(ignore -> log().info(String.format("Create filesystem %s successfully.", dirPath)))
+                            .flatMap(ignore -> op.createFile(filePath))
+                            .flatMap(ignore -> op.uploadData(filePath, src));
+                })
+                .doOnNext(ignore -> log().info(String.format("Append data to file %s successfully.", filePath)))
+                .map(ignored -> AbfsUri.parse(filePath).getUri().toString());
+    }
+
+    @NotNull
+    @Override
+    public Observable<Boolean> isDeployed(@NotNull String filePath, long length) {
+        return new ADLSGen2FSOperation(this.http).getFileLength(filePath)
+                .map(uploadedLength -> uploadedLength == length);
+    }
+
+    private Observable<Boolean> createDir(@NotNull ADLSGen2FSOperation op, @NotNull String dirPath) {
         return op.createDir(dirPath)
                 .onErrorReturn(err -> {
                     if (err.getMessage()!= null && (err.getMessage().contains(String.valueOf(HttpStatus.SC_FORBIDDEN))
@@ -86,12 +127,7 @@ public class ADLSGen2Deploy implements Deployable, ILogger {
                     } else {
                         throw Exceptions.propagate(err);
                     }
-                })
-                .doOnNext(ignore -> log().info(String.format("Create filesystem %s successfully.", dirPath)))
-                .flatMap(ignore -> op.createFile(filePath))
-                .flatMap(ignore -> op.uploadData(filePath, src))
-                .doOnNext(ignore -> log().info(String.format("Append data to file %s successfully.", filePath)))
-                .map(ignored -> AbfsUri.parse(filePath).getUri().toString());
+                });
     }
 
     public static String getForbiddenErrorHints(String fileSystemRootPath) {
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.google.common.hash.Hashing;
+import com.microsoft.azure.hdinsight.common.HDInsightHelper;
+import com.microsoft.azure.hdinsight.common.HDInsightLoader;
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * The persistent index of the uploaded Spark job artifacts, keyed by the destination root and the artifact content
+ * SHA-256 hash. An entry is recorded as pending before uploading, and gets the uploaded path when the upload is done,
+ * so that an interrupted upload can be resumed into the same destination.
+ *
+ * The index is saved as JSON under the plugin root path, and kept in memory only if there is no plugin root path.
+ */
+public class ArtifactDeployIndex implements ILogger {
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Entry {
+        private String destination;     // The destination the artifact is uploaded into
+        @Nullable
+        private String uploadedPath;    // The path for the Spark job to refer, null if the upload is not done yet
+        private long length;            // The artifact length
+
+        public Entry() {
+        }
+
+        public Entry(@NotNull String destination, @Nullable String uploadedPath, long length) {
+            this.destination = destination;
+            this.uploadedPath = uploadedPath;
+            this.length = length;
+        }
+
+        public String getDestination() {
+            return destination;
+        }
+
+        @Nullable
+        public String getUploadedPath() {
+            return uploadedPath;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        @JsonIgnore
+        public boolean isPending() {
+            return uploadedPath == null;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Entries {
+        private Map<String, Entry> entries = new HashMap<>();
+
+        public Map<String, Entry> getEntries() {
+            return entries;
+        }
+
+        public void setEntries(Map<String, Entry> entries) {
+            this.entries = entries == null ? new HashMap<>() : entries;
+        }
+    }
+
+    private static final String INDEX_DIR = "SparkArtifacts";
+    private static final String INDEX_FILE_NAME = "deployIndex.json";
+
+    @Nullable
+    private static ArtifactDeployIndex instance;
+
+    @Nullable
+    private final File indexFile;
+
+    @NotNull
+    private final Map<String, Entry> entries;
+
+    // The artifact hashes computed, keyed by the artifact path, length and last modified time
+    @NotNull
+    private final Map<String, String> hashes = new HashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param indexFile the file to load and save the index, or null to keep the index in memory only
+     */
+    public ArtifactDeployIndex(@Nullable File indexFile) {
+        this.indexFile = indexFile;
+        this.entries = load(indexFile);
+    }
+
+    @NotNull
+    public static synchronized ArtifactDeployIndex getInstance() {
+        if (instance == null) {
+            final HDInsightHelper helper = HDInsightLoader.getHDInsightHelper();
+
+            instance = new ArtifactDeployIndex(helper == null
+                    ? null
+                    : new File(new File(helper.getPluginRootPath(), INDEX_DIR), INDEX_FILE_NAME));
+        }
+
+        return instance;
+    }
+
+    @NotNull
+    private Map<String, Entry> load(@Nullable File file) {
+        if (file == null || !file.isFile()) {
+            return new HashMap<>();
+        }
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return ObjectConvertUtils.convertJsonStreamToObject(in, Entries.class).getEntries();
+        } catch (Exception ex) {
+            log().warn("Can't load the Spark artifact deploy index " + file + ", start with an empty one.", ex);
+
+            return new HashMap<>();
+        }
+    }
+
+    private void save() {
+        if (indexFile == null) {
+            return;
+        }
+
+        final File dir = indexFile.getAbsoluteFile().getParentFile();
+
+        try {
+            Files.createDirectories(dir.toPath());
+
+            // Write into a temporary file and then move it, not to leave a broken index when the IDE exits
+            final File tempFile = File.createTempFile(INDEX_FILE_NAME, ".tmp", dir);
+            final Entries saved = new Entries();
+            saved.setEntries(entries);
+
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+                ObjectConvertUtils.writeObjectAsJson(saved, out);
+            }
+
+            try {
+                Files.move(tempFile.toPath(), indexFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ignored) {
+                Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            log().warn("Can't save the Spark artifact deploy index " + indexFile, ex);
+        }
+    }
+
+    @NotNull
+    private static String getKey(@NotNull String destinationRoot, @NotNull String hash) {
+        return destinationRoot + "|" + hash;
+    }
+
+    /**
+     * Get the SHA-256 hash of the artifact content, which is computed only once until the artifact is changed
+     *
+     * @param artifact the artifact file
+     * @return the hash in hex
+     * @throws IOException for reading errors
+     */
+    @NotNull
+    public String hash(@NotNull File artifact) throws IOException {
+        final String fileKey = artifact.getAbsolutePath() + "|" + artifact.length() + "|" + artifact.lastModified();
+
+        synchronized (hashes) {
+            final String hash = hashes.get(fileKey);
+            if (hash != null) {
+                return hash;
+            }
+        }
+
+        final String hash = com.google.common.io.Files.asByteSource(artifact).hash(Hashing.sha256()).toString();
+
+        synchronized (hashes) {
+            hashes.put(fileKey, hash);
+        }
+
+        return hash;
+    }
+
+    @NotNull
+    public synchronized Optional<Entry> get(@NotNull String destinationRoot, @NotNull String hash) {
+        return Optional.ofNullable(entries.get(getKey(destinationRoot, hash)));
+    }
+
+    public synchronized void putPending(@NotNull String destinationRoot,
+                                        @NotNull String hash,
+                                        @NotNull String destination,
+                                        long length) {
+        entries.put(getKey(destinationRoot, hash), new Entry(destination, null, length));
+        save();
+    }
+
+    public synchronized void putDeployed(@NotNull String destinationRoot,
+                                         @NotNull String hash,
+                                         @NotNull String destination,
+                                         @NotNull String uploadedPath,
+                                         long length) {
+        entries.put(getKey(destinationRoot, hash), new Entry(destination, uploadedPath, length));
+        save();
+    }
+
+    public synchronized void remove(@NotNull String destinationRoot, @NotNull String hash) {
+        if (entries.remove(getKey(destinationRoot, hash)) != null) {
+            save();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common;
+
+import com.microsoft.azure.hdinsight.common.MessageInfoType;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import rx.Observable;
+import rx.Observer;
+
+import java.io.File;
+import java.util.AbstractMap;
+
+/**
+ * The deployable which can upload the artifact to a chosen destination, check the uploaded one and resume an
+ * interrupted upload, so that the uploaded artifacts can be reused by {@link CachedDeploy}.
+ */
+public interface CacheableDeployable extends Deployable {
+    /**
+     * @return the destination root path, which identifies the storage the artifacts are uploaded into
+     */
+    @NotNull
+    String getDestinationRoot();
+
+    /**
+     * Allocate a new destination to upload the artifact into
+     *
+     * @param src the artifact to deploy
+     * @return the destination
+     */
+    @NotNull
+    String newDestination(@NotNull File src);
+
+    /**
+     * Upload the artifact into the destination, the uploaded part of an interrupted upload is kept if the storage
+     * supports resuming
+     *
+     * @param src the artifact to deploy
+     * @param destination the destination got from {@link #newDestination(File)}
+     * @param logSubject the subject to help print logs during deploying
+     * @return Observable: upload path
+     *         Observable Error: IOException;
+     */
+    @NotNull
+    Observable<String> deployTo(@NotNull File src,
+                                @NotNull String destination,
+                                @NotNull Observer<AbstractMap.SimpleImmutableEntry<MessageInfoType, String>> logSubject);
+
+    /**
+     * Check if the artifact has been uploaded into the destination completely
+     *
+     * @param destination the destination got from {@link #newDestination(File)}
+     * @param length the artifact length
+     * @return Observable: true if the destination exists with the same length
+     */
+    @NotNull
+    Observable<Boolean> isDeployed(@NotNull String destination, long length);
+
+    @Override
+    default Observable<String> deploy(File src,
+                                      Observer<AbstractMap.SimpleImmutableEntry<MessageInfoType, String>> logSubject) {
+        return deployTo(src, newDestination(src), logSubject);
+    }
+}
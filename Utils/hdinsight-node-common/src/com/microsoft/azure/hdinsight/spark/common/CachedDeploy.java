@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common;
+
+import com.microsoft.azure.hdinsight.common.MessageInfoType;
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import rx.Observable;
+import rx.Observer;
+
+import java.io.File;
+import java.util.AbstractMap;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Optional;
+
+/**
+ * The deployable decorator to skip uploading the unchanged artifacts. The artifact is identified by its content hash,
+ * and the uploaded one is reused after checking it still exists in the storage. An interrupted upload is resumed
+ * into the same destination.
+ */
+public class CachedDeploy implements Deployable, ILogger {
+    @NotNull
+    private final CacheableDeployable delegate;
+
+    @NotNull
+    private final ArtifactDeployIndex index;
+
+    public CachedDeploy(@NotNull CacheableDeployable delegate) {
+        this(delegate, ArtifactDeployIndex.getInstance());
+    }
+
+    public CachedDeploy(@NotNull CacheableDeployable delegate, @NotNull ArtifactDeployIndex index) {
+        this.delegate = delegate;
+        this.index = index;
+    }
+
+    @NotNull
+    public CacheableDeployable getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public Observable<String> deploy(File src,
+                                     Observer<AbstractMap.SimpleImmutableEntry<MessageInfoType, String>> logSubject) {
+        return Observable.fromCallable(() -> index.hash(src))
+                .flatMap(hash -> {
+                    final String root = delegate.getDestinationRoot();
+                    final long length = src.length();
+                    final Optional<ArtifactDeployIndex.Entry> entry = index.get(root, hash)
+                            .filter(found -> found.getLength() == length);
+
+                    if (!entry.isPresent()) {
+                        return upload(src, hash, delegate.newDestination(src), logSubject);
+                    }
+
+                    final String destination = entry.get().getDestination();
+
+                    if (entry.get().isPending()) {
+                        logSubject.onNext(new SimpleImmutableEntry<>(MessageInfoType.Info,
+                                "Resume uploading the artifact " + src.getName() + " into " + destination));
+
+                        return upload(src, hash, destination, logSubject);
+                    }
+
+                    return delegate.isDeployed(destination, length)
+                            .onErrorReturn(err -> {
+                                log().warn("Can't check the uploaded artifact " + destination, err);
+
+                                return false;
+                            })
+                            .flatMap(isDeployed -> {
+                                if (isDeployed) {
+                                    logSubject.onNext(new SimpleImmutableEntry<>(MessageInfoType.Info,
+                                            "The artifact " + src.getName() + " is unchanged, skip uploading and use " +
+                                                    "the uploaded one " + destination));
+
+                                    return Observable.just(entry.get().getUploadedPath());
+                                }
+
+                                return upload(src, hash, delegate.newDestination(src), logSubject);
+                            });
+                });
+    }
+
+    @NotNull
+    private Observable<String> upload(@NotNull File src,
+                                      @NotNull String hash,
+                                      @NotNull String destination,
+                                      @NotNull Observer<SimpleImmutableEntry<MessageInfoType, String>> logSubject) {
+        final String root = delegate.getDestinationRoot();
+        final long length = src.length();
+
+        // Record the destination before uploading to resume the interrupted upload
+        index.putPending(root, hash, destination, length);
+
+        return delegate.deployTo(src, destination, logSubject)
+                .doOnNext(uploadedPath -> index.putDeployed(root, hash, destination, uploadedPath, length));
+    }
+}
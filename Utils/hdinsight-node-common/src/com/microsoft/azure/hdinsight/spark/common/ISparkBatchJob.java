@@ -93,7 +93,7 @@ public interface ISparkBatchJob extends Cloneable {
      * Get Spark job driver log observable
      *
      * @param type the log type, such as `stderr`, `stdout`
-     * @param logOffset the log offset that fetching would start from
+     * @param logOffset the log offset in bytes that fetching would start from
      * @param size the fetching size, -1 for all.
      * @return the log and its starting offset pair observable
      */
@@ -105,7 +105,7 @@ public interface ISparkBatchJob extends Cloneable {
      *
      * @param containerLogUrl the container log URL
      * @param type the log type, such as `stderr`, `stdout`
-     * @param logOffset the log offset that fetching would start from
+     * @param logOffset the log offset in bytes that fetching would start from
      * @param size the fetching size, -1 for all.
      * @return the log and its starting offset pair observable
      */
@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.sdk.common.HttpResponse;
+import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+import rx.subjects.BehaviorSubject;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.UnknownServiceException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Livy batches status monitor of one cluster. All the batches watched on the cluster are polled together by
+ * listing the batches page by page with `GET /batches?from=&size=` once per interval, rather than getting each
+ * batch status separately. The batches not listed are got one by one as the fallback.
+ *
+ * Livy lists the batches in the order of batch ID, so the listing starts from the index of the smallest batch
+ * watched in the last poll, and steps back if the older batches have been removed.
+ *
+ * The failures are counted per batch, a batch whose status can't be got doesn't fail the other batches watched.
+ * The listing is only disabled for the cluster if it's not supported (404 or 405), the other listing failures fall
+ * back to getting the batch status one by one for that poll.
+ */
+public class LivyBatchStatusMonitor implements ILogger {
+    public static final long DEFAULT_POLLING_INTERVAL_MS = 1000;
+    public static final int PAGE_SIZE = 100;
+    public static final int MAX_CONSECUTIVE_FAILURES = 3;
+
+    private static final Scheduler scheduler = Schedulers.from(Executors.newFixedThreadPool(
+            2,
+            new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("livy-batch-status-monitor-%d")
+                    .build()));
+
+    private static final Map<MonitorKey, LivyBatchStatusMonitor> monitors = new ConcurrentHashMap<>();
+
+    /**
+     * The monitor key of the connection URL and the submission instance, since the submissions to the same URL may
+     * have different credentials or headers
+     */
+    private static class MonitorKey {
+        @NotNull
+        private final String connectUrl;
+
+        @NotNull
+        private final SparkBatchSubmission submission;
+
+        MonitorKey(@NotNull String connectUrl, @NotNull SparkBatchSubmission submission) {
+            this.connectUrl = connectUrl;
+            this.submission = submission;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof MonitorKey)) {
+                return false;
+            }
+
+            final MonitorKey that = (MonitorKey) obj;
+            return connectUrl.equals(that.connectUrl) && submission == that.submission;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * connectUrl.hashCode() + System.identityHashCode(submission);
+        }
+    }
+
+    private static class Watch {
+        @NotNull
+        private final BehaviorSubject<SparkSubmitResponse> subject = BehaviorSubject.create();
+
+        private int subscribers = 0;
+
+        private int consecutiveFailures = 0;
+
+        @Nullable
+        private String lastState;
+
+        @Nullable
+        private String lastAppId;
+    }
+
+    @NotNull
+    private final MonitorKey key;
+
+    @NotNull
+    private final String connectUrl;
+
+    @NotNull
+    private final SparkBatchSubmission submission;
+
+    // Guarded by this
+    @NotNull
+    private final Map<Integer, Watch> watches = new HashMap<>();
+
+    // Guarded by this, not null while polling
+    @Nullable
+    private Scheduler.Worker worker;
+
+    private volatile long pollingIntervalMs = DEFAULT_POLLING_INTERVAL_MS;
+
+    // Only accessed in the polling cycles
+    private int startIndexHint = 0;
+    private boolean isListingSupported = true;
+
+    private LivyBatchStatusMonitor(@NotNull MonitorKey key) {
+        this.key = key;
+        this.connectUrl = key.connectUrl;
+        this.submission = key.submission;
+    }
+
+    /**
+     * Get the monitor of the Livy batches connection URI and the submission. The monitor is removed once no batch is
+     * watched, so that the submissions not used any more are not held.
+     *
+     * @param connectUri the Livy batches connection URI, such as: http://livy:8998/batches
+     * @param submission the submission to send requests
+     * @return the monitor shared by the batches of the connection URI watched with the same submission
+     */
+    @NotNull
+    public static LivyBatchStatusMonitor of(@NotNull URI connectUri, @NotNull SparkBatchSubmission submission) {
+        return monitors.computeIfAbsent(
+                new MonitorKey(StringUtils.stripEnd(connectUri.toString(), "/"), submission),
+                LivyBatchStatusMonitor::new);
+    }
+
+    @NotNull
+    public String getConnectUrl() {
+        return connectUrl;
+    }
+
+    public long getPollingIntervalMs() {
+        return pollingIntervalMs;
+    }
+
+    public void setPollingIntervalMs(long pollingIntervalMs) {
+        this.pollingIntervalMs = pollingIntervalMs;
+    }
+
+    /**
+     * Watch the batch status transitions. The latest status got is emitted first if the batch is being watched,
+     * then the status is emitted when the batch state or application ID changes. It completes after the batch is not
+     * alive, and gets error after the status of the batch can't be got for {@link #MAX_CONSECUTIVE_FAILURES} polls.
+     *
+     * @param batchId the Livy batch ID
+     * @return the batch status observable
+     */
+    @NotNull
+    public Observable<SparkSubmitResponse> watch(int batchId) {
+        return Observable.defer(() -> {
+            final Watch watch = register(batchId);
+
+            return watch.subject.doOnUnsubscribe(() -> unregister(batchId, watch));
+        })
+                // Don't let the subscribers block the polling
+                .observeOn(Schedulers.io());
+    }
+
+    @NotNull
+    private synchronized Watch register(int batchId) {
+        final Watch watch = watches.computeIfAbsent(batchId, id -> new Watch());
+        watch.subscribers++;
+
+        if (worker == null) {
+            worker = scheduler.createWorker();
+            worker.schedule(this::poll);
+        }
+
+        return watch;
+    }
+
+    private synchronized void unregister(int batchId, @NotNull Watch watch) {
+        if (--watch.subscribers <= 0) {
+            watches.remove(batchId, watch);
+        }
+    }
+
+    public synchronized int getWatchedBatchesCount() {
+        return watches.size();
+    }
+
+    private void poll() {
+        final SortedSet<Integer> batchIds;
+
+        synchronized (this) {
+            if (stopIfIdle()) {
+                return;
+            }
+
+            batchIds = new TreeSet<>(watches.keySet());
+        }
+
+        final Map<Integer, SparkSubmitResponse> statuses = new HashMap<>();
+        final Map<Integer, IOException> failures = new HashMap<>();
+        fetchStatuses(batchIds, statuses, failures);
+
+        synchronized (this) {
+            statuses.forEach(this::publish);
+            failures.forEach(this::countFailure);
+
+            if (!stopIfIdle()) {
+                worker.schedule(this::poll, pollingIntervalMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // Must be called with the lock held
+    private boolean stopIfIdle() {
+        if (!watches.isEmpty()) {
+            return false;
+        }
+
+        if (worker != null) {
+            worker.unsubscribe();
+            worker = null;
+        }
+
+        monitors.remove(key, this);
+
+        return true;
+    }
+
+    // Must be called with the lock held
+    private void publish(int batchId, @NotNull SparkSubmitResponse status) {
+        final Watch watch = watches.get(batchId);
+
+        if (watch == null || status.getState() == null) {
+            return;
+        }
+
+        watch.consecutiveFailures = 0;
+
+        // The application ID is allocated while the batch is starting, emit it as well
+        if (!status.getState().equals(watch.lastState) || !StringUtils.equals(status.getAppId(), watch.lastAppId)) {
+            watch.lastState = status.getState();
+            watch.lastAppId = status.getAppId();
+            watch.subject.onNext(status);
+        }
+
+        if (!status.isAlive()) {
+            watch.subject.onCompleted();
+            watches.remove(batchId);
+        }
+    }
+
+    // Must be called with the lock held
+    private void countFailure(int batchId, @NotNull IOException ex) {
+        final Watch watch = watches.get(batchId);
+
+        if (watch == null) {
+            return;
+        }
+
+        log().debug("Got exception " + ex.toString() + " when polling Livy batch " + batchId + " of " + connectUrl, ex);
+
+        if (++watch.consecutiveFailures >= MAX_CONSECUTIVE_FAILURES) {
+            watch.subject.onError(new UnknownServiceException(
+                    "Failed to get job status: Unknown service error after " + watch.consecutiveFailures +
+                            " retries, the last error: " + ex.getMessage()));
+            watches.remove(batchId);
+        }
+    }
+
+    private void fetchStatuses(@NotNull SortedSet<Integer> batchIds,
+                               @NotNull Map<Integer, SparkSubmitResponse> statuses,
+                               @NotNull Map<Integer, IOException> failures) {
+        if (isListingSupported) {
+            try {
+                listStatuses(batchIds, statuses);
+            } catch (IOException ex) {
+                log().debug("Got exception " + ex.toString() + " when listing Livy batches of " + connectUrl +
+                        ", fall back to getting the batch status one by one", ex);
+            }
+        }
+
+        // The fallback for the batches not listed
+        for (int batchId : batchIds) {
+            if (statuses.containsKey(batchId)) {
+                continue;
+            }
+
+            try {
+                final HttpResponse httpResponse = submission.getBatchSparkJobStatus(connectUrl, batchId);
+
+                if (httpResponse.getCode() >= 200 && httpResponse.getCode() < 300) {
+                    statuses.put(batchId, convertResponse(httpResponse, SparkSubmitResponse.class));
+                } else if (httpResponse.getCode() == 404) {
+                    failures.put(batchId, new UnknownServiceException(
+                            "Can't find Livy batch " + batchId + " in " + connectUrl));
+                } else {
+                    failures.put(batchId, new UnknownServiceException(
+                            "Got response " + httpResponse.getCode() + " for Livy batch " + batchId + ": " +
+                                    httpResponse.getMessage()));
+                }
+            } catch (IOException ex) {
+                failures.put(batchId, ex);
+            }
+        }
+    }
+
+    private void listStatuses(@NotNull SortedSet<Integer> batchIds,
+                              @NotNull Map<Integer, SparkSubmitResponse> statuses) throws IOException {
+        final int minBatchId = batchIds.first();
+        final int maxBatchId = batchIds.last();
+        boolean isLocating = true;
+        boolean isHintUpdated = false;
+        int from = startIndexHint;
+
+        while (true) {
+            final HttpResponse httpResponse = submission.getAllBatchesSparkJobs(
+                    String.format("%s?from=%d&size=%d", connectUrl, from, PAGE_SIZE));
+
+            if (httpResponse.getCode() == 404 || httpResponse.getCode() == 405) {
+                log().warn("Listing Livy batches of " + connectUrl + " is not supported, got response " +
+                        httpResponse.getCode() + ", fall back to getting the batch status one by one");
+                isListingSupported = false;
+
+                return;
+            }
+
+            if (httpResponse.getCode() < 200 || httpResponse.getCode() >= 300) {
+                throw new UnknownServiceException("Got response " + httpResponse.getCode() +
+                        " when listing Livy batches of " + connectUrl);
+            }
+
+            final SparkBatchesResponse page = convertResponse(httpResponse, SparkBatchesResponse.class);
+            final List<SparkSubmitResponse> batches = page.getSessions();
+
+            if (isLocating && from > 0 && (batches.isEmpty() || batches.get(0).getId() > minBatchId)) {
+                // The older batches have been removed, step back to locate the smallest batch watched
+                from = Math.max(0, from - PAGE_SIZE);
+                continue;
+            }
+
+            isLocating = false;
+
+            for (int i = 0; i < batches.size(); i++) {
+                final SparkSubmitResponse batch = batches.get(i);
+
+                if (!isHintUpdated && batch.getId() >= minBatchId) {
+                    startIndexHint = from + i;
+                    isHintUpdated = true;
+                }
+
+                if (batchIds.contains(batch.getId())) {
+                    statuses.put(batch.getId(), batch);
+                }
+            }
+
+            from += batches.size();
+
+            if (batches.isEmpty() ||
+                    batches.get(batches.size() - 1).getId() >= maxBatchId ||
+                    statuses.size() == batchIds.size() ||
+                    from >= page.getTotal()) {
+                return;
+            }
+        }
+    }
+
+    @NotNull
+    private static <T> T convertResponse(@NotNull HttpResponse httpResponse, @NotNull Class<T> clazz)
+            throws IOException {
+        return ObjectConvertUtils.convertJsonToObject(httpResponse.getMessage(), clazz)
+                .orElseThrow(() -> new UnknownServiceException(
+                        "Bad spark job response: " + httpResponse.getMessage()));
+    }
+}
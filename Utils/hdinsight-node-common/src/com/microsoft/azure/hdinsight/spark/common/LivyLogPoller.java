@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.SerialSubscription;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * The non-blocking Livy batch log poller. All pollers share one small thread pool for the timing and the page size
+ * decisions, the waiting between polls is scheduled rather than slept. The blocking log page fetches run on the IO
+ * scheduler, so a stalled fetch of one job doesn't hold the shared threads from other jobs.
+ *
+ * The page size is doubled (up to {@link #MAX_PAGE_SIZE}) while the pages come back full, and halved (down to
+ * {@link #MIN_PAGE_SIZE}) for idle polls. The idle interval starts from the configured one and is doubled (up to
+ * {@link #MAX_IDLE_INTERVAL_FACTOR} times of it) for each empty page. The job state is probed once per empty page,
+ * and the logs are drained once more after the probe tells no more logs are expected. The fetch and the probe are
+ * asynchronous, no polling thread is taken while waiting for the log page or the job state.
+ */
+public class LivyLogPoller {
+    public static final int MIN_PAGE_SIZE = 128;
+    public static final int MAX_PAGE_SIZE = 2048;
+    public static final int MAX_IDLE_INTERVAL_FACTOR = 8;
+    public static final int POLLING_THREADS = 4;
+
+    private static final Scheduler scheduler = Schedulers.from(Executors.newFixedThreadPool(
+            POLLING_THREADS,
+            new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("livy-log-poller-%d")
+                    .build()));
+
+    @FunctionalInterface
+    public interface PageFetcher {
+        /**
+         * @param from the start line offset
+         * @param size the max lines to fetch
+         * @return the log lines got
+         * @throws IOException for networking errors
+         */
+        @NotNull
+        List<String> fetch(int from, int size) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface PageCommitter {
+        /**
+         * Move the shared offset forward with the page fetched
+         *
+         * @param from the start line offset of the page
+         * @param size the lines count of the page
+         * @return false if the offset has been moved by others, then the page should be fetched again
+         */
+        boolean commit(int from, int size);
+    }
+
+    @FunctionalInterface
+    public interface StateProbe {
+        /**
+         * @return the observable emitting true if more logs are expected after an empty page, the first emission is
+         *         taken
+         */
+        @NotNull
+        Observable<Boolean> isMoreLogsExpected();
+    }
+
+    @NotNull
+    private final IntSupplier offsetSupplier;
+
+    @NotNull
+    private final PageFetcher fetcher;
+
+    @NotNull
+    private final PageCommitter committer;
+
+    @NotNull
+    private final StateProbe probe;
+
+    private final long minIdleIntervalMs;
+
+    /**
+     * Constructor
+     *
+     * @param offsetSupplier the supplier of the shared next log line offset
+     * @param fetcher the log page fetcher
+     * @param committer the offset committer
+     * @param probe the job state probe
+     * @param minIdleIntervalMs the interval in milliseconds after the first empty page
+     */
+    public LivyLogPoller(@NotNull IntSupplier offsetSupplier,
+                         @NotNull PageFetcher fetcher,
+                         @NotNull PageCommitter committer,
+                         @NotNull StateProbe probe,
+                         long minIdleIntervalMs) {
+        this.offsetSupplier = offsetSupplier;
+        this.fetcher = fetcher;
+        this.committer = committer;
+        this.probe = probe;
+        this.minIdleIntervalMs = minIdleIntervalMs;
+    }
+
+    /**
+     * Poll the log lines until no more logs are expected. The polling starts on subscribing and stops on
+     * unsubscribing, fetching errors are sent to the subscriber.
+     *
+     * @return the log lines observable
+     */
+    @NotNull
+    public Observable<String> poll() {
+        return Observable.create(subscriber -> {
+            final Scheduler.Worker worker = scheduler.createWorker();
+            subscriber.add(worker);
+
+            new PollingCycle(subscriber, worker).schedule(0);
+        });
+    }
+
+    private class PollingCycle {
+        @NotNull
+        private final Subscriber<? super String> subscriber;
+
+        @NotNull
+        private final Scheduler.Worker worker;
+
+        // The in-flight page fetch or state probe, at most one at a time
+        @NotNull
+        private final SerialSubscription pending = new SerialSubscription();
+
+        private int pageSize = MIN_PAGE_SIZE;
+        private long idleIntervalMs = 0;
+        private boolean isDraining = false;
+
+        PollingCycle(@NotNull Subscriber<? super String> subscriber, @NotNull Scheduler.Worker worker) {
+            this.subscriber = subscriber;
+            this.worker = worker;
+
+            subscriber.add(pending);
+        }
+
+        void schedule(long delayMs) {
+            if (delayMs <= 0) {
+                worker.schedule(this::run);
+            } else {
+                worker.schedule(this::run, delayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void run() {
+            if (subscriber.isUnsubscribed()) {
+                return;
+            }
+
+            try {
+                final int from = offsetSupplier.getAsInt();
+                final int size = pageSize;
+
+                pending.set(Observable.fromCallable(() -> fetcher.fetch(from, size))
+                        .subscribeOn(Schedulers.io())
+                        .subscribe(lines -> worker.schedule(() -> onFetched(from, lines)),
+                                   subscriber::onError));
+            } catch (Exception ex) {
+                subscriber.onError(ex);
+            }
+        }
+
+        private void onFetched(int from, @NotNull List<String> lines) {
+            if (subscriber.isUnsubscribed()) {
+                return;
+            }
+
+            try {
+                if (!committer.commit(from, lines.size())) {
+                    // The offset is moved by another poller, re-do it with new offset
+                    schedule(0);
+                    return;
+                }
+
+                for (String line : lines) {
+                    if (subscriber.isUnsubscribed()) {
+                        return;
+                    }
+
+                    subscriber.onNext(line);
+                }
+
+                if (!lines.isEmpty()) {
+                    idleIntervalMs = 0;
+
+                    if (lines.size() >= pageSize) {
+                        // More logs are backlogged
+                        pageSize = Math.min(pageSize * 2, MAX_PAGE_SIZE);
+                        schedule(0);
+                    } else {
+                        schedule(minIdleIntervalMs);
+                    }
+
+                    return;
+                }
+
+                if (isDraining) {
+                    subscriber.onCompleted();
+                    return;
+                }
+
+                pending.set(probe.isMoreLogsExpected()
+                        .first()
+                        .subscribe(isMoreLogsExpected -> worker.schedule(() -> onProbed(isMoreLogsExpected)),
+                                   subscriber::onError));
+            } catch (Exception ex) {
+                subscriber.onError(ex);
+            }
+        }
+
+        private void onProbed(boolean isMoreLogsExpected) {
+            if (subscriber.isUnsubscribed()) {
+                return;
+            }
+
+            if (!isMoreLogsExpected) {
+                isDraining = true;
+                schedule(0);
+                return;
+            }
+
+            pageSize = Math.max(pageSize / 2, MIN_PAGE_SIZE);
+            idleIntervalMs = idleIntervalMs == 0
+                    ? minIdleIntervalMs
+                    : Math.min(idleIntervalMs * 2, minIdleIntervalMs * MAX_IDLE_INTERVAL_FACTOR);
+            schedule(idleIntervalMs);
+        }
+    }
+}
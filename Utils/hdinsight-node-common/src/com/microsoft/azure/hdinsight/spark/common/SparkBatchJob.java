@@ -39,6 +39,7 @@ import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.AppAttemptsResponse;
 import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.AppResponse;
 import com.microsoft.azure.hdinsight.sdk.storage.IHDIStorageAccount;
 import com.microsoft.azure.hdinsight.spark.jobs.JobUtils;
+import com.microsoft.azure.hdinsight.spark.jobs.YarnContainerLogTailer;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.commons.lang3.StringUtils;
@@ -65,6 +66,7 @@ import static rx.exceptions.Exceptions.propagate;
 
 public class SparkBatchJob implements ISparkBatchJob, ILogger {
     public static final String WebHDFSPathPattern = "^(https?://)([^/]+)(/.*)?(/webhdfs/v1)(/.*)?$";
+    public static final long MIN_STATUS_TIMEOUT_SECONDS = 60;
 
     @Nullable
     private String currentLogUrl;
@@ -473,6 +475,11 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
                 logOffset,
                 size);
 
+        if (size > 0) {
+            // The window may end in the middle of a multi-bytes char, leave it to the next fetch
+            logGot = logGot.substring(0, YarnContainerLogTailer.completeCharsLength(logGot));
+        }
+
         if (StringUtils.isEmpty(logGot)) {
             return Observable.empty();
         }
@@ -504,39 +511,34 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
      * @throws IOException exceptions in transaction
      */
     public String getState() throws IOException {
-        if (getConnectUri() == null) {
-            throw new SparkJobNotConfiguredException("Can't get Spark job connection URI, " +
-                    "please configure Spark cluster which the Spark job will be submitted.");
-        }
-
-        int retries = 0;
-
-        do {
-            try {
-                HttpResponse httpResponse = this.getSubmission().getBatchSparkJobStatus(
-                        this.getConnectUri().toString(), batchId);
-
-                if (httpResponse.getCode() >= 200 && httpResponse.getCode() < 300) {
-                    SparkSubmitResponse jobResp = ObjectConvertUtils.convertJsonToObject(
-                            httpResponse.getMessage(), SparkSubmitResponse.class)
-                            .orElseThrow(() -> new UnknownServiceException(
-                                    "Bad spark job response: " + httpResponse.getMessage()));
-
-                    return jobResp.getState();
-                }
-            } catch (IOException e) {
-                log().debug("Got exception " + e.toString() + ", waiting for a while to try", e);
-            }
+        return awaitCurrentStatus().getState();
+    }
 
-            try {
-                // Retry interval
-                sleep(TimeUnit.SECONDS.toMillis(this.getDelaySeconds()));
-            } catch (InterruptedException ex) {
-                throw new IOException("Interrupted in retry attempting", ex);
+    /**
+     * Get the current Livy batch status from the cluster status monitor. The monitor gives up the batch after the
+     * status can't be got for several polls, and the waiting is bounded by the retries as well, no less than
+     * {@link #MIN_STATUS_TIMEOUT_SECONDS}, in case the status request gets stuck.
+     *
+     * @return the latest batch status got
+     * @throws IOException exceptions in transaction
+     */
+    @NotNull
+    private SparkSubmitResponse awaitCurrentStatus() throws IOException {
+        final long timeoutSeconds = Math.max((long) getRetriesMax() * getDelaySeconds(), MIN_STATUS_TIMEOUT_SECONDS);
+
+        try {
+            return getStatusTransitions()
+                    .timeout(timeoutSeconds, TimeUnit.SECONDS, Observable.error(new UnknownServiceException(
+                            "Failed to get job status: no status got in " + timeoutSeconds + " seconds")))
+                    .toBlocking()
+                    .first();
+        } catch (RuntimeException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
             }
-        } while (++retries < this.getRetriesMax());
 
-        throw new UnknownServiceException("Failed to get job state: Unknown service error after " + --retries + " retries");
+            throw ex;
+        }
     }
 
     /**
@@ -812,136 +814,56 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
                 "stderr:",
                 "yarn diagnostics:"));
 
-        return Observable.create(ob -> {
-            try {
-                final int maxLinesPerGet = 128;
-                int linesGot;
-                boolean isFetching = true;
-
-                while (isFetching) {
-                    final int start = nextLivyLogOffset;
-                    final boolean isAppIdAllocated = !this.getSparkJobApplicationIdObservable().isEmpty().toBlocking()
-                            .lastOrDefault(true);
+        return new LivyLogPoller(
+                () -> {
+                    synchronized (livyLogOffsetLock) {
+                        return nextLivyLogOffset;
+                    }
+                },
+                (from, size) -> {
                     String logUrl = String.format("%s/%d/log?from=%d&size=%d",
-                            this.getConnectUri().toString(), batchId, start, maxLinesPerGet);
+                            this.getConnectUri().toString(), batchId, from, size);
 
                     HttpResponse httpResponse = this.getSubmission().getHttpResponseViaGet(logUrl);
 
-                    SparkJobLog sparkJobLog = ObjectConvertUtils.convertJsonToObject(httpResponse.getMessage(),
-                            SparkJobLog.class)
+                    return ObjectConvertUtils.convertJsonToObject(httpResponse.getMessage(), SparkJobLog.class)
                             .orElseThrow(() -> new UnknownServiceException(
-                                    "Bad spark log response: " + httpResponse.getMessage()));
-
+                                    "Bad spark log response: " + httpResponse.getMessage()))
+                            .getLog();
+                },
+                (from, size) -> {
                     synchronized (livyLogOffsetLock) {
-                        if (start != nextLivyLogOffset) {
-                            // The offset is moved by another fetching thread, re-do it with new offset
-                            continue;
+                        if (from != nextLivyLogOffset) {
+                            return false;
                         }
 
-                        // To subscriber
-                        sparkJobLog.getLog().stream()
-                                .filter(line -> !ignoredEmptyLines.contains(line.trim().toLowerCase()))
-                                .forEach(line -> ob.onNext(new SimpleImmutableEntry<>(Log, line)));
-
-                        linesGot = sparkJobLog.getLog().size();
-                        nextLivyLogOffset += linesGot;
+                        nextLivyLogOffset += size;
+                        return true;
                     }
-
-                    // Retry interval
-                    if (linesGot == 0) {
-                        isFetching = this.getState().equals("starting") && !isAppIdAllocated;
-
-                        sleep(TimeUnit.SECONDS.toMillis(this.getDelaySeconds()));
-                    }
-                }
-            } catch (IOException ex) {
-                ob.onNext(new SimpleImmutableEntry<>(Error, ex.getMessage()));
-            } catch (InterruptedException ignored) {
-            } finally {
-                ob.onCompleted();
-            }
-        });
+                },
+                // Only the starting job without application ID allocated has more Livy logs, both are read from the
+                // status of the cluster status monitor, without blocking the polling thread
+                () -> getStatusTransitions()
+                        .first()
+                        .map(status -> "starting".equals(status.getState()) && status.getAppId() == null),
+                TimeUnit.SECONDS.toMillis(this.getDelaySeconds()))
+                .poll()
+                .filter(line -> !ignoredEmptyLines.contains(line.trim().toLowerCase()))
+                .map(line -> new SimpleImmutableEntry<>(Log, line))
+                .onErrorResumeNext(err -> err instanceof IOException
+                        ? Observable.just(new SimpleImmutableEntry<>(Error, err.getMessage()))
+                        : Observable.error(err));
     }
 
     public boolean isActive() throws IOException {
-        if (getConnectUri() == null) {
-            throw new SparkJobNotConfiguredException("Can't get Spark job connection URI, " +
-                    "please configure Spark cluster which the Spark job will be submitted.");
-        }
-
-        int retries = 0;
-
-        do {
-            try {
-                HttpResponse httpResponse = this.getSubmission().getBatchSparkJobStatus(
-                        this.getConnectUri().toString(), batchId);
-
-                if (httpResponse.getCode() >= 200 && httpResponse.getCode() < 300) {
-                    SparkSubmitResponse jobResp = ObjectConvertUtils.convertJsonToObject(
-                            httpResponse.getMessage(), SparkSubmitResponse.class)
-                            .orElseThrow(() -> new UnknownServiceException(
-                                    "Bad spark job response: " + httpResponse.getMessage()));
-
-                    return jobResp.isAlive();
-                }
-            } catch (IOException e) {
-                log().debug("Got exception " + e.toString() + ", waiting for a while to try", e);
-            }
-
-            try {
-                // Retry interval
-                sleep(TimeUnit.SECONDS.toMillis(this.getDelaySeconds()));
-            } catch (InterruptedException ex) {
-                throw new IOException("Interrupted in retry attempting", ex);
-            }
-        } while (++retries < this.getRetriesMax());
-
-        throw new UnknownServiceException("Failed to detect job activity: Unknown service error after " + --retries + " retries");
+        return awaitCurrentStatus().isAlive();
     }
 
     protected Observable<SimpleImmutableEntry<String, String>> getJobDoneObservable() {
-        if (getConnectUri() == null) {
-            return Observable.error(new SparkJobNotConfiguredException("Can't get Spark job connection URI, " +
-                    "please configure Spark cluster which the Spark job will be submitted."));
-        }
-
-        return Observable.create((Subscriber<? super SimpleImmutableEntry<String, String>> ob) -> {
-            try {
-                boolean isJobActive;
-                SparkBatchJobState state = SparkBatchJobState.NOT_STARTED;
-                String diagnostics = "";
-
-                do {
-                    HttpResponse httpResponse = this.getSubmission().getBatchSparkJobStatus(
-                            this.getConnectUri().toString(), batchId);
-
-                    if (httpResponse.getCode() >= 200 && httpResponse.getCode() < 300) {
-                        SparkSubmitResponse jobResp = ObjectConvertUtils.convertJsonToObject(
-                                httpResponse.getMessage(), SparkSubmitResponse.class)
-                                .orElseThrow(() -> new UnknownServiceException(
-                                        "Bad spark job response: " + httpResponse.getMessage()));
-
-                        state = SparkBatchJobState.valueOf(jobResp.getState().toUpperCase());
-                        diagnostics = String.join("\n", jobResp.getLog());
-
-                        isJobActive = !isDone(state.toString());
-                    } else {
-                        isJobActive = false;
-                    }
-
-
-                    // Retry interval
-                    sleep(1000);
-                } while (isJobActive);
-
-                ob.onNext(new SimpleImmutableEntry<>(state.toString(), diagnostics));
-                ob.onCompleted();
-            } catch (IOException ex) {
-                ob.onError(ex);
-            } catch (InterruptedException ignored) {
-                ob.onCompleted();
-            }
-        });
+        return getStatusTransitions()
+                .takeUntil(status -> isDone(status.getState()))
+                .filter(status -> isDone(status.getState()))
+                .map(status -> new SimpleImmutableEntry<>(status.getState(), String.join("\n", status.getLog())));
     }
 
     protected Observable<String> getJobLogAggregationDoneObservable() {
@@ -1171,18 +1093,32 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
         });
     }
 
+    /**
+     * New RxAPI: Get the job status transitions (from livy), polled together with the other jobs of the cluster
+     * by {@link LivyBatchStatusMonitor}
+     *
+     * @return Spark Job status observable, which emits the current status first, then the status changed
+     */
+    @NotNull
+    public Observable<? extends SparkSubmitResponse> getStatusTransitions() {
+        if (getConnectUri() == null) {
+            return Observable.error(new SparkJobNotConfiguredException("Can't get Spark job connection URI, " +
+                    "please configure Spark cluster which the Spark job will be submitted."));
+        }
+
+        return LivyBatchStatusMonitor.of(getConnectUri(), getSubmission()).watch(getBatchId());
+    }
+
     @NotNull
     @Override
     public Observable<String> awaitStarted() {
-        return getStatus()
+        return getStatusTransitions()
                 .map(status -> new SimpleImmutableEntry<>(status.getState(), String.join("\n", status.getLog())))
-                .retry(getRetriesMax())
-                .repeatWhen(ob -> ob
-                        .doOnNext(ignored -> {
-                            getCtrlSubject().onNext(new SimpleImmutableEntry<>(Info, "The Spark job is starting..."));
-                        })
-                        .delay(getDelaySeconds(), TimeUnit.SECONDS)
-                )
+                .doOnNext(stateLogPair -> {
+                    if (!isDone(stateLogPair.getKey()) && !isRunning(stateLogPair.getKey())) {
+                        getCtrlSubject().onNext(new SimpleImmutableEntry<>(Info, "The Spark job is starting..."));
+                    }
+                })
                 .takeUntil(stateLogPair -> isDone(stateLogPair.getKey()) || isRunning(stateLogPair.getKey()))
                 .filter(stateLogPair -> isDone(stateLogPair.getKey()) || isRunning(stateLogPair.getKey()))
                 .flatMap(stateLogPair -> {
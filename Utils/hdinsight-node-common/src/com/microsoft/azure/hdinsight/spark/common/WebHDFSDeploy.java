@@ -26,6 +26,8 @@ import com.microsoft.azure.hdinsight.common.MessageInfoType;
 import com.microsoft.azure.hdinsight.common.logger.ILogger;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
 import com.microsoft.azure.hdinsight.sdk.common.HttpObservable;
+import com.microsoft.azure.hdinsight.sdk.common.ProgressFileEntity;
+import com.microsoft.azure.hdinsight.sdk.storage.webhdfs.FileStatusResponse;
 import com.microsoft.azure.hdinsight.sdk.storage.webhdfs.WebHdfsParamsBuilder;
 import com.microsoft.azure.hdinsight.spark.jobs.JobUtils;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
@@ -33,18 +35,17 @@ import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.client.utils.URLEncodedUtils;
-import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.util.EntityUtils;
 import rx.Observable;
 import rx.Observer;
 import rx.exceptions.Exceptions;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -52,7 +53,10 @@ import java.net.UnknownServiceException;
 import java.util.AbstractMap;
 import java.util.List;
 
-public class WebHDFSDeploy implements Deployable, ILogger {
+public class WebHDFSDeploy implements CacheableDeployable, ILogger {
+    private static final int PROGRESS_REPORTS = 10;
+    private static final long MIN_PROGRESS_INTERVAL = 4 * 1024 * 1024;
+
     @NotNull
     IClusterDetail cluster;
 
@@ -81,7 +85,7 @@ public class WebHDFSDeploy implements Deployable, ILogger {
                 .build();
 
         this.http = http;
-        http.setDefaultRequestConfig(RequestConfig.custom().setExpectContinueEnabled(true).build());
+        http.setDefaultRequestConfig(RequestConfig.copy(http.getDefaultRequestConfig()).setExpectContinueEnabled(true).build());
     }
 
     private URI getUploadDir() {
@@ -89,54 +93,117 @@ public class WebHDFSDeploy implements Deployable, ILogger {
                 .resolve(JobUtils.getFormatPathByDate());
     }
 
+    @NotNull
+    @Override
+    public String getDestinationRoot() {
+        return destinationRootPath;
+    }
+
+    @NotNull
+    @Override
+    public String newDestination(@NotNull File src) {
+        // Keep the unique folder, not to overwrite the artifacts with the same name uploaded in the same day
+        return getUploadDir().toString() + "/" + src.getName();
+    }
+
+    @NotNull
     @Override
-    public Observable<String> deploy(File src,
-                                     Observer<AbstractMap.SimpleImmutableEntry<MessageInfoType, String>> logSubject) {
+    public Observable<String> deployTo(@NotNull File src,
+                                       @NotNull String destination,
+                                       @NotNull Observer<AbstractMap.SimpleImmutableEntry<MessageInfoType, String>> logSubject) {
         //three steps to upload via webhdfs
         // 1.put request to create new dir
         // 2.put request to get 307 redirect uri from response
         // 3.put redirect request with file content as setEntity
-        URI dest = getUploadDir();
-        HttpPut req = new HttpPut(dest.toString());
+        // WebHDFS CREATE overwrites the file, so an interrupted upload is restarted from the beginning
+        String dirPath = destination.substring(0, destination.lastIndexOf('/'));
+        HttpPut req = new HttpPut(dirPath);
         return http.request(req, null, this.createDirReqParams, null)
                 .doOnNext(
                         resp -> {
-                            if (resp.getStatusLine().getStatusCode() != 200) {
-                                Exceptions.propagate(new UnknownServiceException("Can not create directory to save artifact using webHDFS storage type"));
+                            try {
+                                if (resp.getStatusLine().getStatusCode() != 200) {
+                                    Exceptions.propagate(new UnknownServiceException("Can not create directory to save artifact using webHDFS storage type"));
+                                }
+                            } finally {
+                                closeQuietly(resp);
                             }
                         }
                 )
-                .map(ignored -> new HttpPut(dest.resolve(src.getName()).toString()))
+                .map(ignored -> new HttpPut(destination))
                 .flatMap(put -> http.request(put, null, this.uploadReqParams, null))
-                .map(resp -> resp.getFirstHeader("Location").getValue())
+                .map(resp -> {
+                    try {
+                        return resp.getFirstHeader("Location").getValue();
+                    } finally {
+                        closeQuietly(resp);
+                    }
+                })
                 .doOnNext(redirectedUri -> {
                     if (StringUtils.isBlank(redirectedUri)) {
                         Exceptions.propagate(new UnknownServiceException("Can not get valid redirect uri using webHDFS storage type"));
                     }
                 })
-                .map(redirectedUri -> new HttpPut(redirectedUri))
-                .flatMap(put -> {
+                .map(redirectedUri -> {
+                    // Stream the artifact from disk after the server accepts it with 100-continue
+                    HttpPut put = new HttpPut(redirectedUri);
+                    put.setConfig(http.getDefaultRequestConfig());
+                    return put;
+                })
+                .flatMap(put -> http.request(
+                        put,
+                        new ProgressFileEntity(
+                                src,
+                                ContentType.APPLICATION_OCTET_STREAM,
+                                sent -> logSubject.onNext(new AbstractMap.SimpleImmutableEntry<>(
+                                        MessageInfoType.Info, getProgressMessage(src, sent))),
+                                Math.max(src.length() / PROGRESS_REPORTS, MIN_PROGRESS_INTERVAL)),
+                        URLEncodedUtils.parse(put.getURI(), "UTF-8"),
+                        null))
+                .doOnNext(resp -> {
                     try {
-                        InputStreamEntity reqEntity = new InputStreamEntity(
-                                new FileInputStream(src),
-                                -1,
-                                ContentType.APPLICATION_OCTET_STREAM);
-                        reqEntity.setChunked(true);
-
-                        return http.request(put, new BufferedHttpEntity(reqEntity), URLEncodedUtils.parse(put.getURI(), "UTF-8"), null);
-                    } catch (IOException ex) {
-                        throw new RuntimeException(new IllegalArgumentException("Can not get local artifact when uploading" + ex.toString()));
+                        int statusCode = resp.getStatusLine().getStatusCode();
+                        if (statusCode < 200 || statusCode >= 300) {
+                            Exceptions.propagate(new UnknownServiceException(String.format(
+                                    "Upload artifact using webHDFS storage type with unexpected code %s and resp %s", statusCode, resp)));
+                        }
+                    } finally {
+                        closeQuietly(resp);
                     }
                 })
                 .map(ignored -> {
                     try {
-                        return getArtifactUploadedPath(dest.resolve(src.getName()).toString());
+                        return getArtifactUploadedPath(destination);
                     } catch (URISyntaxException ex) {
                         throw new RuntimeException(new IllegalArgumentException("Can not get valid artifact upload path" + ex.toString()));
                     }
                 });
     }
 
+    @NotNull
+    @Override
+    public Observable<Boolean> isDeployed(@NotNull String destination, long length) {
+        return http.get(destination, new WebHdfsParamsBuilder("GETFILESTATUS").build(), null, FileStatusResponse.class)
+                .map(status -> status.getFileStatus() != null
+                        && status.getFileStatus().isFile()
+                        && status.getFileStatus().getLength() == length);
+    }
+
+    @NotNull
+    private static String getProgressMessage(@NotNull File src, long sent) {
+        long length = src.length();
+        return String.format("Uploaded %s: %d of %d KB (%d%%)",
+                src.getName(), sent / 1024, length / 1024, length == 0 ? 100 : sent * 100 / length);
+    }
+
+    private static void closeQuietly(@NotNull CloseableHttpResponse resp) {
+        EntityUtils.consumeQuietly(resp.getEntity());
+        try {
+            resp.close();
+        } catch (IOException ignored) {
+        }
+    }
+
     @Nullable
     public String getArtifactUploadedPath(String rootPath) throws URISyntaxException {
         List<NameValuePair> params = new WebHdfsParamsBuilder("OPEN").build();
@@ -42,16 +42,19 @@ public class ActionHttpHandler implements HttpHandler {
         final String path = requestDetail.getRequestPath();
         final String clusterConnectString = requestDetail.getCluster().getConnectionUrl();
         if (path.contains("yarnui")) {
-            JobUtils.openYarnUIHistory(clusterConnectString, requestDetail.getAppId());
+            JobViewRequestDispatcher.dispatch(httpExchange, "action_yarnui", () ->
+                    JobUtils.openYarnUIHistory(clusterConnectString, requestDetail.getAppId()));
         } else if (path.contains("sparkui")) {
-            try {
-                Application application = JobViewCacheManager.getSingleSparkApplication(new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId()));
-                JobUtils.openSparkUIHistory(clusterConnectString, requestDetail.getAppId(), application.getLastAttemptId());
-                JobUtils.setResponse(httpExchange, "open browser successfully");
-            } catch (ExecutionException e) {
-                JobUtils.setResponse(httpExchange, "open browser error", 500);
-                DefaultLoader.getUIHelper().showError(e.getMessage(), "open browser error");
-            }
+            JobViewRequestDispatcher.dispatch(httpExchange, "action_sparkui", () -> {
+                try {
+                    Application application = JobViewCacheManager.getSingleSparkApplication(new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId()));
+                    JobUtils.openSparkUIHistory(clusterConnectString, requestDetail.getAppId(), application.getLastAttemptId());
+                    JobUtils.setResponse(httpExchange, "open browser successfully");
+                } catch (ExecutionException e) {
+                    JobUtils.setResponse(httpExchange, "open browser error", 500);
+                    DefaultLoader.getUIHelper().showError(e.getMessage(), "open browser error");
+                }
+            });
         }
     }
 }
@@ -22,11 +22,7 @@
 
 package com.microsoft.azure.hdinsight.spark.jobs;
 
-import com.gargoylesoftware.htmlunit.BrowserVersion;
 import com.gargoylesoftware.htmlunit.Cache;
-import com.gargoylesoftware.htmlunit.FailingHttpStatusCodeException;
-import com.gargoylesoftware.htmlunit.WebClient;
-import com.gargoylesoftware.htmlunit.html.*;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
@@ -44,6 +40,7 @@ import com.microsoft.azure.hdinsight.sdk.cluster.MfaEspCluster;
 import com.microsoft.azure.hdinsight.sdk.common.AuthenticationException;
 import com.microsoft.azure.hdinsight.sdk.common.HDIException;
 import com.microsoft.azure.hdinsight.sdk.common.HttpObservable;
+import com.microsoft.azure.hdinsight.sdk.common.ProgressFileEntity;
 import com.microsoft.azure.hdinsight.sdk.common.livy.interactive.SparkSession;
 import com.microsoft.azure.hdinsight.sdk.io.spark.ClusterFileBase64BufferedOutputStream;
 import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.App;
@@ -80,9 +77,7 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.methods.RequestBuilder;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
@@ -105,9 +100,6 @@ import java.util.*;
 import java.util.List;
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static com.microsoft.azure.hdinsight.common.MessageInfoType.Info;
 import static org.apache.http.HttpHeaders.AUTHORIZATION;
@@ -257,67 +249,15 @@ public class JobUtils {
                                                       @NotNull String type,
                                                       long start,
                                                       int size) {
-        final WebClient HTTP_WEB_CLIENT = new WebClient(BrowserVersion.CHROME);
-        HTTP_WEB_CLIENT.getOptions().setUseInsecureSSL(HttpObservable.isSSLCertificateValidationDisabled());
-        HTTP_WEB_CLIENT.setCache(globalCache);
-
-        if (authCode != null) {
-            HTTP_WEB_CLIENT.addRequestHeader(AUTHORIZATION, authCode);
-        }
-
-        return getInformationFromYarnLogDom(HTTP_WEB_CLIENT, baseUrl, type, start, size);
-    }
-
-    private static String getInformationFromYarnLogDom(@NotNull WebClient client,
-                                                      @NotNull String baseUrl,
-                                                      @NotNull String type,
-                                                      long start,
-                                                      int size) {
         URI url = null;
 
         try {
             url = new URI(baseUrl + "/").resolve(
                     String.format("%s?start=%d", type, start) +
                             (size <= 0 ? "" : String.format("&&end=%d", start + size)));
-            HtmlPage htmlPage = client.getPage(url.toString());
-
-            Iterator<DomElement> iterator = htmlPage.getElementById("navcell").getNextElementSibling().getChildElements().iterator();
-
-            HashMap<String, String> logTypeMap = new HashMap<>();
-            final AtomicReference<String> logType = new AtomicReference<>();
-            String logs = "";
-
-            while (iterator.hasNext()) {
-                DomElement node = iterator.next();
-
-                if (node instanceof HtmlParagraph) {
-                    // In history server, need to read log type paragraph in page
-                    final Pattern logTypePattern = Pattern.compile("Log Type:\\s+(\\S+)");
-
-                    Optional.ofNullable(node.getFirstChild())
-                            .map(DomNode::getTextContent)
-                            .map(String::trim)
-                            .map(logTypePattern::matcher)
-                            .filter(Matcher::matches)
-                            .map(matcher -> matcher.group(1))
-                            .ifPresent(logType::set);
-                } else if (node instanceof HtmlPreformattedText) {
-                    // In running, no log type paragraph in page
-                    logs = Optional.ofNullable(node.getFirstChild())
-                                .map(DomNode::getTextContent)
-                                .orElse("");
-
-                    if (logType.get() != null) {
-                        // Only get the first <pre>...</pre>
-                        logTypeMap.put(logType.get(), logs);
-
-                        logType.set(null);
-                    }
-                }
-            }
 
-            return logTypeMap.getOrDefault(type, logs);
-        } catch (FailingHttpStatusCodeException httpError) {
+            return YarnContainerLogReader.read(authCode, url, type);
+        } catch (HDIException httpError) {
             // If the URL is wrong, will get 200 response with content:
             //      Unable to locate 'xxx' log for container
             //  OR
@@ -327,7 +267,7 @@ public class JobUtils {
             //
             // if fetching Yarn log hits the gap between the job running and stop, will get the status 403
             // the log is moving to job history server, just wait and retry.
-            if (httpError.getStatusCode() != HttpStatus.SC_FORBIDDEN) {
+            if (httpError.getErrorCode() != HttpStatus.SC_FORBIDDEN) {
                 LOGGER.warn("The GET request to " + url + " responded error: " + httpError.getMessage());
             }
         } catch (URISyntaxException e) {
@@ -345,23 +285,19 @@ public class JobUtils {
      * @param stop the stop observable to cancel the log fetch, refer to Observable.window() operation
      * @param containerLogUrl the contaniner log url
      * @param type the log type
-     * @param blockSize the block size for one fetch, the value 0 for as many as possible
-     * @return the log Observable
+     * @param blockSize the block size in bytes for one fetch, the value 0 for as many as possible
+     * @return the log Observable, emits lines framed by {@link YarnContainerLogTailer}
      */
     public static Observable<String> createYarnLogObservable(@Nullable final String authCode,
                                                              @Nullable final Observable<Object> stop,
                                                              @NotNull final String containerLogUrl,
                                                              @NotNull final String type,
                                                              final int blockSize) {
-        int retryIntervalMs = 1000;
-
         if (blockSize <= 0)
             return Observable.empty();
 
         return Observable.create((Observable.OnSubscribe<String>) ob -> {
-            long nextStart = 0;
-            String remainedLine = "";
-            String logs;
+            final YarnContainerLogTailer tailer = new YarnContainerLogTailer(authCode, containerLogUrl, type, blockSize);
             Thread currentThread = Thread.currentThread();
 
             // Refer to the Observable.window() operation:
@@ -372,47 +308,15 @@ public class JobUtils {
 
             try {
                 while (!ob.isUnsubscribed()) {
-                    logs = JobUtils.getInformationFromYarnLogDom(
-                            authCode, containerLogUrl, type, nextStart, blockSize);
-                    int lastLineBreak = logs.lastIndexOf('\n');
-
-                    if (lastLineBreak < 0) {
-                        // No linebreak found
-                        if (logs.isEmpty()) {
-                            // Remained line is a full line since the backend producing logs line by line
-                            ob.onNext(remainedLine);
-                            remainedLine = "";
-                        } else {
-                            remainedLine += logs;
-                            nextStart += logs.length();
-                        }
-                    } else {
-                        long handledLength = new BufferedReader(new StringReader(
-                                                remainedLine + logs.substring(0, lastLineBreak)))
-                                .lines()
-                                .map(line -> {
-                                    ob.onNext(line);
-
-                                    // Count the line length with linebreak
-                                    // We need to handle this since the web client may convert the LF to CRLF
-                                    return (line.length() + 1);
-                                })
-                                .reduce((x, y) -> x + y)
-                                .orElse(0);
-
-                        nextStart += handledLength - remainedLine.length();
-                        remainedLine = "";
-                    }
+                    tailer.poll().forEach(ob::onNext);
 
-                    Thread.sleep(retryIntervalMs);
+                    Thread.sleep(tailer.getNextPollIntervalMs());
                 }
             } catch (InterruptedException ignore) {
             } finally {
                 // Get the rest logs from history server
                 // Don't worry about the log is moved to history server, the YarnUI can do URL redirect by itself
-                logs = JobUtils.getInformationFromYarnLogDom(authCode, containerLogUrl, type, nextStart, 0);
-
-                new BufferedReader(new StringReader(remainedLine + logs)).lines().forEach(ob::onNext);
+                tailer.drain().forEach(ob::onNext);
             }
 
             ob.onCompleted();
@@ -421,6 +325,20 @@ public class JobUtils {
     }
 
     public static HttpEntity getEntity(@NotNull final IClusterDetail clusterDetail, @NotNull final String url) throws IOException, HDIException {
+        return getEntity(clusterDetail, url, null);
+    }
+
+    /**
+     * Get the entity of the URL with the request config, such as the timeouts of one request
+     *
+     * @param clusterDetail the cluster to request
+     * @param url the URL to get
+     * @param requestConfig the request config, or null to use the client default
+     * @return the response entity
+     */
+    public static HttpEntity getEntity(@NotNull final IClusterDetail clusterDetail,
+                                       @NotNull final String url,
+                                       @Nullable final RequestConfig requestConfig) throws IOException, HDIException {
         final HttpClient client;
         if (clusterDetail instanceof MfaEspCluster) {
             final String tenantId = ((MfaEspCluster) clusterDetail).getTenantId();
@@ -438,6 +356,10 @@ public class JobUtils {
         }
 
         final HttpGet get = new HttpGet(url);
+        if (requestConfig != null) {
+            get.setConfig(requestConfig);
+        }
+
         final HttpResponse response = client.execute(get);
         int code = response.getStatusLine().getStatusCode();
         if (code == HttpStatus.SC_OK || code == HttpStatus.SC_CREATED) {
@@ -467,36 +389,30 @@ public class JobUtils {
                                            @NotNull Observer<SimpleImmutableEntry<MessageInfoType, String>> logSubject,
                                            @Nullable CallableSingleArg<Void, Long> uploadInProcessCallback) throws Exception {
         if(storageAccount.getAccountType() == StorageAccountType.BLOB) {
-            try (FileInputStream fileInputStream = new FileInputStream(file)) {
-                try (BufferedInputStream bufferedInputStream = new BufferedInputStream(fileInputStream)) {
-                    HDStorageAccount blobStorageAccount = (HDStorageAccount) storageAccount;
-                    BlobContainer container = getSparkClusterContainer(blobStorageAccount, containerName);
-                    if (container == null) {
-                        throw new IllegalArgumentException("Can't get the valid container.");
-                    }
+            HDStorageAccount blobStorageAccount = (HDStorageAccount) storageAccount;
+            BlobContainer container = getSparkClusterContainer(blobStorageAccount, containerName);
+            if (container == null) {
+                throw new IllegalArgumentException("Can't get the valid container.");
+            }
 
-                    String path = String.format("SparkSubmission/%s/%s", uploadFolderPath, file.getName());
-                    String uploadedPath = String.format("wasbs://%s@%s/%s", containerName, blobStorageAccount.getFullStorageBlobName(), path);
+            String path = String.format("SparkSubmission/%s/%s", uploadFolderPath, file.getName());
+            String uploadedPath = String.format("wasbs://%s@%s/%s", containerName, blobStorageAccount.getFullStorageBlobName(), path);
 
-                    logSubject.onNext(new SimpleImmutableEntry<>(Info,
-                            String.format("Begin uploading file %s to Azure Blob Storage Account %s ...",
-                                          file.getPath(), uploadedPath)));
+            logSubject.onNext(new SimpleImmutableEntry<>(Info,
+                    String.format("Begin uploading file %s to Azure Blob Storage Account %s ...",
+                                  file.getPath(), uploadedPath)));
 
-                    StorageClientSDKManager.getManager().uploadBlobFileContent(
-                            blobStorageAccount.getConnectionString(),
-                            container,
-                            path,
-                            bufferedInputStream,
-                            uploadInProcessCallback,
-                            1024 * 1024,
-                            file.length());
+            StorageClientSDKManager.getManager().uploadBlobFileContent(
+                    blobStorageAccount.getConnectionString(),
+                    container,
+                    path,
+                    file,
+                    uploadInProcessCallback);
 
-                    logSubject.onNext(new SimpleImmutableEntry<>(Info,
-                            String.format("Submit file to azure blob '%s' successfully.", uploadedPath)));
+            logSubject.onNext(new SimpleImmutableEntry<>(Info,
+                    String.format("Submit file to azure blob '%s' successfully.", uploadedPath)));
 
-                    return uploadedPath;
-                }
-            }
+            return uploadedPath;
         } else if(storageAccount.getAccountType() == StorageAccountType.ADLS) {
             String uploadPath = String.format("adl://%s.azuredatalakestore.net%s%s", storageAccount.getName(), storageAccount.getDefaultContainerOrRootPath(), "SparkSubmission");
             logSubject.onNext(new SimpleImmutableEntry<>(Info,
@@ -745,17 +661,13 @@ public class JobUtils {
                 throw new UnknownServiceException("using webhdfs encounter problem:".concat(ex.toString()));
             }
 
-            InputStreamEntity reqEntity = new InputStreamEntity(
-                    new FileInputStream(file),
-                    -1,
-                    ContentType.APPLICATION_OCTET_STREAM);
-            reqEntity.setChunked(true);
-            BufferedHttpEntity reqEntityBuf = new BufferedHttpEntity(reqEntity);
+            // Stream the artifact from disk, rather than buffering it into memory
+            ProgressFileEntity reqEntity = new ProgressFileEntity(file, ContentType.APPLICATION_OCTET_STREAM);
 
             //setup url with redirect url and entity ,config 100 continue to header
             req = RequestBuilder
                     .put(redirectUri)
-                    .setEntity(reqEntityBuf)
+                    .setEntity(reqEntity)
                     .setConfig(RequestConfig.custom().setExpectContinueEnabled(true).build())
                     .build();
 
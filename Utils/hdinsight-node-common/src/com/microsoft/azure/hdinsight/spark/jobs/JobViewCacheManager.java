@@ -24,9 +24,15 @@ package com.microsoft.azure.hdinsight.spark.jobs;
 
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.microsoft.azure.hdinsight.common.JobViewManager;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
+import com.microsoft.azure.hdinsight.sdk.rest.AttemptWithAppId;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.Application;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.event.JobStartEventLog;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.executor.Executor;
@@ -36,99 +42,213 @@ import com.microsoft.azure.hdinsight.sdk.rest.spark.task.Task;
 import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.App;
 import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.ApplicationMasterLogs;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import com.microsoft.azuretools.telemetry.TelemetryConstants;
+import com.microsoft.azuretools.telemetrywrapper.EventType;
+import com.microsoft.azuretools.telemetrywrapper.EventUtil;
+import rx.Observable;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * The caches of Spark and Yarn REST resources for Job View, keyed by application.
+ *
+ * The resources of a completed application never change, so the ones loaded after the application completed are
+ * kept until they are idle for {@link #IDLE_EXPIRE_MINUTES}. The resources of a running application are refreshed
+ * asynchronously every {@link #RUNNING_APP_REFRESH_SECONDS} when they are accessed, the stale value is returned
+ * until the refreshing is done. The concurrent loading of the same key is coalesced by the cache.
+ */
 public class JobViewCacheManager {
-    private static final LoadingCache<ApplicationKey, List<Job>> sparkJobLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<Job>>() {
-                @Override
-                public List<Job> load(ApplicationKey key) throws Exception {
-                    return SparkRestUtil.getLastAttemptJobsFromApp(key);
-                }
-            });
+    public static final long RUNNING_APP_REFRESH_SECONDS = 10;
+    public static final long IDLE_EXPIRE_MINUTES = 60;
 
-    private static final LoadingCache<ApplicationKey, List<Stage>> sparkStageLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<Stage>>() {
-                @Override
-                public List<Stage> load(ApplicationKey key) throws Exception {
-                    return SparkRestUtil.getAllStageFromApp(key);
-                }
-            });
+    private static final ExecutorService refreshExecutor = Executors.newFixedThreadPool(4, new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("job-view-cache-refresh-%d")
+            .build());
 
-    private static final LoadingCache<ApplicationKey, List<Executor>> sparkExecutorLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<Executor>>() {
-                @Override
-                public List<Executor> load(ApplicationKey key) throws Exception {
-                    return SparkRestUtil.getAllExecutorFromApp(key);
-                }
-            });
+    private static final Map<String, LoadingCache<?, ?>> allCaches = new LinkedHashMap<>();
 
-    private static final LoadingCache<String, List<Application>> sparkApplicationsLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<String, List<Application>>() {
-                @Override
-                public List<Application> load(String key) throws Exception {
-                    return SparkRestUtil.getSparkApplications(JobViewManager.getCluster(key));
-                }
-            });
+    private static final LoadingCache<ApplicationKey, List<Job>> sparkJobLocalCache =
+            buildApplicationCache("jobs", SparkRestUtil::getLastAttemptJobsFromApp);
+
+    private static final LoadingCache<ApplicationKey, List<Stage>> sparkStageLocalCache =
+            buildApplicationCache("stages", SparkRestUtil::getAllStageFromApp);
+
+    private static final LoadingCache<ApplicationKey, List<Executor>> sparkExecutorLocalCache =
+            buildApplicationCache("executors", SparkRestUtil::getAllExecutorFromApp);
+
+    private static final LoadingCache<String, List<Application>> sparkApplicationsLocalCache = register("applications",
+            CacheBuilder.newBuilder()
+                    .maximumSize(100)
+                    .initialCapacity(20)
+                    .refreshAfterWrite(RUNNING_APP_REFRESH_SECONDS, TimeUnit.SECONDS)
+                    .recordStats()
+                    .build(CacheLoader.asyncReloading(new CacheLoader<String, List<Application>>() {
+                        @Override
+                        public List<Application> load(String key) throws Exception {
+                            return SparkRestUtil.getSparkApplications(JobViewManager.getCluster(key));
+                        }
+                    }, refreshExecutor)));
+
+    // The tasks fetching in flight, shared by the cache loading and the streaming of stage tasks
+    private static final Map<ApplicationKey, Observable<List<Task>>> tasksFetchingInFlight = new ConcurrentHashMap<>();
 
-    private static final LoadingCache<ApplicationKey, List<Task>> sparkTasksSummaryLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<Task>>() {
-                @Override
-                public List<Task> load(ApplicationKey key) throws Exception {
-                    List<Task> allTasks = new ArrayList<>();
-                    List<Stage> stages = sparkStageLocalCache.get(key);
-                    for (Stage stage: stages) {
-                        int stageId = stage.getStageId();
-                        int attemptedId = stage.getAttemptId();
-                        List<Task> tasks = SparkRestUtil.getSparkTasks(key, stageId, attemptedId);
-                        allTasks.addAll(tasks);
+    private static final LoadingCache<ApplicationKey, List<Task>> sparkTasksSummaryLocalCache =
+            buildApplicationCache("tasks", key -> {
+                try {
+                    return fetchTasksByStages(key)
+                            .reduce(new ArrayList<Task>(), (allTasks, tasks) -> {
+                                allTasks.addAll(tasks);
+                                return allTasks;
+                            })
+                            .toBlocking()
+                            .single();
+                } catch (RuntimeException e) {
+                    // Unwrap the checked exception wrapped by the blocking observable
+                    if (e.getCause() instanceof Exception && !(e.getCause() instanceof RuntimeException)) {
+                        throw (Exception) e.getCause();
                     }
-                    return allTasks;
-                }
-            });
 
-    private static final LoadingCache<ApplicationKey, ApplicationMasterLogs> yarnAppLogLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, ApplicationMasterLogs>() {
-                @Override
-                public ApplicationMasterLogs load(ApplicationKey key) throws Exception {
-                    return JobUtils.getYarnLogs(key);
+                    throw e;
                 }
             });
 
-    private static final LoadingCache<ApplicationKey, App> yarnApplicationLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, App>() {
-                @Override
-                public App load(ApplicationKey key) throws Exception {
-                    return YarnRestUtil.getApp(key);
-                }
-            });
+    private static final LoadingCache<ApplicationKey, ApplicationMasterLogs> yarnAppLogLocalCache =
+            buildApplicationCache("yarnLogs", JobUtils::getYarnLogs);
 
-    private static final LoadingCache<ApplicationKey, List<JobStartEventLog>> sparkJobStartEventLogCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<JobStartEventLog>>() {
-                @Override
-                public List<JobStartEventLog> load(ApplicationKey key) throws Exception {
-                    return SparkRestUtil.getSparkEventLogs(key);
-                }
-            });
+    private static final LoadingCache<ApplicationKey, App> yarnApplicationLocalCache =
+            buildApplicationCache("yarnApp", YarnRestUtil::getApp);
+
+    private static final LoadingCache<ApplicationKey, List<JobStartEventLog>> sparkJobStartEventLogCache =
+            buildApplicationCache("jobStartEvents", SparkRestUtil::getSparkEventLogs);
+
+    @FunctionalInterface
+    private interface ApplicationResourceLoader<V> {
+        V load(@NotNull ApplicationKey key) throws Exception;
+    }
+
+    @FunctionalInterface
+    interface TasksFetcher {
+        Observable<List<Task>> fetch(@NotNull ApplicationKey key) throws ExecutionException;
+    }
+
+    /**
+     * The application resource cache loader, which skips refreshing for the values loaded after the application
+     * completed, and refreshes the others asynchronously.
+     */
+    private static class ApplicationStateAwareLoader<V> extends CacheLoader<ApplicationKey, V> {
+        @NotNull
+        private final ApplicationResourceLoader<V> loader;
+
+        @NotNull
+        private final Set<ApplicationKey> completedKeys = ConcurrentHashMap.newKeySet();
+
+        ApplicationStateAwareLoader(@NotNull ApplicationResourceLoader<V> loader) {
+            this.loader = loader;
+        }
+
+        @Override
+        public V load(@NotNull ApplicationKey key) throws Exception {
+            // Check the state before loading, since the application could complete during loading
+            final boolean isCompleted = isApplicationCompleted(key);
+            final V value = loader.load(key);
+
+            if (isCompleted) {
+                completedKeys.add(key);
+            } else {
+                completedKeys.remove(key);
+            }
+
+            return value;
+        }
+
+        @Override
+        public ListenableFuture<V> reload(@NotNull ApplicationKey key, @NotNull V oldValue) {
+            if (completedKeys.contains(key)) {
+                return Futures.immediateFuture(oldValue);
+            }
+
+            final ListenableFutureTask<V> task = ListenableFutureTask.create(() -> load(key));
+            refreshExecutor.execute(task);
+
+            return task;
+        }
+    }
+
+    @NotNull
+    private static <V> LoadingCache<ApplicationKey, V> buildApplicationCache(@NotNull String name,
+                                                                             @NotNull ApplicationResourceLoader<V> loader) {
+        return register(name, CacheBuilder.newBuilder()
+                .maximumSize(100)
+                .initialCapacity(20)
+                .refreshAfterWrite(RUNNING_APP_REFRESH_SECONDS, TimeUnit.SECONDS)
+                .expireAfterAccess(IDLE_EXPIRE_MINUTES, TimeUnit.MINUTES)
+                .recordStats()
+                .build(new ApplicationStateAwareLoader<>(loader)));
+    }
+
+    @NotNull
+    private static synchronized <K, V> LoadingCache<K, V> register(@NotNull String name,
+                                                                   @NotNull LoadingCache<K, V> cache) {
+        allCaches.put(name, cache);
+
+        return cache;
+    }
+
+    /**
+     * Check if the application is completed by the cached applications list, without loading it
+     *
+     * @param key the application key
+     * @return true if the last attempt of the application is completed
+     */
+    private static boolean isApplicationCompleted(@NotNull ApplicationKey key) {
+        final List<Application> apps = sparkApplicationsLocalCache.getIfPresent(key.getClusterDetails().getName());
+
+        if (apps == null) {
+            return false;
+        }
+
+        return apps.stream()
+                .filter(app -> app.getId().equalsIgnoreCase(key.getAppId()))
+                .findFirst()
+                .map(app -> app.getLastAttemptWithAppId(key.getClusterDetails().getName()))
+                .map(AttemptWithAppId::getCompleted)
+                .map(Boolean::parseBoolean)
+                .orElse(false);
+    }
+
+    /**
+     * Send the hit, miss and loading statistics of all caches with telemetry
+     */
+    public static synchronized void logCacheStatistics() {
+        final Map<String, Double> metrics = new HashMap<>();
+
+        allCaches.forEach((name, cache) -> {
+            final CacheStats stats = cache.stats();
+
+            metrics.put(name + ".hitCount", (double) stats.hitCount());
+            metrics.put(name + ".missCount", (double) stats.missCount());
+            metrics.put(name + ".loadSuccessCount", (double) stats.loadSuccessCount());
+            metrics.put(name + ".loadExceptionCount", (double) stats.loadExceptionCount());
+            metrics.put(name + ".averageLoadPenaltyMs", stats.averageLoadPenalty() / TimeUnit.MILLISECONDS.toNanos(1));
+            metrics.put(name + ".size", (double) cache.size());
+        });
+
+        EventUtil.logEvent(EventType.info, TelemetryConstants.HDINSIGHT, "job-view-cache-stats", null, metrics);
+    }
+
+    @Nullable
+    public static CacheStats getCacheStats(@NotNull String name) {
+        final LoadingCache<?, ?> cache = allCaches.get(name);
+
+        return cache == null ? null : cache.stats();
+    }
 
     public static List<JobStartEventLog> getJobStartEventLogs(@NotNull ApplicationKey key) throws ExecutionException {
         return sparkJobStartEventLogCache.get(key);
@@ -168,6 +288,58 @@ public class JobViewCacheManager {
         return sparkTasksSummaryLocalCache.get(key);
     }
 
+    /**
+     * Get the tasks of the application stage by stage, the cached tasks are emitted at once, or the tasks of one
+     * stage are emitted when its fetching is finished.
+     *
+     * @param key the application key
+     * @return the observable of tasks list
+     */
+    public static Observable<List<Task>> getTasksByStages(@NotNull ApplicationKey key) {
+        final List<Task> cachedTasks = sparkTasksSummaryLocalCache.getIfPresent(key);
+
+        if (cachedTasks != null) {
+            return Observable.just(cachedTasks);
+        }
+
+        final List<Task> allTasks = Collections.synchronizedList(new ArrayList<>());
+
+        return fetchTasksByStages(key)
+                .doOnNext(allTasks::addAll)
+                .doOnCompleted(() -> sparkTasksSummaryLocalCache.put(key, new ArrayList<>(allTasks)));
+    }
+
+    @NotNull
+    private static Observable<List<Task>> fetchTasksByStages(@NotNull ApplicationKey key) {
+        return fetchTasksByStages(key, k -> SparkTasksFetcher.fetch(k, sparkStageLocalCache.get(k)));
+    }
+
+    /**
+     * Fetch the tasks by stages, the fetching of the same application in flight is shared
+     *
+     * @param key the application key
+     * @param fetcher the tasks fetcher called if there is no fetching of the application in flight
+     * @return the observable of tasks list of one stage
+     */
+    @NotNull
+    static Observable<List<Task>> fetchTasksByStages(@NotNull ApplicationKey key, @NotNull TasksFetcher fetcher) {
+        return tasksFetchingInFlight.computeIfAbsent(key, k -> Observable
+                .defer(() -> {
+                    try {
+                        return fetcher.fetch(k);
+                    } catch (ExecutionException e) {
+                        return Observable.error(e.getCause());
+                    }
+                })
+                .doOnTerminate(() -> tasksFetchingInFlight.remove(k))
+                .replay()
+                .autoConnect());
+    }
+
+    static boolean isTasksFetchingInFlight(@NotNull ApplicationKey key) {
+        return tasksFetchingInFlight.containsKey(key);
+    }
+
     public static List<Stage> getStages(@NotNull ApplicationKey key) throws ExecutionException {
         return sparkStageLocalCache.get(key);
     }
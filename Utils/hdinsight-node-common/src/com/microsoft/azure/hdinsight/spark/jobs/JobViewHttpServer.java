@@ -37,7 +37,9 @@ import java.util.concurrent.TimeUnit;
 
 public class JobViewHttpServer {
     private static HttpServer server;
-    private static final int NUMBER_OF_THREADS = 50;
+    // The handlers only dispatch the requests to JobViewRequestDispatcher, a few threads are enough
+    private static final int NUMBER_OF_THREADS = 4;
+    private static final int BACKLOG = 50;
     private static ExecutorService executorService;
     private static boolean isEnabled = false;
     private static int port = -1;
@@ -58,6 +60,7 @@ public class JobViewHttpServer {
             }
         }
         isEnabled = false;
+        JobViewRequestDispatcher.logLatencyStatistics();
     }
 
     public synchronized static int getPort() {
@@ -77,7 +80,7 @@ public class JobViewHttpServer {
             InetSocketAddress socketAddress = new InetSocketAddress(s.getLocalPort());
             port = socketAddress.getPort();
 
-            server = HttpServer.create(socketAddress, NUMBER_OF_THREADS);
+            server = HttpServer.create(socketAddress, BACKLOG);
 
             server.createContext("/try", (httpExchange) -> {
                     httpExchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import com.microsoft.azuretools.telemetry.TelemetryConstants;
+import com.microsoft.azuretools.telemetrywrapper.EventType;
+import com.microsoft.azuretools.telemetrywrapper.EventUtil;
+import com.sun.net.httpserver.HttpExchange;
+import rx.Observable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The asynchronous request pipeline of Job View HTTP server. The handlers only parse the request and dispatch the
+ * remote calls and serialization to a bounded backend executor, and the exchange is completed by the backend thread.
+ * The requests are rejected with 503 when the backend is saturated.
+ *
+ * The JSON requests with the same URI in flight are coalesced into one loading. The JSON responses have ETag and are
+ * gzip compressed if the client accepts.
+ */
+public class JobViewRequestDispatcher {
+    public static final int MAX_BACKEND_THREADS = 16;
+    public static final int MAX_PENDING_REQUESTS = 256;
+
+    public static final String STREAM_ERROR_FIELD = "streamError";
+
+    private static final int GZIP_MIN_SIZE = 1024;
+
+    private static final ILogger logger = new ILogger() {};
+
+    private static final ThreadPoolExecutor backendExecutor = new ThreadPoolExecutor(
+            MAX_BACKEND_THREADS,
+            MAX_BACKEND_THREADS,
+            60,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(MAX_PENDING_REQUESTS),
+            new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("job-view-backend-%d")
+                    .build());
+
+    static {
+        backendExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private static final Map<String, CompletableFuture<JsonBody>> jsonRequestsInFlight = new ConcurrentHashMap<>();
+
+    private static final Map<String, EndpointLatency> endpointLatencies = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    public interface ExchangeTask {
+        void run() throws Exception;
+    }
+
+    private static class JsonBody {
+        @NotNull
+        private final byte[] bytes;
+
+        @NotNull
+        private final String etag;
+
+        JsonBody(@NotNull byte[] bytes) {
+            this.bytes = bytes;
+            this.etag = "\"" + Hashing.murmur3_128().hashBytes(bytes).toString() + "\"";
+        }
+    }
+
+    private static class EndpointLatency {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    /**
+     * Run the task with the exchange on the backend executor, the exchange is closed after the task
+     *
+     * @param httpExchange the HTTP exchange
+     * @param endpoint the endpoint name for latency metrics
+     * @param task the task to handle the exchange
+     */
+    public static void dispatch(@NotNull HttpExchange httpExchange,
+                                @NotNull String endpoint,
+                                @NotNull ExchangeTask task) {
+        final long start = System.nanoTime();
+
+        try {
+            backendExecutor.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    logger.log().warn("Job View request " + httpExchange.getRequestURI() + " failed", e);
+                    JobUtils.setResponse(httpExchange, String.valueOf(e.getMessage()), 500);
+                } finally {
+                    httpExchange.close();
+                    recordLatency(endpoint, start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            JobUtils.setResponse(httpExchange, "Job View backend is busy", 503);
+            recordLatency(endpoint, start);
+        }
+    }
+
+    /**
+     * Load the object on the backend executor and response it as JSON. The loading is shared by the requests with
+     * the same URI in flight.
+     *
+     * @param httpExchange the HTTP exchange
+     * @param endpoint the endpoint name for latency metrics
+     * @param loader the loader of the object to response
+     */
+    public static void dispatchJson(@NotNull HttpExchange httpExchange,
+                                    @NotNull String endpoint,
+                                    @NotNull Callable<?> loader) {
+        final long start = System.nanoTime();
+        final String requestKey = httpExchange.getRequestURI().toString();
+        final CompletableFuture<JsonBody> created = new CompletableFuture<>();
+        final CompletableFuture<JsonBody> inFlight = jsonRequestsInFlight.putIfAbsent(requestKey, created);
+
+        if (inFlight == null) {
+            try {
+                backendExecutor.execute(() -> {
+                    try {
+                        final JsonBody body = serialize(loader.call());
+
+                        jsonRequestsInFlight.remove(requestKey, created);
+                        created.complete(body);
+                    } catch (Throwable e) {
+                        jsonRequestsInFlight.remove(requestKey, created);
+                        created.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                jsonRequestsInFlight.remove(requestKey, created);
+                created.completeExceptionally(e);
+            }
+        }
+
+        (inFlight == null ? created : inFlight).whenComplete((body, err) -> {
+            try {
+                if (err == null) {
+                    writeJson(httpExchange, body);
+                } else if (err instanceof RejectedExecutionException) {
+                    JobUtils.setResponse(httpExchange, "Job View backend is busy", 503);
+                } else {
+                    final Throwable cause = err instanceof CompletionException && err.getCause() != null
+                            ? err.getCause()
+                            : err;
+                    JobUtils.setResponse(httpExchange, String.valueOf(cause.getMessage()), 500);
+                }
+            } catch (IOException e) {
+                logger.log().warn("Failed to write Job View response for " + requestKey, e);
+            } finally {
+                httpExchange.close();
+                recordLatency(endpoint, start);
+            }
+        });
+    }
+
+    /**
+     * Stream the lists emitted as one JSON array in chunked response, the elements are serialized into the response
+     * body directly and flushed once a list is written. If the source fails after the response status is sent, the
+     * array ends with an error element, an object with the {@link #STREAM_ERROR_FIELD} field only.
+     *
+     * @param httpExchange the HTTP exchange
+     * @param endpoint the endpoint name for latency metrics
+     * @param source the supplier of the lists observable, which is called on the backend executor
+     */
+    public static void dispatchJsonArrayStream(@NotNull HttpExchange httpExchange,
+                                               @NotNull String endpoint,
+                                               @NotNull Supplier<Observable<? extends List<?>>> source) {
+        dispatch(httpExchange, endpoint, () -> {
+            httpExchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            final boolean isGzip = isGzipAccepted(httpExchange);
+            if (isGzip) {
+                httpExchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+
+            httpExchange.sendResponseHeaders(200, 0);
+
+            final OutputStream body = isGzip
+                    ? new GZIPOutputStream(httpExchange.getResponseBody(), true)
+                    : httpExchange.getResponseBody();
+
+            try (JsonGenerator generator = ObjectConvertUtils.createJsonGenerator(body)) {
+                generator.writeStartArray();
+
+                try {
+                    source.get().toBlocking().forEach(elements -> {
+                        try {
+                            for (Object element : elements) {
+                                generator.writeObject(element);
+                            }
+
+                            generator.flush();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                } catch (RuntimeException e) {
+                    // The response status has been sent, end the array with an error element after the elements
+                    // written, so that the partial response can't be taken as a complete one
+                    logger.log().warn("Job View streaming request " + httpExchange.getRequestURI() + " failed", e);
+
+                    final Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    generator.writeStartObject();
+                    generator.writeStringField(STREAM_ERROR_FIELD, String.valueOf(cause.getMessage()));
+                    generator.writeEndObject();
+                }
+
+                generator.writeEndArray();
+            }
+        });
+    }
+
+    @NotNull
+    private static JsonBody serialize(@Nullable Object obj) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ObjectConvertUtils.writeObjectAsJson(obj, out);
+
+        return new JsonBody(out.toByteArray());
+    }
+
+    private static boolean isGzipAccepted(@NotNull HttpExchange httpExchange) {
+        final List<String> acceptEncodings = httpExchange.getRequestHeaders().get("Accept-Encoding");
+
+        return acceptEncodings != null && acceptEncodings.stream().anyMatch(value -> value.contains("gzip"));
+    }
+
+    private static void writeJson(@NotNull HttpExchange httpExchange, @NotNull JsonBody body) throws IOException {
+        httpExchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        httpExchange.getResponseHeaders().set("ETag", body.etag);
+
+        if (body.etag.equals(httpExchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            httpExchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        if (body.bytes.length >= GZIP_MIN_SIZE && isGzipAccepted(httpExchange)) {
+            httpExchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            httpExchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+            httpExchange.sendResponseHeaders(200, 0);
+
+            try (OutputStream out = new GZIPOutputStream(httpExchange.getResponseBody())) {
+                out.write(body.bytes);
+            }
+        } else {
+            httpExchange.sendResponseHeaders(200, body.bytes.length);
+
+            try (OutputStream out = httpExchange.getResponseBody()) {
+                out.write(body.bytes);
+            }
+        }
+    }
+
+    private static void recordLatency(@NotNull String endpoint, long startNanos) {
+        endpointLatencies.computeIfAbsent(endpoint, name -> new EndpointLatency())
+                .record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Get the average latency of the endpoint requests
+     *
+     * @param endpoint the endpoint name
+     * @return the average latency in milliseconds, or 0 if there is no request
+     */
+    public static double getAverageLatencyMs(@NotNull String endpoint) {
+        final EndpointLatency latency = endpointLatencies.get(endpoint);
+
+        if (latency == null || latency.count.sum() == 0) {
+            return 0;
+        }
+
+        return (double) latency.totalNanos.sum() / latency.count.sum() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Send the request count and latency of all endpoints with telemetry
+     */
+    public static void logLatencyStatistics() {
+        final Map<String, Double> metrics = new HashMap<>();
+
+        endpointLatencies.forEach((endpoint, latency) -> {
+            metrics.put(endpoint + ".count", (double) latency.count.sum());
+            metrics.put(endpoint + ".averageLatencyMs", getAverageLatencyMs(endpoint));
+            metrics.put(endpoint + ".maxLatencyMs",
+                        (double) latency.maxNanos.get() / TimeUnit.MILLISECONDS.toNanos(1));
+        });
+
+        if (!metrics.isEmpty()) {
+            EventUtil.logEvent(EventType.info, TelemetryConstants.HDINSIGHT, "job-view-http-latency", null, metrics);
+        }
+    }
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The compact index of a Spark event log, which records the offset and length of the job, stage and task events in
+ * the event log file, one JSON event per line.
+ *
+ * The index is built by scanning the event log stream once. Only the head bytes of each line are looked at to get
+ * the event name, the full line is kept only for the event types asked. With a saved index, the events of one type
+ * can be read back by skipping to their offsets, without parsing the other events.
+ */
+public class SparkEventLogIndex {
+    public enum EventType {
+        JobStart("SparkListenerJobStart"),
+        JobEnd("SparkListenerJobEnd"),
+        StageSubmitted("SparkListenerStageSubmitted"),
+        StageCompleted("SparkListenerStageCompleted"),
+        TaskStart("SparkListenerTaskStart"),
+        TaskEnd("SparkListenerTaskEnd");
+
+        @NotNull
+        private final String eventName;
+
+        EventType(@NotNull String eventName) {
+            this.eventName = eventName;
+        }
+
+        @NotNull
+        public String getEventName() {
+            return eventName;
+        }
+
+        @Nullable
+        static EventType fromEventName(@NotNull String eventName) {
+            for (EventType type : values()) {
+                if (type.eventName.equals(eventName)) {
+                    return type;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    private static final int MAGIC = 0x53454c49;    // "SELI"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    // Spark JsonProtocol writes the `Event` field first, so it's enough to look at the line head
+    private static final int LINE_HEAD_SIZE = 128;
+    private static final Pattern EVENT_NAME_PATTERN = Pattern.compile("^\\s*\\{\\s*\"Event\"\\s*:\\s*\"([^\"]+)\"");
+
+    @NotNull
+    private final String entryName;
+
+    private final long sourceLength;
+
+    private int size = 0;
+
+    @NotNull
+    private byte[] types = new byte[64];
+
+    @NotNull
+    private long[] offsets = new long[64];
+
+    @NotNull
+    private int[] lengths = new int[64];
+
+    /**
+     * Constructor
+     *
+     * @param entryName the event log entry name in the event logs zip
+     * @param sourceLength the length of the event logs zip file, to check if the index is out of date
+     */
+    public SparkEventLogIndex(@NotNull String entryName, long sourceLength) {
+        this.entryName = entryName;
+        this.sourceLength = sourceLength;
+    }
+
+    @NotNull
+    public String getEntryName() {
+        return entryName;
+    }
+
+    public long getSourceLength() {
+        return sourceLength;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int count(@NotNull EventType type) {
+        int count = 0;
+
+        for (int i = 0; i < size; i++) {
+            if (types[i] == type.ordinal()) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    void add(@NotNull EventType type, long offset, int length) {
+        if (size == types.length) {
+            final int capacity = size * 2;
+
+            types = Arrays.copyOf(types, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+
+        types[size] = (byte) type.ordinal();
+        offsets[size] = offset;
+        lengths[size] = length;
+        size++;
+    }
+
+    /**
+     * Build the index by scanning the event log stream
+     *
+     * @param entryName the event log entry name in the event logs zip
+     * @param sourceLength the length of the event logs zip file
+     * @param eventLogStream the event log stream, which is not closed after scanning
+     * @param collectTypes the event types to send the full event lines to the consumer
+     * @param consumer the consumer of the event type and line pair for the collected types
+     * @return the index built
+     * @throws IOException for reading errors
+     */
+    @NotNull
+    public static SparkEventLogIndex build(@NotNull String entryName,
+                                           long sourceLength,
+                                           @NotNull InputStream eventLogStream,
+                                           @NotNull Set<EventType> collectTypes,
+                                           @Nullable BiConsumer<EventType, String> consumer) throws IOException {
+        final SparkEventLogIndex index = new SparkEventLogIndex(entryName, sourceLength);
+        final byte[] buffer = new byte[READ_BUFFER_SIZE];
+        final byte[] head = new byte[LINE_HEAD_SIZE];
+        final ByteArrayOutputStream collected = new ByteArrayOutputStream();
+
+        long lineStart = 0;
+        int lineLength = 0;
+        int headLength = 0;
+        boolean isTypeResolved = false;
+        EventType lineType = null;
+        boolean isCollecting = false;
+
+        int read;
+        while ((read = eventLogStream.read(buffer)) != -1) {
+            int segmentStart = 0;
+
+            for (int i = 0; i <= read; i++) {
+                final boolean isLineEnd = i < read && buffer[i] == '\n';
+
+                if (!isLineEnd && i < read) {
+                    continue;
+                }
+
+                // Consume the segment [segmentStart, i) of the current line
+                int pos = segmentStart;
+                lineLength += i - segmentStart;
+
+                if (!isTypeResolved) {
+                    final int headCopy = Math.min(LINE_HEAD_SIZE - headLength, i - pos);
+                    System.arraycopy(buffer, pos, head, headLength, headCopy);
+                    headLength += headCopy;
+                    pos += headCopy;
+
+                    if (headLength == LINE_HEAD_SIZE || isLineEnd) {
+                        isTypeResolved = true;
+                        lineType = resolveEventType(head, headLength);
+                        isCollecting = consumer != null && lineType != null && collectTypes.contains(lineType);
+
+                        if (isCollecting) {
+                            collected.write(head, 0, headLength);
+                        }
+                    }
+                }
+
+                if (isCollecting) {
+                    collected.write(buffer, pos, i - pos);
+                }
+
+                if (isLineEnd) {
+                    if (lineType != null) {
+                        index.add(lineType, lineStart, lineLength);
+
+                        if (isCollecting) {
+                            consumer.accept(lineType, new String(collected.toByteArray(), StandardCharsets.UTF_8));
+                            collected.reset();
+                        }
+                    }
+
+                    lineStart += lineLength + 1;
+                    lineLength = 0;
+                    headLength = 0;
+                    isTypeResolved = false;
+                    lineType = null;
+                    isCollecting = false;
+                    segmentStart = i + 1;
+                }
+            }
+        }
+
+        // The last line without line break
+        if (lineLength > 0) {
+            if (!isTypeResolved) {
+                lineType = resolveEventType(head, headLength);
+                isCollecting = consumer != null && lineType != null && collectTypes.contains(lineType);
+
+                if (isCollecting) {
+                    collected.write(head, 0, headLength);
+                }
+            }
+
+            if (lineType != null) {
+                index.add(lineType, lineStart, lineLength);
+
+                if (isCollecting) {
+                    consumer.accept(lineType, new String(collected.toByteArray(), StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        return index;
+    }
+
+    @Nullable
+    private static EventType resolveEventType(@NotNull byte[] head, int headLength) {
+        // The event name is ASCII, decoding the head as ISO-8859-1 is enough and cheap
+        final Matcher matcher = EVENT_NAME_PATTERN.matcher(new String(head, 0, headLength, StandardCharsets.ISO_8859_1));
+
+        return matcher.find() ? EventType.fromEventName(matcher.group(1)) : null;
+    }
+
+    /**
+     * Read the event lines of the specified type by the index offsets
+     *
+     * @param eventLogStream the event log stream from the beginning, which is not closed after reading
+     * @param type the event type to read
+     * @return the event lines in order
+     * @throws IOException for reading errors or the stream doesn't match the index
+     */
+    @NotNull
+    public List<String> readEvents(@NotNull InputStream eventLogStream, @NotNull EventType type) throws IOException {
+        final List<String> events = new ArrayList<>();
+        long position = 0;
+
+        for (int i = 0; i < size; i++) {
+            if (types[i] != type.ordinal()) {
+                continue;
+            }
+
+            skipFully(eventLogStream, offsets[i] - position);
+
+            final byte[] line = new byte[lengths[i]];
+            readFully(eventLogStream, line);
+            events.add(new String(line, StandardCharsets.UTF_8));
+
+            position = offsets[i] + lengths[i];
+        }
+
+        return events;
+    }
+
+    private static void skipFully(@NotNull InputStream in, long count) throws IOException {
+        while (count > 0) {
+            final long skipped = in.skip(count);
+
+            if (skipped <= 0) {
+                if (in.read() == -1) {
+                    throw new EOFException("The Spark event log is shorter than its index");
+                }
+
+                count--;
+            } else {
+                count -= skipped;
+            }
+        }
+    }
+
+    private static void readFully(@NotNull InputStream in, @NotNull byte[] bytes) throws IOException {
+        int pos = 0;
+
+        while (pos < bytes.length) {
+            final int read = in.read(bytes, pos, bytes.length - pos);
+
+            if (read == -1) {
+                throw new EOFException("The Spark event log is shorter than its index");
+            }
+
+            pos += read;
+        }
+    }
+
+    /**
+     * Save the index into the file
+     *
+     * @param file the index file
+     * @throws IOException for writing errors
+     */
+    public void save(@NotNull File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(entryName);
+            out.writeLong(sourceLength);
+            out.writeInt(size);
+
+            for (int i = 0; i < size; i++) {
+                out.writeByte(types[i]);
+                out.writeLong(offsets[i]);
+                out.writeInt(lengths[i]);
+            }
+        }
+    }
+
+    /**
+     * Load the index from the file
+     *
+     * @param file the index file
+     * @return the index loaded, or empty if the file doesn't exist or is not a valid index
+     */
+    @NotNull
+    public static Optional<SparkEventLogIndex> load(@NotNull File file) {
+        if (!file.isFile()) {
+            return Optional.empty();
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return Optional.empty();
+            }
+
+            final SparkEventLogIndex index = new SparkEventLogIndex(in.readUTF(), in.readLong());
+            final int count = in.readInt();
+            final EventType[] eventTypes = EventType.values();
+
+            for (int i = 0; i < count; i++) {
+                final int type = in.readByte();
+
+                if (type < 0 || type >= eventTypes.length) {
+                    return Optional.empty();
+                }
+
+                index.add(eventTypes[type], in.readLong(), in.readInt());
+            }
+
+            return Optional.of(index);
+        } catch (IOException ignored) {
+            return Optional.empty();
+        }
+    }
+}
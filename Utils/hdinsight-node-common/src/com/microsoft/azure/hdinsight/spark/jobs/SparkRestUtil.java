@@ -35,16 +35,15 @@ import com.microsoft.azure.hdinsight.sdk.rest.spark.job.Job;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.stage.Stage;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.task.Task;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
-import org.json.JSONObject;
+import org.apache.http.client.config.RequestConfig;
 
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
@@ -92,9 +91,16 @@ public class SparkRestUtil {
     }
 
     public static List<Task> getSparkTasks(@NotNull ApplicationKey key, @NotNull int stage, int attemptId) throws IOException, ExecutionException, HDIException {
+        return getSparkTasks(key, stage, attemptId, null);
+    }
+
+    public static List<Task> getSparkTasks(@NotNull ApplicationKey key,
+                                           int stage,
+                                           int attemptId,
+                                           @Nullable RequestConfig requestConfig) throws IOException, ExecutionException, HDIException {
         AttemptWithAppId attemptWithAppId = getLastAttemptFromLocalCache(key);
         String url = String.format("/%s/%s/stages/%s/%s/taskList", attemptWithAppId.getAppId(), attemptWithAppId.getAttemptId(),stage, attemptId);
-        HttpEntity entity = getSparkRestEntity(key.getClusterDetails(), url);
+        HttpEntity entity = getSparkRestEntity(key.getClusterDetails(), url, requestConfig);
 
         Optional<List<Task>> tasks = ObjectConvertUtils.convertEntityToList(entity, Task.class);
         return tasks.orElse(RestUtil.getEmptyList(Task.class));
@@ -102,37 +108,84 @@ public class SparkRestUtil {
 
     public static List<JobStartEventLog> getSparkEventLogs(@NotNull ApplicationKey key) throws HDIException, IOException {
         String url = String.format("%s/logs", key.getAppId());
-        String eventLogsPath = String.format("%s/SparkEventLogs/%s/eventLogs.zip", HDInsightLoader.getHDInsightHelper().getPluginRootPath(), key.getAppId());
-        File file = new File(eventLogsPath);
+        String eventLogsDir = String.format("%s/SparkEventLogs/%s", HDInsightLoader.getHDInsightHelper().getPluginRootPath(), key.getAppId());
+        File file = new File(eventLogsDir, "eventLogs.zip");
+        File indexFile = new File(eventLogsDir, "eventLogs.idx");
+
+        // The event logs of a completed application won't change, read the job start events by the saved index
+        if (isLastAttemptCompleted(key) && file.isFile()) {
+            Optional<SparkEventLogIndex> savedIndex = SparkEventLogIndex.load(indexFile)
+                    .filter(index -> index.getSourceLength() == file.length());
+
+            if (savedIndex.isPresent()) {
+                try (ZipFile zipFile = new ZipFile(file)) {
+                    ZipEntry entry = zipFile.getEntry(savedIndex.get().getEntryName());
+
+                    if (entry != null) {
+                        try (InputStream eventLogStream = zipFile.getInputStream(entry)) {
+                            return savedIndex.get().readEvents(eventLogStream, SparkEventLogIndex.EventType.JobStart)
+                                    .stream()
+                                    .map(line -> ObjectConvertUtils.convertToObjectQuietly(line, JobStartEventLog.class))
+                                    .filter(Objects::nonNull)
+                                    .collect(Collectors.toList());
+                        }
+                    }
+                } catch (IOException ignored) {
+                    // Fall back to download the event logs again
+                }
+            }
+        }
+
         HttpEntity entity = getSparkRestEntity(key.getClusterDetails(), url);
-        InputStream inputStream = entity.getContent();
-        FileUtils.copyInputStreamToFile(inputStream, file);
-        IOUtils.closeQuietly(inputStream);
-
-        ZipFile zipFile = new ZipFile(file);
-        List<? extends ZipEntry> entities =  Collections.list(zipFile.entries());
-        // every application has an attempt in event log
-        // and the entity name should be in formation "{appId}_{attemptId}"
-        String entityName = String.format("%s_%s", key.getAppId(), entities.size());
-        ZipEntry lastEntity = zipFile.getEntry(entityName);
-        if (lastEntity == null) {
-            throw new HDIException(String.format("No Spark event log entity found for app: %s", key.getAppId()));
+        try (InputStream inputStream = entity.getContent()) {
+            FileUtils.copyInputStreamToFile(inputStream, file);
         }
-        InputStream zipFileInputStream = zipFile.getInputStream(lastEntity);
-        String entityContent = IOUtils.toString(zipFileInputStream, Charset.forName("utf-8"));
-
-        String[] lines = entityContent.split("\n");
-        List<JobStartEventLog> jobStartEvents = Arrays.stream(lines)
-                .filter(line -> {
-                    JSONObject jsonObject = new JSONObject(line);
-                    String eventName = jsonObject.getString("Event");
-                    return eventName.equalsIgnoreCase("SparkListenerJobStart");
-                    })
-                .map(oneLine -> ObjectConvertUtils.convertToObjectQuietly(oneLine, JobStartEventLog.class))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        FileUtils.deleteQuietly(indexFile);
+
+        try (ZipFile zipFile = new ZipFile(file)) {
+            // every application has an attempt in event log
+            // and the entity name should be in formation "{appId}_{attemptId}"
+            String entityName = String.format("%s_%s", key.getAppId(), zipFile.size());
+            ZipEntry lastEntity = zipFile.getEntry(entityName);
+            if (lastEntity == null) {
+                throw new HDIException(String.format("No Spark event log entity found for app: %s", key.getAppId()));
+            }
+
+            List<JobStartEventLog> jobStartEvents = new ArrayList<>();
+            SparkEventLogIndex index;
+            try (InputStream zipFileInputStream = zipFile.getInputStream(lastEntity)) {
+                index = SparkEventLogIndex.build(
+                        entityName,
+                        file.length(),
+                        zipFileInputStream,
+                        EnumSet.of(SparkEventLogIndex.EventType.JobStart),
+                        (type, line) -> {
+                            JobStartEventLog jobStartEvent =
+                                    ObjectConvertUtils.convertToObjectQuietly(line, JobStartEventLog.class);
+                            if (jobStartEvent != null) {
+                                jobStartEvents.add(jobStartEvent);
+                            }
+                        });
+            }
+
+            try {
+                index.save(indexFile);
+            } catch (IOException ignored) {
+                // The index is only an optimization for the next reading
+            }
+
+            return jobStartEvents;
+        }
+    }
+
+    private static boolean isLastAttemptCompleted(@NotNull ApplicationKey key) {
+        try {
+            AttemptWithAppId lastAttempt = getLastAttemptFromLocalCache(key);
 
-        return jobStartEvents;
+            return lastAttempt != null && Boolean.parseBoolean(lastAttempt.getCompleted());
+        } catch (ExecutionException | HDIException | RuntimeException ignored) {
+            return false;
+        }
     }
 
     private static AttemptWithAppId getLastAttemptFromLocalCache(@NotNull ApplicationKey key) throws ExecutionException, HDIException {
@@ -143,9 +196,15 @@ public class SparkRestUtil {
     }
 
     private static HttpEntity getSparkRestEntity(@NotNull IClusterDetail clusterDetail, @NotNull String restUrl) throws HDIException, IOException {
+        return getSparkRestEntity(clusterDetail, restUrl, null);
+    }
+
+    private static HttpEntity getSparkRestEntity(@NotNull IClusterDetail clusterDetail,
+                                                 @NotNull String restUrl,
+                                                 @Nullable RequestConfig requestConfig) throws HDIException, IOException {
         String connUrl = clusterDetail.getConnectionUrl();
         connUrl = connUrl.endsWith("/") ? connUrl.substring(0, connUrl.length() - 1) : connUrl;
         final String url = String.format(SPARK_REST_API_ENDPOINT, connUrl, restUrl);
-        return JobUtils.getEntity(clusterDetail, url);
+        return JobUtils.getEntity(clusterDetail, url, requestConfig);
     }
 }
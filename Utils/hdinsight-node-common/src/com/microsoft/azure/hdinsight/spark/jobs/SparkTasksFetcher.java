@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.stage.Stage;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.task.Task;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import org.apache.http.client.config.RequestConfig;
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fetch the tasks of Spark stages concurrently. The concurrent requests to one cluster are bounded by a fixed size
+ * thread pool per cluster, shared by all applications of the cluster, and every request has a timeout.
+ *
+ * The failure of one stage doesn't stop fetching the others, the failed stages are reported with a
+ * {@link StageTasksFetchException} after the tasks of all other stages are emitted.
+ */
+public class SparkTasksFetcher {
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 8;
+    public static final long DEFAULT_REQUEST_TIMEOUT_SECONDS = 60;
+
+    private static final Map<String, Integer> maxConcurrentRequests = new ConcurrentHashMap<>();
+    private static final Map<String, Scheduler> clusterSchedulers = new ConcurrentHashMap<>();
+
+    private static volatile long requestTimeoutSeconds = DEFAULT_REQUEST_TIMEOUT_SECONDS;
+
+    @FunctionalInterface
+    interface StageTasksLoader {
+        List<Task> load(@NotNull Stage stage) throws Exception;
+    }
+
+    /**
+     * Set the max concurrent task requests to a cluster, which takes effect for the cluster not fetched yet
+     *
+     * @param clusterName the cluster name
+     * @param maxConcurrent the max concurrent requests
+     */
+    public static void setMaxConcurrentRequests(@NotNull String clusterName, int maxConcurrent) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("The max concurrent requests should be positive: " + maxConcurrent);
+        }
+
+        maxConcurrentRequests.put(clusterName, maxConcurrent);
+    }
+
+    public static void setRequestTimeoutSeconds(long timeoutSeconds) {
+        requestTimeoutSeconds = timeoutSeconds;
+    }
+
+    private static int getMaxConcurrentRequests(@NotNull String clusterName) {
+        return maxConcurrentRequests.getOrDefault(clusterName, DEFAULT_MAX_CONCURRENT_REQUESTS);
+    }
+
+    @NotNull
+    private static Scheduler getClusterScheduler(@NotNull String clusterName) {
+        return clusterSchedulers.computeIfAbsent(clusterName, name -> Schedulers.from(Executors.newFixedThreadPool(
+                getMaxConcurrentRequests(name),
+                new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("spark-tasks-fetcher-" + name + "-%d")
+                        .build())));
+    }
+
+    /**
+     * Fetch the tasks of the stages concurrently
+     *
+     * @param key the application key
+     * @param stages the stages to fetch tasks
+     * @return the observable of tasks list of one stage, in the order of stage fetching finished, which ends with
+     *         {@link StageTasksFetchException} if some stages failed
+     */
+    @NotNull
+    public static Observable<List<Task>> fetch(@NotNull ApplicationKey key, @NotNull List<Stage> stages) {
+        // The timeout operator can't interrupt the blocking request, so that the request has the socket timeout
+        // as well, to release the fetching thread once the request stalls
+        final int timeoutMs = (int) TimeUnit.SECONDS.toMillis(requestTimeoutSeconds);
+        final RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(timeoutMs)
+                .setConnectionRequestTimeout(timeoutMs)
+                .setSocketTimeout(timeoutMs)
+                .build();
+
+        return fetch(key.getClusterDetails().getName(),
+                     stages,
+                     stage -> SparkRestUtil.getSparkTasks(key, stage.getStageId(), stage.getAttemptId(), requestConfig));
+    }
+
+    @NotNull
+    static Observable<List<Task>> fetch(@NotNull String clusterName,
+                                        @NotNull List<Stage> stages,
+                                        @NotNull StageTasksLoader loader) {
+        final Scheduler scheduler = getClusterScheduler(clusterName);
+        final long timeoutSeconds = requestTimeoutSeconds;
+
+        return Observable.defer(() -> {
+            final List<String> failedStages = Collections.synchronizedList(new ArrayList<>());
+            final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+            // Subscribe the timeout on the fetching thread, so that the time waiting for a thread is not counted
+            return Observable.from(stages)
+                    .flatMap(stage -> Observable.fromCallable(() -> loader.load(stage))
+                                    .timeout(timeoutSeconds, TimeUnit.SECONDS)
+                                    .subscribeOn(scheduler)
+                                    .onErrorResumeNext(err -> {
+                                        failedStages.add(stage.getStageId() + "." + stage.getAttemptId());
+                                        firstFailure.compareAndSet(null, err);
+
+                                        return Observable.<List<Task>>empty();
+                                    }),
+                             getMaxConcurrentRequests(clusterName))
+                    .concatWith(Observable.defer(() -> failedStages.isEmpty()
+                            ? Observable.<List<Task>>empty()
+                            : Observable.<List<Task>>error(new StageTasksFetchException(
+                                    new ArrayList<>(failedStages), firstFailure.get()))));
+        });
+    }
+}
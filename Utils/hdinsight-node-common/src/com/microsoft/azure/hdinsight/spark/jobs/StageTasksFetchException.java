@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.microsoft.azure.hdinsight.sdk.common.HDIException;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+
+import java.util.List;
+
+/**
+ * The tasks of some stages can't be fetched, while the tasks of the other stages have been emitted
+ */
+public class StageTasksFetchException extends HDIException {
+    @NotNull
+    private final List<String> failedStages;
+
+    public StageTasksFetchException(@NotNull List<String> failedStages, @NotNull Throwable firstCause) {
+        super(String.format("Failed to fetch the tasks of %d stage(s) %s: %s",
+                            failedStages.size(), failedStages, firstCause.getMessage()),
+              firstCause);
+        this.failedStages = failedStages;
+    }
+
+    /**
+     * @return the failed stages, in `stageId.attemptId` format
+     */
+    @NotNull
+    public List<String> getFailedStages() {
+        return failedStages;
+    }
+}
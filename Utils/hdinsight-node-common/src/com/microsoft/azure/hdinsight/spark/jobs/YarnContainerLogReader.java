@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.microsoft.azure.hdinsight.sdk.common.HDIException;
+import com.microsoft.azure.hdinsight.sdk.common.HttpObservable;
+import com.microsoft.azure.hdinsight.sdk.common.SharedHttpTransport;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.CookieSpecs;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.apache.http.HttpHeaders.AUTHORIZATION;
+
+/**
+ * The lightweight Yarn container log reader, which pulls the log text out of the YarnUI NodeManager and
+ * JobHistory container log pages by scanning the response stream for the {@code <pre>} blocks, without building
+ * any DOM. The raw log endpoints (with text/plain response) are passed through as they are.
+ *
+ * All readers share one HTTP client on the shared transport, so that the log tailing keeps the connections alive
+ * between polls.
+ */
+public class YarnContainerLogReader {
+    private static final Pattern LOG_TYPE_PATTERN = Pattern.compile("Log Type:\\s+(\\S+)");
+
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final int MAX_TAG_NAME_LENGTH = 16;
+    private static final int MAX_TEXT_TAIL_LENGTH = 1024;
+    private static final int TIMEOUT_MS = 90 * 1000;
+
+    // Keyed by whether the SSL certificate validation is disabled, since the setting can be changed at runtime and
+    // the shared connection pool is selected by it
+    private static final Map<Boolean, CloseableHttpClient> httpClients = new ConcurrentHashMap<>();
+
+    /**
+     * Read the container log of the specified type from the YarnUI container log page
+     *
+     * @param authCode the authCode in request's Authorization header
+     * @param url the full container log url with the log type and range parameters
+     * @param type the log type
+     * @return the log got, or an empty string if there is no log
+     * @throws IOException for networking errors
+     * @throws HDIException for non 2xx responses, with the HTTP status code as error code
+     */
+    @NotNull
+    public static String read(@Nullable final String authCode,
+                              @NotNull final URI url,
+                              @NotNull final String type) throws IOException, HDIException {
+        final HttpGet get = new HttpGet(url);
+
+        if (authCode != null) {
+            get.setHeader(AUTHORIZATION, authCode);
+        }
+
+        try (CloseableHttpResponse response = getHttpClient().execute(get)) {
+            final int statusCode = response.getStatusLine().getStatusCode();
+            final HttpEntity entity = response.getEntity();
+
+            if (statusCode < 200 || statusCode >= 300) {
+                EntityUtils.consumeQuietly(entity);
+
+                throw new HDIException(statusCode + " " + response.getStatusLine().getReasonPhrase(), statusCode);
+            }
+
+            if (entity == null) {
+                return "";
+            }
+
+            final ContentType contentType = ContentType.getLenientOrDefault(entity);
+            final Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+
+            if (entity.getContentType() != null &&
+                    ContentType.TEXT_PLAIN.getMimeType().equalsIgnoreCase(contentType.getMimeType())) {
+                // The raw log endpoint, the page without content type is still taken as HTML
+                return EntityUtils.toString(entity, charset);
+            }
+
+            try (Reader reader = new InputStreamReader(entity.getContent(), charset)) {
+                return extractLog(reader, type);
+            }
+        }
+    }
+
+    /**
+     * Extract the log from the YarnUI container log page stream. In the history server, each log type has a paragraph
+     * `Log Type: xxx` before its {@code <pre>} block. While the application is running, there is no log type
+     * paragraph in the page.
+     *
+     * @param reader the page content reader
+     * @param type the log type
+     * @return the log in the {@code <pre>} block following the type's paragraph if any, otherwise the last
+     *         {@code <pre>} block content
+     * @throws IOException for reading errors
+     */
+    @NotNull
+    static String extractLog(@NotNull final Reader reader, @NotNull final String type) throws IOException {
+        final char[] buffer = new char[READ_BUFFER_SIZE];
+        final StringBuilder text = new StringBuilder();
+        final StringBuilder tagName = new StringBuilder();
+
+        boolean inTag = false;
+        boolean tagNameDone = false;
+        boolean inPre = false;
+        String rawTextEndTag = null;
+        int rawTextEndTagMatched = 0;
+        String logType = null;
+        String typedLog = null;
+        String lastLog = "";
+
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                final char c = buffer[i];
+
+                if (rawTextEndTag != null) {
+                    // Skip the <script> and <style> contents until the end tag
+                    if (Character.toLowerCase(c) == rawTextEndTag.charAt(rawTextEndTagMatched)) {
+                        if (++rawTextEndTagMatched == rawTextEndTag.length()) {
+                            tagName.setLength(0);
+                            tagName.append(rawTextEndTag, 1, rawTextEndTag.length());
+                            rawTextEndTag = null;
+                            inTag = true;
+                            tagNameDone = true;
+                        }
+                    } else {
+                        rawTextEndTagMatched = c == '<' ? 1 : 0;
+                    }
+                } else if (inTag) {
+                    if (c == '>') {
+                        inTag = false;
+
+                        final String name = tagName.toString();
+
+                        if (inPre) {
+                            if (name.equals("/pre")) {
+                                inPre = false;
+
+                                final String log = unescape(text);
+                                if (logType != null) {
+                                    // Only get the first <pre>...</pre> for the log type
+                                    if (logType.equals(type)) {
+                                        typedLog = log;
+                                    }
+
+                                    logType = null;
+                                }
+
+                                lastLog = log;
+                                text.setLength(0);
+                            }
+                        } else if (name.equals("pre")) {
+                            inPre = true;
+
+                            final Matcher matcher = LOG_TYPE_PATTERN.matcher(text);
+                            while (matcher.find()) {
+                                logType = matcher.group(1);
+                            }
+
+                            text.setLength(0);
+                        } else {
+                            if (name.equals("script") || name.equals("style")) {
+                                rawTextEndTag = "</" + name;
+                                rawTextEndTagMatched = 0;
+                            }
+
+                            // Tags separate the texts around them
+                            appendTextTail(text, ' ');
+                        }
+                    } else if (!tagNameDone) {
+                        if (Character.isWhitespace(c) || (c == '/' && tagName.length() > 0)) {
+                            tagNameDone = true;
+                        } else if (tagName.length() < MAX_TAG_NAME_LENGTH) {
+                            tagName.append(Character.toLowerCase(c));
+                        }
+                    }
+                } else if (c == '<') {
+                    inTag = true;
+                    tagNameDone = false;
+                    tagName.setLength(0);
+                } else if (inPre) {
+                    text.append(c);
+                } else {
+                    appendTextTail(text, c);
+                }
+            }
+        }
+
+        return typedLog != null ? typedLog : lastLog;
+    }
+
+    private static void appendTextTail(@NotNull final StringBuilder text, final char c) {
+        // Only the text tail before <pre> is needed for the log type detection
+        if (text.length() >= MAX_TEXT_TAIL_LENGTH) {
+            text.delete(0, text.length() - MAX_TEXT_TAIL_LENGTH / 2);
+        }
+
+        text.append(c);
+    }
+
+    @NotNull
+    private static String unescape(@NotNull final StringBuilder escaped) {
+        final String log = escaped.toString();
+
+        return log.indexOf('&') < 0 ? log : StringEscapeUtils.unescapeHtml4(log);
+    }
+
+    @NotNull
+    static CloseableHttpClient getHttpClient() {
+        return httpClients.computeIfAbsent(
+                HttpObservable.isSSLCertificateValidationDisabled(), isDisabled -> createHttpClient());
+    }
+
+    @NotNull
+    private static CloseableHttpClient createHttpClient() {
+        return SharedHttpTransport.newClientBuilder()
+                .setDefaultRequestConfig(SharedHttpTransport.newRequestConfigBuilder()
+                        .setCookieSpec(CookieSpecs.STANDARD)
+                        .setConnectTimeout(TIMEOUT_MS)
+                        .setSocketTimeout(TIMEOUT_MS)
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The incremental tailer for one Yarn container log type. It keeps the exact byte offset of the log file which has
+ * been framed into lines, and fetches the `start/end` window from there.
+ *
+ * A window is consumed up to its last line break, the partial line after it will be fetched again with the next
+ * window. A window without any line break is kept as the pending line head. The Yarn log offsets are counted in
+ * UTF-8 bytes, so the line lengths are counted as the UTF-8 encoded length, rather than the string length.
+ *
+ * The poll interval is adaptive: the next window is fetched without waiting if the current one is full, and the
+ * interval is doubled (up to {@link #MAX_IDLE_INTERVAL_MS}) if the log is idle.
+ */
+public class YarnContainerLogTailer {
+    public static final long MIN_IDLE_INTERVAL_MS = 1000;
+    public static final long MAX_IDLE_INTERVAL_MS = 16000;
+
+    private static final char REPLACEMENT_CHAR = '\uFFFD';
+
+    // An incomplete UTF-8 char is at most 3 bytes, decoded as at most 3 replacement chars
+    private static final int MAX_INCOMPLETE_CHARS = 3;
+
+    @Nullable
+    private final String authCode;
+
+    @NotNull
+    private final String containerLogUrl;
+
+    @NotNull
+    private final String type;
+
+    private final int windowSize;
+
+    private long offset = 0;
+
+    @NotNull
+    private String pendingLine = "";
+
+    private long nextPollIntervalMs = MIN_IDLE_INTERVAL_MS;
+
+    /**
+     * Constructor
+     *
+     * @param authCode the authCode in request's Authorization header
+     * @param containerLogUrl the container log url
+     * @param type the log type
+     * @param windowSize the window size in bytes for one fetch
+     */
+    public YarnContainerLogTailer(@Nullable final String authCode,
+                                  @NotNull final String containerLogUrl,
+                                  @NotNull final String type,
+                                  final int windowSize) {
+        this.authCode = authCode;
+        this.containerLogUrl = containerLogUrl;
+        this.type = type;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Fetch the next window and frame it into lines. If there is no new log, the pending line is taken as a full
+     * line since the backend producing logs line by line, which is an empty string if there is no pending line.
+     *
+     * @return the lines framed
+     */
+    @NotNull
+    public List<String> poll() {
+        final String logs = JobUtils.getInformationFromYarnLogDom(authCode, containerLogUrl, type, offset, windowSize);
+        final List<String> lines = new ArrayList<>();
+
+        if (frame(logs, lines)) {
+            nextPollIntervalMs = utf8Length(logs, 0, logs.length()) >= windowSize ? 0 : MIN_IDLE_INTERVAL_MS;
+        } else {
+            lines.add(pendingLine);
+            pendingLine = "";
+
+            nextPollIntervalMs = Math.min(
+                    Math.max(nextPollIntervalMs * 2, MIN_IDLE_INTERVAL_MS), MAX_IDLE_INTERVAL_MS);
+        }
+
+        return lines;
+    }
+
+    /**
+     * Fetch all the rest logs and frame them into lines, including the pending line.
+     *
+     * @return the lines framed
+     */
+    @NotNull
+    public List<String> drain() {
+        final String logs = JobUtils.getInformationFromYarnLogDom(authCode, containerLogUrl, type, offset, 0);
+        final List<String> lines = new ArrayList<>();
+
+        frame(logs, lines);
+
+        if (!pendingLine.isEmpty()) {
+            lines.add(trimCarriageReturn(pendingLine));
+            pendingLine = "";
+        }
+
+        return lines;
+    }
+
+    /**
+     * Frame the window logs into lines and move the offset forward
+     *
+     * @param logs the logs fetched from the current offset
+     * @param lines the lines framed output
+     * @return false if there is no log consumed
+     */
+    boolean frame(@NotNull final String logs, @NotNull final List<String> lines) {
+        final int lastLineBreak = logs.lastIndexOf('\n');
+
+        if (lastLineBreak < 0) {
+            // No line break found, the incomplete UTF-8 char at the end of window will be fetched again
+            final int end = completeCharsLength(logs);
+
+            if (end == 0) {
+                return false;
+            }
+
+            pendingLine = pendingLine.concat(logs.substring(0, end));
+            offset += utf8Length(logs, 0, end);
+
+            return true;
+        }
+
+        int lineStart = 0;
+        while (lineStart <= lastLineBreak) {
+            final int lineEnd = logs.indexOf('\n', lineStart);
+            String line = logs.substring(lineStart, lineEnd);
+
+            if (!pendingLine.isEmpty()) {
+                line = pendingLine.concat(line);
+                pendingLine = "";
+            }
+
+            lines.add(trimCarriageReturn(line));
+            lineStart = lineEnd + 1;
+        }
+
+        offset += utf8Length(logs, 0, lastLineBreak + 1);
+
+        return true;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the interval in milliseconds before the next poll
+     */
+    public long getNextPollIntervalMs() {
+        return nextPollIntervalMs;
+    }
+
+    /**
+     * Get the length of the window logs without the incomplete UTF-8 char at the end, which is decoded as
+     * replacement chars by the server since the window is cut by bytes. Only the trailing replacement chars an
+     * incomplete char can produce are stripped, the others come from the binary or mis-encoded logs and are kept,
+     * so that the offset still moves forward.
+     *
+     * @param logs the window logs
+     * @return the length of the complete chars
+     */
+    public static int completeCharsLength(@NotNull final String logs) {
+        final int minEnd = Math.max(logs.length() - MAX_INCOMPLETE_CHARS, 0);
+        int end = logs.length();
+        while (end > minEnd && logs.charAt(end - 1) == REPLACEMENT_CHAR) {
+            end--;
+        }
+
+        return end;
+    }
+
+    @NotNull
+    private static String trimCarriageReturn(@NotNull final String line) {
+        return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+    }
+
+    /**
+     * Count the UTF-8 encoded length of the chars without encoding them
+     *
+     * @param chars the chars to count
+     * @param start the start index, inclusive
+     * @param end the end index, exclusive
+     * @return the UTF-8 bytes count
+     */
+    public static long utf8Length(@NotNull final CharSequence chars, final int start, final int end) {
+        long length = 0;
+
+        for (int i = start; i < end; i++) {
+            final char c = chars.charAt(i);
+
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+
+        return length;
+    }
+}
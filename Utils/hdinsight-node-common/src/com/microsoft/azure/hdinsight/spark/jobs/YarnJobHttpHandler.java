@@ -22,17 +22,11 @@
 
 package com.microsoft.azure.hdinsight.spark.jobs;
 
-import com.microsoft.azure.hdinsight.sdk.common.HDIException;
-import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
-import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.App;
-import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.ApplicationMasterLogs;
 import com.microsoft.azure.hdinsight.spark.jobs.framework.JobRequestDetails;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
 import java.io.IOException;
-import java.util.Optional;
-import java.util.concurrent.ExecutionException;
 
 public class YarnJobHttpHandler implements HttpHandler {
     @Override
@@ -41,18 +35,12 @@ public class YarnJobHttpHandler implements HttpHandler {
 
         JobRequestDetails requestDetail = JobRequestDetails.getJobRequestDetail(httpExchange);
         String path = requestDetail.getRequestPath();
-        try {
-            if (path.contains("/apps/app") && requestDetail.isSpecificApp()) {
-                App app = JobViewCacheManager.getYarnApp(new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId()));
-                Optional<String> responseString = ObjectConvertUtils.convertObjectToJsonString(app);
-                JobUtils.setResponse(httpExchange, responseString.orElseThrow(IOException::new));
-            } else if (path.contains("/apps/logs") && requestDetail.isSpecificApp()) {
-                ApplicationMasterLogs logs = JobViewCacheManager.getYarnLogs(new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId()));
-                Optional<String> responseString = ObjectConvertUtils.convertObjectToJsonString(logs);
-                JobUtils.setResponse(httpExchange, responseString.orElseThrow(IOException::new));
-            }
-        } catch (ExecutionException e) {
-            JobUtils.setResponse(httpExchange, e.getMessage(), 500);
+        if (path.contains("/apps/app") && requestDetail.isSpecificApp()) {
+            JobViewRequestDispatcher.dispatchJson(httpExchange, "yarn_app", () ->
+                    JobViewCacheManager.getYarnApp(new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId())));
+        } else if (path.contains("/apps/logs") && requestDetail.isSpecificApp()) {
+            JobViewRequestDispatcher.dispatchJson(httpExchange, "yarn_logs", () ->
+                    JobViewCacheManager.getYarnLogs(new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId())));
         }
     }
 }
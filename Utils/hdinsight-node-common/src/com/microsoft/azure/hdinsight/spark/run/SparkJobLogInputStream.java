@@ -23,11 +23,13 @@
 package com.microsoft.azure.hdinsight.spark.run;
 
 import com.microsoft.azure.hdinsight.spark.common.ISparkBatchJob;
+import com.microsoft.azure.hdinsight.spark.jobs.YarnContainerLogTailer;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Optional;
 
@@ -43,6 +45,7 @@ public class SparkJobLogInputStream extends InputStream {
     @NotNull
     private byte[] buffer = new byte[0];
     private int bufferPos;
+    private long idleIntervalMs = YarnContainerLogTailer.MIN_IDLE_INTERVAL_MS;
 
     public SparkJobLogInputStream(@NotNull String logType) {
         this.logType = logType;
@@ -74,7 +77,7 @@ public class SparkJobLogInputStream extends InputStream {
             throw new IOException("Beyond the buffer end, needs a new log fetch");
         }
 
-        return buffer[bufferPos++];
+        return buffer[bufferPos++] & 0xFF;
     }
 
     @Override
@@ -82,16 +85,20 @@ public class SparkJobLogInputStream extends InputStream {
         if (bufferPos >= buffer.length) {
             return fetchLog(offset, -1)
                     .map(sliceOffsetPair -> {
-                        buffer = sliceOffsetPair.getKey().getBytes();
+                        // The Yarn log offset is counted in bytes
+                        buffer = sliceOffsetPair.getKey().getBytes(StandardCharsets.UTF_8);
                         bufferPos = 0;
-                        offset = sliceOffsetPair.getValue() + sliceOffsetPair.getKey().length();
+                        offset = sliceOffsetPair.getValue() + buffer.length;
+                        idleIntervalMs = YarnContainerLogTailer.MIN_IDLE_INTERVAL_MS;
 
                         return buffer.length;
                     }).orElseGet(() -> {
                         try {
-                            sleep(3000);
+                            sleep(idleIntervalMs);
                         } catch (InterruptedException ignore) { }
 
+                        idleIntervalMs = Math.min(idleIntervalMs * 2, YarnContainerLogTailer.MAX_IDLE_INTERVAL_MS);
+
                         return 0;
                     });
         } else {